@@ -0,0 +1,103 @@
+package controller.Admin;
+
+import model.AdminGridDAO;
+import org.json.simple.JSONValue;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+//Scrive le righe di una tabella in CSV (RFC 4180, con intestazione) oppure NDJSON (un oggetto JSON per riga)
+//man mano che arrivano dal DB: non conserva nulla oltre alla riga corrente.
+public class EsportatoreTabella implements AdminGridDAO.GestoreRiga {
+
+    public enum Formato { CSV, NDJSON }
+
+    private final Writer writer;
+    private final Formato formato;
+    private final List<AdminGridDAO.Colonna> colonne;
+    private long righe;
+
+    public EsportatoreTabella(Writer writer, Formato formato, List<AdminGridDAO.Colonna> colonne) throws IOException {
+        this.writer = writer;
+        this.formato = formato;
+        this.colonne = colonne;
+
+        if (formato == Formato.CSV) {
+            for (int i = 0; i < colonne.size(); i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                scriviCampoCsv(colonne.get(i).getNome());
+            }
+            writer.write("\r\n");
+        }
+    }
+
+    @Override
+    public void riga(Object[] valori) throws IOException {
+        if (formato == Formato.CSV) {
+            for (int i = 0; i < valori.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                if (valori[i] instanceof Number) {
+                    writer.write(valori[i].toString());
+                } else if (valori[i] != null) {
+                    scriviCampoCsv(neutralizzaFormula(valori[i].toString()));
+                }
+            }
+            writer.write("\r\n");
+        } else {
+            writer.write('{');
+            for (int i = 0; i < valori.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write('"');
+                writer.write(colonne.get(i).getNome());
+                writer.write("\":");
+                if (valori[i] == null) {
+                    writer.write("null");
+                } else if (valori[i] instanceof Number) {
+                    writer.write(valori[i].toString());
+                } else {
+                    writer.write('"');
+                    writer.write(JSONValue.escape(valori[i].toString()));
+                    writer.write('"');
+                }
+            }
+            writer.write("}\n");
+        }
+        righe++;
+    }
+
+    public long getRighe() {
+        return righe;
+    }
+
+    //Un testo che inizia con =, +, - o @ verrebbe eseguito come formula dal foglio di calcolo
+    private static String neutralizzaFormula(String valore) {
+        if (!valore.isEmpty() && "=+-@\t\r".indexOf(valore.charAt(0)) >= 0) {
+            return "'" + valore;
+        }
+        return valore;
+    }
+
+    //I campi con separatori, virgolette o a capo vanno tra virgolette, con le virgolette raddoppiate
+    private void scriviCampoCsv(String valore) throws IOException {
+        boolean daQuotare = false;
+        for (int i = 0; i < valore.length() && !daQuotare; i++) {
+            char c = valore.charAt(i);
+            daQuotare = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+
+        if (daQuotare) {
+            writer.write('"');
+            writer.write(valore.replace("\"", "\"\""));
+            writer.write('"');
+        } else {
+            writer.write(valore);
+        }
+    }
+}
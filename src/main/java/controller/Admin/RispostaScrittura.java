@@ -0,0 +1,36 @@
+package controller.Admin;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+import java.io.IOException;
+import java.util.List;
+
+//Risposta comune di inserimento, modifica e cancellazione delle tabelle admin: solo le chiavi delle righe
+//toccate e la nuova revisione della tabella (vedi RevisioniTabelle), invece dell'intera tabella.
+final class RispostaScrittura {
+
+    private RispostaScrittura() {
+    }
+
+    //Le richieste fatte da Tables.js chiedono JSON; i form inviati senza JavaScript tornano alla pagina della tabella
+    static boolean richiestaJson(HttpServletRequest req) {
+        String accept = req.getHeader("Accept");
+        return accept != null && accept.contains("application/json");
+    }
+
+    static void invia(HttpServletResponse resp, String tableName, List<String> chiavi, long revisione) throws IOException {
+        JSONObject risposta = new JSONObject();
+        risposta.put("tableName", tableName);
+        JSONArray jsonChiavi = new JSONArray();
+        jsonChiavi.addAll(chiavi);
+        risposta.put("chiavi", jsonChiavi);
+        risposta.put("revisione", revisione);
+
+        resp.setContentType("application/json");
+        resp.setCharacterEncoding("UTF-8");
+        resp.getWriter().write(risposta.toJSONString());
+    }
+}
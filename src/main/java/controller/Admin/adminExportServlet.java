@@ -0,0 +1,144 @@
+package controller.Admin;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import model.AdminGridDAO;
+import controller.Security.ServletUtils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+//Esportazione completa di una tabella dell'admin in CSV o NDJSON (parametro "format"), eventualmente compressa
+//in gzip (gzip=true). Le righe vengono lette in streaming dal DB e scritte subito nella risposta, quindi la memoria
+//usata non dipende dalla dimensione della tabella. Accetta gli stessi filtri "f_<colonna>" di adminGrid.
+//L'esportazione gira su un pool dedicato (servlet asincrona): il thread della richiesta torna subito a Tomcat
+//e al più ESPORTAZIONI_CONCORRENTI connessioni del pool vengono occupate dalle esportazioni.
+//Oltre a quelle in corso ne aspettano al più ESPORTAZIONI_IN_CODA: le altre ricevono subito 503, invece di
+//tenere aperta la connessione (senza timeout) in una coda senza limiti.
+@WebServlet(value = "/adminExport", asyncSupported = true)
+public class adminExportServlet extends HttpServlet {
+
+    static final int ESPORTAZIONI_CONCORRENTI = 2;
+    static final int ESPORTAZIONI_IN_CODA = 2;
+    private static final int BUFFER = 64 * 1024;
+    private static final String PREFISSO_FILTRO = "f_";
+
+    private ExecutorService esportazioni;
+
+    @Override
+    public void init() throws ServletException {
+        esportazioni = new ThreadPoolExecutor(ESPORTAZIONI_CONCORRENTI, ESPORTAZIONI_CONCORRENTI, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(ESPORTAZIONI_IN_CODA), runnable -> {
+            Thread thread = new Thread(runnable, "esportazione-admin");
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Override
+    public void destroy() {
+        esportazioni.shutdownNow();
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        try {
+            String tableName = req.getParameter("tableName");
+            AdminGridDAO.Tabella tabella = AdminGridDAO.getTabella(tableName);
+            if (tabella == null) {
+                ServletUtils.sendErrorSafe(resp, HttpServletResponse.SC_BAD_REQUEST, "Tabella non valida.");
+                return;
+            }
+
+            EsportatoreTabella.Formato formato;
+            try {
+                String formatParam = req.getParameter("format");
+                formato = formatParam == null || formatParam.isBlank() ? EsportatoreTabella.Formato.CSV : EsportatoreTabella.Formato.valueOf(formatParam.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                ServletUtils.sendErrorSafe(resp, HttpServletResponse.SC_BAD_REQUEST, "Formato non valido.");
+                return;
+            }
+            boolean gzip = Boolean.parseBoolean(req.getParameter("gzip"));
+
+            Map<String, String> filtri = new LinkedHashMap<>();
+            for (Map.Entry<String, String[]> param : req.getParameterMap().entrySet()) {
+                if (param.getKey().startsWith(PREFISSO_FILTRO) && param.getValue().length > 0) {
+                    String colonna = param.getKey().substring(PREFISSO_FILTRO.length());
+                    if (tabella.getColonna(colonna) == null) {
+                        ServletUtils.sendErrorSafe(resp, HttpServletResponse.SC_BAD_REQUEST, "Filtro non valido.");
+                        return;
+                    }
+                    filtri.put(colonna, param.getValue()[0]);
+                }
+            }
+
+            String nomeFile = tableName + (formato == EsportatoreTabella.Formato.CSV ? ".csv" : ".ndjson") + (gzip ? ".gz" : "");
+            if (gzip) {
+                resp.setContentType("application/gzip");
+            } else {
+                resp.setContentType(formato == EsportatoreTabella.Formato.CSV ? "text/csv" : "application/x-ndjson");
+                resp.setCharacterEncoding("UTF-8");
+            }
+            resp.setHeader("Content-Disposition", "attachment; filename=\"" + nomeFile + "\"");
+
+            AsyncContext asyncContext = req.startAsync();
+            //nessun timeout: la durata dipende dalla dimensione della tabella
+            asyncContext.setTimeout(0);
+            try {
+                esportazioni.execute(() -> esporta(asyncContext, tableName, tabella, filtri, formato, gzip));
+            } catch (RejectedExecutionException e) {
+                ServletUtils.sendErrorSafe(resp, HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Esportazione non disponibile.");
+                asyncContext.complete();
+            }
+        } catch (Exception e) {
+            log("Errore in adminExportServlet doGet", e);
+            if (!resp.isCommitted()) {
+                ServletUtils.sendErrorSafe(resp, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Errore interno durante l'esportazione.");
+            }
+        }
+    }
+
+    private void esporta(AsyncContext asyncContext, String tableName, AdminGridDAO.Tabella tabella, Map<String, String> filtri, EsportatoreTabella.Formato formato, boolean gzip) {
+        HttpServletResponse resp = (HttpServletResponse) asyncContext.getResponse();
+        try {
+            OutputStream out = resp.getOutputStream();
+            if (gzip) {
+                out = new GZIPOutputStream(out, BUFFER);
+            }
+            //il writer viene chiuso solo se l'esportazione va a buon fine: in caso di errore prima del primo
+            //flush il contenuto nel buffer viene scartato e il client riceve un errore invece di un file vuoto
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER);
+            EsportatoreTabella esportatore = new EsportatoreTabella(writer, formato, tabella.getColonne());
+            new AdminGridDAO().doStreamTabella(tableName, filtri, esportatore);
+            writer.close();
+        } catch (IllegalArgumentException e) {
+            if (!resp.isCommitted()) {
+                ServletUtils.sendErrorSafe(resp, HttpServletResponse.SC_BAD_REQUEST, "Filtro non valido.");
+            }
+        } catch (Exception e) {
+            //se l'errore arriva a risposta già iniziata il file scaricato resta troncato: non si può più cambiare lo stato
+            log("Errore durante l'esportazione della tabella " + tableName, e);
+            if (!resp.isCommitted()) {
+                ServletUtils.sendErrorSafe(resp, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Errore interno durante l'esportazione.");
+            }
+        } finally {
+            asyncContext.complete();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package controller.Admin;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import model.AdminGridDAO;
+import model.RevisioniTabelle;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+import controller.Security.ServletUtils;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+//API JSON delle tabelle dell'area admin, usata dalle pagine showTable per caricare le righe a pagine
+//mentre si scorre. Parametri: tableName, sort e dir (asc/desc), cursor (restituito dalla pagina precedente),
+//limit e un parametro "f_<colonna>" per ogni filtro.
+//La prima pagina contiene anche la descrizione delle colonne, il numero totale di righe filtrate
+//e la revisione della tabella (RevisioniTabelle).
+@WebServlet(value = "/adminGrid")
+public class adminGridServlet extends HttpServlet {
+
+    private static final String PREFISSO_FILTRO = "f_";
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        try {
+            String tableName = req.getParameter("tableName");
+            AdminGridDAO.Tabella tabella = AdminGridDAO.getTabella(tableName);
+            if (tabella == null) {
+                ServletUtils.sendErrorSafe(resp, HttpServletResponse.SC_BAD_REQUEST, "Tabella non valida.");
+                return;
+            }
+
+            String sort = req.getParameter("sort");
+            boolean discendente = "desc".equalsIgnoreCase(req.getParameter("dir"));
+
+            int limit = AdminGridDAO.LIMIT_DEFAULT;
+            String limitParam = req.getParameter("limit");
+            List<String> cursor;
+            try {
+                if (limitParam != null && !limitParam.isBlank()) {
+                    limit = Integer.parseInt(limitParam);
+                }
+                cursor = leggiCursor(req.getParameter("cursor"));
+            } catch (NumberFormatException | ParseException | ClassCastException e) {
+                ServletUtils.sendErrorSafe(resp, HttpServletResponse.SC_BAD_REQUEST, "Parametri di paginazione non validi.");
+                return;
+            }
+
+            Map<String, String> filtri = new LinkedHashMap<>();
+            for (Map.Entry<String, String[]> param : req.getParameterMap().entrySet()) {
+                if (param.getKey().startsWith(PREFISSO_FILTRO) && param.getValue().length > 0) {
+                    filtri.put(param.getKey().substring(PREFISSO_FILTRO.length()), param.getValue()[0]);
+                }
+            }
+
+            //letta prima della query: una scrittura concorrente fa risultare la pagina vecchia, mai il contrario
+            long revisione = RevisioniTabelle.get(tableName);
+            AdminGridDAO.Pagina pagina;
+            try {
+                pagina = new AdminGridDAO().doRetrievePagina(tableName, sort, discendente, filtri, cursor, limit);
+            } catch (IllegalArgumentException e) {
+                ServletUtils.sendErrorSafe(resp, HttpServletResponse.SC_BAD_REQUEST, "Ordinamento o filtri non validi.");
+                return;
+            }
+
+            JSONObject json = new JSONObject();
+            JSONArray righe = new JSONArray();
+            for (Map<String, Object> riga : pagina.getRighe()) {
+                righe.add(new JSONObject(riga));
+            }
+            json.put("righe", righe);
+
+            JSONArray nextCursor = null;
+            if (pagina.getCursor() != null) {
+                nextCursor = new JSONArray();
+                nextCursor.addAll(pagina.getCursor());
+            }
+            json.put("cursor", nextCursor);
+
+            if (cursor == null) {
+                json.put("totale", pagina.getTotale());
+                json.put("revisione", revisione);
+                JSONArray chiave = new JSONArray();
+                chiave.addAll(tabella.getChiave());
+                json.put("chiave", chiave);
+                JSONArray colonne = new JSONArray();
+                for (AdminGridDAO.Colonna colonna : tabella.getColonne()) {
+                    JSONObject colonnaJson = new JSONObject();
+                    colonnaJson.put("nome", colonna.getNome());
+                    colonnaJson.put("tipo", colonna.getTipo().name());
+                    colonnaJson.put("ordinabile", colonna.isOrdinabile());
+                    colonne.add(colonnaJson);
+                }
+                json.put("colonne", colonne);
+            }
+
+            resp.setContentType("application/json");
+            resp.setCharacterEncoding("UTF-8");
+            try (PrintWriter out = resp.getWriter()) {
+                out.println(json.toJSONString());
+                out.flush();
+            }
+        } catch (Exception e) {
+            log("Errore in adminGridServlet doGet", e);
+            if (!resp.isCommitted()) {
+                ServletUtils.sendErrorSafe(resp, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Errore interno durante il caricamento della tabella.");
+            }
+        }
+    }
+
+    //Il cursore viaggia come array JSON di stringhe, esattamente come è stato restituito
+    private static List<String> leggiCursor(String cursorParam) throws ParseException {
+        if (cursorParam == null || cursorParam.isBlank()) {
+            return null;
+        }
+        JSONArray array = (JSONArray) new JSONParser().parse(cursorParam);
+        List<String> cursor = new ArrayList<>();
+        for (Object valore : array) {
+            cursor.add((String) valore);
+        }
+        return cursor;
+    }
+}
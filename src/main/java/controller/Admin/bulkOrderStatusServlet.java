@@ -0,0 +1,88 @@
+package controller.Admin;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import model.Ordine;
+import model.OrdineDao;
+import model.RevisioniTabelle;
+import model.StatoOrdine;
+import org.json.simple.JSONArray;
+import controller.Security.ServletUtils;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+//Cambio di stato di più ordini in una volta (es. spedizioni di fine giornata).
+//Gli ordini si selezionano per id (parametro "ids", separati da virgola) oppure per data
+//(parametro "dataFino": tutti gli ordini fino a quella data nello stato di partenza corretto).
+//Risponde con le sole righe modificate, in JSON, così la tabella viene aggiornata senza ricaricarla.
+@WebServlet(value = "/bulkOrderStatus")
+public class bulkOrderStatusServlet extends HttpServlet {
+
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        try {
+            String stato = req.getParameter("stato");
+            String idsParam = req.getParameter("ids");
+            String dataFino = req.getParameter("dataFino");
+
+            if (!StatoOrdine.isStatoDiArrivo(stato)) {
+                ServletUtils.sendErrorSafe(resp, HttpServletResponse.SC_BAD_REQUEST, "Stato non valido.");
+                return;
+            }
+
+            OrdineDao ordineDao = new OrdineDao();
+            List<Ordine> aggiornati;
+
+            if (idsParam != null && !idsParam.isBlank()) {
+                List<Integer> ids = new ArrayList<>();
+                try {
+                    for (String id : idsParam.split(",")) {
+                        ids.add(Integer.parseInt(id.trim()));
+                    }
+                } catch (NumberFormatException e) {
+                    ServletUtils.sendErrorSafe(resp, HttpServletResponse.SC_BAD_REQUEST, "Id ordine non valido.");
+                    return;
+                }
+                aggiornati = ordineDao.doUpdateStatoByIds(ids, stato);
+            } else if (dataFino != null && !dataFino.isBlank()) {
+                java.sql.Date data;
+                try {
+                    data = java.sql.Date.valueOf(dataFino);
+                } catch (IllegalArgumentException e) {
+                    ServletUtils.sendErrorSafe(resp, HttpServletResponse.SC_BAD_REQUEST, "Data non valida.");
+                    return;
+                }
+                aggiornati = ordineDao.doUpdateStatoByData(data, stato);
+            } else {
+                ServletUtils.sendErrorSafe(resp, HttpServletResponse.SC_BAD_REQUEST, "Nessun ordine selezionato.");
+                return;
+            }
+
+            if (!aggiornati.isEmpty()) {
+                RevisioniTabelle.incrementa("ordine");
+            }
+
+            JSONArray jsonArray = new JSONArray();
+            for (Ordine ordine : aggiornati) {
+                jsonArray.add(showRowForm.jsonOrdineHelper(ordine));
+            }
+
+            resp.setContentType("application/json");
+            try (PrintWriter out = resp.getWriter()) {
+                out.println(jsonArray.toJSONString());
+                out.flush();
+            }
+        } catch (Exception e) {
+            log("Errore in bulkOrderStatusServlet doPost", e);
+            if (!resp.isCommitted()) {
+                ServletUtils.sendErrorSafe(resp, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Errore interno durante l'aggiornamento degli ordini.");
+            }
+        }
+    }
+}
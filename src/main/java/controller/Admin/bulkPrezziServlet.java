@@ -0,0 +1,83 @@
+package controller.Admin;
+
+import controller.LoadOnStartup;
+import controller.Security.ServletUtils;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import model.CatalogoCache;
+import model.RevisioniTabelle;
+import model.VarianteDAO;
+import org.json.simple.JSONObject;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+//Aggiornamento massivo di sconto, prezzo ed evidenza delle varianti (es. l'inizio dei saldi).
+//Le varianti si scelgono con "criterio" (categoria, gusto, confezione o ids) e "valori" (separati da virgola);
+//"sconto" imposta lo sconto, "variazione" cambia il prezzo in percentuale (es. -10), "evidenza" vale 1 o 0.
+//Dopo l'aggiornamento il catalogo del negozio viene ripubblicato una sola volta.
+@WebServlet(value = "/bulkPrezzi")
+public class bulkPrezziServlet extends HttpServlet {
+
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        try {
+            String criterio = req.getParameter("criterio");
+            String valoriParam = req.getParameter("valori");
+
+            List<String> valori = new ArrayList<>();
+            if (valoriParam != null) {
+                for (String valore : valoriParam.split(",")) {
+                    if (!valore.isBlank()) {
+                        valori.add(valore.trim());
+                    }
+                }
+            }
+            if (valori.isEmpty()) {
+                ServletUtils.sendErrorSafe(resp, HttpServletResponse.SC_BAD_REQUEST, "Nessuna variante selezionata.");
+                return;
+            }
+
+            int aggiornate;
+            try {
+                Integer sconto = isPresente(req.getParameter("sconto")) ? Integer.valueOf(req.getParameter("sconto").trim()) : null;
+                Float variazione = isPresente(req.getParameter("variazione")) ? Float.valueOf(req.getParameter("variazione").trim()) : null;
+                Boolean evidenza = isPresente(req.getParameter("evidenza")) ? "1".equals(req.getParameter("evidenza").trim()) : null;
+
+                aggiornate = new VarianteDAO().doUpdatePrezzi(criterio, valori, sconto, variazione, evidenza);
+            } catch (IllegalArgumentException e) {
+                //parametri non numerici, criterio sconosciuto o valori fuori intervallo
+                ServletUtils.sendErrorSafe(resp, HttpServletResponse.SC_BAD_REQUEST, "Parametri non validi.");
+                return;
+            }
+
+            JSONObject risposta = new JSONObject();
+            risposta.put("aggiornate", aggiornate);
+            if (aggiornate > 0) {
+                risposta.put("revisione", RevisioniTabelle.incrementa("variante"));
+                CatalogoCache.Istantanea catalogo = LoadOnStartup.pubblicaCatalogo(getServletContext());
+                risposta.put("versioneCatalogo", catalogo.getVersione());
+            } else {
+                risposta.put("revisione", RevisioniTabelle.get("variante"));
+                risposta.put("versioneCatalogo", CatalogoCache.getVersione());
+            }
+
+            resp.setContentType("application/json");
+            resp.setCharacterEncoding("UTF-8");
+            resp.getWriter().write(risposta.toJSONString());
+        } catch (Exception e) {
+            log("Errore in bulkPrezziServlet doPost", e);
+            if (!resp.isCommitted()) {
+                ServletUtils.sendErrorSafe(resp, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Errore interno durante l'aggiornamento dei prezzi.");
+            }
+        }
+    }
+
+    private static boolean isPresente(String parametro) {
+        return parametro != null && !parametro.isBlank();
+    }
+}
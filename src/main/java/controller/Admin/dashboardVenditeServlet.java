@@ -0,0 +1,103 @@
+package controller.Admin;
+
+import controller.Security.ServletUtils;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import model.RicostruzioneVendite;
+import model.RiepilogoVenditeDAO;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+
+//Dashboard delle vendite dell'AreaAdmin: legge solo i riepiloghi pre-aggregati (mai dettaglio_ordine).
+//GET con "da" e "a" (yyyy-MM-dd, di default gli ultimi 30 giorni): vendite per giorno, per categoria
+//e le varianti più vendute. POST con azione=ricostruisci: ricostruisce i riepiloghi dallo storico degli ordini.
+@WebServlet(value = "/dashboardVendite")
+public class dashboardVenditeServlet extends HttpServlet {
+
+    private static final int GIORNI_DEFAULT = 30;
+    private static final int VARIANTI_PIU_VENDUTE = 10;
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        try {
+            LocalDate a;
+            LocalDate da;
+            try {
+                a = isPresente(req.getParameter("a")) ? LocalDate.parse(req.getParameter("a")) : LocalDate.now();
+                da = isPresente(req.getParameter("da")) ? LocalDate.parse(req.getParameter("da")) : a.minusDays(GIORNI_DEFAULT - 1);
+            } catch (DateTimeParseException e) {
+                ServletUtils.sendErrorSafe(resp, HttpServletResponse.SC_BAD_REQUEST, "Data non valida.");
+                return;
+            }
+            if (da.isAfter(a)) {
+                ServletUtils.sendErrorSafe(resp, HttpServletResponse.SC_BAD_REQUEST, "Intervallo non valido.");
+                return;
+            }
+
+            java.sql.Date inizio = java.sql.Date.valueOf(da);
+            java.sql.Date fine = java.sql.Date.valueOf(a);
+            RiepilogoVenditeDAO riepilogoDao = new RiepilogoVenditeDAO();
+
+            JSONObject risposta = new JSONObject();
+            risposta.put("da", da.toString());
+            risposta.put("a", a.toString());
+            risposta.put("giorni", toJson(riepilogoDao.doRetrievePerGiorno(inizio, fine)));
+            risposta.put("categorie", toJson(riepilogoDao.doRetrievePerCategoria(inizio, fine)));
+            risposta.put("varianti", toJson(riepilogoDao.doRetrievePerVariante(inizio, fine, VARIANTI_PIU_VENDUTE)));
+            risposta.put("ricostruzioneInCorso", RicostruzioneVendite.isInCorso());
+
+            resp.setContentType("application/json");
+            resp.setCharacterEncoding("UTF-8");
+            resp.getWriter().write(risposta.toJSONString());
+        } catch (Exception e) {
+            log("Errore in dashboardVenditeServlet doGet", e);
+            if (!resp.isCommitted()) {
+                ServletUtils.sendErrorSafe(resp, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Errore interno durante la lettura delle vendite.");
+            }
+        }
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        try {
+            if (!"ricostruisci".equals(req.getParameter("azione"))) {
+                ServletUtils.sendErrorSafe(resp, HttpServletResponse.SC_BAD_REQUEST, "Azione non valida.");
+                return;
+            }
+
+            JSONObject risposta = new JSONObject();
+            risposta.put("avviata", RicostruzioneVendite.avvia());
+
+            resp.setStatus(HttpServletResponse.SC_ACCEPTED);
+            resp.setContentType("application/json");
+            resp.setCharacterEncoding("UTF-8");
+            resp.getWriter().write(risposta.toJSONString());
+        } catch (Exception e) {
+            log("Errore in dashboardVenditeServlet doPost", e);
+            if (!resp.isCommitted()) {
+                ServletUtils.sendErrorSafe(resp, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Errore interno durante la ricostruzione delle vendite.");
+            }
+        }
+    }
+
+    private static JSONArray toJson(List<Map<String, Object>> righe) {
+        JSONArray jsonArray = new JSONArray();
+        for (Map<String, Object> riga : righe) {
+            jsonArray.add(new JSONObject(riga));
+        }
+        return jsonArray;
+    }
+
+    private static boolean isPresente(String parametro) {
+        return parametro != null && !parametro.isBlank();
+    }
+}
@@ -6,17 +6,16 @@ import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import model.*;
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
 import controller.Security.ServletUtils;
+import org.json.simple.JSONArray;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
 
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
-import static controller.Admin.showRowForm.*;
-
 @WebServlet(value = "/deleteRow")
 public class deleteRowServlet extends HttpServlet {
     @Override
@@ -24,7 +23,7 @@ public class deleteRowServlet extends HttpServlet {
         try {
             // prendiamo i dati dalla request
             String tableName = req.getParameter("tableName");
-            String primaryKey = req.getParameter("primaryKey");
+            String chiaviParam = req.getParameter("chiavi");
             Utente utente = (Utente) req.getSession().getAttribute("Utente");
 
             if (tableName == null || tableName.isBlank()) {
@@ -34,37 +33,52 @@ public class deleteRowServlet extends HttpServlet {
 
             // usato per controllare se admin cancella il suo stesso profilo
             boolean isTheSame = false;
-
-            JSONArray jsonArray = null;
-            boolean success = switch (tableName) {
-                case "utente" -> handleRemoveRowFromUtente(primaryKey);
-                case "prodotto" -> handleRemoveRowFromProdotto(primaryKey);
-                case "variante" -> handleRemoveRowFromVariante(primaryKey);
-                case "ordine" -> handleRemoveRowFromOrdine(primaryKey);
-                case "dettaglioOrdine" -> handleRemoveRowFromDettaglioOrdine(primaryKey);
-                case "gusto" -> handleRemoveRowFromGusto(primaryKey);
-                case "confezione" -> handleRemoveRowFromConfezione(primaryKey);
-                default -> false;
-            };
-
-            if (success && tableName.equals("utente")) {
-                isTheSame = checkIfAdminDeletingSelf(primaryKey, utente);
+            boolean success;
+            List<String> chiavi;
+
+            if (chiaviParam != null) {
+                // cancellazione multipla: un'unica DELETE per tutte le righe selezionate
+                List<List<String>> valori = leggiChiavi(chiaviParam);
+                success = valori != null && handleRemoveRows(tableName, valori);
+                chiavi = new ArrayList<>();
+                if (success) {
+                    for (List<String> chiave : valori) {
+                        chiavi.add(String.join(", ", chiave));
+                        if (tableName.equals("utente")) {
+                            isTheSame |= checkIfAdminDeletingSelf(chiave.get(0), utente);
+                        }
+                    }
+                }
+            } else {
+                String primaryKey = req.getParameter("primaryKey");
+                chiavi = Collections.singletonList(primaryKey);
+                success = switch (tableName) {
+                    case "utente" -> handleRemoveRowFromUtente(primaryKey);
+                    case "prodotto" -> handleRemoveRowFromProdotto(primaryKey);
+                    case "variante" -> handleRemoveRowFromVariante(primaryKey);
+                    case "ordine" -> handleRemoveRowFromOrdine(primaryKey);
+                    case "dettaglioOrdine" -> handleRemoveRowFromDettaglioOrdine(primaryKey);
+                    case "gusto" -> handleRemoveRowFromGusto(primaryKey);
+                    case "confezione" -> handleRemoveRowFromConfezione(primaryKey);
+                    default -> false;
+                };
+                if (success && tableName.equals("utente")) {
+                    isTheSame = checkIfAdminDeletingSelf(primaryKey, utente);
+                }
             }
 
             if (isTheSame) {
+                RevisioniTabelle.incrementa(tableName);
                 req.getSession(false).invalidate();
                 resp.sendRedirect("index.jsp");
                 return; // Interrompe l'esecuzione
-            } else {
-                if (success) {
-                    jsonArray = getJsonArrayForTable(tableName);
-                }
+            }
 
-                if (jsonArray != null) {
-                    sendJsonResponse(jsonArray, resp);
-                } else {
-                    ServletUtils.sendErrorSafe(resp, HttpServletResponse.SC_BAD_REQUEST, "Invalid table name or primary key.");
-                }
+            if (success) {
+                // solo le chiavi eliminate e la nuova revisione: Tables.js toglie le righe senza ricaricare la tabella
+                RispostaScrittura.invia(resp, tableName, chiavi, RevisioniTabelle.incrementa(tableName));
+            } else {
+                ServletUtils.sendErrorSafe(resp, HttpServletResponse.SC_BAD_REQUEST, "Invalid table name or primary key.");
             }
         } catch (Exception e) {
             log("Errore in doGet deleteRowServlet", e);
@@ -74,9 +88,74 @@ public class deleteRowServlet extends HttpServlet {
         }
     }
 
-    private boolean checkIfAdminDeletingSelf(String primaryKey, Utente utente) {
-        System.out.println("Checking if admin is deleting self"); // Log per debug
+    // le chiavi arrivano come array JSON di array, un valore per colonna della chiave primaria:
+    // [["1","P1","3"],["2","P1","4"]]. null se il parametro non ha questa forma
+    private static List<List<String>> leggiChiavi(String chiaviParam) {
+        try {
+            Object letto = new JSONParser().parse(chiaviParam);
+            if (!(letto instanceof JSONArray array) || array.isEmpty()) {
+                return null;
+            }
+            List<List<String>> chiavi = new ArrayList<>();
+            for (Object elemento : array) {
+                if (!(elemento instanceof JSONArray valori)) {
+                    return null;
+                }
+                List<String> chiave = new ArrayList<>();
+                for (Object valore : valori) {
+                    if (valore == null) {
+                        return null;
+                    }
+                    chiave.add(valore.toString());
+                }
+                chiavi.add(chiave);
+            }
+            return chiavi;
+        } catch (ParseException e) {
+            return null;
+        }
+    }
+
+    // ogni chiave passa gli stessi controlli della cancellazione singola prima della DELETE comune:
+    // basta una chiave non valida per non eliminare nulla
+    private boolean handleRemoveRows(String tableName, List<List<String>> chiavi) {
+        AdminGridDAO.Tabella tabella = AdminGridDAO.getTabella(tableName);
+        if (tabella == null) {
+            return false;
+        }
+
+        UtenteDAO utenteDAO = tableName.equals("utente") ? new UtenteDAO() : null;
+        ProdottoDAO prodottoDAO = tableName.equals("prodotto") ? new ProdottoDAO() : null;
+        VarianteDAO varianteDAO = tableName.equals("variante") ? new VarianteDAO() : null;
+        for (List<String> chiave : chiavi) {
+            if (chiave.size() != tabella.getChiave().size() || chiave.stream().anyMatch(String::isBlank)) {
+                return false;
+            }
+            String primaryKey = chiave.get(0);
+            boolean valida = switch (tableName) {
+                case "utente" -> utenteDAO.doRetrieveByEmail(primaryKey) != null;
+                case "prodotto" -> prodottoDAO.doRetrieveById(primaryKey) != null;
+                case "variante" -> isValidPrimaryKey(primaryKey)
+                        && varianteDAO.doRetrieveVarianteByIdVariante(Integer.parseInt(primaryKey)) != null;
+                case "ordine", "gusto", "confezione" -> isValidPrimaryKey(primaryKey);
+                case "dettaglioOrdine" -> isValidPrimaryKey(primaryKey) && isValidPrimaryKey(chiave.get(2));
+                default -> false;
+            };
+            if (!valida) {
+                return false;
+            }
+        }
 
+        try {
+            new AdminGridDAO().doDeleteByChiavi(tableName, chiavi);
+            return true;
+        } catch (IllegalArgumentException e) {
+            // formato di un valore non valido per il tipo della colonna
+            return false;
+        }
+    }
+
+    private boolean checkIfAdminDeletingSelf(String primaryKey, Utente utente) {
         // Controlla prima che 'utente' non sia nullo
         if (utente == null || primaryKey == null || primaryKey.isBlank()) {
             return false;
@@ -180,91 +259,6 @@ public class deleteRowServlet extends HttpServlet {
         return false;
     }
 
-    // metodo che in base a tableName prende tutte le tuple e le inserisce in un
-    // JSONArray
-    private JSONArray getJsonArrayForTable(String tableName) {
-        return switch (tableName) {
-            case "utente" -> getAllUtentiJsonArray(new UtenteDAO());
-            case "prodotto" -> getAllProdottiJsonArray(new ProdottoDAO());
-            case "variante" -> getAllVariantiJsonArray(new VarianteDAO());
-            case "ordine" -> getAllOrdiniJsonArray(new OrdineDao());
-            case "dettaglioOrdine" -> getAllDettagliOrdiniJsonArray(new DettaglioOrdineDAO());
-            case "gusto" -> getAllGustiJsonArray(new GustoDAO());
-            case "confezione" -> getAllConfezioniJsonArray(new ConfezioneDAO());
-            default -> null;
-        };
-    }
-
-    private static JSONArray getAllUtentiJsonArray(UtenteDAO utenteDAO) {
-        List<Utente> utenti = utenteDAO.doRetrieveAll();
-        JSONArray jsonArray = new JSONArray();
-        for (Utente utente : utenti) {
-            jsonArray.add(jsonHelperHere(utente));
-        }
-        return jsonArray;
-    }
-
-    private static JSONArray getAllProdottiJsonArray(ProdottoDAO prodottoDAO) {
-        List<Prodotto> prodotti = prodottoDAO.doRetrieveAll();
-        JSONArray jsonArray = new JSONArray();
-        for (Prodotto prodotto : prodotti) {
-            jsonArray.add(jsonProductHelper(prodotto));
-        }
-        return jsonArray;
-    }
-
-    private static JSONArray getAllVariantiJsonArray(VarianteDAO varianteDAO) {
-        List<Variante> varianti = varianteDAO.doRetrieveAll();
-        JSONArray jsonArray = new JSONArray();
-        for (Variante variante : varianti) {
-            jsonArray.add(jsonVarianteHelper(variante));
-        }
-        return jsonArray;
-    }
-
-    private static JSONArray getAllOrdiniJsonArray(OrdineDao ordineDao) {
-        List<Ordine> ordini = ordineDao.doRetrieveAll();
-        JSONArray jsonArray = new JSONArray();
-        for (Ordine ordine : ordini) {
-            jsonArray.add(jsonOrdineHelper(ordine));
-        }
-        return jsonArray;
-    }
-
-    private static JSONArray getAllDettagliOrdiniJsonArray(DettaglioOrdineDAO dettaglioOrdineDAO) {
-        List<DettaglioOrdine> dettagliOrdini = dettaglioOrdineDAO.doRetrieveAll();
-        JSONArray jsonArray = new JSONArray();
-        for (DettaglioOrdine dettaglioOrdine : dettagliOrdini) {
-            jsonArray.add(dettaglioOrdineHelper(dettaglioOrdine));
-        }
-        return jsonArray;
-    }
-
-    private static JSONArray getAllGustiJsonArray(GustoDAO gustoDAO) {
-        List<Gusto> gusti = gustoDAO.doRetrieveAll();
-        JSONArray jsonArray = new JSONArray();
-        for (Gusto gusto : gusti) {
-            jsonArray.add(gustoHelper(gusto));
-        }
-        return jsonArray;
-    }
-
-    private static JSONArray getAllConfezioniJsonArray(ConfezioneDAO confezioneDAO) {
-        List<Confezione> confezioni = confezioneDAO.doRetrieveAll();
-        JSONArray jsonArray = new JSONArray();
-        for (Confezione confezione : confezioni) {
-            jsonArray.add(confezioneHelper(confezione));
-        }
-        return jsonArray;
-    }
-
-    private static void sendJsonResponse(JSONArray jsonArray, HttpServletResponse response) throws IOException {
-        response.setContentType("application/json");
-        PrintWriter o = response.getWriter();
-        o.println(jsonArray);
-        o.flush();
-    }
-
     private boolean isValidPrimaryKey(String primaryKey) {
         if (primaryKey == null || primaryKey.isBlank()) {
             return false;
@@ -277,23 +271,6 @@ public class deleteRowServlet extends HttpServlet {
         }
     }
 
-    // metodo che crea un oggetto JSON dell'utente
-    protected static JSONObject jsonHelperHere(Utente x) {
-        JSONObject userObject = new JSONObject();
-        userObject.put("email", x.getEmail());
-        userObject.put("nome", x.getNome());
-        userObject.put("cognome", x.getCognome());
-        userObject.put("codiceFiscale", x.getCodiceFiscale());
-        if (x.getDataNascita() != null) {
-            userObject.put("dataDiNascita", new SimpleDateFormat("yyyy-MM-dd").format(x.getDataNascita()));
-        } else {
-            userObject.put("dataDiNascita", "");
-        }
-        userObject.put("indirizzo", x.getIndirizzo());
-        userObject.put("telefono", x.getTelefono());
-        return userObject;
-    }
-
     @Override
     protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
         try {
@@ -67,9 +67,14 @@ public class editRowServlet extends HttpServlet {
                         success = editConfezione(req, primaryKey);
             }
 
-            // se ha funzionato tutto correttamente mostra la tabella
+            // se ha funzionato tutto correttamente restituisce la chiave modificata (o mostra la tabella)
             if (success) {
-                req.getRequestDispatcher("showTable?tableName=" + tableName).forward(req, resp);
+                long revisione = RevisioniTabelle.incrementa(tableName);
+                if (RispostaScrittura.richiestaJson(req)) {
+                    RispostaScrittura.invia(resp, tableName, List.of(primaryKey), revisione);
+                } else {
+                    req.getRequestDispatcher("showTable?tableName=" + tableName).forward(req, resp);
+                }
             } else {
                 ServletUtils.sendErrorSafe(resp, HttpServletResponse.SC_BAD_REQUEST, "Invalid input data.");
             }
@@ -0,0 +1,154 @@
+package controller.Admin;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.MultipartConfig;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.Part;
+import model.ImportatoreCatalogo;
+import model.RevisioniTabelle;
+import controller.LoadOnStartup;
+import controller.Security.ServletUtils;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+//Importazione massiva del catalogo: accetta un CSV (con il parametro tableName) oppure uno ZIP che contiene
+//gusto.csv, confezione.csv, prodotto.csv e/o variante.csv, importati sempre in quest'ordine.
+//Risponde con il numero di righe importate per tabella e l'elenco degli errori per riga.
+@WebServlet("/importCatalogo")
+@MultipartConfig(fileSizeThreshold = 1024 * 1024, maxFileSize = 50L * 1024 * 1024, maxRequestSize = 51L * 1024 * 1024)
+public class importCatalogoServlet extends HttpServlet {
+
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        Path zipTemporaneo = null;
+        try {
+            Part filePart = req.getPart("file");
+            if (filePart == null || filePart.getSize() == 0 || filePart.getSubmittedFileName() == null) {
+                ServletUtils.sendErrorSafe(resp, HttpServletResponse.SC_BAD_REQUEST, "File mancante.");
+                return;
+            }
+            String nomeFile = Paths.get(filePart.getSubmittedFileName()).getFileName().toString();
+
+            JSONObject risposta;
+            if (nomeFile.toLowerCase().endsWith(".zip")) {
+                //ZipFile richiede un file su disco, ma permette di leggere le voci nell'ordine delle tabelle
+                zipTemporaneo = Files.createTempFile("catalogo", ".zip");
+                try (InputStream in = filePart.getInputStream()) {
+                    Files.copy(in, zipTemporaneo, StandardCopyOption.REPLACE_EXISTING);
+                }
+                risposta = importaZip(zipTemporaneo);
+                if (risposta == null) {
+                    ServletUtils.sendErrorSafe(resp, HttpServletResponse.SC_BAD_REQUEST, "Lo ZIP non contiene file del catalogo.");
+                    return;
+                }
+            } else {
+                String tableName = req.getParameter("tableName");
+                if (tableName == null || !ImportatoreCatalogo.TABELLE.contains(tableName)) {
+                    ServletUtils.sendErrorSafe(resp, HttpServletResponse.SC_BAD_REQUEST, "Invalid table name.");
+                    return;
+                }
+                try (ImportatoreCatalogo importatore = new ImportatoreCatalogo();
+                     InputStream in = filePart.getInputStream()) {
+                    importatore.importa(tableName, nomeFile, lettore(in));
+                    risposta = esito(importatore);
+                }
+            }
+
+            JSONObject importate = (JSONObject) risposta.get("importate");
+            for (Object tabella : importate.keySet()) {
+                RevisioniTabelle.incrementa((String) tabella);
+            }
+            //una sola rilettura della cache del catalogo alla fine dell'importazione
+            LoadOnStartup.pubblicaCatalogo(getServletContext());
+
+            resp.setContentType("application/json");
+            resp.setCharacterEncoding("UTF-8");
+            resp.getWriter().write(risposta.toJSONString());
+        } catch (Exception e) {
+            log("Errore in importCatalogoServlet doPost", e);
+            if (!resp.isCommitted()) {
+                ServletUtils.sendErrorSafe(resp, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Errore interno durante l'importazione.");
+            }
+        } finally {
+            if (zipTemporaneo != null) {
+                Files.deleteIfExists(zipTemporaneo);
+            }
+        }
+    }
+
+    //Restituisce null se lo ZIP non contiene nessuno dei file attesi
+    private JSONObject importaZip(Path zip) throws IOException {
+        try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+            Map<String, ZipEntry> voci = new HashMap<>();
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (!entry.isDirectory()) {
+                    voci.put(Paths.get(entry.getName()).getFileName().toString().toLowerCase(), entry);
+                }
+            }
+
+            boolean trovato = false;
+            for (String tabella : ImportatoreCatalogo.TABELLE) {
+                trovato |= voci.containsKey(tabella + ".csv");
+            }
+            if (!trovato) {
+                return null;
+            }
+
+            try (ImportatoreCatalogo importatore = new ImportatoreCatalogo()) {
+                for (String tabella : ImportatoreCatalogo.TABELLE) {
+                    ZipEntry entry = voci.get(tabella + ".csv");
+                    if (entry != null) {
+                        try (InputStream in = zipFile.getInputStream(entry)) {
+                            importatore.importa(tabella, entry.getName(), lettore(in));
+                        }
+                    }
+                }
+                return esito(importatore);
+            }
+        }
+    }
+
+    private static Reader lettore(InputStream in) {
+        //LettoreCsv legge già a blocchi, non serve un BufferedReader
+        return new InputStreamReader(in, StandardCharsets.UTF_8);
+    }
+
+    private static JSONObject esito(ImportatoreCatalogo importatore) {
+        JSONObject risposta = new JSONObject();
+        JSONObject importate = new JSONObject();
+        importate.putAll(importatore.getImportate());
+        risposta.put("importate", importate);
+
+        JSONArray errori = new JSONArray();
+        for (ImportatoreCatalogo.ErroreRiga errore : importatore.getErrori()) {
+            JSONObject jsonErrore = new JSONObject();
+            jsonErrore.put("file", errore.getFile());
+            jsonErrore.put("riga", errore.getRiga());
+            jsonErrore.put("messaggio", errore.getMessaggio());
+            errori.add(jsonErrore);
+        }
+        risposta.put("errori", errori);
+        risposta.put("erroriTotali", importatore.getErroriTotali());
+        return risposta;
+    }
+}
@@ -12,8 +12,6 @@ import controller.Security.ServletUtils;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -31,8 +29,6 @@ public class insertRowServlet extends HttpServlet {
             "dettagliOrdine", "gusto", "confezione"
     );
 
-    private static final String CARTELLA_UPLOAD = "Immagini";
-
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
         try {
@@ -83,9 +79,16 @@ public class insertRowServlet extends HttpServlet {
                         success = insertConfezione(req);
             }
 
-            // se ha funzionato tutto correttamente mostra la tabella
+            // se ha funzionato tutto correttamente restituisce la chiave inserita (o mostra la tabella)
             if (success) {
-                req.getRequestDispatcher("showTable?tableName=" + nameTable).forward(req, resp);
+                // il form usa "dettagliOrdine", la tabella paginata "dettaglioOrdine"
+                String tableName = nameTable.equals("dettagliOrdine") ? "dettaglioOrdine" : nameTable;
+                long revisione = RevisioniTabelle.incrementa(tableName);
+                if (RispostaScrittura.richiestaJson(req)) {
+                    RispostaScrittura.invia(resp, tableName, chiaveInserita(req, tableName), revisione);
+                } else {
+                    req.getRequestDispatcher("showTable?tableName=" + nameTable).forward(req, resp);
+                }
             } else {
                 ServletUtils.sendErrorSafe(resp, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Invalid input data.");
             }
@@ -97,6 +100,17 @@ public class insertRowServlet extends HttpServlet {
         }
     }
 
+    // Chiave della riga inserita, se scelta dall'admin; per le tabelle con id auto-incrementale
+    // la lista è vuota e Tables.js ricarica la tabella
+    private List<String> chiaveInserita(HttpServletRequest req, String tableName) {
+        return switch (tableName) {
+            case "utente" -> List.of(req.getParameter("email"));
+            case "prodotto" -> List.of(req.getParameter("idProdotto"));
+            case "dettaglioOrdine" -> List.of(req.getParameter("idOrdine") + ", " + req.getParameter("idProdotto") + ", " + req.getParameter("idVariante"));
+            default -> List.of();
+        };
+    }
+
     // Controlla se i parametri sono validi
     private boolean isValid(List<String> params) {
         for (String param : params) {
@@ -163,45 +177,43 @@ public class insertRowServlet extends HttpServlet {
             // Se il file non è stato inviato o è vuoto, non possiamo inserire il prodotto
             return false;
         }
-        // Per l'immagine
         String fileName = Paths.get(filePart.getSubmittedFileName()).getFileName().toString();
-        String destinazione = CARTELLA_UPLOAD + "/" + fileName;
-        Path pathDestinazione = Paths.get(getServletContext().getRealPath(destinazione));
-
-        for (int i = 2; Files.exists(pathDestinazione); i++) {
-            destinazione = CARTELLA_UPLOAD + "/" + i + "_" + fileName;
-            pathDestinazione = Paths.get(getServletContext().getRealPath(destinazione));
+        String estensione = fileName.substring(fileName.lastIndexOf('.') + 1).toLowerCase();
+        if (!fileName.contains(".") || !ImmaginiProdotto.ESTENSIONI.contains(estensione)) {
+            return false;
         }
 
-        InputStream fileInputStream = filePart.getInputStream();
-        Files.createDirectories(pathDestinazione.getParent());
-        Files.copy(fileInputStream, pathDestinazione);
-
         String calorie = req.getParameter("calorie");
         String carboidrati = req.getParameter("carboidrati");
         String proteine = req.getParameter("proteine");
         String grassi = req.getParameter("grassi");
 
         if (isValid(Arrays.asList(idProdotto, nome, descrizione, categoria, calorie, carboidrati, proteine, grassi))) {
+            Prodotto p = new Prodotto();
             try {
-                Prodotto p = new Prodotto();
                 p.setIdProdotto(idProdotto);
                 p.setNome(nome);
                 p.setDescrizione(descrizione);
                 p.setCategoria(categoria);
-                p.setImmagine(destinazione);
                 p.setCalorie(Integer.parseInt(calorie));
                 p.setCarboidrati(Integer.parseInt(carboidrati));
                 p.setProteine(Integer.parseInt(proteine));
                 p.setGrassi(Integer.parseInt(grassi));
-
-                ProdottoDAO prodottoDAO = new ProdottoDAO();
-                prodottoDAO.doSave(p);
-                return true;
             } catch (NumberFormatException e) {
                 e.printStackTrace();
                 return false;
             }
+
+            // L'immagine (scritta solo se i dati sono validi) viene salvata con il nome uguale all'hash
+            // del contenuto; le versioni ridotte per il negozio vengono generate in background
+            try (InputStream fileInputStream = filePart.getInputStream()) {
+                p.setImmagine(ImmaginiProdotto.salvaOriginale(fileInputStream, estensione));
+            }
+
+            ProdottoDAO prodottoDAO = new ProdottoDAO();
+            prodottoDAO.doSave(p);
+            ImmaginiProdotto.generaDerivateAsync(List.of(p.getImmagine()));
+            return true;
         }
         return false;
     }
@@ -0,0 +1,105 @@
+package controller.Admin;
+
+import controller.Security.ServletUtils;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import model.Istogramma;
+import model.Metriche;
+import model.StrumentazioneDao;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+import java.util.regex.Pattern;
+
+//Le metriche di metricheServlet nel formato di testo di Prometheus (solo admin, come la pagina JSON).
+//Per i metodi dei DAO: contatori con l'etichetta metodo e gli istogrammi di attesa del pool e di esecuzione
+//in secondi; poi i contatori e gli istogrammi generici di Metriche.
+@WebServlet(value = "/metriche/prometheus")
+public class metrichePrometheusServlet extends HttpServlet {
+
+    private static final String PREFISSO = "acgainz_";
+    private static final Pattern NON_AMMESSI = Pattern.compile("[^a-zA-Z0-9_]");
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        try {
+            StringBuilder testo = new StringBuilder(8192);
+            Map<String, StrumentazioneDao.MetodoDao> metodi = StrumentazioneDao.metodi();
+
+            contatoreDao(testo, "chiamate", "Connessioni prese dal metodo", metodi, StrumentazioneDao.MetodoDao::getChiamate);
+            contatoreDao(testo, "query", "Query eseguite dal metodo", metodi, StrumentazioneDao.MetodoDao::getQuery);
+            contatoreDao(testo, "righe", "Righe lette dal metodo", metodi, StrumentazioneDao.MetodoDao::getRighe);
+            contatoreDao(testo, "righe_modificate", "Righe modificate dal metodo", metodi, StrumentazioneDao.MetodoDao::getRigheModificate);
+            contatoreDao(testo, "errori", "Query del metodo finite con SQLException", metodi, StrumentazioneDao.MetodoDao::getErrori);
+            contatoreDao(testo, "lente", "Query del metodo oltre la soglia delle query lente", metodi, StrumentazioneDao.MetodoDao::getLente);
+
+            String attesa = PREFISSO + "dao_attesa_pool_seconds";
+            intestazione(testo, attesa, "histogram", "Attesa di una connessione dal pool");
+            metodi.forEach((nome, metodo) -> istogramma(testo, attesa, "metodo=\"" + nome + "\"", metodo.getAttesa()));
+            String esecuzione = PREFISSO + "dao_esecuzione_seconds";
+            intestazione(testo, esecuzione, "histogram", "Durata delle query sul database");
+            metodi.forEach((nome, metodo) -> istogramma(testo, esecuzione, "metodo=\"" + nome + "\"", metodo.getEsecuzione()));
+
+            Metriche.istantanea().forEach((nome, valore) -> {
+                String metrica = PREFISSO + nomeMetrica(nome) + "_total";
+                intestazione(testo, metrica, "counter", nome);
+                testo.append(metrica).append(' ').append(valore).append('\n');
+            });
+            Metriche.istogrammi().forEach((nome, valore) -> {
+                String metrica = PREFISSO + nomeMetrica(nome) + "_seconds";
+                intestazione(testo, metrica, "histogram", nome);
+                istogramma(testo, metrica, null, valore);
+            });
+
+            resp.setContentType("text/plain; version=0.0.4");
+            resp.setCharacterEncoding("UTF-8");
+            resp.setHeader("Cache-Control", "no-store");
+            resp.getWriter().write(testo.toString());
+        } catch (Exception e) {
+            log("Errore in metrichePrometheusServlet doGet", e);
+            if (!resp.isCommitted()) {
+                ServletUtils.sendErrorSafe(resp, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Errore interno durante la lettura delle metriche.");
+            }
+        }
+    }
+
+    private static void contatoreDao(StringBuilder testo, String nome, String descrizione,
+                                     Map<String, StrumentazioneDao.MetodoDao> metodi,
+                                     ToLongFunction<StrumentazioneDao.MetodoDao> valore) {
+        String metrica = PREFISSO + "dao_" + nome + "_total";
+        intestazione(testo, metrica, "counter", descrizione);
+        metodi.forEach((metodo, misure) -> testo.append(metrica).append("{metodo=\"").append(metodo).append("\"} ")
+                .append(valore.applyAsLong(misure)).append('\n'));
+    }
+
+    private static void intestazione(StringBuilder testo, String metrica, String tipo, String descrizione) {
+        testo.append("# HELP ").append(metrica).append(' ').append(descrizione).append('\n');
+        testo.append("# TYPE ").append(metrica).append(' ').append(tipo).append('\n');
+    }
+
+    //Bucket cumulativi con il limite in secondi, poi somma e conteggio
+    static void istogramma(StringBuilder testo, String metrica, String etichette, Istogramma istogramma) {
+        long[] limiti = Istogramma.limiti();
+        long[] cumulati = istogramma.conteggiCumulati();
+        String prima = etichette == null ? "" : etichette + ",";
+        for (int i = 0; i < limiti.length; i++) {
+            String le = limiti[i] == Long.MAX_VALUE ? "+Inf" : Double.toString(limiti[i] / 1_000_000.0);
+            testo.append(metrica).append("_bucket{").append(prima).append("le=\"").append(le).append("\"} ")
+                    .append(cumulati[i]).append('\n');
+        }
+        String graffe = etichette == null ? "" : "{" + etichette + "}";
+        testo.append(metrica).append("_sum").append(graffe).append(' ')
+                .append(istogramma.getSomma() / 1_000_000.0).append('\n');
+        testo.append(metrica).append("_count").append(graffe).append(' ')
+                .append(cumulati[cumulati.length - 1]).append('\n');
+    }
+
+    //"pool.attesaMicros" -> "pool_attesaMicros"
+    static String nomeMetrica(String nome) {
+        return NON_AMMESSI.matcher(nome).replaceAll("_");
+    }
+}
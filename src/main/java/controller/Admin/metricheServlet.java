@@ -0,0 +1,56 @@
+package controller.Admin;
+
+import controller.Security.ServletUtils;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import model.ConPool;
+import model.Metriche;
+import model.StrumentazioneDao;
+import org.json.simple.JSONObject;
+
+import java.io.IOException;
+import java.util.Map;
+
+//Metriche dell'applicazione in JSON per l'admin: i contatori grezzi, gli istogrammi delle durate,
+//lo stato del pool di connessioni e, per la compressione delle risposte, il rapporto tra byte inviati
+//e byte originali e il tempo di CPU medio per risposta compressa. Per ogni metodo dei DAO: chiamate, query,
+//righe, attesa del pool ed esecuzione separate, e le ultime query lente (vedi StrumentazioneDao).
+//Le stesse misure in formato Prometheus sono in metrichePrometheusServlet.
+@WebServlet(value = "/metriche")
+public class metricheServlet extends HttpServlet {
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        try {
+            Map<String, Long> contatori = Metriche.istantanea();
+
+            JSONObject compressione = new JSONObject();
+            long originali = contatori.getOrDefault("compressione.byteOriginali", 0L);
+            long compressi = contatori.getOrDefault("compressione.byteCompressi", 0L);
+            long risposte = contatori.getOrDefault("compressione.risposte", 0L);
+            compressione.put("rapporto", originali == 0 ? null : (double) compressi / originali);
+            compressione.put("cpuMicrosMedi", risposte == 0 ? null : contatori.getOrDefault("compressione.cpuNanos", 0L) / risposte / 1000);
+
+            JSONObject risposta = new JSONObject();
+            risposta.put("contatori", new JSONObject(contatori));
+            risposta.put("compressione", compressione);
+            risposta.put("istogrammi", new JSONObject(Metriche.istantaneaIstogrammi()));
+            risposta.put("pool", new JSONObject(ConPool.statistiche()));
+            risposta.put("dao", new JSONObject(StrumentazioneDao.istantanea()));
+            risposta.put("querieLente", StrumentazioneDao.ultimeLente());
+
+            resp.setContentType("application/json");
+            resp.setCharacterEncoding("UTF-8");
+            resp.setHeader("Cache-Control", "no-store");
+            resp.getWriter().write(risposta.toJSONString());
+        } catch (Exception e) {
+            log("Errore in metricheServlet doGet", e);
+            if (!resp.isCommitted()) {
+                ServletUtils.sendErrorSafe(resp, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Errore interno durante la lettura delle metriche.");
+            }
+        }
+    }
+}
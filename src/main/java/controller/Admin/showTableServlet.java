@@ -5,12 +5,10 @@ import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import model.*;
 import controller.Security.ServletUtils;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Map;
 
 @WebServlet(value = "/showTable")
 public class showTableServlet extends HttpServlet {
@@ -33,72 +31,27 @@ public class showTableServlet extends HttpServlet {
         }
     }
 
-    private void showTable(String tableName, HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
-
-        //In base alla tabella scelta dall'admin e inoltrata tramite la request vengono mostrate le tuple della tabella
-        switch (tableName) {
-            case "utente" -> {
-                List<Utente> utenti;
-                UtenteDAO utenteDAO = new UtenteDAO();
-
-                utenti = utenteDAO.doRetrieveAll();
-                request.setAttribute("tableUtente", utenti);
-                request.getRequestDispatcher("WEB-INF/Admin/tableUtente.jsp").forward(request, response);
-            }
-            case "prodotto" -> {
-                List<Prodotto> prodotti;
-                ProdottoDAO prodottoDAO = new ProdottoDAO();
-
-                prodotti = prodottoDAO.doRetrieveAll();
-                request.setAttribute("tableProdotto", prodotti);
-                request.getRequestDispatcher("WEB-INF/Admin/tableProdotto.jsp").forward(request, response);
-            }
-            case "variante" -> {
-                List<Variante> varianti;
-                VarianteDAO varianteDAO = new VarianteDAO();
-
-                varianti = varianteDAO.doRetrieveAll();
-                request.setAttribute("tableVariante", varianti);
-
-                request.getRequestDispatcher("WEB-INF/Admin/tableVariante.jsp").forward(request, response);
-            }
-            case "ordine" -> {
-                List<Ordine> ordini;
-                OrdineDao ordineDao = new OrdineDao();
-
-                ordini = ordineDao.doRetrieveAll();
-                request.setAttribute("tableOrdine", ordini);
+    //Pagine JSP delle tabelle dell'admin
+    private static final Map<String, String> PAGINE_TABELLE = Map.of(
+            "utente", "WEB-INF/Admin/tableUtente.jsp",
+            "prodotto", "WEB-INF/Admin/tableProdotto.jsp",
+            "variante", "WEB-INF/Admin/tableVariante.jsp",
+            "ordine", "WEB-INF/Admin/tableOrdine.jsp",
+            "dettaglioOrdine", "WEB-INF/Admin/tableDettaglioOrdini.jsp",
+            "gusto", "WEB-INF/Admin/tableGusto.jsp",
+            "confezione", "WEB-INF/Admin/tableConfezione.jsp"
+    );
 
-                request.getRequestDispatcher("WEB-INF/Admin/tableOrdine.jsp").forward(request, response);
-            }
-            case "dettaglioOrdine" -> {
-                List<DettaglioOrdine> dettaglioOrdini;
-                DettaglioOrdineDAO dettaglioOrdineDAO = new DettaglioOrdineDAO();
-                dettaglioOrdini = dettaglioOrdineDAO.doRetrieveAll();
-
-                request.setAttribute("tableDettaglioOrdini", dettaglioOrdini);
-
-                request.getRequestDispatcher("WEB-INF/Admin/tableDettaglioOrdini.jsp").forward(request, response);
-            }
-            case "gusto" -> {
-                GustoDAO gustoDAO = new GustoDAO();
-                List<Gusto> gusti = gustoDAO.doRetrieveAll();
-
-                request.setAttribute("tableGusto", gusti);
-
-                request.getRequestDispatcher("WEB-INF/Admin/tableGusto.jsp").forward(request, response);
-            }
-            case "confezione" -> {
-                ConfezioneDAO confezioneDAO = new ConfezioneDAO();
-                List<Confezione> confezioni = confezioneDAO.doRetrieveAll();
+    private void showTable(String tableName, HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
 
-                request.setAttribute("tableConfezione", confezioni);
-                request.getRequestDispatcher("WEB-INF/Admin/tableConfezione.jsp").forward(request, response);
-            }
-            default -> {
-                ServletUtils.sendErrorSafe(response, HttpServletResponse.SC_BAD_REQUEST, "Tabella non valida");
-            }
+        //In base alla tabella scelta dall'admin viene mostrata la relativa pagina.
+        //Le righe non vengono caricate qui: la pagina le chiede a pagine ad adminGridServlet mentre si scorre.
+        String pagina = PAGINE_TABELLE.get(tableName);
+        if (pagina == null) {
+            ServletUtils.sendErrorSafe(response, HttpServletResponse.SC_BAD_REQUEST, "Tabella non valida");
+            return;
         }
+        request.getRequestDispatcher(pagina).forward(request, response);
     }
 
     @Override
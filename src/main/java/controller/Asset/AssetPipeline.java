@@ -0,0 +1,177 @@
+package controller.Asset;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+//Pipeline degli asset statici eseguita durante la build del war (fase prepare-package, vedi pom.xml).
+//Copia CSS, JS e Immagini della webapp con il nome che contiene l'hash del contenuto (Tables.css -> Tables.1a2b3c4d5e.css),
+//scrive accanto ai file di testo la versione già compressa (.gz) e riscrive i riferimenti nelle JSP, nei CSS e nei JS.
+//I file con i nomi originali restano nel war: le immagini dei prodotti salvate nel DB continuano a funzionare.
+//L'elenco nome originale -> nome con hash finisce in WEB-INF/asset-manifest.properties, letto da StaticAssetFilter.
+public final class AssetPipeline {
+
+    public static final String MANIFEST = "WEB-INF/asset-manifest.properties";
+    //prima le immagini, poi i CSS (che possono usarle) e infine i JS: ogni cartella vede già i nomi nuovi delle precedenti
+    static final List<String> CARTELLE = List.of("Immagini", "CSS", "JS");
+    static final List<String> COMPRIMIBILI = List.of("css", "js", "svg", "ico");
+    private static final List<String> TESTO = List.of("css", "js", "svg");
+    private static final int LUNGHEZZA_HASH = 10;
+    //comprimere un file piccolo non fa risparmiare nulla rispetto agli header
+    private static final int DIMENSIONE_MINIMA_COMPRESSIONE = 512;
+
+    private AssetPipeline() {
+    }
+
+    //argomenti: cartella sorgente della webapp e cartella di output (copiata nel war sopra i file originali)
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("Uso: AssetPipeline <cartella webapp> <cartella output>");
+        }
+        Map<String, String> manifest = esegui(Path.of(args[0]), Path.of(args[1]));
+        System.out.println("Asset con hash generati: " + manifest.size());
+    }
+
+    static Map<String, String> esegui(Path webapp, Path output) throws IOException {
+        Map<String, String> manifest = new TreeMap<>();
+
+        for (String cartella : CARTELLE) {
+            Path sorgente = webapp.resolve(cartella);
+            if (!Files.isDirectory(sorgente)) {
+                continue;
+            }
+            List<Path> files;
+            try (Stream<Path> stream = Files.walk(sorgente)) {
+                files = stream.filter(Files::isRegularFile).sorted().toList();
+            }
+
+            //i riferimenti vanno riscritti prima di calcolare l'hash: se cambia un'immagine cambia anche il CSS che la usa
+            Map<String, String> nuovi = new TreeMap<>();
+            for (Path file : files) {
+                String relativo = relativo(webapp, file);
+                byte[] contenuto = Files.readAllBytes(file);
+                if (TESTO.contains(estensione(relativo))) {
+                    contenuto = riscrivi(new String(contenuto, StandardCharsets.UTF_8), manifest).getBytes(StandardCharsets.UTF_8);
+                }
+
+                String conHash = nomeConHash(relativo, contenuto);
+                Path destinazione = output.resolve(conHash);
+                Files.createDirectories(destinazione.getParent());
+                Files.write(destinazione, contenuto);
+                if (COMPRIMIBILI.contains(estensione(relativo)) && contenuto.length >= DIMENSIONE_MINIMA_COMPRESSIONE) {
+                    scriviGzip(contenuto, output.resolve(conHash + ".gz"));
+                }
+                nuovi.put(relativo, conHash);
+            }
+            manifest.putAll(nuovi);
+        }
+
+        //le JSP tengono lo stesso nome: le copie riscritte sostituiscono le originali nel war
+        List<Path> jsp;
+        try (Stream<Path> stream = Files.walk(webapp)) {
+            jsp = stream.filter(p -> Files.isRegularFile(p) && p.toString().endsWith(".jsp")).sorted().toList();
+        }
+        for (Path file : jsp) {
+            Path destinazione = output.resolve(relativo(webapp, file));
+            Files.createDirectories(destinazione.getParent());
+            Files.writeString(destinazione, riscrivi(Files.readString(file, StandardCharsets.UTF_8), manifest), StandardCharsets.UTF_8);
+        }
+
+        scriviManifest(manifest, output.resolve(MANIFEST));
+        return manifest;
+    }
+
+    //Sostituisce i riferimenti agli asset ("CSS/Tables.css", "./Immagini/x.png", "${ctx}/JS/a.js"...)
+    //solo quando il percorso è delimitato: "Immagini/hide.png" non deve toccare "Immagini/hide.png.bak" o "xImmagini/hide.png"
+    static String riscrivi(String testo, Map<String, String> manifest) {
+        if (manifest.isEmpty()) {
+            return testo;
+        }
+        List<String> chiavi = new ArrayList<>(manifest.keySet());
+        //a parità di prefisso vince il percorso più lungo
+        chiavi.sort(Comparator.comparingInt(String::length).reversed());
+        StringBuilder alternative = new StringBuilder();
+        for (String chiave : chiavi) {
+            if (!alternative.isEmpty()) {
+                alternative.append('|');
+            }
+            alternative.append(Pattern.quote(chiave));
+        }
+
+        Pattern pattern = Pattern.compile("(?<=^|[\"'(=/\\s])(" + alternative + ")(?=$|[\"')?#\\s])", Pattern.MULTILINE);
+        Matcher matcher = pattern.matcher(testo);
+        StringBuilder risultato = new StringBuilder();
+        while (matcher.find()) {
+            matcher.appendReplacement(risultato, Matcher.quoteReplacement(manifest.get(matcher.group(1))));
+        }
+        matcher.appendTail(risultato);
+        return risultato.toString();
+    }
+
+    static String nomeConHash(String relativo, byte[] contenuto) {
+        String hash;
+        try {
+            hash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(contenuto)).substring(0, LUNGHEZZA_HASH);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        int barra = relativo.lastIndexOf('/');
+        int punto = relativo.lastIndexOf('.');
+        if (punto <= barra + 1) {
+            return relativo + "." + hash;
+        }
+        return relativo.substring(0, punto) + "." + hash + relativo.substring(punto);
+    }
+
+    private static void scriviGzip(byte[] contenuto, Path destinazione) throws IOException {
+        ByteArrayOutputStream compresso = new ByteArrayOutputStream();
+        try (OutputStream gzip = new GZIPOutputStream(compresso) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            gzip.write(contenuto);
+        }
+        //se non conviene il filtro servirà il file non compresso
+        if (compresso.size() < contenuto.length) {
+            Files.write(destinazione, compresso.toByteArray());
+        }
+    }
+
+    private static void scriviManifest(Map<String, String> manifest, Path destinazione) throws IOException {
+        Files.createDirectories(destinazione.getParent());
+        Properties properties = new Properties();
+        properties.putAll(manifest);
+        try (Writer writer = Files.newBufferedWriter(destinazione, StandardCharsets.UTF_8)) {
+            properties.store(writer, "Generato da AssetPipeline: percorso originale = percorso con hash");
+        }
+    }
+
+    private static String relativo(Path webapp, Path file) {
+        return webapp.relativize(file).toString().replace('\\', '/');
+    }
+
+    static String estensione(String percorso) {
+        int punto = percorso.lastIndexOf('.');
+        return punto < 0 ? "" : percorso.substring(punto + 1).toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,162 @@
+package controller.Asset;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.FilterConfig;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebFilter;
+import jakarta.servlet.http.HttpFilter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import model.ImmaginiProdotto;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+//Serve gli asset con l'hash nel nome (vedi AssetPipeline) e le immagini dei prodotti salvate con l'hash
+//con Cache-Control immutable: il browser non li richiede più finché la pagina non punta a un nome nuovo.
+//Se il browser lo accetta e nel war c'è la versione precompressa (.br o .gz) viene servita quella,
+//senza comprimere nulla a ogni richiesta. Gli altri file passano al default servlet di Tomcat come prima.
+@WebFilter(filterName = "StaticAssetFilter", urlPatterns = {"/CSS/*", "/JS/*", "/Immagini/*"}, asyncSupported = true)
+public class StaticAssetFilter extends HttpFilter {
+
+    static final String CACHE_IMMUTABILE = "public, max-age=31536000, immutable";
+    //in ordine di preferenza: brotli comprime meglio, ma la pipeline della build produce solo il gzip
+    static final List<String> CODIFICHE = List.of("br", "gzip");
+    private static final Map<String, String> ESTENSIONI_CODIFICHE = Map.of("br", ".br", "gzip", ".gz");
+
+    private record Precompresso(String codifica, byte[] contenuto) {
+    }
+
+    //percorsi con hash elencati nel manifest e, per ognuno, le versioni precompresse caricate in memoria all'avvio
+    private final Set<String> conHash = new HashSet<>();
+    private final Map<String, List<Precompresso>> precompressi = new HashMap<>();
+
+    @Override
+    public void init(FilterConfig config) throws ServletException {
+        super.init(config);
+        ServletContext context = config.getServletContext();
+
+        Properties manifest = new Properties();
+        try (InputStream in = context.getResourceAsStream("/" + AssetPipeline.MANIFEST)) {
+            if (in == null) {
+                //war non prodotto dalla build Maven (es. avvio dall'IDE): gli asset restano quelli originali
+                return;
+            }
+            try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+                manifest.load(reader);
+            }
+
+            for (String percorso : manifest.stringPropertyNames()) {
+                String hash = manifest.getProperty(percorso);
+                conHash.add(hash);
+                List<Precompresso> versioni = new ArrayList<>();
+                for (String codifica : CODIFICHE) {
+                    try (InputStream compresso = context.getResourceAsStream("/" + hash + ESTENSIONI_CODIFICHE.get(codifica))) {
+                        if (compresso != null) {
+                            versioni.add(new Precompresso(codifica, compresso.readAllBytes()));
+                        }
+                    }
+                }
+                if (!versioni.isEmpty()) {
+                    precompressi.put(hash, List.copyOf(versioni));
+                }
+            }
+        } catch (IOException e) {
+            throw new ServletException("Manifest degli asset non leggibile", e);
+        }
+    }
+
+    @Override
+    protected void doFilter(HttpServletRequest req, HttpServletResponse resp, FilterChain chain) throws IOException, ServletException {
+        String percorso = req.getServletPath() + (req.getPathInfo() != null ? req.getPathInfo() : "");
+        if (percorso.startsWith("/")) {
+            percorso = percorso.substring(1);
+        }
+        if (!conHash.contains(percorso) && !ImmaginiProdotto.isNomeConHash(percorso)) {
+            chain.doFilter(req, resp);
+            return;
+        }
+
+        resp.setHeader("Cache-Control", CACHE_IMMUTABILE);
+        List<Precompresso> versioni = precompressi.get(percorso);
+        if (versioni == null) {
+            chain.doFilter(req, resp);
+            return;
+        }
+
+        //la risposta dipende da Accept-Encoding anche quando si serve il file non compresso
+        resp.addHeader("Vary", "Accept-Encoding");
+        Precompresso scelta = scegli(versioni, req.getHeader("Accept-Encoding"));
+        String metodo = req.getMethod();
+        if (scelta == null || !("GET".equals(metodo) || "HEAD".equals(metodo))) {
+            chain.doFilter(req, resp);
+            return;
+        }
+
+        String contentType = getServletContext().getMimeType(percorso);
+        if (contentType != null) {
+            resp.setContentType(contentType);
+        }
+        if (contentType != null && (contentType.startsWith("text/") || contentType.endsWith("javascript"))) {
+            resp.setCharacterEncoding("UTF-8");
+        }
+        resp.setHeader("Content-Encoding", scelta.codifica());
+        resp.setContentLength(scelta.contenuto().length);
+        if ("GET".equals(metodo)) {
+            resp.getOutputStream().write(scelta.contenuto());
+        }
+    }
+
+    //Prima codifica disponibile accettata dal browser (q=0 vuol dire "non accettata"); null se nessuna
+    private static Precompresso scegli(List<Precompresso> versioni, String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) {
+            return null;
+        }
+        Set<String> accettate = new HashSet<>();
+        boolean tutte = false;
+        for (String voce : acceptEncoding.split(",")) {
+            String[] parti = voce.split(";");
+            String codifica = parti[0].trim().toLowerCase(Locale.ROOT);
+            if (isRifiutata(parti)) {
+                continue;
+            }
+            if ("*".equals(codifica)) {
+                tutte = true;
+            } else {
+                accettate.add(codifica);
+            }
+        }
+        for (Precompresso versione : versioni) {
+            if (tutte || accettate.contains(versione.codifica())) {
+                return versione;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isRifiutata(String[] parti) {
+        for (int i = 1; i < parti.length; i++) {
+            String parametro = parti[i].trim();
+            if (parametro.startsWith("q=")) {
+                try {
+                    return Float.parseFloat(parametro.substring(2)) <= 0;
+                } catch (NumberFormatException e) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -11,6 +11,7 @@ import model.ProdottoDAO;
 import model.Variante;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
+import controller.Http.BloccoSessione;
 import controller.Security.ServletUtils;
 
 import java.io.IOException;
@@ -19,6 +20,7 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.regex.Pattern;
 
 @WebServlet("/genericFilter")
@@ -34,7 +36,9 @@ public class GenericFilterServlet extends HttpServlet {
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
 
         HttpSession session = req.getSession();
-        synchronized (session) {
+        ReentrantLock blocco = BloccoSessione.di(session);
+        blocco.lock();
+        try {
 
             String rawNameForm = req.getParameter("nameForm");
 
@@ -92,6 +96,8 @@ public class GenericFilterServlet extends HttpServlet {
                     ServletUtils.sendErrorSafe(resp, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Errore durante l'invio della risposta JSON.");
                 }
             }
+        } finally {
+            blocco.unlock();
         }
     }
 
@@ -146,7 +152,7 @@ public class GenericFilterServlet extends HttpServlet {
         jsonObject.put("nome", p.getNome());
         jsonObject.put("categoria", p.getCategoria());
         jsonObject.put("calorie", p.getCalorie());
-        jsonObject.put("immagine", p.getImmagine());
+        jsonObject.put("immagine", p.getImmagineCard());
 
         Variante variante = varianti.get(0);
         jsonObject.put("idVariante", variante.getIdVariante());
@@ -10,6 +10,7 @@ import model.Prodotto;
 import model.ProdottoDAO;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
+import controller.Http.BloccoSessione;
 import controller.Security.ServletUtils;
 
 import java.io.IOException;
@@ -17,6 +18,7 @@ import java.io.PrintWriter;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.regex.Pattern;
 
 import static controller.Filters.GenericFilterServlet.getJsonObject;
@@ -40,7 +42,9 @@ public class SearchBarServlet extends HttpServlet {
 
             HttpSession session = req.getSession();
 
-            synchronized (session) {
+            ReentrantLock blocco = BloccoSessione.di(session);
+            blocco.lock();
+            try {
                 List<Prodotto> products = new ArrayList<>();
                 String categoria = (String) session.getAttribute("categoriaRecovery");
                 ProdottoDAO prodottoDAO = new ProdottoDAO();
@@ -78,6 +82,8 @@ public class SearchBarServlet extends HttpServlet {
                 session.setAttribute("filteredProducts", products);
 
                 addToJson(products, session, req, resp);
+            } finally {
+                blocco.unlock();
             }
         } catch (Exception e) {
             log("Errore in SearchBarServlet doGet", e);
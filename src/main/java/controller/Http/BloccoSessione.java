@@ -0,0 +1,39 @@
+package controller.Http;
+
+import jakarta.servlet.annotation.WebListener;
+import jakarta.servlet.http.HttpSession;
+import jakarta.servlet.http.HttpSessionEvent;
+import jakarta.servlet.http.HttpSessionListener;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+//Lock di sessione per le servlet che leggono e riscrivono gli attributi della sessione attorno a chiamate al DB
+//(carrello, filtri, ricerca). Sostituisce synchronized(session): un virtual thread che si blocca su JDBC dentro
+//un monitor resta attaccato al suo carrier thread, mentre con un ReentrantLock lo libera.
+//Il lock viene creato insieme alla sessione; per le sessioni che non lo hanno (create prima del deploy o
+//ripristinate da disco) si usa uno di STRISCE lock condivisi, scelto in base all'oggetto sessione.
+@WebListener
+public class BloccoSessione implements HttpSessionListener {
+
+    static final String ATTRIBUTO = "bloccoSessione";
+
+    private static final ReentrantLock[] STRISCE = new ReentrantLock[256];
+
+    static {
+        for (int i = 0; i < STRISCE.length; i++) {
+            STRISCE[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public void sessionCreated(HttpSessionEvent se) {
+        se.getSession().setAttribute(ATTRIBUTO, new ReentrantLock());
+    }
+
+    public static ReentrantLock di(HttpSession session) {
+        if (session.getAttribute(ATTRIBUTO) instanceof ReentrantLock blocco) {
+            return blocco;
+        }
+        return STRISCE[Math.floorMod(System.identityHashCode(session), STRISCE.length)];
+    }
+}
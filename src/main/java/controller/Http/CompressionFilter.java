@@ -0,0 +1,481 @@
+package controller.Http;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.annotation.WebFilter;
+import jakarta.servlet.http.HttpFilter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import model.Metriche;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+//Comprime in gzip le risposte dinamiche (JSON dei filtri e della ricerca, JSP) quando il browser lo accetta.
+//La risposta viene tenuta in memoria fino a SOGLIA byte: se finisce prima viene inviata così com'è
+//(sotto il KB gli header costano più del risparmio), altrimenti si decide in base al Content-Type:
+//i tipi già compressi (immagini, gzip, zip...) e le risposte con un Content-Encoding proprio passano intatti.
+//I Deflater vengono presi da un pool; byte prima e dopo e tempo di CPU finiscono nelle Metriche.
+//Con la scrittura non bloccante (setWriteListener) la risposta ancora in attesa passa non compressa e il listener
+//viene registrato sullo stream originale; se la compressione era già avviata, ogni scrittura dell'applicazione
+//diventa una sola scrittura sullo stream originale, così isReady() resta valido tra una scrittura e l'altra.
+@WebFilter(filterName = "CompressionFilter", urlPatterns = "/*", asyncSupported = true)
+public class CompressionFilter extends HttpFilter {
+
+    static final int SOGLIA = 1024;
+    private static final int LIVELLO = 6;
+    private static final int BUFFER = 8 * 1024;
+    private static final List<String> TIPI_COMPRIMIBILI = List.of("text/", "application/json", "application/javascript",
+            "application/xml", "application/x-ndjson", "image/svg+xml");
+
+    static final String RISPOSTE_COMPRESSE = "compressione.risposte";
+    static final String RISPOSTE_NON_COMPRESSE = "compressione.nonCompresse";
+    static final String BYTE_ORIGINALI = "compressione.byteOriginali";
+    static final String BYTE_COMPRESSI = "compressione.byteCompressi";
+    static final String CPU_NANOS = "compressione.cpuNanos";
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final byte[] HEADER_GZIP = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private final DeflaterPool pool = new DeflaterPool(Runtime.getRuntime().availableProcessors() * 2, LIVELLO);
+
+    @Override
+    protected void doFilter(HttpServletRequest req, HttpServletResponse resp, FilterChain chain) throws IOException, ServletException {
+        if ("HEAD".equals(req.getMethod()) || !accettaGzip(req.getHeader("Accept-Encoding"))) {
+            chain.doFilter(req, resp);
+            return;
+        }
+
+        RispostaCompressa risposta = new RispostaCompressa(resp);
+        try {
+            chain.doFilter(req, risposta);
+        } catch (IOException | ServletException | RuntimeException e) {
+            //quello che era in attesa non va inviato: Tomcat mostra la pagina di errore
+            risposta.rilascia();
+            throw e;
+        }
+        if (req.isAsyncStarted()) {
+            //servlet asincrona: la risposta si chiude quando termina il lavoro in background
+            req.getAsyncContext().addListener(new AsyncListener() {
+                @Override
+                public void onComplete(AsyncEvent event) throws IOException {
+                    risposta.termina();
+                }
+
+                @Override
+                public void onTimeout(AsyncEvent event) {
+                }
+
+                @Override
+                public void onError(AsyncEvent event) {
+                    risposta.rilascia();
+                }
+
+                @Override
+                public void onStartAsync(AsyncEvent event) {
+                }
+            });
+        } else {
+            risposta.termina();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        pool.chiudi();
+    }
+
+    static boolean accettaGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String voce : acceptEncoding.split(",")) {
+            String[] parti = voce.split(";");
+            String codifica = parti[0].trim().toLowerCase(Locale.ROOT);
+            if (codifica.equals("gzip") || codifica.equals("*")) {
+                return parti.length < 2 || !parti[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    //Sui thread virtuali getCurrentThreadCpuTime restituisce -1: si misura il tempo trascorso.
+    //Un thread è virtuale o no per tutta la vita, quindi inizio e fine di una misura usano la stessa fonte
+    private static long tempoCpu() {
+        if (!Thread.currentThread().isVirtual() && THREADS.isCurrentThreadCpuTimeSupported()) {
+            long cpu = THREADS.getCurrentThreadCpuTime();
+            if (cpu >= 0) return cpu;
+        }
+        return System.nanoTime();
+    }
+
+    private enum Stato { IN_ATTESA, COMPRESSA, DIRETTA, CHIUSA }
+
+    //Risposta che decide se comprimere quando ha visto abbastanza byte (o quando viene chiusa)
+    private final class RispostaCompressa extends HttpServletResponseWrapper {
+
+        private final HttpServletResponse originale;
+        private final ByteArrayOutputStream attesa = new ByteArrayOutputStream(SOGLIA);
+        private Stato stato = Stato.IN_ATTESA;
+        private long lunghezzaDichiarata = -1;
+
+        private Deflater deflater;
+        private final CRC32 crc = new CRC32();
+        private final byte[] buffer = new byte[BUFFER];
+        private long byteCompressi;
+        private long cpuNanos;
+
+        private ServletOutputStream uscita;
+        private PrintWriter writer;
+
+        //dopo setWriteListener: i byte compressi di una scrittura vengono raccolti e inviati insieme
+        private ByteArrayOutputStream lotto;
+
+        RispostaCompressa(HttpServletResponse originale) {
+            super(originale);
+            this.originale = originale;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (writer != null) {
+                throw new IllegalStateException("getWriter() già chiamato");
+            }
+            if (uscita == null) {
+                uscita = new Uscita();
+            }
+            return uscita;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (uscita != null && writer == null) {
+                throw new IllegalStateException("getOutputStream() già chiamato");
+            }
+            if (writer == null) {
+                uscita = new Uscita();
+                writer = new PrintWriter(new OutputStreamWriter(uscita, Charset.forName(getCharacterEncoding())));
+            }
+            return writer;
+        }
+
+        //la lunghezza vale solo per la risposta non compressa: viene inoltrata quando si sa che non si comprime
+        @Override
+        public void setContentLength(int len) {
+            setContentLengthLong(len);
+        }
+
+        @Override
+        public void setContentLengthLong(long len) {
+            if (stato == Stato.DIRETTA) {
+                super.setContentLengthLong(len);
+            } else if (stato == Stato.IN_ATTESA) {
+                lunghezzaDichiarata = len;
+            }
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            if ("Content-Length".equalsIgnoreCase(name) && stato != Stato.DIRETTA) {
+                setContentLengthLong(value == null ? -1 : Long.parseLong(value));
+            } else {
+                super.setHeader(name, value);
+            }
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (stato == Stato.DIRETTA) {
+                super.flushBuffer();
+            }
+        }
+
+        @Override
+        public void resetBuffer() {
+            if (stato == Stato.IN_ATTESA) {
+                attesa.reset();
+            }
+            super.resetBuffer();
+        }
+
+        @Override
+        public void reset() {
+            if (stato == Stato.IN_ATTESA) {
+                attesa.reset();
+                lunghezzaDichiarata = -1;
+            }
+            super.reset();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            scartaAttesa();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            scartaAttesa();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            scartaAttesa();
+            super.sendRedirect(location);
+        }
+
+        @Override
+        public boolean isCommitted() {
+            return stato != Stato.IN_ATTESA && super.isCommitted();
+        }
+
+        //le pagine di errore e i redirect scrivono direttamente sulla risposta originale
+        private void scartaAttesa() {
+            if (stato == Stato.IN_ATTESA) {
+                attesa.reset();
+                stato = Stato.DIRETTA;
+            }
+        }
+
+        private void scrivi(byte[] b, int off, int len) throws IOException {
+            switch (stato) {
+                case IN_ATTESA -> {
+                    if (!isComprimibile()) {
+                        inviaDiretta();
+                        originale.getOutputStream().write(b, off, len);
+                        return;
+                    }
+                    attesa.write(b, off, len);
+                    if (attesa.size() >= SOGLIA) {
+                        avviaCompressione();
+                    }
+                }
+                case COMPRESSA -> comprimi(b, off, len);
+                case DIRETTA -> originale.getOutputStream().write(b, off, len);
+                case CHIUSA -> throw new IOException("Risposta già chiusa");
+            }
+        }
+
+        private boolean isComprimibile() {
+            if (originale.getHeader("Content-Encoding") != null) {
+                return false;
+            }
+            int status = originale.getStatus();
+            if (status == SC_NO_CONTENT || status == SC_NOT_MODIFIED || status == SC_PARTIAL_CONTENT) {
+                return false;
+            }
+            String contentType = getContentType();
+            if (contentType == null) {
+                return false;
+            }
+            String tipo = contentType.toLowerCase(Locale.ROOT);
+            for (String comprimibile : TIPI_COMPRIMIBILI) {
+                if (tipo.startsWith(comprimibile)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void inviaDiretta() throws IOException {
+            stato = Stato.DIRETTA;
+            if (lunghezzaDichiarata >= 0) {
+                super.setContentLengthLong(lunghezzaDichiarata);
+            }
+            if (attesa.size() > 0) {
+                originale.getOutputStream().write(attesa.toByteArray());
+                attesa.reset();
+            }
+            Metriche.aggiungi(RISPOSTE_NON_COMPRESSE, 1);
+        }
+
+        private void avviaCompressione() throws IOException {
+            stato = Stato.COMPRESSA;
+            originale.setHeader("Content-Encoding", "gzip");
+            originale.addHeader("Vary", "Accept-Encoding");
+            originale.setContentLengthLong(-1);
+            deflater = pool.prendi();
+            originale.getOutputStream().write(HEADER_GZIP);
+            byteCompressi = HEADER_GZIP.length;
+
+            byte[] iniziali = attesa.toByteArray();
+            attesa.reset();
+            comprimi(iniziali, 0, iniziali.length);
+        }
+
+        private void comprimi(byte[] b, int off, int len) throws IOException {
+            long inizio = tempoCpu();
+            crc.update(b, off, len);
+            deflater.setInput(b, off, len);
+            while (!deflater.needsInput()) {
+                svuotaDeflater();
+            }
+            cpuNanos += tempoCpu() - inizio;
+            inviaLotto();
+        }
+
+        private void svuotaDeflater() throws IOException {
+            int n = deflater.deflate(buffer, 0, buffer.length, Deflater.NO_FLUSH);
+            if (n > 0) {
+                scriviCompressi(buffer, 0, n);
+            }
+        }
+
+        private void scriviCompressi(byte[] b, int off, int len) throws IOException {
+            if (lotto != null) {
+                lotto.write(b, off, len);
+            } else {
+                originale.getOutputStream().write(b, off, len);
+            }
+            byteCompressi += len;
+        }
+
+        private void inviaLotto() throws IOException {
+            if (lotto != null && lotto.size() > 0) {
+                originale.getOutputStream().write(lotto.toByteArray());
+                lotto.reset();
+            }
+        }
+
+        //Scrittura non bloccante: ciò che è in attesa parte non compresso (lo stream originale è ancora bloccante),
+        //poi il listener passa allo stream originale, che decide quando si può scrivere
+        void registraListener(WriteListener writeListener) throws IOException {
+            if (stato == Stato.IN_ATTESA) {
+                inviaDiretta();
+            }
+            lotto = new ByteArrayOutputStream(BUFFER);
+            originale.getOutputStream().setWriteListener(writeListener);
+        }
+
+        boolean isPronta() {
+            try {
+                return switch (stato) {
+                    case IN_ATTESA -> true;
+                    case COMPRESSA -> lotto == null || originale.getOutputStream().isReady();
+                    case DIRETTA -> originale.getOutputStream().isReady();
+                    case CHIUSA -> false;
+                };
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        //Chiude la risposta: invia quello che è rimasto in attesa o completa lo stream gzip
+        void termina() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            switch (stato) {
+                case IN_ATTESA -> {
+                    if (lunghezzaDichiarata < 0 && !super.isCommitted()) {
+                        lunghezzaDichiarata = attesa.size();
+                    }
+                    inviaDiretta();
+                    stato = Stato.CHIUSA;
+                }
+                case COMPRESSA -> {
+                    try {
+                        long inizio = tempoCpu();
+                        deflater.finish();
+                        while (!deflater.finished()) {
+                            svuotaDeflater();
+                        }
+                        byte[] trailer = new byte[8];
+                        scriviIntero(trailer, 0, (int) crc.getValue());
+                        scriviIntero(trailer, 4, (int) deflater.getBytesRead());
+                        scriviCompressi(trailer, 0, trailer.length);
+                        cpuNanos += tempoCpu() - inizio;
+                        inviaLotto();
+
+                        Metriche.aggiungi(RISPOSTE_COMPRESSE, 1);
+                        Metriche.aggiungi(BYTE_ORIGINALI, deflater.getBytesRead());
+                        Metriche.aggiungi(BYTE_COMPRESSI, byteCompressi);
+                        Metriche.aggiungi(CPU_NANOS, cpuNanos);
+                    } finally {
+                        rilascia();
+                    }
+                }
+                case DIRETTA, CHIUSA -> stato = Stato.CHIUSA;
+            }
+        }
+
+        void rilascia() {
+            stato = Stato.CHIUSA;
+            if (deflater != null) {
+                pool.restituisci(deflater);
+                deflater = null;
+            }
+        }
+
+        private static void scriviIntero(byte[] destinazione, int posizione, int valore) {
+            destinazione[posizione] = (byte) valore;
+            destinazione[posizione + 1] = (byte) (valore >> 8);
+            destinazione[posizione + 2] = (byte) (valore >> 16);
+            destinazione[posizione + 3] = (byte) (valore >> 24);
+        }
+
+        private final class Uscita extends ServletOutputStream {
+
+            private final byte[] singolo = new byte[1];
+
+            @Override
+            public void write(int b) throws IOException {
+                singolo[0] = (byte) b;
+                scrivi(singolo, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                if (len > 0) {
+                    scrivi(b, off, len);
+                }
+            }
+
+            @Override
+            public void flush() throws IOException {
+                //finché si è in attesa o si comprime non si forza l'invio: ridurrebbe la compressione
+                if (stato == Stato.DIRETTA) {
+                    originale.getOutputStream().flush();
+                }
+            }
+
+            //chiamata anche da Tomcat alla fine di un forward verso una JSP
+            @Override
+            public void close() throws IOException {
+                termina();
+            }
+
+            @Override
+            public boolean isReady() {
+                return isPronta();
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+                try {
+                    registraListener(writeListener);
+                } catch (IOException e) {
+                    writeListener.onError(e);
+                }
+            }
+        }
+    }
+}
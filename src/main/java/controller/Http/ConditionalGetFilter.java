@@ -0,0 +1,152 @@
+package controller.Http;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.annotation.WebFilter;
+import jakarta.servlet.http.HttpFilter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import jakarta.servlet.http.HttpSession;
+import model.Metriche;
+import model.Utente;
+import model.VersioneCatalogo;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+//GET condizionali sulle pagine e sui JSON del catalogo: l'ETag dipende dalla VersioneCatalogo, dall'indirizzo
+//con i parametri normalizzati (ordinati, senza spazi e valori vuoti) e dall'utente collegato (l'header delle
+//pagine cambia dopo il login). Se il browser manda l'ETag ancora valido si risponde 304 prima che la servlet
+//parta, quindi senza nessuna query. La versione viene letta prima della servlet: se il catalogo cambia
+//mentre la risposta viene prodotta, la richiesta successiva ha comunque un ETag diverso.
+@WebFilter(filterName = "ConditionalGetFilter",
+        urlPatterns = {"/genericFilter", "/searchBar", "/showTastes", "/showOptions", "/ProductInfo"},
+        asyncSupported = true)
+public class ConditionalGetFilter extends HttpFilter {
+
+    //il browser conserva la risposta ma la riconvalida ogni volta: con il 304 la riconvalida costa pochi byte
+    static final String CACHE_CONTROL = "private, no-cache";
+    static final String RISPOSTE_304 = "condizionali.304";
+    static final String RISPOSTE_200 = "condizionali.200";
+
+    @Override
+    protected void doFilter(HttpServletRequest req, HttpServletResponse resp, FilterChain chain) throws IOException, ServletException {
+        if (!"GET".equals(req.getMethod())) {
+            chain.doFilter(req, resp);
+            return;
+        }
+
+        long ultimaModifica = VersioneCatalogo.getUltimaModifica() / 1000 * 1000;
+        String etag = etag(req, VersioneCatalogo.get());
+        if (isNonModificato(req, etag, ultimaModifica)) {
+            resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            resp.setHeader("ETag", etag);
+            resp.setHeader("Cache-Control", CACHE_CONTROL);
+            Metriche.aggiungi(RISPOSTE_304, 1);
+            return;
+        }
+
+        chain.doFilter(req, new RispostaConValidatori(resp, etag, ultimaModifica));
+    }
+
+    //ETag debole: la stessa risposta può essere inviata compressa o no (vedi CompressionFilter)
+    static String etag(HttpServletRequest req, String versione) {
+        StringBuilder chiave = new StringBuilder(req.getServletPath()).append('?');
+        Map<String, String[]> parametri = new TreeMap<>(req.getParameterMap());
+        parametri.forEach((nome, valori) -> {
+            List<String> normalizzati = new ArrayList<>();
+            for (String valore : valori) {
+                if (valore != null && !valore.isBlank()) {
+                    normalizzati.add(valore.trim());
+                }
+            }
+            if (!normalizzati.isEmpty()) {
+                chiave.append(nome).append('=').append(String.join(",", normalizzati)).append('&');
+            }
+        });
+
+        HttpSession session = req.getSession(false);
+        Utente utente = session != null ? (Utente) session.getAttribute("Utente") : null;
+        chiave.append('|').append(utente != null ? utente.getEmail() : "");
+
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(chiave.toString().getBytes(StandardCharsets.UTF_8));
+            return "W/\"" + versione + "-" + HexFormat.of().formatHex(Arrays.copyOf(hash, 8)) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    //If-None-Match ha la precedenza; If-Modified-Since vale solo se il browser non ha mandato un ETag
+    private static boolean isNonModificato(HttpServletRequest req, String etag, long ultimaModifica) {
+        String ifNoneMatch = req.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            String confronto = etag.substring(2);
+            for (String candidato : ifNoneMatch.split(",")) {
+                String valore = candidato.trim();
+                if (valore.equals("*") || (valore.startsWith("W/") ? valore.substring(2) : valore).equals(confronto)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (req.getSession(false) != null && req.getSession(false).getAttribute("Utente") != null) {
+            //la data non tiene conto di login e logout: senza ETag si risponde sempre per intero
+            return false;
+        }
+        try {
+            long ifModifiedSince = req.getDateHeader("If-Modified-Since");
+            return ifModifiedSince >= 0 && ultimaModifica <= ifModifiedSince;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    //Aggiunge ETag e Last-Modified solo alle risposte 200 che scrivono un corpo (non agli errori né ai redirect)
+    private static final class RispostaConValidatori extends HttpServletResponseWrapper {
+
+        private final String etag;
+        private final long ultimaModifica;
+        private boolean aggiunti;
+
+        RispostaConValidatori(HttpServletResponse resp, String etag, long ultimaModifica) {
+            super(resp);
+            this.etag = etag;
+            this.ultimaModifica = ultimaModifica;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            aggiungiValidatori();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            aggiungiValidatori();
+            return super.getWriter();
+        }
+
+        private void aggiungiValidatori() {
+            if (aggiunti || getStatus() != SC_OK || isCommitted()) {
+                return;
+            }
+            aggiunti = true;
+            setHeader("ETag", etag);
+            setDateHeader("Last-Modified", ultimaModifica);
+            setHeader("Cache-Control", CACHE_CONTROL);
+            Metriche.aggiungi(RISPOSTE_200, 1);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package controller.Http;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+
+//Pool di Deflater riusati tra le richieste: ogni Deflater alloca memoria nativa (circa 256 KB per zlib),
+//crearne e distruggerne uno per ogni risposta costa più della compressione di un JSON piccolo.
+//Se il pool è vuoto se ne crea uno nuovo; quelli in eccesso al rientro vengono chiusi.
+final class DeflaterPool {
+
+    private final BlockingQueue<Deflater> liberi;
+    private final int livello;
+
+    DeflaterPool(int dimensione, int livello) {
+        this.liberi = new ArrayBlockingQueue<>(dimensione);
+        this.livello = livello;
+    }
+
+    //Deflater in formato raw (nowrap): header e trailer gzip li scrive chi comprime
+    Deflater prendi() {
+        Deflater deflater = liberi.poll();
+        return deflater != null ? deflater : new Deflater(livello, true);
+    }
+
+    void restituisci(Deflater deflater) {
+        deflater.reset();
+        if (!liberi.offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    int disponibili() {
+        return liberi.size();
+    }
+
+    void chiudi() {
+        Deflater deflater;
+        while ((deflater = liberi.poll()) != null) {
+            deflater.end();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package controller.Http;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebFilter;
+import jakarta.servlet.http.HttpFilter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import model.BudgetQuery;
+import model.Metriche;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+//Budget di query per richiesta: apre un BudgetQuery per la servlet chiamata e, a fine richiesta, segnala
+//quelle che hanno eseguito più query del budget o la stessa forma di SQL troppe volte (un N+1).
+//Budget predefinito QUERY_BUDGET (25), ripetizioni ammesse QUERY_BUDGET_STESSA_FORMA (5), budget per servlet
+//in QUERY_BUDGET_ENDPOINT ("/Carrello=10,/AreaPersonale=4"). Con QUERY_BUDGET_RIGIDO=true (ambienti di
+//test) il superamento fa fallire la richiesta invece di finire solo nel log.
+@WebFilter(filterName = "QueryBudgetFilter", urlPatterns = "/*", asyncSupported = true)
+public class QueryBudgetFilter extends HttpFilter {
+
+    static final String SUPERATI = "query.budgetSuperati";
+
+    private static final Logger LOG = Logger.getLogger(QueryBudgetFilter.class.getName());
+
+    private static final int MAX_QUERY = intero(System.getenv("QUERY_BUDGET"), 25);
+    private static final int MAX_STESSA_FORMA = intero(System.getenv("QUERY_BUDGET_STESSA_FORMA"), 5);
+    private static final Map<String, Integer> PER_ENDPOINT = perEndpoint(System.getenv("QUERY_BUDGET_ENDPOINT"));
+    private static final boolean RIGIDO = Boolean.parseBoolean(System.getenv("QUERY_BUDGET_RIGIDO"));
+
+    @Override
+    protected void doFilter(HttpServletRequest req, HttpServletResponse resp, FilterChain chain) throws IOException, ServletException {
+        String endpoint = req.getServletPath();
+        try (BudgetQuery budget = BudgetQuery.apri(endpoint, PER_ENDPOINT.getOrDefault(endpoint, MAX_QUERY), MAX_STESSA_FORMA)) {
+            chain.doFilter(req, resp);
+            controlla(budget, RIGIDO);
+        }
+    }
+
+    static void controlla(BudgetQuery budget, boolean rigido) throws ServletException {
+        if (!budget.superato()) {
+            return;
+        }
+        Metriche.aggiungi(SUPERATI, 1);
+        if (rigido) {
+            throw new ServletException("Budget di query superato in " + budget.descrizione());
+        }
+        LOG.warning("Budget di query superato in " + budget.descrizione());
+    }
+
+    //"/Carrello=10,/AreaPersonale=4" -> {"/Carrello": 10, "/AreaPersonale": 4}; le voci non valide vengono ignorate
+    static Map<String, Integer> perEndpoint(String valore) {
+        Map<String, Integer> budget = new HashMap<>();
+        if (valore == null || valore.isBlank()) {
+            return budget;
+        }
+        for (String voce : valore.split(",")) {
+            String[] parti = voce.trim().split("=");
+            if (parti.length == 2 && intero(parti[1], -1) >= 0) {
+                budget.put(parti[0].trim(), intero(parti[1], -1));
+            }
+        }
+        return budget;
+    }
+
+    private static int intero(String valore, int predefinito) {
+        try {
+            return valore == null ? predefinito : Integer.parseInt(valore.trim());
+        } catch (NumberFormatException e) {
+            return predefinito;
+        }
+    }
+}
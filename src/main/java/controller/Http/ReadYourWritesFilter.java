@@ -0,0 +1,56 @@
+package controller.Http;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebFilter;
+import jakarta.servlet.http.HttpFilter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import model.ConPool;
+
+import java.io.IOException;
+
+//Lettura delle proprie scritture con le repliche: dopo una richiesta che può modificare dati (non GET/HEAD,
+//es. un ordine o una modifica dell'admin) la sessione legge dal primario per qualche secondo
+//(DB_LETTURA_DOPO_SCRITTURA_MS), così lo storico e le tabelle dell'admin mostrano subito la modifica anche se
+//le repliche non l'hanno ancora ricevuta. L'istante viene tenuto in sessione e passato a ConPool per la
+//durata delle richieste successive.
+@WebFilter(filterName = "ReadYourWritesFilter", urlPatterns = "/*", asyncSupported = true)
+public class ReadYourWritesFilter extends HttpFilter {
+
+    static final String PRIMARIO_FINO_A = "primarioFinoA";
+
+    @Override
+    protected void doFilter(HttpServletRequest req, HttpServletResponse resp, FilterChain chain) throws IOException, ServletException {
+        HttpSession session = req.getSession(false);
+        Object finoA = session != null ? session.getAttribute(PRIMARIO_FINO_A) : null;
+        if (finoA instanceof Long istante) {
+            if (istante > System.currentTimeMillis()) {
+                ConPool.leggiDalPrimarioFinoA(istante);
+            } else {
+                session.removeAttribute(PRIMARIO_FINO_A);
+            }
+        }
+        //si azzera sempre: segnaScrittura può averlo impostato durante la richiesta
+        try {
+            chain.doFilter(req, resp);
+            if (!"GET".equals(req.getMethod()) && !"HEAD".equals(req.getMethod()) && req.getSession(false) != null) {
+                segnaScrittura(req.getSession(false));
+            }
+        } finally {
+            ConPool.leggiDalPrimarioFinoA(0);
+        }
+    }
+
+    //Da chiamare dopo una scrittura della sessione: vale anche per il resto della richiesta corrente
+    public static void segnaScrittura(HttpSession session) {
+        int finestra = ConPool.getLetturaDopoScritturaMillis();
+        if (finestra <= 0) {
+            return;
+        }
+        long istante = System.currentTimeMillis() + finestra;
+        session.setAttribute(PRIMARIO_FINO_A, istante);
+        ConPool.leggiDalPrimarioFinoA(istante);
+    }
+}
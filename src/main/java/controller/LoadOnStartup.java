@@ -1,12 +1,19 @@
 package controller;
 
 import jakarta.servlet.ServletConfig;
+import jakarta.servlet.ServletContext;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
+import model.CatalogoCache;
+import model.ConPool;
+import model.ImmaginiProdotto;
+import model.OrdineGroupCommit;
+import model.OrdineJournal;
 import model.Prodotto;
-import model.ProdottoDAO;
 
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
 
 @WebServlet(value = "/loadOnStartUp", loadOnStartup = 0)
@@ -15,10 +22,36 @@ public class LoadOnStartup extends HttpServlet {
     public void init(ServletConfig config) throws ServletException {
         super.init(config);
 
-        ProdottoDAO prodottoDAO = new ProdottoDAO();
-        List<Prodotto> prodottoList = prodottoDAO.doRetrieveAll();
-
         // Salva i prodotti nel servletContext
-        getServletContext().setAttribute("Products", prodottoList);
+        CatalogoCache.Istantanea catalogo = pubblicaCatalogo(getServletContext());
+
+        // Genera in background le versioni ridotte mancanti delle immagini dei prodotti
+        String radice = getServletContext().getRealPath("/");
+        if (radice != null) {
+            ImmaginiProdotto.init(Paths.get(radice));
+            List<String> immagini = new ArrayList<>();
+            for (Prodotto prodotto : catalogo.getProdotti()) {
+                immagini.add(prodotto.getImmagine());
+            }
+            ImmaginiProdotto.generaDerivateAsync(immagini);
+        }
+
+        // Avvia il journal degli ordini (se abilitato): rielabora gli ordini non ancora salvati nel DB
+        OrdineJournal.start();
+    }
+
+    // Ricarica il catalogo e lo pubblica nel servletContext in un solo passo (vedi CatalogoCache).
+    // Da chiamare dopo ogni modifica del catalogo che deve comparire subito nel negozio.
+    public static CatalogoCache.Istantanea pubblicaCatalogo(ServletContext context) {
+        return CatalogoCache.ricarica(prodotti -> context.setAttribute("Products", prodotti));
+    }
+
+    @Override
+    public void destroy() {
+        OrdineJournal.shutdown();
+        OrdineGroupCommit.shutdown();
+        ImmaginiProdotto.shutdown();
+        ConPool.chiudi();
+        super.destroy();
     }
 }
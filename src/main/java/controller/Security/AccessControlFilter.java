@@ -9,7 +9,7 @@ import model.Utente;
 
 import java.io.IOException;
 
-@WebFilter(filterName = "/AccessControlFilter", urlPatterns = "/*")
+@WebFilter(filterName = "/AccessControlFilter", urlPatterns = "/*", asyncSupported = true)
 public class AccessControlFilter extends HttpFilter implements Filter {
 
     @Override
@@ -57,7 +57,7 @@ public class AccessControlFilter extends HttpFilter implements Filter {
         }
 
         //non puo usufruire delle funzioni di admin se non è un admin
-        if ((path.contains("admin") || path.contains("showTable") || path.contains("deleteRow") || path.contains("editRow") || path.contains("insertRow") || path.contains("showRowForm")) && !isAdmin){
+        if ((path.contains("admin") || path.contains("showTable") || path.contains("deleteRow") || path.contains("editRow") || path.contains("insertRow") || path.contains("showRowForm") || path.contains("bulkOrderStatus") || path.contains("importCatalogo") || path.contains("bulkPrezzi") || path.contains("dashboardVendite") || path.contains("metriche")) && !isAdmin){
             httpServletResponse.sendRedirect(httpServletRequest.getContextPath() + "/index.jsp");
             return; // Interrompe l'esecuzione del filtro
         }
@@ -10,12 +10,14 @@ import model.*;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 import org.owasp.encoder.Encode;
+import controller.Http.BloccoSessione;
 import controller.Security.ServletUtils;
 
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
 
 @WebServlet(value = "/cartServlet")
 public class CarrelloServlet extends HttpServlet {
@@ -31,7 +33,9 @@ public class CarrelloServlet extends HttpServlet {
             ProdottoDAO prodottoDAO = new ProdottoDAO();
             HttpSession session = req.getSession();
 
-            synchronized (session) {
+            ReentrantLock blocco = BloccoSessione.di(session);
+            blocco.lock();
+            try {
                 PrintWriter out = resp.getWriter();
 
                 if (action == null) {
@@ -50,6 +54,8 @@ public class CarrelloServlet extends HttpServlet {
                         out.flush();
                     }
                 }
+            } finally {
+                blocco.unlock();
             }
         } catch (Exception e) {
             log("Errore in CarrelloServlet doGet", e);
@@ -7,11 +7,14 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 import model.*;
+import controller.Http.ReadYourWritesFilter;
 import controller.Security.ServletUtils;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.UUID;
 
 @WebServlet(value = "/orderServlet")
 public class OrdineServlet extends HttpServlet {
@@ -45,40 +48,71 @@ public class OrdineServlet extends HttpServlet {
             if (cart != null && !cart.isEmpty() && session.getAttribute("Utente") != null){
                 Utente x = (Utente) session.getAttribute("Utente");
 
-                //Creiamo un nuovo ordine e lo inseriamo nel DB
+                //Creiamo un nuovo ordine con le righe prese dal carrello: i prezzi delle righe e il totale
+                //vengono calcolati qui, dallo stesso snapshot mostrato all'utente nel carrello
                 Ordine ordine = new Ordine();
                 ordine.setEmailUtente(x.getEmail());
-                OrdineDao ordineDao = new OrdineDao();
-                ordineDao.doSave(ordine);
-
-                //prendiamo l'id dell'ultimo ordine del DB
-                int id_order = ordineDao.getLastInsertedId();
 
-                //creaiamo una lista dei prodotti presenti nell'ordine
                 List<DettaglioOrdine> dettaglioOrdine = new ArrayList<>();
+                float totale = 0;
                 for (Carrello cartItem: cart){
                     DettaglioOrdine dettaglioOrdineItem = new DettaglioOrdine();
-                    dettaglioOrdineItem.setIdOrdine(id_order);
                     dettaglioOrdineItem.setIdVariante(cartItem.getIdVariante());
                     dettaglioOrdineItem.setIdProdotto(cartItem.getIdProdotto());
                     dettaglioOrdineItem.setQuantita(cartItem.getQuantita());
+                    dettaglioOrdineItem.setPrezzo(Math.round(cartItem.getPrezzo() * 100.0f) / 100.0f);
+                    //dati usati solo per il resoconto se l'ordine viene accettato dal journal
+                    dettaglioOrdineItem.setNomeProdotto(cartItem.getNomeProdotto());
+                    dettaglioOrdineItem.setGusto(cartItem.getGusto());
+                    dettaglioOrdineItem.setPesoConfezione(cartItem.getPesoConfezione());
+                    dettaglioOrdineItem.setImmagineProdotto(cartItem.getImmagineProdotto());
+                    totale += dettaglioOrdineItem.getPrezzo();
                     dettaglioOrdine.add(dettaglioOrdineItem);
                 }
+                ordine.setTotale(Math.round(totale * 100.0f) / 100.0f);
+
+                //se il journal è abilitato l'ordine viene registrato su disco e salvato nel DB in background:
+                //il checkout non dipende dalla disponibilità del DB
+                OrdineJournal journal = OrdineJournal.getInstance();
+                if (journal != null) {
+                    ordine.setToken(UUID.randomUUID().toString());
+                    ordine.setDataOrdine(new Date());
+                    ordine.setStato("in esecuzione");
+                    //niente DB su questo percorso, neanche per svuotare il carrello salvato: con il DB bloccato
+                    //aspetterebbe la connessione per secondi. Le righe ordinate le toglie il drainer dopo il salvataggio.
+                    try {
+                        journal.append(ordine, dettaglioOrdine);
+                        ReadYourWritesFilter.segnaScrittura(session);
+
+                        session.removeAttribute("cart");
+
+                        req.setAttribute("order", ordine);
+                        req.setAttribute("orderDetails", dettaglioOrdine);
+                        req.setAttribute("orderPending", true);
+
+                        req.getRequestDispatcher("WEB-INF/Ordine.jsp").forward(req, resp);
+                        return;
+                    } catch (IOException e) {
+                        //journal non scrivibile (es. disco pieno): proviamo il salvataggio diretto nel DB
+                        log("Journal ordini non disponibile, salvataggio diretto nel DB", e);
+                    }
+                }
+
+                //salviamo l'ordine e i suoi dettagli nel DB in un'unica transazione
+                OrdineDao ordineDao = new OrdineDao();
+                int id_order = ordineDao.doSaveOrdine(ordine, dettaglioOrdine);
+                //lo storico e il resoconto devono vedere subito il nuovo ordine anche con le repliche
+                ReadYourWritesFilter.segnaScrittura(session);
 
                 //eliminiamo il carrello visto che abbiamo effettuato l'ordine
                 session.removeAttribute("cart");
                 CarrelloDAO carrelloDAO = new CarrelloDAO();
                 carrelloDAO.doRemoveCartByUser(x.getEmail());
 
-                //salviamo i dettagli dell'ordine all'interno del DB
-                DettaglioOrdineDAO dettaglioOrdineDAO = new DettaglioOrdineDAO();
-                for (DettaglioOrdine dettaglioOrdineItem : dettaglioOrdine)
-                    dettaglioOrdineDAO.doSave(dettaglioOrdineItem);
-
                 //prendiamo l'ordine che abbiamo effettuato e mostriamo il resoconto
-                Ordine ordine1 = ordineDao.doRetrieveById(ordineDao.getLastInsertedId());
-                List<DettaglioOrdine> dettaglioOrdini1 = new ArrayList<>();
-                dettaglioOrdini1 = dettaglioOrdineDAO.doRetrieveById(ordine1.getIdOrdine());
+                DettaglioOrdineDAO dettaglioOrdineDAO = new DettaglioOrdineDAO();
+                Ordine ordine1 = ordineDao.doRetrieveById(id_order);
+                List<DettaglioOrdine> dettaglioOrdini1 = dettaglioOrdineDAO.doRetrieveById(id_order);
                 req.setAttribute("order", ordine1);
                 req.setAttribute("orderDetails", dettaglioOrdini1);
 
@@ -5,6 +5,7 @@ import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import model.DaoAsincroni;
 import model.Prodotto;
 import model.ProdottoDAO;
 import model.Variante;
@@ -14,6 +15,8 @@ import controller.Security.ServletUtils;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
 
 @WebServlet(value = "/ProductInfo")
 public class ProductServlet extends HttpServlet {
@@ -43,9 +46,18 @@ public class ProductServlet extends HttpServlet {
                         }
                     }
 
+                    //i pesi del primo gusto e i suggeriti dipendono solo dal prodotto: li leggiamo in parallelo,
+                    //entro la scadenza della richiesta
+                    long scadenza = DaoAsincroni.scadenza();
+                    String primoGusto = varianti.get(0).getGusto();
+                    CompletableFuture<List<Variante>> variantiGusto = DaoAsincroni.esegui(
+                            () -> varianteDAO.doRetrieveVariantByCriteria(prodotto.getIdProdotto(), "flavour", primoGusto));
+                    CompletableFuture<List<Prodotto>> prodottiCategoria = DaoAsincroni.esegui(
+                            () -> suggeritiDAO.doRetrieveByCriteria("categoria", prodotto.getCategoria()));
+
                     //Lista di pesi associati al gusto della variante di costo inferiore
                     List<Integer> pesi = new ArrayList<>();
-                    List<Variante> variantiCriteria = varianteDAO.doRetrieveVariantByCriteria(prodotto.getIdProdotto(), "flavour", varianti.get(0).getGusto());
+                    List<Variante> variantiCriteria = DaoAsincroni.attendi(variantiGusto, scadenza);
 
                     for (Variante y: variantiCriteria){
                         if (!pesi.contains(y.getPesoConfezione()))
@@ -55,9 +67,14 @@ public class ProductServlet extends HttpServlet {
                     req.setAttribute("allTastes", gusti);
                     req.setAttribute("firstWeights", pesi);
 
-                    //sezione dei suggeriti
-                    String category = prodotto.getCategoria();
-                    List<Prodotto> suggeriti = suggeritiDAO.doRetrieveByCriteria("categoria",category);
+                    //sezione dei suggeriti: se non arrivano in tempo la pagina esce senza
+                    List<Prodotto> suggeriti;
+                    try {
+                        suggeriti = DaoAsincroni.attendi(prodottiCategoria, scadenza);
+                    } catch (TimeoutException e) {
+                        log("Suggeriti non pronti entro la scadenza per il prodotto " + prodotto.getIdProdotto());
+                        suggeriti = new ArrayList<>();
+                    }
                     req.setAttribute("suggeriti",suggeriti);
                     req.setAttribute("prodotto",prodotto);
 
@@ -16,6 +16,10 @@ import java.util.List;
 
 @WebServlet(value = "/areaUtenteServlet")
 public class AreaPersonaleServlet extends HttpServlet {
+
+    //numero di ordini mostrati per pagina nell'area ordini
+    private static final int ORDINI_PER_PAGINA = 10;
+
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
         try {
@@ -36,12 +40,36 @@ public class AreaPersonaleServlet extends HttpServlet {
             Utente utente = (Utente) session.getAttribute("Utente");
 
             if (utente != null) {
-                //prendiamo tutti gli ordini e i relativi dati sul singolo ordine
+                //cursore della pagina richiesta (ultimo ordine della pagina precedente), assente per la prima pagina
+                java.sql.Date cursorData = null;
+                int cursorId = 0;
+                String cursorDataParam = req.getParameter("cursorData");
+                String cursorIdParam = req.getParameter("cursorId");
+                if (cursorDataParam != null && !cursorDataParam.isBlank() && cursorIdParam != null && !cursorIdParam.isBlank()) {
+                    try {
+                        cursorData = java.sql.Date.valueOf(cursorDataParam);
+                        cursorId = Integer.parseInt(cursorIdParam);
+                    } catch (IllegalArgumentException e) {
+                        //cursore non valido: mostriamo la prima pagina
+                        cursorData = null;
+                        cursorId = 0;
+                    }
+                }
+
+                //prendiamo una pagina di ordini insieme alle loro righe con un'unica query,
+                //chiedendo un ordine in più per sapere se esiste una pagina successiva
                 OrdineDao ordineDao = new OrdineDao();
-                List<Ordine> ordini = ordineDao.doRetrieveByEmail(utente.getEmail());
-                HashMap<Integer, List<DettaglioOrdine>> dettaglioOrdini = new HashMap<>();
-                DettaglioOrdineDAO dettaglioOrdineDAO = new DettaglioOrdineDAO();
+                List<Ordine> ordini = ordineDao.doRetrieveStoricoByEmail(utente.getEmail(), cursorData, cursorId, ORDINI_PER_PAGINA + 1);
+
+                boolean altriOrdini = ordini.size() > ORDINI_PER_PAGINA;
+                if (altriOrdini) {
+                    ordini = new ArrayList<>(ordini.subList(0, ORDINI_PER_PAGINA));
+                    Ordine ultimo = ordini.get(ordini.size() - 1);
+                    req.setAttribute("nextCursorData", new java.sql.Date(ultimo.getDataOrdine().getTime()).toString());
+                    req.setAttribute("nextCursorId", ultimo.getIdOrdine());
+                }
 
+                HashMap<Integer, List<DettaglioOrdine>> dettaglioOrdini = new HashMap<>();
                 for (Ordine ordine : ordini) {
                     //per ogni ordine prendiamo il resoconto dalla sua descrizione in modo da tenere salvati anche
                     //eventuali prodotti eliminati dal DB
@@ -49,13 +77,13 @@ public class AreaPersonaleServlet extends HttpServlet {
                         List<DettaglioOrdine> dettagli = parseDescrizione(ordine.getDescrizione());
                         dettaglioOrdini.put(ordine.getIdOrdine(), dettagli);
                     } else {
-                        List<DettaglioOrdine> dettagli = dettaglioOrdineDAO.doRetrieveById(ordine.getIdOrdine());
-                        dettaglioOrdini.put(ordine.getIdOrdine(), dettagli);
+                        dettaglioOrdini.put(ordine.getIdOrdine(), ordine.getDettagli());
                     }
                 }
 
                 req.setAttribute("ordini", ordini);
                 req.setAttribute("dettaglioOrdini", dettaglioOrdini);
+                req.setAttribute("paginaOrdini", cursorData != null);
 
                 req.getRequestDispatcher("WEB-INF/AreaUtente.jsp").forward(req, resp);
             }
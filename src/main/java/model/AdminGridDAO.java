@@ -0,0 +1,536 @@
+package model;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.*;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+
+//Lettura a pagine delle tabelle dell'area admin: ordinamento per colonna, filtri per colonna e conteggio totale.
+//La paginazione è a cursore (keyset): il cursore contiene il valore della colonna di ordinamento e della
+//chiave primaria dell'ultima riga della pagina precedente, così ogni pagina costa come la prima
+//anche in fondo a tabelle con centinaia di migliaia di righe (niente OFFSET).
+public class AdminGridDAO {
+
+    public static final int LIMIT_DEFAULT = 50;
+    public static final int LIMIT_MAX = 200;
+    private static final int MAX_CHIAVI_PER_QUERY = 1000;
+
+    public enum Tipo { INTERO, DECIMALE, TESTO, DATA }
+
+    public static class Colonna {
+        private final String nome;
+        private final String sql;
+        private final Tipo tipo;
+        //espressione usata per ordinare (e per il cursore), null se la colonna non è ordinabile
+        private final String ordinamento;
+
+        private Colonna(String nome, String sql, Tipo tipo, String ordinamento) {
+            this.nome = nome;
+            this.sql = sql;
+            this.tipo = tipo;
+            this.ordinamento = ordinamento;
+        }
+
+        public String getNome() {
+            return nome;
+        }
+
+        public Tipo getTipo() {
+            return tipo;
+        }
+
+        public boolean isOrdinabile() {
+            return ordinamento != null;
+        }
+    }
+
+    public static class Tabella {
+        private final String nome;
+        private final String sql;
+        private final List<Colonna> colonne;
+        private final List<String> chiave;
+
+        private Tabella(String nome, String sql, List<String> chiave, Colonna... colonne) {
+            this.nome = nome;
+            this.sql = sql;
+            this.chiave = chiave;
+            this.colonne = List.of(colonne);
+        }
+
+        public String getNome() {
+            return nome;
+        }
+
+        public List<Colonna> getColonne() {
+            return colonne;
+        }
+
+        //Nomi delle colonne che formano la chiave primaria
+        public List<String> getChiave() {
+            return chiave;
+        }
+
+        public Colonna getColonna(String nome) {
+            for (Colonna colonna : colonne) {
+                if (colonna.nome.equals(nome)) {
+                    return colonna;
+                }
+            }
+            return null;
+        }
+    }
+
+    public static class Pagina {
+        private final List<Map<String, Object>> righe = new ArrayList<>();
+        private long totale = -1;
+        private List<String> cursor;
+
+        public List<Map<String, Object>> getRighe() {
+            return righe;
+        }
+
+        //Numero di righe che rispettano i filtri; -1 se non calcolato (pagine successive alla prima)
+        public long getTotale() {
+            return totale;
+        }
+
+        //Cursore della pagina successiva, null se questa è l'ultima
+        public List<String> getCursor() {
+            return cursor;
+        }
+    }
+
+    //Riceve le righe lette in streaming da doStreamTabella, una alla volta
+    @FunctionalInterface
+    public interface GestoreRiga {
+        void riga(Object[] valori) throws IOException;
+    }
+
+    //Colonne intere non nulle: ordinate e filtrate direttamente (sfruttando gli indici)
+    private static Colonna intero(String nome, String sql) {
+        return new Colonna(nome, sql, Tipo.INTERO, sql);
+    }
+
+    private static Colonna testo(String nome, String sql) {
+        return new Colonna(nome, sql, Tipo.TESTO, sql);
+    }
+
+    //Colonne nullable: il null viene ordinato come 0 (o stringa vuota), il cursore non può contenere null
+    private static Colonna interoNullable(String nome, String sql) {
+        return new Colonna(nome, sql, Tipo.INTERO, "COALESCE(" + sql + ", 0)");
+    }
+
+    private static Colonna testoNullable(String nome, String sql) {
+        return new Colonna(nome, sql, Tipo.TESTO, "COALESCE(" + sql + ", '')");
+    }
+
+    //I float non si confrontano in modo esatto con il valore del cursore: si ordinano arrotondati al centesimo
+    private static Colonna decimale(String nome, String sql) {
+        return new Colonna(nome, sql, Tipo.DECIMALE, "CAST(COALESCE(" + sql + ", 0) AS DECIMAL(12, 2))");
+    }
+
+    private static Colonna data(String nome, String sql) {
+        return new Colonna(nome, sql, Tipo.DATA, sql);
+    }
+
+    private static Colonna nonOrdinabile(String nome, String sql, Tipo tipo) {
+        return new Colonna(nome, sql, tipo, null);
+    }
+
+    //Tabelle esposte all'admin; i nomi delle colonne sono gli stessi usati nel JSON di showRowForm.
+    //La password degli utenti non viene mai esposta.
+    private static final Map<String, Tabella> TABELLE = new LinkedHashMap<>();
+
+    static {
+        aggiungi(new Tabella("utente", "utente", List.of("email"),
+                testo("email", "email"),
+                testo("nome", "nome"),
+                testo("cognome", "cognome"),
+                testoNullable("codiceFiscale", "codice_fiscale"),
+                nonOrdinabile("dataDiNascita", "data_di_nascita", Tipo.DATA),
+                testoNullable("indirizzo", "indirizzo"),
+                testoNullable("telefono", "numero_di_cellulare")));
+        aggiungi(new Tabella("prodotto", "prodotto", List.of("idProdotto"),
+                testo("idProdotto", "id_prodotto"),
+                testo("nome", "nome"),
+                testo("categoria", "categoria"),
+                testo("immagine", "immagine"),
+                interoNullable("calorie", "calorie"),
+                interoNullable("carboidrati", "carboidrati"),
+                interoNullable("proteine", "proteine"),
+                interoNullable("grassi", "grassi")));
+        aggiungi(new Tabella("variante", "variante", List.of("idVariante"),
+                intero("idVariante", "id_variante"),
+                testo("idProdottoVariante", "id_prodotto_variante"),
+                intero("idGusto", "id_gusto"),
+                intero("idConfezione", "id_confezione"),
+                decimale("prezzo", "prezzo"),
+                interoNullable("quantity", "`quantità`"),
+                interoNullable("sconto", "sconto"),
+                interoNullable("evidenza", "evidenza")));
+        aggiungi(new Tabella("ordine", "ordine", List.of("idOrdine"),
+                intero("idOrdine", "id_ordine"),
+                testo("emailUtente", "email_utente"),
+                data("data", "data"),
+                testo("stato", "stato"),
+                decimale("totale", "totale"),
+                nonOrdinabile("descrizione", "descrizione", Tipo.TESTO)));
+        aggiungi(new Tabella("dettaglioOrdine", "dettaglio_ordine", List.of("idOrdine", "idProdotto", "idVariante"),
+                intero("idOrdine", "id_ordine"),
+                testo("idProdotto", "id_prodotto"),
+                intero("idVariante", "id_variante"),
+                intero("quantity", "`quantità`"),
+                decimale("prezzo", "prezzo")));
+        aggiungi(new Tabella("gusto", "gusto", List.of("idGusto"),
+                intero("idGusto", "id_gusto"),
+                testo("nomeGusto", "nomeGusto")));
+        aggiungi(new Tabella("confezione", "confezione", List.of("idConfezione"),
+                intero("idConfezione", "id_confezione"),
+                intero("pesoConfezione", "peso")));
+    }
+
+    private static void aggiungi(Tabella tabella) {
+        TABELLE.put(tabella.nome, tabella);
+    }
+
+    //Restituisce la descrizione della tabella, null se non è una tabella dell'area admin
+    public static Tabella getTabella(String nome) {
+        return nome != null ? TABELLE.get(nome) : null;
+    }
+
+    //Restituisce una pagina della tabella.
+    //sort è il nome della colonna di ordinamento (null = chiave primaria), i filtri sono coppie colonna -> valore
+    //(prefisso per le colonne di testo, uguaglianza per le altre), cursor è quello restituito dalla pagina
+    //precedente (null per la prima pagina, che è anche l'unica per cui viene calcolato il totale).
+    //Colonne, ordinamenti o cursori non validi producono una IllegalArgumentException.
+    public Pagina doRetrievePagina(String nomeTabella, String sort, boolean discendente, Map<String, String> filtri, List<String> cursor, int limit) {
+        Tabella tabella = getTabella(nomeTabella);
+        if (tabella == null) {
+            throw new IllegalArgumentException("Tabella non valida: " + nomeTabella);
+        }
+        limit = Math.max(1, Math.min(limit, LIMIT_MAX));
+
+        //colonne del cursore: quella di ordinamento seguita dalla chiave primaria (che rende l'ordine totale)
+        List<Colonna> colonneCursore = new ArrayList<>();
+        if (sort != null && !sort.isBlank()) {
+            Colonna colonnaSort = tabella.getColonna(sort);
+            if (colonnaSort == null || !colonnaSort.isOrdinabile()) {
+                throw new IllegalArgumentException("Colonna non ordinabile: " + sort);
+            }
+            colonneCursore.add(colonnaSort);
+        }
+        for (String nomeChiave : tabella.chiave) {
+            Colonna colonnaChiave = tabella.getColonna(nomeChiave);
+            if (!colonneCursore.contains(colonnaChiave)) {
+                colonneCursore.add(colonnaChiave);
+            }
+        }
+
+        //condizioni dei filtri, comuni alla query della pagina e a quella del totale
+        List<Colonna> colonneFiltri = new ArrayList<>();
+        List<String> valoriFiltri = new ArrayList<>();
+        String where = condizioniFiltri(tabella, filtri, colonneFiltri, valoriFiltri);
+
+        StringBuilder sql = new StringBuilder("SELECT ");
+        for (Colonna colonna : tabella.colonne) {
+            sql.append(colonna.sql).append(" AS ").append(colonna.nome).append(", ");
+        }
+        for (int i = 0; i < colonneCursore.size(); i++) {
+            sql.append(colonneCursore.get(i).ordinamento).append(" AS cursore_").append(i).append(i < colonneCursore.size() - 1 ? ", " : "");
+        }
+        sql.append(" FROM ").append(tabella.sql).append(where);
+
+        if (cursor != null) {
+            if (cursor.size() != colonneCursore.size()) {
+                throw new IllegalArgumentException("Cursore non valido.");
+            }
+            //confronto tra righe: (sort, chiave) > (valori dell'ultima riga letta)
+            sql.append(" AND (");
+            for (int i = 0; i < colonneCursore.size(); i++) {
+                sql.append(i > 0 ? ", " : "").append(colonneCursore.get(i).ordinamento);
+            }
+            sql.append(discendente ? ") < (" : ") > (");
+            sql.append(String.join(", ", Collections.nCopies(colonneCursore.size(), "?"))).append(")");
+        }
+
+        sql.append(" ORDER BY ");
+        for (int i = 0; i < colonneCursore.size(); i++) {
+            sql.append(i > 0 ? ", " : "").append(colonneCursore.get(i).ordinamento).append(discendente ? " DESC" : " ASC");
+        }
+        sql.append(" LIMIT ?");
+
+        Pagina pagina = new Pagina();
+        try (Connection con = ConPool.getReadConnection()) {
+            PreparedStatement ps = con.prepareStatement(sql.toString());
+            int paramIndex = impostaFiltri(ps, 1, colonneFiltri, valoriFiltri);
+            if (cursor != null) {
+                for (int i = 0; i < colonneCursore.size(); i++) {
+                    imposta(ps, paramIndex++, colonneCursore.get(i).tipo, cursor.get(i));
+                }
+            }
+            //una riga in più per sapere se esiste una pagina successiva
+            ps.setInt(paramIndex, limit + 1);
+
+            ResultSet rs = ps.executeQuery();
+            SimpleDateFormat formatoData = new SimpleDateFormat("yyyy-MM-dd");
+            List<String> cursoreUltimaRiga = null;
+            while (rs.next()) {
+                if (pagina.righe.size() == limit) {
+                    pagina.cursor = cursoreUltimaRiga;
+                    break;
+                }
+
+                Map<String, Object> riga = new LinkedHashMap<>();
+                for (Colonna colonna : tabella.colonne) {
+                    riga.put(colonna.nome, leggi(rs, colonna, formatoData));
+                }
+                pagina.righe.add(riga);
+
+                cursoreUltimaRiga = new ArrayList<>();
+                for (int i = 0; i < colonneCursore.size(); i++) {
+                    cursoreUltimaRiga.add(rs.getString("cursore_" + i));
+                }
+            }
+
+            if (cursor == null) {
+                PreparedStatement count = con.prepareStatement("SELECT COUNT(*) FROM " + tabella.sql + where);
+                impostaFiltri(count, 1, colonneFiltri, valoriFiltri);
+                ResultSet rsCount = count.executeQuery();
+                if (rsCount.next()) {
+                    pagina.totale = rsCount.getLong(1);
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+
+        return pagina;
+    }
+
+    //Legge tutte le righe (filtrate) della tabella in ordine di chiave primaria e le passa al gestore una alla volta,
+    //senza mai tenerle in memoria: è il metodo usato per le esportazioni complete.
+    public void doStreamTabella(String nomeTabella, Map<String, String> filtri, GestoreRiga gestore) throws IOException {
+        try (Connection con = ConPool.getReadConnection()) {
+            doStreamTabella(con, nomeTabella, filtri, gestore);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public void doStreamTabella(Connection con, String nomeTabella, Map<String, String> filtri, GestoreRiga gestore) throws SQLException, IOException {
+        Tabella tabella = getTabella(nomeTabella);
+        if (tabella == null) {
+            throw new IllegalArgumentException("Tabella non valida: " + nomeTabella);
+        }
+
+        List<Colonna> colonneFiltri = new ArrayList<>();
+        List<String> valoriFiltri = new ArrayList<>();
+        String where = condizioniFiltri(tabella, filtri, colonneFiltri, valoriFiltri);
+
+        StringBuilder sql = new StringBuilder("SELECT ");
+        for (int i = 0; i < tabella.colonne.size(); i++) {
+            Colonna colonna = tabella.colonne.get(i);
+            sql.append(i > 0 ? ", " : "").append(colonna.sql).append(" AS ").append(colonna.nome);
+        }
+        sql.append(" FROM ").append(tabella.sql).append(where).append(" ORDER BY ");
+        for (int i = 0; i < tabella.chiave.size(); i++) {
+            sql.append(i > 0 ? ", " : "").append(tabella.getColonna(tabella.chiave.get(i)).sql);
+        }
+
+        //ResultSet forward-only con fetch size Integer.MIN_VALUE: il driver MySQL legge le righe dal socket
+        //una alla volta invece di caricare l'intero risultato in memoria
+        try (PreparedStatement ps = con.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            ps.setFetchSize(Integer.MIN_VALUE);
+            impostaFiltri(ps, 1, colonneFiltri, valoriFiltri);
+
+            SimpleDateFormat formatoData = new SimpleDateFormat("yyyy-MM-dd");
+            Object[] valori = new Object[tabella.colonne.size()];
+            long righe = 0;
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    for (int i = 0; i < valori.length; i++) {
+                        valori[i] = leggi(rs, tabella.colonne.get(i), formatoData);
+                    }
+                    gestore.riga(valori);
+
+                    //un'esportazione lunga non deve essere scambiata per una connessione abbandonata:
+                    //ogni chiamata sulla connessione azzera il timer del pool (interceptor ResetAbandonedTimer)
+                    if (++righe % 10000 == 0) {
+                        con.getAutoCommit();
+                    }
+                }
+            }
+        }
+    }
+
+    //Elimina le righe con le chiavi indicate (ogni chiave ha un valore per ogni colonna della chiave primaria)
+    //con un'unica DELETE ... WHERE (chiave) IN (...) ogni MAX_CHIAVI_PER_QUERY chiavi, tutto in una transazione.
+    //Restituisce il numero di righe eliminate.
+    public int doDeleteByChiavi(String nomeTabella, List<List<String>> chiavi) {
+        Tabella tabella = getTabella(nomeTabella);
+        if (tabella == null) {
+            throw new IllegalArgumentException("Tabella non valida: " + nomeTabella);
+        }
+        for (List<String> chiave : chiavi) {
+            if (chiave.size() != tabella.chiave.size()) {
+                throw new IllegalArgumentException("Chiave non valida per la tabella " + nomeTabella);
+            }
+        }
+        if (chiavi.isEmpty()) {
+            return 0;
+        }
+
+        StringBuilder colonneChiave = new StringBuilder();
+        StringBuilder segnapostoChiave = new StringBuilder();
+        for (int i = 0; i < tabella.chiave.size(); i++) {
+            colonneChiave.append(i > 0 ? ", " : "").append(tabella.getColonna(tabella.chiave.get(i)).sql);
+            segnapostoChiave.append(i > 0 ? ", ?" : "?");
+        }
+        String confronto = tabella.chiave.size() > 1 ? "(" + colonneChiave + ")" : colonneChiave.toString();
+        String segnaposto = tabella.chiave.size() > 1 ? "(" + segnapostoChiave + ")" : segnapostoChiave.toString();
+
+        //ordini, righe degli ordini e utenti (con i loro ordini, eliminati a cascata) cambiano i riepiloghi
+        //delle vendite: si aggiornano nella stessa transazione
+        boolean vendite = switch (tabella.sql) {
+            case "ordine", "dettaglio_ordine", "utente" -> true;
+            default -> false;
+        };
+        Lock aggiornamenti = RicostruzioneVendite.lockAggiornamenti();
+        if (vendite) {
+            aggiornamenti.lock();
+        }
+        try (Connection con = ConPool.getConnection()) {
+            con.setAutoCommit(false);
+            try {
+                int eliminate = 0;
+                for (int inizio = 0; inizio < chiavi.size(); inizio += MAX_CHIAVI_PER_QUERY) {
+                    List<List<String>> blocco = chiavi.subList(inizio, Math.min(chiavi.size(), inizio + MAX_CHIAVI_PER_QUERY));
+                    RiepilogoVenditeDAO riepilogoDao = new RiepilogoVenditeDAO();
+                    List<Integer> idOrdini = new ArrayList<>();
+                    if (tabella.sql.equals("ordine") || tabella.sql.equals("dettaglio_ordine")) {
+                        for (List<String> chiave : blocco) {
+                            int idOrdine = Integer.parseInt(chiave.get(0));
+                            if (!idOrdini.contains(idOrdine)) {
+                                idOrdini.add(idOrdine);
+                            }
+                        }
+                        riepilogoDao.doRimuoviOrdini(con, idOrdini);
+                    } else if (tabella.sql.equals("utente")) {
+                        List<String> emailUtenti = new ArrayList<>();
+                        for (List<String> chiave : blocco) {
+                            emailUtenti.add(chiave.get(0));
+                        }
+                        riepilogoDao.doRimuoviOrdiniDiUtenti(con, emailUtenti);
+                    }
+                    StringBuilder sql = new StringBuilder("DELETE FROM ").append(tabella.sql)
+                            .append(" WHERE ").append(confronto).append(" IN (");
+                    for (int i = 0; i < blocco.size(); i++) {
+                        sql.append(i > 0 ? ", " : "").append(segnaposto);
+                    }
+                    sql.append(")");
+
+                    try (PreparedStatement ps = con.prepareStatement(sql.toString())) {
+                        int paramIndex = 1;
+                        for (List<String> chiave : blocco) {
+                            for (int i = 0; i < chiave.size(); i++) {
+                                imposta(ps, paramIndex++, tabella.getColonna(tabella.chiave.get(i)).tipo, chiave.get(i));
+                            }
+                        }
+                        eliminate += ps.executeUpdate();
+                    }
+                    //gli ordini di cui sono state eliminate delle righe rientrano con quelle rimaste
+                    if (tabella.sql.equals("dettaglio_ordine")) {
+                        riepilogoDao.doAggiungiOrdini(con, idOrdini);
+                    }
+                }
+                con.commit();
+                return eliminate;
+            } catch (SQLException | RuntimeException e) {
+                con.rollback();
+                throw e;
+            } finally {
+                con.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        } finally {
+            if (vendite) {
+                aggiornamenti.unlock();
+            }
+        }
+    }
+
+    //Aggiunge alle liste le colonne e i valori dei filtri non vuoti e restituisce la clausola WHERE corrispondente
+    private static String condizioniFiltri(Tabella tabella, Map<String, String> filtri, List<Colonna> colonneFiltri, List<String> valoriFiltri) {
+        StringBuilder where = new StringBuilder(" WHERE 1 = 1");
+        if (filtri != null) {
+            for (Map.Entry<String, String> filtro : filtri.entrySet()) {
+                if (filtro.getValue() == null || filtro.getValue().isBlank()) {
+                    continue;
+                }
+                Colonna colonna = tabella.getColonna(filtro.getKey());
+                if (colonna == null) {
+                    throw new IllegalArgumentException("Colonna non valida: " + filtro.getKey());
+                }
+                switch (colonna.tipo) {
+                    case TESTO -> where.append(" AND ").append(colonna.sql).append(" LIKE ? ESCAPE '!'");
+                    case DECIMALE -> where.append(" AND CAST(").append(colonna.sql).append(" AS DECIMAL(12, 2)) = ?");
+                    default -> where.append(" AND ").append(colonna.sql).append(" = ?");
+                }
+                colonneFiltri.add(colonna);
+                valoriFiltri.add(filtro.getValue().trim());
+            }
+        }
+        return where.toString();
+    }
+
+    private static int impostaFiltri(PreparedStatement ps, int paramIndex, List<Colonna> colonne, List<String> valori) throws SQLException {
+        for (int i = 0; i < colonne.size(); i++) {
+            Colonna colonna = colonne.get(i);
+            if (colonna.tipo == Tipo.TESTO) {
+                //ricerca per prefisso: i caratteri speciali di LIKE nel valore vengono neutralizzati
+                String valore = valori.get(i).replace("!", "!!").replace("%", "!%").replace("_", "!_");
+                ps.setString(paramIndex++, valore + "%");
+            } else {
+                imposta(ps, paramIndex++, colonna.tipo, valori.get(i));
+            }
+        }
+        return paramIndex;
+    }
+
+    private static void imposta(PreparedStatement ps, int paramIndex, Tipo tipo, String valore) throws SQLException {
+        //NumberFormatException e Date.valueOf segnalano i valori non validi con una IllegalArgumentException
+        switch (tipo) {
+            case INTERO -> ps.setInt(paramIndex, Integer.parseInt(valore));
+            case DECIMALE -> ps.setBigDecimal(paramIndex, new BigDecimal(valore));
+            case DATA -> ps.setDate(paramIndex, Date.valueOf(valore));
+            default -> ps.setString(paramIndex, valore);
+        }
+    }
+
+    private static Object leggi(ResultSet rs, Colonna colonna, SimpleDateFormat formatoData) throws SQLException {
+        switch (colonna.tipo) {
+            case INTERO -> {
+                int valore = rs.getInt(colonna.nome);
+                return rs.wasNull() ? null : valore;
+            }
+            case DECIMALE -> {
+                float valore = rs.getFloat(colonna.nome);
+                return rs.wasNull() ? null : valore;
+            }
+            case DATA -> {
+                Date valore = rs.getDate(colonna.nome);
+                return valore != null ? formatoData.format(valore) : null;
+            }
+            default -> {
+                return rs.getString(colonna.nome);
+            }
+        }
+    }
+}
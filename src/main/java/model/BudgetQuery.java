@@ -0,0 +1,119 @@
+package model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+//Budget di query di una richiesta: quante query può eseguire in tutto e quante volte la stessa forma di SQL
+//(l'SQL normalizzato di StrumentazioneDao, quindi senza valori). Una forma ripetuta molte volte in una
+//richiesta è quasi sempre un N+1: una query per ogni riga di un risultato letto prima.
+//Il budget è del thread che serve la richiesta (lo apre QueryBudgetFilter) e conta le query eseguite sulle
+//connessioni di ConPool; le letture lanciate con DaoAsincroni lo ritrovano sul proprio thread finché la richiesta
+//le aspetta (una lettura scaduta smette di contare), le query fatte da altri thread per conto della richiesta
+//non vengono contate. Il conteggio è sincronizzato: il thread della richiesta lo legge mentre le letture
+//asincrone possono ancora aggiornarlo.
+//I test possono aprirne uno attorno a una chiamata alla servlet e controllarlo con verifica().
+public final class BudgetQuery implements AutoCloseable {
+
+    private static final ThreadLocal<BudgetQuery> CORRENTE = new ThreadLocal<>();
+    //lettura di DaoAsincroni eseguita dal thread, se ce n'è una: cancellata quando la richiesta smette di aspettarla
+    private static final ThreadLocal<Future<?>> LETTURA = new ThreadLocal<>();
+
+    private final String endpoint;
+    private final int maxQuery;
+    private final int maxStessaForma;
+    private final BudgetQuery precedente;
+    private final Map<String, Integer> forme = new LinkedHashMap<>();
+    private int query;
+
+    private BudgetQuery(String endpoint, int maxQuery, int maxStessaForma, BudgetQuery precedente) {
+        this.endpoint = endpoint;
+        this.maxQuery = maxQuery;
+        this.maxStessaForma = maxStessaForma;
+        this.precedente = precedente;
+    }
+
+    //Apre un budget sul thread corrente fino a close(); un budget già aperto torna attivo alla chiusura
+    public static BudgetQuery apri(String endpoint, int maxQuery, int maxStessaForma) {
+        BudgetQuery budget = new BudgetQuery(endpoint, maxQuery, maxStessaForma, CORRENTE.get());
+        CORRENTE.set(budget);
+        return budget;
+    }
+
+    public static BudgetQuery corrente() {
+        return CORRENTE.get();
+    }
+
+    //Usato da DaoAsincroni: il thread che esegue una lettura per conto della richiesta conta nel suo budget
+    //finché la lettura non viene cancellata
+    static void condividi(BudgetQuery budget, Future<?> lettura) {
+        if (budget != null) {
+            CORRENTE.set(budget);
+            LETTURA.set(lettura);
+        } else {
+            CORRENTE.remove();
+            LETTURA.remove();
+        }
+    }
+
+    //Chiamato da StrumentazioneDao per ogni query eseguita
+    static void registra(String sql) {
+        BudgetQuery budget = CORRENTE.get();
+        Future<?> lettura = LETTURA.get();
+        if (budget != null && (lettura == null || !lettura.isCancelled())) {
+            budget.conta(StrumentazioneDao.normalizza(sql));
+        }
+    }
+
+    private synchronized void conta(String forma) {
+        query++;
+        forme.merge(forma, 1, Integer::sum);
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public synchronized int getQuery() {
+        return query;
+    }
+
+    //Forme eseguite più di maxStessaForma volte, con il numero di esecuzioni
+    public synchronized Map<String, Integer> formeRipetute() {
+        Map<String, Integer> ripetute = new LinkedHashMap<>();
+        forme.forEach((forma, volte) -> {
+            if (volte > maxStessaForma) {
+                ripetute.put(forma, volte);
+            }
+        });
+        return ripetute;
+    }
+
+    public synchronized boolean superato() {
+        return query > maxQuery || !formeRipetute().isEmpty();
+    }
+
+    public synchronized String descrizione() {
+        StringBuilder testo = new StringBuilder();
+        testo.append(endpoint).append(": ").append(query).append(" query (budget ").append(maxQuery).append(')');
+        formeRipetute().forEach((forma, volte) -> testo.append("; ").append(volte).append("x (max ")
+                .append(maxStessaForma).append(") ").append(forma));
+        return testo.toString();
+    }
+
+    //Per i test e per la modalità rigida del filtro: eccezione se il budget è stato superato
+    public void verifica() {
+        if (superato()) {
+            throw new IllegalStateException("Budget di query superato in " + descrizione());
+        }
+    }
+
+    @Override
+    public void close() {
+        if (precedente != null) {
+            CORRENTE.set(precedente);
+        } else {
+            CORRENTE.remove();
+        }
+    }
+}
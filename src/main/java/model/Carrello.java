@@ -111,6 +111,10 @@ public class Carrello {
         this.immagineProdotto = immagineProdotto;
     }
 
+    public String getImmagineMiniatura() {
+        return ImmaginiProdotto.derivata(immagineProdotto, ImmaginiProdotto.Formato.MINIATURA);
+    }
+
 
     //Auto-generated by Intellij
     @Override
@@ -43,6 +43,32 @@ public class CarrelloDAO {
     }
 
 
+    //Elimina dal carrello salvato dell'utente solo le varianti ordinate, in un'unica transazione.
+    //Usata dal drainer del journal: nel frattempo il logout può aver salvato un carrello nuovo che va conservato
+    public void doRemoveRigheOrdinate(String emailUtente, List<DettaglioOrdine> righe){
+        try (Connection connection = ConPool.getConnection()){
+            connection.setAutoCommit(false);
+            try (PreparedStatement preparedStatement = connection.prepareStatement("DELETE FROM carrello WHERE email_utente = ? AND id_prodotto = ? AND id_variante = ?")) {
+                for (DettaglioOrdine riga : righe) {
+                    preparedStatement.setString(1, emailUtente);
+                    preparedStatement.setString(2, riga.getIdProdotto());
+                    preparedStatement.setInt(3, riga.getIdVariante());
+                    preparedStatement.addBatch();
+                }
+                preparedStatement.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }catch (SQLException e){
+            throw new RuntimeException(e);
+        }
+    }
+
+
     public List<Carrello> doRetrieveCartItemsByUser(String emailUtente) {
         List<Carrello> carrelli = new ArrayList<>();
 
@@ -54,21 +80,7 @@ public class CarrelloDAO {
 
             ResultSet resultSet = preparedStatement.executeQuery();
 
-            while (resultSet.next()) {
-                Carrello carrello = new Carrello();
-                carrello.setEmailUtente(resultSet.getString("email_utente"));
-                carrello.setIdProdotto(resultSet.getString("id_prodotto"));
-                carrello.setIdVariante(resultSet.getInt("id_variante"));
-                carrello.setQuantita(resultSet.getInt("quantità"));
-                carrello.setPrezzo(resultSet.getFloat("prezzo"));
-
-                carrello.setGusto(resultSet.getString("nomeGusto"));
-                carrello.setPesoConfezione(resultSet.getInt("peso"));
-                carrello.setNomeProdotto(resultSet.getString("nome"));
-                carrello.setImmagineProdotto(resultSet.getString("immagine"));
-
-                carrelli.add(carrello);
-            }
+            MapperEntita.CARRELLO.perOgni(resultSet, carrelli::add);
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
@@ -0,0 +1,63 @@
+package model;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+//Catalogo mostrato dal negozio (attributo "Products" del contesto) con il suo numero di versione.
+//Ogni ricarica legge il catalogo completo in una nuova lista e la pubblica con una sola sostituzione:
+//chi legge vede sempre tutto il catalogo precedente oppure tutto quello nuovo, mai uno aggiornato a metà.
+//La versione aumenta ad ogni pubblicazione e può essere usata come chiave delle cache HTTP.
+public final class CatalogoCache {
+
+    public static final class Istantanea {
+        private final long versione;
+        private final List<Prodotto> prodotti;
+
+        private Istantanea(long versione, List<Prodotto> prodotti) {
+            this.versione = versione;
+            this.prodotti = prodotti;
+        }
+
+        public long getVersione() {
+            return versione;
+        }
+
+        public List<Prodotto> getProdotti() {
+            return prodotti;
+        }
+    }
+
+    private static final AtomicReference<Istantanea> CORRENTE = new AtomicReference<>(new Istantanea(0, List.of()));
+    private static final ReentrantLock RICARICA = new ReentrantLock();
+
+    private CatalogoCache() {
+    }
+
+    public static Istantanea get() {
+        return CORRENTE.get();
+    }
+
+    public static long getVersione() {
+        return CORRENTE.get().getVersione();
+    }
+
+    //Rilegge il catalogo e lo passa a "pubblica" (es. il contesto della webapp) prima di rendere visibile la
+    //nuova versione: una cache HTTP non può associare la versione nuova al catalogo vecchio.
+    //Le ricariche sono serializzate, così una lettura più vecchia non sostituisce mai un catalogo più recente.
+    public static Istantanea ricarica(Consumer<List<Prodotto>> pubblica) {
+        RICARICA.lock();
+        try {
+            List<Prodotto> prodotti = Collections.unmodifiableList(ConPool.dalPrimario(() -> new ProdottoDAO().doRetrieveAll()));
+            Istantanea nuova = new Istantanea(CORRENTE.get().getVersione() + 1, prodotti);
+            pubblica.accept(prodotti);
+            CORRENTE.set(nuova);
+            VersioneCatalogo.incrementa();
+            return nuova;
+        } finally {
+            RICARICA.unlock();
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+//Catalogo per colonne di tipi primitivi, per filtrare e ordinare cataloghi grandi in memoria: un array per
+//campo delle varianti (prezzo in centesimi, sconto in un byte, evidenza in un BitSet, ...) invece di un oggetto
+//Variante per riga. Le varianti di un prodotto sono contigue, quindi la ricerca della più economica di ogni
+//prodotto legge memoria in sequenza. Nomi e categorie dei prodotti sono codici di un dizionario: il filtro per
+//nome confronta ogni nome distinto una volta sola. Gli oggetti Prodotto e Variante vengono creati solo per
+//i prodotti della pagina da mostrare (vedi pagina).
+//Come DimensioniCatalogo l'istantanea viene ricostruita quando cambia la VersioneCatalogo.
+public final class CatalogoColonnare {
+
+    private static volatile CatalogoColonnare corrente;
+    private static final ReentrantLock RICARICA = new ReentrantLock();
+
+    private final String versione;
+
+    //prodotti: dati descrittivi per la materializzazione e colonne per i filtri e l'ordinamento
+    private final Prodotto[] prodotti;
+    private final int[] nomeProdotto;
+    private final int[] categoria;
+    private final int[] calorie;
+    private final int[] primaVariante;
+    private final Dizionario nomi = new Dizionario();
+    private final Dizionario categorie = new Dizionario();
+
+    //varianti, raggruppate per prodotto
+    private final int[] idVariante;
+    private final int[] prodottoOrdinale;
+    private final int[] idGusto;
+    private final int[] idConfezione;
+    private final int[] peso;
+    private final int[] quantita;
+    private final int[] prezzoCentesimi;
+    private final byte[] sconto;
+    private final BitSet evidenza;
+
+    //Dizionario di stringhe: un codice intero per ogni valore distinto. I valori sono tenuti in minuscolo, perché
+    //servono solo ai confronti (senza maiuscole, come la collation del DB)
+    static final class Dizionario {
+        private final Map<String, Integer> codici = new HashMap<>();
+        private final List<String> valori = new ArrayList<>();
+
+        int codice(String valore) {
+            String chiave = valore == null ? "" : valore.toLowerCase(Locale.ROOT);
+            return codici.computeIfAbsent(chiave, k -> {
+                valori.add(k);
+                return valori.size() - 1;
+            });
+        }
+
+        //-1 se il valore non compare nel catalogo
+        int cerca(String valore) {
+            return codici.getOrDefault(valore.toLowerCase(Locale.ROOT), -1);
+        }
+
+        int dimensione() {
+            return valori.size();
+        }
+
+        String valore(int codice) {
+            return valori.get(codice);
+        }
+    }
+
+    //Prodotti che passano un filtro, ognuno con la sua variante più economica tra quelle ammesse
+    public static final class Selezione {
+        private final int[] prodotti;
+        private final int[] varianti;
+        private final int dimensione;
+
+        private Selezione(int[] prodotti, int[] varianti, int dimensione) {
+            this.prodotti = prodotti;
+            this.varianti = varianti;
+            this.dimensione = dimensione;
+        }
+
+        public int dimensione() {
+            return dimensione;
+        }
+    }
+
+    CatalogoColonnare(String versione, List<Prodotto> sorgenti, List<Variante> varianti) {
+        this.versione = versione;
+        int nProdotti = sorgenti.size();
+        prodotti = new Prodotto[nProdotti];
+        nomeProdotto = new int[nProdotti];
+        categoria = new int[nProdotti];
+        calorie = new int[nProdotti];
+        primaVariante = new int[nProdotti + 1];
+
+        Map<String, Integer> ordinali = new HashMap<>(nProdotti * 2);
+        for (int p = 0; p < nProdotti; p++) {
+            Prodotto prodotto = sorgenti.get(p);
+            prodotti[p] = prodotto;
+            nomeProdotto[p] = nomi.codice(prodotto.getNome());
+            categoria[p] = categorie.codice(prodotto.getCategoria());
+            calorie[p] = prodotto.getCalorie();
+            ordinali.put(prodotto.getIdProdotto(), p);
+        }
+
+        //conteggio per prodotto e poi posizionamento: le varianti di ogni prodotto diventano contigue
+        int[] ordinaleDi = new int[varianti.size()];
+        for (int i = 0; i < varianti.size(); i++) {
+            Integer ordinale = ordinali.get(varianti.get(i).getIdProdotto());
+            ordinaleDi[i] = ordinale == null ? -1 : ordinale;
+            if (ordinale != null) {
+                primaVariante[ordinale + 1]++;
+            }
+        }
+        for (int p = 0; p < nProdotti; p++) {
+            primaVariante[p + 1] += primaVariante[p];
+        }
+        int nVarianti = primaVariante[nProdotti];
+        idVariante = new int[nVarianti];
+        prodottoOrdinale = new int[nVarianti];
+        idGusto = new int[nVarianti];
+        idConfezione = new int[nVarianti];
+        peso = new int[nVarianti];
+        quantita = new int[nVarianti];
+        prezzoCentesimi = new int[nVarianti];
+        sconto = new byte[nVarianti];
+        evidenza = new BitSet(nVarianti);
+
+        DimensioniCatalogo dimensioni = DimensioniCatalogo.get();
+        int[] prossima = Arrays.copyOf(primaVariante, nProdotti);
+        for (int i = 0; i < varianti.size(); i++) {
+            if (ordinaleDi[i] < 0) {
+                continue;
+            }
+            Variante variante = varianti.get(i);
+            int v = prossima[ordinaleDi[i]]++;
+            idVariante[v] = variante.getIdVariante();
+            prodottoOrdinale[v] = ordinaleDi[i];
+            idGusto[v] = variante.getIdGusto();
+            idConfezione[v] = variante.getIdConfezione();
+            Confezione confezione = dimensioni.getConfezione(variante.getIdConfezione());
+            peso[v] = confezione != null ? confezione.getPeso() : variante.getPesoConfezione();
+            quantita[v] = variante.getQuantita();
+            prezzoCentesimi[v] = Math.round(variante.getPrezzo() * 100);
+            sconto[v] = (byte) variante.getSconto();
+            if (variante.isEvidenza()) {
+                evidenza.set(v);
+            }
+        }
+    }
+
+    //Istantanea della versione corrente del catalogo, ricostruita dal DB se è cambiata
+    public static CatalogoColonnare get() {
+        String versione = VersioneCatalogo.get();
+        CatalogoColonnare catalogo = corrente;
+        if (catalogo != null && catalogo.versione.equals(versione)) {
+            return catalogo;
+        }
+        return ricostruisci(versione);
+    }
+
+    private static CatalogoColonnare ricostruisci(String versione) {
+        RICARICA.lock();
+        try {
+            CatalogoColonnare catalogo = corrente;
+            if (catalogo != null && catalogo.versione.equals(versione)) {
+                return catalogo;
+            }
+            catalogo = ConPool.dalPrimario(() -> new CatalogoColonnare(versione,
+                    new ProdottoDAO().doRetrieveAllSenzaVarianti(), new VarianteDAO().doRetrieveAll()));
+            corrente = catalogo;
+            return catalogo;
+        } finally {
+            RICARICA.unlock();
+        }
+    }
+
+    //Usato dai test e dai benchmark: catalogo costruito da liste già in memoria
+    public static CatalogoColonnare da(List<Prodotto> prodotti, List<Variante> varianti) {
+        return new CatalogoColonnare(VersioneCatalogo.get(), prodotti, varianti);
+    }
+
+    public int getNumeroProdotti() {
+        return prodotti.length;
+    }
+
+    public int getNumeroVarianti() {
+        return idVariante.length;
+    }
+
+    //Stessi filtri di ProdottoDAO.filterProducts: categoria ("tutto" o vuota = tutte), parte del nome,
+    //peso ("500 g"), gusto ("Fragola (3)") e, se richiesto, solo varianti in evidenza
+    public Selezione filtra(String categoriaFiltro, String nomeFiltro, String pesoFiltro, String gustoFiltro, boolean soloEvidenza) {
+        int codiceCategoria = -2;
+        if (categoriaFiltro != null && !categoriaFiltro.isBlank() && !categoriaFiltro.equals("tutto")) {
+            codiceCategoria = categorie.cerca(categoriaFiltro);
+            if (codiceCategoria < 0) {
+                return new Selezione(new int[0], new int[0], 0);
+            }
+        }
+
+        boolean[] nomiAmmessi = null;
+        if (nomeFiltro != null && !nomeFiltro.isBlank()) {
+            String parte = nomeFiltro.toLowerCase(Locale.ROOT);
+            nomiAmmessi = new boolean[nomi.dimensione()];
+            for (int c = 0; c < nomiAmmessi.length; c++) {
+                nomiAmmessi[c] = nomi.valore(c).contains(parte);
+            }
+        }
+
+        int pesoAmmesso = pesoFiltro == null || pesoFiltro.isBlank() ? -1 : Integer.parseInt(pesoFiltro.split(" ")[0]);
+        boolean[] gustiAmmessi = null;
+        if (gustoFiltro != null && !gustoFiltro.isBlank()) {
+            List<Integer> ids = DimensioniCatalogo.get().idGusti(gustoFiltro.split(" \\(")[0]);
+            int massimo = ids.stream().mapToInt(Integer::intValue).max().orElse(-1);
+            gustiAmmessi = new boolean[massimo + 1];
+            for (int id : ids) {
+                gustiAmmessi[id] = true;
+            }
+        }
+
+        int[] selezionati = new int[prodotti.length];
+        int[] migliori = new int[prodotti.length];
+        int n = 0;
+        for (int p = 0; p < prodotti.length; p++) {
+            if ((codiceCategoria >= 0 && categoria[p] != codiceCategoria)
+                    || (nomiAmmessi != null && !nomiAmmessi[nomeProdotto[p]])) {
+                continue;
+            }
+            int migliore = -1;
+            long prezzoMigliore = Long.MAX_VALUE;
+            for (int v = primaVariante[p]; v < primaVariante[p + 1]; v++) {
+                if ((pesoAmmesso >= 0 && peso[v] != pesoAmmesso)
+                        || (gustiAmmessi != null && (idGusto[v] >= gustiAmmessi.length || idGusto[v] < 0 || !gustiAmmessi[idGusto[v]]))
+                        || (soloEvidenza && !evidenza.get(v))) {
+                    continue;
+                }
+                long prezzo = prezzoScontato(v);
+                if (prezzo < prezzoMigliore) {
+                    prezzoMigliore = prezzo;
+                    migliore = v;
+                }
+            }
+            if (migliore >= 0) {
+                selezionati[n] = p;
+                migliori[n] = migliore;
+                n++;
+            }
+        }
+        return new Selezione(selezionati, migliori, n);
+    }
+
+    //Ordina la selezione come filterProducts (PriceAsc, PriceDesc, CaloriesAsc, CaloriesDesc); a parità di
+    //chiave resta l'ordine del catalogo. Ogni elemento diventa un long (chiave, posizione) e si ordina un long[].
+    public Selezione ordina(Selezione selezione, String criterio) {
+        boolean prezzo = "PriceAsc".equals(criterio) || "PriceDesc".equals(criterio);
+        boolean decrescente = "PriceDesc".equals(criterio) || "CaloriesDesc".equals(criterio);
+        if (!prezzo && !"CaloriesAsc".equals(criterio) && !"CaloriesDesc".equals(criterio)) {
+            return selezione;
+        }
+        int n = selezione.dimensione;
+        long[] chiavi = new long[n];
+        for (int i = 0; i < n; i++) {
+            long chiave = prezzo ? prezzoScontato(selezione.varianti[i]) : calorie[selezione.prodotti[i]];
+            chiavi[i] = ((decrescente ? -chiave : chiave) << 24) | i;
+        }
+        Arrays.sort(chiavi);
+        int[] prodottiOrdinati = new int[n];
+        int[] variantiOrdinate = new int[n];
+        for (int i = 0; i < n; i++) {
+            int posizione = (int) (chiavi[i] & 0xFFFFFF);
+            prodottiOrdinati[i] = selezione.prodotti[posizione];
+            variantiOrdinate[i] = selezione.varianti[posizione];
+        }
+        return new Selezione(prodottiOrdinati, variantiOrdinate, n);
+    }
+
+    //Prodotti da "da" (compreso) per al più "quanti" elementi, ognuno con la sola variante scelta
+    public List<Prodotto> pagina(Selezione selezione, int da, int quanti) {
+        int fine = (int) Math.min(selezione.dimensione, (long) Math.max(0, da) + Math.max(0, quanti));
+        List<Prodotto> pagina = new ArrayList<>(Math.max(0, fine - da));
+        DimensioniCatalogo dimensioni = DimensioniCatalogo.get();
+        for (int i = Math.max(0, da); i < fine; i++) {
+            Prodotto prodotto = copia(prodotti[selezione.prodotti[i]]);
+            List<Variante> varianti = new ArrayList<>(1);
+            Variante variante = dimensioni.collega(variante(selezione.varianti[i]));
+            if (variante.getConfezione() == null) {
+                variante.setPesoConfezione(peso[selezione.varianti[i]]);
+            }
+            varianti.add(variante);
+            prodotto.setVarianti(varianti);
+            pagina.add(prodotto);
+        }
+        return pagina;
+    }
+
+    //Stessa selezione e ordinamento di ProdottoDAO.filterProducts, senza query
+    public List<Prodotto> cerca(String categoriaFiltro, String ordinamento, String pesoFiltro, String gustoFiltro, String nomeFiltro) {
+        Selezione selezione = filtra(categoriaFiltro, nomeFiltro, pesoFiltro, gustoFiltro, "evidence".equals(ordinamento));
+        selezione = ordina(selezione, ordinamento);
+        return pagina(selezione, 0, selezione.dimensione);
+    }
+
+    //prezzo * (1 - sconto / 100) in centesimi di centesimo, senza virgola mobile
+    private long prezzoScontato(int v) {
+        return (long) prezzoCentesimi[v] * (100 - sconto[v]);
+    }
+
+    private Variante variante(int v) {
+        Variante variante = new Variante();
+        variante.setIdVariante(idVariante[v]);
+        variante.setIdProdotto(prodotti[prodottoOrdinale[v]].getIdProdotto());
+        variante.setIdGusto(idGusto[v]);
+        variante.setIdConfezione(idConfezione[v]);
+        variante.setQuantita(quantita[v]);
+        variante.setPrezzo(prezzoCentesimi[v] / 100f);
+        variante.setSconto(sconto[v]);
+        variante.setEvidenza(evidenza.get(v));
+        return variante;
+    }
+
+    private static Prodotto copia(Prodotto sorgente) {
+        Prodotto prodotto = new Prodotto();
+        prodotto.setIdProdotto(sorgente.getIdProdotto());
+        prodotto.setNome(sorgente.getNome());
+        prodotto.setDescrizione(sorgente.getDescrizione());
+        prodotto.setCategoria(sorgente.getCategoria());
+        prodotto.setImmagine(sorgente.getImmagine());
+        prodotto.setCalorie(sorgente.getCalorie());
+        prodotto.setCarboidrati(sorgente.getCarboidrati());
+        prodotto.setProteine(sorgente.getProteine());
+        prodotto.setGrassi(sorgente.getGrassi());
+        return prodotto;
+    }
+}
@@ -1,42 +1,195 @@
 package model;
 
 import org.apache.tomcat.jdbc.pool.DataSource;
-import org.apache.tomcat.jdbc.pool.PoolProperties;
 
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
 import java.sql.Connection;
 import java.sql.SQLException;
-import java.util.TimeZone;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 
+//Pool di connessioni dell'applicazione (Tomcat JDBC), configurato da ConfigurazionePool.
+//Il DataSource viene creato una sola volta anche se molte richieste arrivano insieme all'avvio
+//(inizializzazione con doppio controllo su un campo volatile). Il tempo di attesa di ogni getConnection
+//finisce nell'istogramma "pool.attesaMicros"; le statistiche sono esposte via JMX e dalla pagina delle metriche.
+//Con DB_REPLICHE le letture pesanti dei DAO (getReadConnection) vanno alle repliche, tranne quelle
+//di una sessione che ha appena scritto (vedi leggiDalPrimarioFinoA) e quando nessuna replica è allineata.
+//Ogni connessione restituita è misurata da StrumentazioneDao per il metodo DAO che l'ha chiesta.
 public class ConPool {
 
-    private static DataSource dataSource;
+    static final String NOME_JMX = "ACGainz:type=ConPool";
+    static final String LETTURE_REPLICA = "pool.letture.replica";
+    static final String LETTURE_PRIMARIO = "pool.letture.primario";
+
+    private static volatile DataSource dataSource;
+    private static volatile ConPoolStatistiche statistiche;
+    private static volatile InstradamentoLetture letture;
+    private static volatile int letturaDopoScritturaMillis;
+    private static final ThreadLocal<Long> PRIMARIO_FINO_A = new ThreadLocal<>();
 
     public static Connection getConnection() throws SQLException {
-        if (dataSource == null) {
-            PoolProperties p = new PoolProperties();
-
-            String host = System.getenv().getOrDefault("DB_HOST", "localhost");
-            String port = System.getenv().getOrDefault("DB_PORT", "3306");
-            String db   = System.getenv().getOrDefault("DB_NAME", "Progetto_TSW_Dependability");
-            String user = System.getenv().getOrDefault("DB_USER", "root");
-            String pass = System.getenv().getOrDefault("DB_PASS", "123456789");
-            String tz   = TimeZone.getDefault().getID();
-
-            p.setUrl("jdbc:mysql://" + host + ":" + port + "/" + db + "?serverTimezone=" + tz);
-            p.setDriverClassName("com.mysql.cj.jdbc.Driver");
-            p.setUsername(user);
-            p.setPassword(pass);
-
-            // Impostazioni pool simili alle tue
-            p.setMaxActive(100);
-            p.setInitialSize(10);
-            p.setMinIdle(10);
-            p.setRemoveAbandoned(true);
-            p.setRemoveAbandonedTimeout(60);
-
-            dataSource = new DataSource();
-            dataSource.setPoolProperties(p);
-        }
-        return dataSource.getConnection();
+        DataSource ds = dataSource();
+        long inizio = System.nanoTime();
+        Connection con = ds.getConnection();
+        long attesa = (System.nanoTime() - inizio) / 1000;
+        Metriche.istogramma("pool.attesaMicros").registra(attesa);
+        ConPoolStatistiche correnti = statistiche;
+        if (correnti != null) {
+            correnti.segnaPoolCreato();
+        }
+        return StrumentazioneDao.avvolgi(con, attesa);
+    }
+
+    //Connessione per le sole letture: da una replica sana se configurata, altrimenti dal primario
+    public static Connection getReadConnection() throws SQLException {
+        dataSource();
+        InstradamentoLetture instradamento = letture;
+        Long primarioFinoA = PRIMARIO_FINO_A.get();
+        if (instradamento != null && (primarioFinoA == null || primarioFinoA <= System.currentTimeMillis())) {
+            InstradamentoLetture.Replica replica = instradamento.scegli();
+            if (replica != null) {
+                try {
+                    long inizio = System.nanoTime();
+                    Connection con = replica.dataSource.getConnection();
+                    Metriche.aggiungi(LETTURE_REPLICA, 1);
+                    return StrumentazioneDao.avvolgi(con, (System.nanoTime() - inizio) / 1000);
+                } catch (SQLException e) {
+                    instradamento.segnaGuasta(replica);
+                }
+            }
+        }
+        Metriche.aggiungi(LETTURE_PRIMARIO, 1);
+        return getConnection();
+    }
+
+    //Le letture del thread corrente vanno al primario fino all'istante indicato (0 per tornare alle repliche).
+    //Lo imposta ReadYourWritesFilter all'inizio di ogni richiesta in base alla sessione.
+    public static void leggiDalPrimarioFinoA(long istanteMillis) {
+        if (istanteMillis <= 0) {
+            PRIMARIO_FINO_A.remove();
+        } else {
+            PRIMARIO_FINO_A.set(istanteMillis);
+        }
+    }
+
+    //Istante impostato con leggiDalPrimarioFinoA sul thread corrente (0 se nessuno), per passarlo a DaoAsincroni
+    static long getPrimarioFinoA() {
+        Long primarioFinoA = PRIMARIO_FINO_A.get();
+        return primarioFinoA != null ? primarioFinoA : 0;
+    }
+
+    //Esegue le letture sul primario anche con le repliche configurate. Lo usano i caricamenti che finiscono in una
+    //cache di processo (catalogo, gusti e confezioni): sono ricaricati una sola volta per VersioneCatalogo e una
+    //replica in ritardo vi fisserebbe il catalogo vecchio sotto la versione nuova fino alla scrittura successiva
+    public static <T> T dalPrimario(Supplier<T> lettura) {
+        Long precedente = PRIMARIO_FINO_A.get();
+        PRIMARIO_FINO_A.set(Long.MAX_VALUE);
+        try {
+            return lettura.get();
+        } finally {
+            if (precedente != null) {
+                PRIMARIO_FINO_A.set(precedente);
+            } else {
+                PRIMARIO_FINO_A.remove();
+            }
+        }
+    }
+
+    //Per quanto tempo dopo una scrittura la sessione deve leggere dal primario (0 senza repliche)
+    public static int getLetturaDopoScritturaMillis() {
+        dataSource();
+        return letturaDopoScritturaMillis;
+    }
+
+    static DataSource dataSource() {
+        DataSource ds = dataSource;
+        if (ds == null) {
+            synchronized (ConPool.class) {
+                ds = dataSource;
+                if (ds == null) {
+                    ConfigurazionePool configurazione = ConfigurazionePool.carica();
+                    ds = new DataSource();
+                    ds.setPoolProperties(configurazione.toPoolProperties());
+                    statistiche = new ConPoolStatistiche(ds, Metriche.istogramma("pool.attesaMicros"));
+                    registraJmx(statistiche);
+                    letture = creaRepliche(configurazione);
+                    letturaDopoScritturaMillis = letture == null ? 0 : configurazione.getLetturaDopoScritturaMillis();
+                    StrumentazioneDao.setSogliaLentaMillis(configurazione.getSlowQueryMillis());
+                    dataSource = ds;
+                }
+            }
+        }
+        return ds;
+    }
+
+    //Statistiche correnti del pool (vuote se il pool non è ancora stato creato)
+    public static Map<String, Object> statistiche() {
+        ConPoolStatistiche correnti = statistiche;
+        if (correnti == null) {
+            return Map.of();
+        }
+        Map<String, Object> valori = correnti.toMap();
+        InstradamentoLetture instradamento = letture;
+        if (instradamento != null) {
+            valori.put("repliche", instradamento.toList());
+        }
+        return valori;
+    }
+
+    private static InstradamentoLetture creaRepliche(ConfigurazionePool configurazione) {
+        List<InstradamentoLetture.Replica> repliche = new ArrayList<>();
+        for (String replica : configurazione.getRepliche()) {
+            DataSource ds = new DataSource();
+            ds.setPoolProperties(configurazione.toPoolPropertiesReplica(replica));
+            repliche.add(new InstradamentoLetture.Replica(replica, ds));
+        }
+        if (repliche.isEmpty()) {
+            return null;
+        }
+        return new InstradamentoLetture(repliche, configurazione.getReplicaMaxLagSecondi(),
+                configurazione.getReplicaControlloMillis(), InstradamentoLetture::ritardoMySql, System::currentTimeMillis);
+    }
+
+    //Chiude il pool alla chiusura della webapp (vedi LoadOnStartup)
+    public static synchronized void chiudi() {
+        if (dataSource != null) {
+            dataSource.close(true);
+            if (letture != null) {
+                for (InstradamentoLetture.Replica replica : letture.getRepliche()) {
+                    ((DataSource) replica.dataSource).close(true);
+                }
+            }
+            dataSource = null;
+            statistiche = null;
+            letture = null;
+            try {
+                MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                ObjectName nome = new ObjectName(NOME_JMX);
+                if (server.isRegistered(nome)) {
+                    server.unregisterMBean(nome);
+                }
+            } catch (JMException e) {
+                System.err.println("MBean del pool non rimosso - " + e.getMessage());
+            }
+        }
+    }
+
+    private static void registraJmx(ConPoolStatistiche statistiche) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName nome = new ObjectName(NOME_JMX);
+            //dopo un redeploy nella stessa JVM il vecchio MBean può essere ancora registrato
+            if (server.isRegistered(nome)) {
+                server.unregisterMBean(nome);
+            }
+            server.registerMBean(statistiche, nome);
+        } catch (JMException e) {
+            System.err.println("MBean del pool non registrato - " + e.getMessage());
+        }
     }
 }
@@ -0,0 +1,136 @@
+package model;
+
+import org.apache.tomcat.jdbc.pool.ConnectionPool;
+import org.apache.tomcat.jdbc.pool.DataSource;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+//Statistiche del pool lette dal pool di Tomcat JDBC e dall'istogramma delle attese di ConPool.
+//I ritmi di prestiti e restituzioni sono calcolati tra due letture distanti almeno INTERVALLO_MINIMO_MS.
+public class ConPoolStatistiche implements ConPoolStatisticheMBean {
+
+    private static final long INTERVALLO_MINIMO_MS = 10_000;
+
+    private final DataSource dataSource;
+    private final Istogramma attesa;
+    //il pool viene creato (con le sue prime connessioni) solo al primo getConnection: prima non va toccato
+    private volatile boolean poolCreato;
+
+    private long istantePrecedente = System.currentTimeMillis();
+    private long prestitiPrecedenti;
+    private long restituzioniPrecedenti;
+    private double prestitiAlSecondo;
+    private double restituzioniAlSecondo;
+
+    ConPoolStatistiche(DataSource dataSource, Istogramma attesa) {
+        this.dataSource = dataSource;
+        this.attesa = attesa;
+    }
+
+    void segnaPoolCreato() {
+        poolCreato = true;
+    }
+
+    private ConnectionPool pool() {
+        return poolCreato ? dataSource.getPool() : null;
+    }
+
+    @Override
+    public int getMaxActive() {
+        return dataSource.getMaxActive();
+    }
+
+    @Override
+    public int getAttive() {
+        ConnectionPool pool = pool();
+        return pool == null ? 0 : pool.getActive();
+    }
+
+    @Override
+    public int getInattive() {
+        ConnectionPool pool = pool();
+        return pool == null ? 0 : pool.getIdle();
+    }
+
+    @Override
+    public int getInAttesa() {
+        ConnectionPool pool = pool();
+        return pool == null ? 0 : pool.getWaitCount();
+    }
+
+    @Override
+    public long getPrestiti() {
+        ConnectionPool pool = pool();
+        return pool == null ? 0 : pool.getBorrowedCount();
+    }
+
+    @Override
+    public long getRestituzioni() {
+        ConnectionPool pool = pool();
+        return pool == null ? 0 : pool.getReturnedCount();
+    }
+
+    @Override
+    public long getAbbandonate() {
+        ConnectionPool pool = pool();
+        return pool == null ? 0 : pool.getRemoveAbandonedCount();
+    }
+
+    @Override
+    public synchronized double getPrestitiAlSecondo() {
+        aggiornaRitmi();
+        return prestitiAlSecondo;
+    }
+
+    @Override
+    public synchronized double getRestituzioniAlSecondo() {
+        aggiornaRitmi();
+        return restituzioniAlSecondo;
+    }
+
+    private void aggiornaRitmi() {
+        long adesso = System.currentTimeMillis();
+        long trascorsi = adesso - istantePrecedente;
+        if (trascorsi < INTERVALLO_MINIMO_MS) {
+            return;
+        }
+        long prestiti = getPrestiti();
+        long restituzioni = getRestituzioni();
+        prestitiAlSecondo = (prestiti - prestitiPrecedenti) * 1000.0 / trascorsi;
+        restituzioniAlSecondo = (restituzioni - restituzioniPrecedenti) * 1000.0 / trascorsi;
+        istantePrecedente = adesso;
+        prestitiPrecedenti = prestiti;
+        restituzioniPrecedenti = restituzioni;
+    }
+
+    @Override
+    public long getAttesaMediaMicros() {
+        return attesa.getMedia();
+    }
+
+    @Override
+    public long getAttesaP99Micros() {
+        return attesa.percentile(0.99);
+    }
+
+    @Override
+    public long getAttesaMassimaMicros() {
+        return attesa.getMassimo();
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> valori = new LinkedHashMap<>();
+        valori.put("maxActive", getMaxActive());
+        valori.put("attive", getAttive());
+        valori.put("inattive", getInattive());
+        valori.put("inAttesa", getInAttesa());
+        valori.put("prestiti", getPrestiti());
+        valori.put("restituzioni", getRestituzioni());
+        valori.put("abbandonate", getAbbandonate());
+        valori.put("prestitiAlSecondo", getPrestitiAlSecondo());
+        valori.put("restituzioniAlSecondo", getRestituzioniAlSecondo());
+        valori.put("attesa", attesa.toMap());
+        return valori;
+    }
+}
@@ -0,0 +1,29 @@
+package model;
+
+//Attributi del pool di connessioni esposti via JMX (ObjectName "ACGainz:type=ConPool")
+public interface ConPoolStatisticheMBean {
+
+    int getMaxActive();
+
+    int getAttive();
+
+    int getInattive();
+
+    int getInAttesa();
+
+    long getPrestiti();
+
+    long getRestituzioni();
+
+    long getAbbandonate();
+
+    double getPrestitiAlSecondo();
+
+    double getRestituzioniAlSecondo();
+
+    long getAttesaMediaMicros();
+
+    long getAttesaP99Micros();
+
+    long getAttesaMassimaMicros();
+}
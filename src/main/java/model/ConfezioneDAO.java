@@ -28,18 +28,11 @@ public class ConfezioneDAO {
             preparedStatement.setInt(1, id);
             ResultSet resultSet = preparedStatement.executeQuery();
 
-            if (resultSet.next()) {
-                Confezione confezione = new Confezione();
-                int result = resultSet.getInt("id_confezione");
-                if (result == 0) {
-                    throw new RuntimeException("ID confezione non può essere 0");
-                }
-                confezione.setIdConfezione(result);
-                confezione.setPeso(resultSet.getInt("peso"));
-                return confezione;
-            } else {
-                return null;
+            Confezione confezione = MapperEntita.CONFEZIONE.primo(resultSet);
+            if (confezione != null && confezione.getIdConfezione() == 0) {
+                throw new RuntimeException("ID confezione non può essere 0");
             }
+            return confezione;
 
         } catch (SQLException e) {
             throw new RuntimeException(e);
@@ -52,16 +45,11 @@ public class ConfezioneDAO {
     @*/
     public List<Confezione> doRetrieveAll() {
         List<Confezione> confezioni = new ArrayList<>();
-        try (Connection connection = ConPool.getConnection()) {
+        try (Connection connection = ConPool.getReadConnection()) {
             PreparedStatement preparedStatement = connection.prepareStatement("select * from confezione");
             ResultSet resultSet = preparedStatement.executeQuery();
 
-            while (resultSet.next()) {
-                Confezione confezione = new Confezione();
-                confezione.setIdConfezione(resultSet.getInt("id_confezione"));
-                confezione.setPeso(resultSet.getInt("peso"));
-                confezioni.add(confezione);
-            }
+            MapperEntita.CONFEZIONE.perOgni(resultSet, confezioni::add);
 
         } catch (SQLException e) {
             throw new RuntimeException(e);
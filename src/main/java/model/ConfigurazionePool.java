@@ -0,0 +1,233 @@
+package model;
+
+import org.apache.tomcat.jdbc.pool.PoolProperties;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TimeZone;
+
+//Configurazione del pool di connessioni. Ogni impostazione si legge, in ordine di priorità, dalla variabile
+//d'ambiente (es. DB_POOL_MAX_ACTIVE), dal file di properties (es. pool.maxActive) e infine dal valore di default.
+//Il file è quello indicato da DB_POOL_CONFIG oppure db-pool.properties nel classpath, se presente.
+public final class ConfigurazionePool {
+
+    enum Chiave {
+        HOST("DB_HOST", "db.host", "localhost"),
+        PORTA("DB_PORT", "db.port", "3306"),
+        DATABASE("DB_NAME", "db.name", "Progetto_TSW_Dependability"),
+        UTENTE("DB_USER", "db.user", "root"),
+        PASSWORD("DB_PASS", "db.pass", "123456789"),
+        MAX_ACTIVE("DB_POOL_MAX_ACTIVE", "pool.maxActive", "100"),
+        INITIAL_SIZE("DB_POOL_INITIAL_SIZE", "pool.initialSize", "10"),
+        MIN_IDLE("DB_POOL_MIN_IDLE", "pool.minIdle", "10"),
+        MAX_IDLE("DB_POOL_MAX_IDLE", "pool.maxIdle", "100"),
+        //attesa massima di una connessione libera prima dell'errore
+        MAX_WAIT_MS("DB_POOL_MAX_WAIT_MS", "pool.maxWaitMillis", "30000"),
+        ABANDONED_TIMEOUT_S("DB_POOL_ABANDONED_TIMEOUT_S", "pool.removeAbandonedTimeout", "60"),
+        //"prestazioni" (cache degli statement nel driver e nel pool) oppure "base" (solo le opzioni indispensabili)
+        PROFILO("DB_PROFILO", "db.profilo", PROFILO_PRESTAZIONI),
+        //statement preparati tenuti dal driver per ogni connessione: con 100 connessioni restano
+        //sotto il max_prepared_stmt_count di MySQL (16382 di default)
+        PREP_STMT_CACHE_SIZE("DB_PREP_STMT_CACHE_SIZE", "db.prepStmtCacheSize", "100"),
+        //statement tenuti aperti dall'interceptor StatementCache del pool, in totale su tutte le connessioni
+        STATEMENT_CACHE("DB_POOL_STATEMENT_CACHE", "pool.statementCache", "2000"),
+        //repliche in sola lettura, "host:porta" separati da virgola; se vuoto tutte le letture vanno al primario
+        REPLICHE("DB_REPLICHE", "db.repliche", ""),
+        //ritardo di replica oltre il quale una replica non riceve letture finché non recupera
+        REPLICA_MAX_LAG_S("DB_REPLICA_MAX_LAG_S", "db.replicaMaxLagSeconds", "5"),
+        //ogni quanto si rilegge il ritardo di una replica
+        REPLICA_CONTROLLO_MS("DB_REPLICA_CONTROLLO_MS", "db.replicaControlloMillis", "1000"),
+        //per quanto tempo dopo una scrittura (es. un ordine) le letture della stessa sessione restano sul primario
+        LETTURA_DOPO_SCRITTURA_MS("DB_LETTURA_DOPO_SCRITTURA_MS", "db.letturaDopoScritturaMillis", "10000"),
+        //le query che durano almeno tanto finiscono nel log delle query lente (vedi StrumentazioneDao)
+        SLOW_QUERY_MS("DB_SLOW_QUERY_MS", "db.slowQueryMillis", "200");
+
+        private final String variabile;
+        private final String proprieta;
+        private final String predefinito;
+
+        Chiave(String variabile, String proprieta, String predefinito) {
+            this.variabile = variabile;
+            this.proprieta = proprieta;
+            this.predefinito = predefinito;
+        }
+    }
+
+    public static final String PROFILO_BASE = "base";
+    public static final String PROFILO_PRESTAZIONI = "prestazioni";
+
+    //opzioni di Connector/J del profilo "prestazioni": statement preparati lato server e riusati,
+    //metadati dei risultati e configurazione del server letti una volta sola, niente query inutili
+    //per leggere autocommit e isolamento (il driver ricorda lo stato della sessione)
+    private static final String OPZIONI_PRESTAZIONI = "&useServerPrepStmts=true&cachePrepStmts=true"
+            + "&prepStmtCacheSize=%d&prepStmtCacheSqlLimit=2048&cacheResultSetMetadata=true&cacheServerConfiguration=true"
+            + "&useLocalSessionState=true&useLocalTransactionState=true&maintainTimeStats=false";
+
+    private final Map<String, String> ambiente;
+    private final Properties file;
+
+    private ConfigurazionePool(Map<String, String> ambiente, Properties file) {
+        this.ambiente = ambiente;
+        this.file = file;
+    }
+
+    public static ConfigurazionePool carica() {
+        return carica(System.getenv(), leggiFile(System.getenv("DB_POOL_CONFIG")));
+    }
+
+    public static ConfigurazionePool carica(Map<String, String> ambiente, Properties file) {
+        ConfigurazionePool configurazione = new ConfigurazionePool(ambiente, file);
+        configurazione.valida();
+        return configurazione;
+    }
+
+    String get(Chiave chiave) {
+        String valore = ambiente.get(chiave.variabile);
+        if (valore == null || valore.isBlank()) {
+            valore = file.getProperty(chiave.proprieta);
+        }
+        return valore == null || valore.isBlank() ? chiave.predefinito : valore.trim();
+    }
+
+    int getIntero(Chiave chiave) {
+        try {
+            return Integer.parseInt(get(chiave));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Valore non valido per " + chiave.variabile + ": " + get(chiave), e);
+        }
+    }
+
+    private void valida() {
+        if (!PROFILO_BASE.equals(get(Chiave.PROFILO)) && !PROFILO_PRESTAZIONI.equals(get(Chiave.PROFILO))) {
+            throw new IllegalArgumentException("Profilo di connessione sconosciuto: " + get(Chiave.PROFILO));
+        }
+        for (Chiave chiave : new Chiave[]{Chiave.MAX_ACTIVE, Chiave.INITIAL_SIZE, Chiave.MIN_IDLE, Chiave.MAX_IDLE,
+                Chiave.MAX_WAIT_MS, Chiave.ABANDONED_TIMEOUT_S, Chiave.PREP_STMT_CACHE_SIZE, Chiave.STATEMENT_CACHE,
+                Chiave.REPLICA_MAX_LAG_S, Chiave.REPLICA_CONTROLLO_MS, Chiave.LETTURA_DOPO_SCRITTURA_MS, Chiave.SLOW_QUERY_MS}) {
+            if (getIntero(chiave) < 0) {
+                throw new IllegalArgumentException(chiave.variabile + " non può essere negativo");
+            }
+        }
+        int maxActive = getIntero(Chiave.MAX_ACTIVE);
+        if (maxActive < 1 || getIntero(Chiave.INITIAL_SIZE) > maxActive || getIntero(Chiave.MIN_IDLE) > getIntero(Chiave.MAX_IDLE)) {
+            throw new IllegalArgumentException("Dimensioni del pool incoerenti: maxActive=" + maxActive
+                    + ", initialSize=" + getIntero(Chiave.INITIAL_SIZE) + ", minIdle=" + getIntero(Chiave.MIN_IDLE)
+                    + ", maxIdle=" + getIntero(Chiave.MAX_IDLE));
+        }
+        for (String replica : getRepliche()) {
+            String[] parti = replica.split(":");
+            if (parti.length > 2 || parti[0].isBlank() || (parti.length == 2 && !parti[1].matches("\\d{1,5}"))) {
+                throw new IllegalArgumentException("Replica non valida in DB_REPLICHE: " + replica);
+            }
+        }
+    }
+
+    public String getProfilo() {
+        return get(Chiave.PROFILO);
+    }
+
+    //Repliche configurate, nella forma "host:porta" o "host" (porta di DB_PORT)
+    public List<String> getRepliche() {
+        List<String> repliche = new ArrayList<>();
+        for (String replica : get(Chiave.REPLICHE).split(",")) {
+            if (!replica.isBlank()) {
+                repliche.add(replica.trim());
+            }
+        }
+        return repliche;
+    }
+
+    public int getReplicaMaxLagSecondi() {
+        return getIntero(Chiave.REPLICA_MAX_LAG_S);
+    }
+
+    public int getReplicaControlloMillis() {
+        return getIntero(Chiave.REPLICA_CONTROLLO_MS);
+    }
+
+    public int getLetturaDopoScritturaMillis() {
+        return getIntero(Chiave.LETTURA_DOPO_SCRITTURA_MS);
+    }
+
+    public int getSlowQueryMillis() {
+        return getIntero(Chiave.SLOW_QUERY_MS);
+    }
+
+    public PoolProperties toPoolProperties() {
+        return toPoolProperties(get(Chiave.HOST), get(Chiave.PORTA));
+    }
+
+    //Pool di una replica: stesse credenziali e impostazioni del primario, connessioni in sola lettura
+    public PoolProperties toPoolPropertiesReplica(String replica) {
+        String[] parti = replica.split(":");
+        PoolProperties p = toPoolProperties(parti[0], parti.length == 2 ? parti[1] : get(Chiave.PORTA));
+        p.setDefaultReadOnly(true);
+        return p;
+    }
+
+    private PoolProperties toPoolProperties(String host, String porta) {
+        PoolProperties p = new PoolProperties();
+        boolean prestazioni = PROFILO_PRESTAZIONI.equals(getProfilo());
+
+        //rewriteBatchedStatements: gli executeBatch (es. importazione del catalogo) diventano INSERT multi-riga
+        String url = "jdbc:mysql://" + host + ":" + porta + "/" + get(Chiave.DATABASE)
+                + "?serverTimezone=" + TimeZone.getDefault().getID() + "&rewriteBatchedStatements=true";
+        if (prestazioni) {
+            url += String.format(OPZIONI_PRESTAZIONI, getIntero(Chiave.PREP_STMT_CACHE_SIZE));
+        }
+        p.setUrl(url);
+        p.setDriverClassName("com.mysql.cj.jdbc.Driver");
+        p.setUsername(get(Chiave.UTENTE));
+        p.setPassword(get(Chiave.PASSWORD));
+
+        p.setMaxActive(getIntero(Chiave.MAX_ACTIVE));
+        p.setInitialSize(getIntero(Chiave.INITIAL_SIZE));
+        p.setMinIdle(getIntero(Chiave.MIN_IDLE));
+        p.setMaxIdle(getIntero(Chiave.MAX_IDLE));
+        p.setMaxWait(getIntero(Chiave.MAX_WAIT_MS));
+        p.setRemoveAbandoned(true);
+        p.setRemoveAbandonedTimeout(getIntero(Chiave.ABANDONED_TIMEOUT_S));
+        p.setLogAbandoned(false);
+        //il timer di abbandono riparte ad ogni uso della connessione (es. esportazioni in streaming);
+        //StatementFinalizer chiude, quando la connessione torna al pool, gli statement che i DAO hanno lasciato
+        //aperti: senza, uno statement preparato lato server non chiuso resterebbe vivo sulla connessione
+        //fino a max_prepared_stmt_count. Con StatementCache quel close() rimette lo statement nella cache
+        //della connessione e il prepareStatement successivo con lo stesso SQL lo riprende senza passare dal driver
+        String interceptors = "org.apache.tomcat.jdbc.pool.interceptor.ResetAbandonedTimer"
+                + ";org.apache.tomcat.jdbc.pool.interceptor.StatementFinalizer";
+        if (prestazioni) {
+            interceptors += ";org.apache.tomcat.jdbc.pool.interceptor.StatementCache(prepared=true,callable=false,max="
+                    + getIntero(Chiave.STATEMENT_CACHE) + ")";
+        }
+        p.setJdbcInterceptors(interceptors);
+        return p;
+    }
+
+    private static Properties leggiFile(String percorso) {
+        Properties properties = new Properties();
+        try {
+            if (percorso != null && !percorso.isBlank()) {
+                try (Reader reader = Files.newBufferedReader(Path.of(percorso), StandardCharsets.UTF_8)) {
+                    properties.load(reader);
+                }
+            } else {
+                try (InputStream in = ConfigurazionePool.class.getResourceAsStream("/db-pool.properties")) {
+                    if (in != null) {
+                        properties.load(in);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("File di configurazione del pool non leggibile: " + percorso, e);
+        }
+        return properties;
+    }
+}
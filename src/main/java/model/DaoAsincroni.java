@@ -0,0 +1,107 @@
+package model;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+//Facciata asincrona sui DAO: le letture indipendenti di una richiesta (es. pesi del primo gusto e suggeriti
+//della pagina prodotto) partono insieme, ognuna su un virtual thread, e la richiesta aspetta la più lenta
+//invece della somma. Al massimo DAO_ASYNC_MAX (20) letture in corso in tutta l'applicazione, così le
+//fan-out non si prendono tutte le connessioni del pool; le altre aspettano un permesso sul proprio virtual
+//thread. Il thread che esegue la lettura eredita dalla richiesta il BudgetQuery e la lettura dal primario
+//dopo una scrittura (ReadYourWritesFilter).
+//I DAO vanno creati dal thread della richiesta e passati già pronti alla lettura.
+public final class DaoAsincroni {
+
+    static final String SCADUTE = "dao.async.scadute";
+    static final String SALTATE = "dao.async.saltate";
+    static final String ATTESA_PERMESSO = "dao.async.attesaPermessoMicros";
+
+    private static final int MAX_CONCORRENTI = intero(System.getenv("DAO_ASYNC_MAX"), 20);
+    private static final int SCADENZA_MILLIS = intero(System.getenv("DAO_ASYNC_SCADENZA_MS"), 2000);
+
+    private static final Semaphore PERMESSI = new Semaphore(MAX_CONCORRENTI);
+    private static final ExecutorService ESECUTORE =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("dao-async-", 0).factory());
+
+    private DaoAsincroni() {
+    }
+
+    //Esegue la lettura su un virtual thread con il contesto della richiesta corrente
+    public static <T> CompletableFuture<T> esegui(Supplier<T> lettura) {
+        BudgetQuery budget = BudgetQuery.corrente();
+        long primarioFinoA = ConPool.getPrimarioFinoA();
+        CompletableFuture<T> futuro = new CompletableFuture<>();
+        ESECUTORE.execute(() -> {
+            long inizio = System.nanoTime();
+            PERMESSI.acquireUninterruptibly();
+            Metriche.istogramma(ATTESA_PERMESSO).registra((System.nanoTime() - inizio) / 1000);
+            //scaduta (o cancellata) mentre aspettava il permesso: nessuno aspetta più il risultato,
+            //quindi non prende una connessione del pool
+            if (futuro.isDone()) {
+                PERMESSI.release();
+                Metriche.aggiungi(SALTATE, 1);
+                return;
+            }
+            //il budget resta della richiesta solo finché questa aspetta la lettura (attendi la cancella alla scadenza)
+            BudgetQuery.condividi(budget, futuro);
+            ConPool.leggiDalPrimarioFinoA(primarioFinoA);
+            try {
+                futuro.complete(lettura.get());
+            } catch (Throwable e) {
+                futuro.completeExceptionally(e);
+            } finally {
+                BudgetQuery.condividi(null, null);
+                ConPool.leggiDalPrimarioFinoA(0);
+                PERMESSI.release();
+            }
+        });
+        return futuro;
+    }
+
+    //Istante (System.nanoTime) entro cui una richiesta che parte ora deve avere tutte le sue letture
+    public static long scadenza() {
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SCADENZA_MILLIS);
+    }
+
+    //Risultato della lettura se arriva entro la scadenza. Gli errori del DAO vengono rilanciati così come sono;
+    //allo scadere il future viene cancellato: una lettura ancora in attesa del permesso non parte, una già partita
+    //finisce la query sulla sua connessione, ma le query successive non contano più nel BudgetQuery della richiesta
+    public static <T> T attendi(CompletableFuture<T> futuro, long scadenza) throws TimeoutException, InterruptedException {
+        try {
+            return futuro.get(Math.max(0, scadenza - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            futuro.cancel(false);
+            Metriche.aggiungi(SCADUTE, 1);
+            throw e;
+        } catch (ExecutionException | CompletionException | CancellationException e) {
+            Throwable causa = e.getCause() != null ? e.getCause() : e;
+            if (causa instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (causa instanceof Error error) {
+                throw error;
+            }
+            throw new RuntimeException(causa);
+        }
+    }
+
+    public static int getMaxConcorrenti() {
+        return MAX_CONCORRENTI;
+    }
+
+    private static int intero(String valore, int predefinito) {
+        try {
+            return valore == null ? predefinito : Math.max(1, Integer.parseInt(valore.trim()));
+        } catch (NumberFormatException e) {
+            return predefinito;
+        }
+    }
+}
@@ -48,6 +48,11 @@ public class DettaglioOrdine {
         this.immagineProdotto = immagineProdotto;
     }
 
+    //Versione ridotta dell'immagine per il resoconto dell'ordine (vedi ImmaginiProdotto)
+    public /*@ nullable @*/ String getImmagineMiniatura() {
+        return ImmaginiProdotto.derivata(immagineProdotto, ImmaginiProdotto.Formato.MINIATURA);
+    }
+
 
     
     /*@ 
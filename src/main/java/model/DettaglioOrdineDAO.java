@@ -2,7 +2,10 @@ package model;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
 
 
 public class DettaglioOrdineDAO {
@@ -14,20 +17,7 @@ public class DettaglioOrdineDAO {
                     "WHERE id_ordine = ?");
             preparedStatement.setInt(1,id);
             ResultSet resultSet=preparedStatement.executeQuery();
-           while (resultSet.next()){
-               DettaglioOrdine dettaglioOrdine = new DettaglioOrdine();
-             dettaglioOrdine.setIdOrdine(resultSet.getInt("id_ordine"));
-             dettaglioOrdine.setIdProdotto(resultSet.getString("id_prodotto"));
-             dettaglioOrdine.setIdVariante(resultSet.getInt("id_variante"));
-             dettaglioOrdine.setQuantita(resultSet.getInt("quantità"));
-             dettaglioOrdine.setPrezzo(resultSet.getFloat("prezzo"));
-             dettaglioOrdine.setGusto(resultSet.getString("nomeGusto"));
-             dettaglioOrdine.setPesoConfezione(resultSet.getInt("peso"));
-             dettaglioOrdine.setNomeProdotto(resultSet.getString("nome"));
-             dettaglioOrdine.setImmagineProdotto(resultSet.getString("immagine"));
-
-             dettaglioOrdini.add(dettaglioOrdine);
-           }
+            MapperEntita.DETTAGLIO_ORDINE.perOgni(resultSet, dettaglioOrdini::add);
         }
         catch (SQLException sqlException)
         {
@@ -40,7 +30,7 @@ public class DettaglioOrdineDAO {
     public DettaglioOrdine doRetrieveByIdOrderAndIdVariant(int idOrder, int idVariante){
         System.out.println(idOrder + "DAO");
         System.out.println(idVariante + "DAO");
-        DettaglioOrdine dettaglioOrdine = new DettaglioOrdine();
+        DettaglioOrdine dettaglioOrdine;
 
         try (Connection connection = ConPool.getConnection()){
             PreparedStatement preparedStatement = connection.prepareStatement("select * from dettaglio_ordine where id_ordine = ? and id_variante = ?");
@@ -48,15 +38,7 @@ public class DettaglioOrdineDAO {
             preparedStatement.setInt(2, idVariante);
 
             ResultSet resultSet = preparedStatement.executeQuery();
-            if (resultSet.next()){
-                dettaglioOrdine.setIdOrdine(resultSet.getInt("id_ordine"));
-                dettaglioOrdine.setIdProdotto(resultSet.getString("id_prodotto"));
-                dettaglioOrdine.setIdVariante(resultSet.getInt("id_variante"));
-                dettaglioOrdine.setQuantita(resultSet.getInt("quantità"));
-                dettaglioOrdine.setPrezzo(resultSet.getFloat("prezzo"));
-            }else {
-                return null;
-            }
+            dettaglioOrdine = MapperEntita.DETTAGLIO_ORDINE.primo(resultSet);
         }catch (SQLException e){
             throw new RuntimeException(e);
         }
@@ -68,19 +50,11 @@ public class DettaglioOrdineDAO {
 
     public List<DettaglioOrdine> doRetrieveAll(){
         List<DettaglioOrdine> dettaglioOrdini = new ArrayList<>();
-        try (Connection connection = ConPool.getConnection()){
+        try (Connection connection = ConPool.getReadConnection()){
             PreparedStatement preparedStatement = connection.prepareStatement("select * from dettaglio_ordine");
             ResultSet resultSet = preparedStatement.executeQuery();
 
-            while (resultSet.next()){
-                DettaglioOrdine dettaglioOrdine = new DettaglioOrdine();
-                dettaglioOrdine.setIdOrdine(resultSet.getInt("id_ordine"));
-                dettaglioOrdine.setIdProdotto(resultSet.getString("id_prodotto"));
-                dettaglioOrdine.setIdVariante(resultSet.getInt("id_variante"));
-                dettaglioOrdine.setQuantita(resultSet.getInt("quantità"));
-                dettaglioOrdine.setPrezzo(resultSet.getFloat("prezzo"));
-                dettaglioOrdini.add(dettaglioOrdine);
-            }
+            MapperEntita.DETTAGLIO_ORDINE.perOgni(resultSet, dettaglioOrdini::add);
 
         }catch (SQLException e){
             throw new RuntimeException(e);
@@ -90,43 +64,79 @@ public class DettaglioOrdineDAO {
         return dettaglioOrdini;
     }
 
+    //Le righe cambiano i riepiloghi delle vendite: gli ordini coinvolti (vecchio e nuovo, se la riga viene spostata)
+    //ne escono prima della UPDATE e ci rientrano dopo, nella stessa transazione
     public void doUpdateDettaglioOrdine(DettaglioOrdine d, int idOrdine, String idProdotto, int idVariante){
+        List<Integer> ordini = idOrdine == d.getIdOrdine() ? List.of(idOrdine) : List.of(idOrdine, d.getIdOrdine());
+        Lock aggiornamenti = RicostruzioneVendite.lockAggiornamenti();
+        aggiornamenti.lock();
         try (Connection connection = ConPool.getConnection()){
-            PreparedStatement preparedStatement = connection.prepareStatement("update dettaglio_ordine set id_ordine = ?, id_variante = ?, id_prodotto = ?, quantità = ?, prezzo = ? where id_ordine = ? and id_prodotto = ? and id_variante = ?");
-            preparedStatement.setInt(1, d.getIdOrdine());
-            preparedStatement.setInt(2, d.getIdVariante());
-            preparedStatement.setString(3, d.getIdProdotto());
-            preparedStatement.setInt(4, d.getQuantita());
-            preparedStatement.setFloat(5, d.getPrezzo());
-
-            preparedStatement.setInt(6, idOrdine);
-            preparedStatement.setString(7, idProdotto);
-            preparedStatement.setInt(8, idVariante);
-
-
-            int rows = preparedStatement.executeUpdate();
-            System.out.println(rows + "updatedRows");
-
-
+            connection.setAutoCommit(false);
+            try {
+                RiepilogoVenditeDAO riepilogoDao = new RiepilogoVenditeDAO();
+                riepilogoDao.doRimuoviOrdini(connection, ordini);
+
+                PreparedStatement preparedStatement = connection.prepareStatement("update dettaglio_ordine set id_ordine = ?, id_variante = ?, id_prodotto = ?, quantità = ?, prezzo = ? where id_ordine = ? and id_prodotto = ? and id_variante = ?");
+                preparedStatement.setInt(1, d.getIdOrdine());
+                preparedStatement.setInt(2, d.getIdVariante());
+                preparedStatement.setString(3, d.getIdProdotto());
+                preparedStatement.setInt(4, d.getQuantita());
+                preparedStatement.setFloat(5, d.getPrezzo());
+
+                preparedStatement.setInt(6, idOrdine);
+                preparedStatement.setString(7, idProdotto);
+                preparedStatement.setInt(8, idVariante);
+
+
+                int rows = preparedStatement.executeUpdate();
+                System.out.println(rows + "updatedRows");
+
+                riepilogoDao.doAggiungiOrdini(connection, ordini);
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
         }catch (SQLException e){
             throw new RuntimeException(e);
+        } finally {
+            aggiornamenti.unlock();
         }
     }
 
     public void doRemoveDettaglioOrdine(int idOrdine, int idVariante){
+        Lock aggiornamenti = RicostruzioneVendite.lockAggiornamenti();
+        aggiornamenti.lock();
         try (Connection connection = ConPool.getConnection()){
-            PreparedStatement preparedStatement = connection.prepareStatement("delete from dettaglio_ordine where id_ordine = ? and id_variante = ?");
-            preparedStatement.setInt(1, idOrdine);
-            preparedStatement.setInt(2, idVariante);
+            //l'ordine esce dai riepiloghi con la riga e ci rientra con quelle rimaste
+            connection.setAutoCommit(false);
+            try {
+                RiepilogoVenditeDAO riepilogoDao = new RiepilogoVenditeDAO();
+                riepilogoDao.doRimuoviOrdini(connection, List.of(idOrdine));
 
+                PreparedStatement preparedStatement = connection.prepareStatement("delete from dettaglio_ordine where id_ordine = ? and id_variante = ?");
+                preparedStatement.setInt(1, idOrdine);
+                preparedStatement.setInt(2, idVariante);
 
 
-            int rows = preparedStatement.executeUpdate();
-            System.out.println(rows + "deletedRows");
 
+                int rows = preparedStatement.executeUpdate();
+                System.out.println(rows + "deletedRows");
 
+                riepilogoDao.doAggiungiOrdini(connection, List.of(idOrdine));
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
         }catch (SQLException e){
             throw new RuntimeException(e);
+        } finally {
+            aggiornamenti.unlock();
         }
     }
 
@@ -155,19 +165,123 @@ public class DettaglioOrdineDAO {
         stringBuilder.append(")");
 
 
+        Lock aggiornamenti = RicostruzioneVendite.lockAggiornamenti();
+        aggiornamenti.lock();
         try (Connection con = ConPool.getConnection()) {
-            PreparedStatement ps = con.prepareStatement(stringBuilder.toString(), Statement.RETURN_GENERATED_KEYS);
+            //la riga, il totale dell'ordine, la giacenza della variante e i riepiloghi delle vendite cambiano insieme
+            con.setAutoCommit(false);
+            try {
+                RiepilogoVenditeDAO riepilogoDao = new RiepilogoVenditeDAO();
+                riepilogoDao.doRimuoviOrdini(con, List.of(dettaglioOrdine.getIdOrdine()));
+
+                PreparedStatement ps = con.prepareStatement(stringBuilder.toString(), Statement.RETURN_GENERATED_KEYS);
+
+                for (int i = 0; i < parameters.size(); i++) {
+                    ps.setObject(i + 1, parameters.get(i));
+                }
+
+                if (ps.executeUpdate() != 1) {
+                    throw new RuntimeException("INSERT error.");
+                }
+
+                //quantità e prezzo possono essere stati assegnati dal DB (default e trigger): si leggono dalla riga salvata
+                PreparedStatement giacenza = con.prepareStatement("UPDATE variante v JOIN dettaglio_ordine d ON d.id_variante = v.id_variante " +
+                        "SET v.`quantità` = v.`quantità` - d.`quantità` WHERE d.id_ordine = ? AND d.id_prodotto = ? AND d.id_variante = ?");
+                giacenza.setInt(1, dettaglioOrdine.getIdOrdine());
+                giacenza.setString(2, dettaglioOrdine.getIdProdotto());
+                giacenza.setInt(3, dettaglioOrdine.getIdVariante());
+                giacenza.executeUpdate();
+
+                PreparedStatement totale = con.prepareStatement("UPDATE ordine SET totale = " +
+                        "(SELECT SUM(prezzo) FROM dettaglio_ordine WHERE id_ordine = ?) WHERE id_ordine = ?");
+                totale.setInt(1, dettaglioOrdine.getIdOrdine());
+                totale.setInt(2, dettaglioOrdine.getIdOrdine());
+                totale.executeUpdate();
+
+                riepilogoDao.doAggiungiOrdini(con, List.of(dettaglioOrdine.getIdOrdine()));
+                con.commit();
+            } catch (SQLException | RuntimeException e) {
+                con.rollback();
+                throw e;
+            } finally {
+                con.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        } finally {
+            aggiornamenti.unlock();
+        }
+    }
 
-            for (int i = 0; i < parameters.size(); i++) {
-                ps.setObject(i + 1, parameters.get(i));
+    //Salva tutte le righe di un ordine con un'unica INSERT multi-riga e scala le giacenze con un'unica UPDATE.
+    //I prezzi devono essere già calcolati dall'applicazione (il trigger li ricalcola solo se mancano),
+    //così come il totale dell'ordine: nessun trigger lo ricalcola riga per riga
+    public void doSaveAll(List<DettaglioOrdine> dettagli) {
+        try (Connection con = ConPool.getConnection()) {
+            doSaveAll(con, dettagli);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    //Variante che usa la connessione del chiamante, in modo da poter salvare le righe nella stessa transazione dell'ordine
+    public void doSaveAll(Connection con, List<DettaglioOrdine> dettagli) throws SQLException {
+        if (dettagli == null || dettagli.isEmpty()) {
+            return;
+        }
+
+        StringBuilder stringBuilder = new StringBuilder("INSERT INTO dettaglio_ordine (id_ordine, id_prodotto, id_variante, quantità, prezzo) VALUES ");
+        for (int i = 0; i < dettagli.size(); i++) {
+            stringBuilder.append(i == 0 ? "(?, ?, ?, ?, ?)" : ", (?, ?, ?, ?, ?)");
+        }
+
+        try (PreparedStatement ps = con.prepareStatement(stringBuilder.toString())) {
+            int paramIndex = 1;
+            for (DettaglioOrdine dettaglioOrdine : dettagli) {
+                ps.setInt(paramIndex++, dettaglioOrdine.getIdOrdine());
+                ps.setString(paramIndex++, dettaglioOrdine.getIdProdotto());
+                ps.setInt(paramIndex++, dettaglioOrdine.getIdVariante());
+                ps.setInt(paramIndex++, dettaglioOrdine.getQuantita());
+                ps.setFloat(paramIndex++, Math.max(dettaglioOrdine.getPrezzo(), 0.0f));
             }
 
-            if (ps.executeUpdate() != 1) {
+            if (ps.executeUpdate() != dettagli.size()) {
                 throw new RuntimeException("INSERT error.");
             }
+        }
 
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
+        scalaGiacenze(con, dettagli);
+    }
+
+    //Sottrae alle varianti le quantità ordinate con un'unica UPDATE (una CASE per variante), nella transazione del chiamante.
+    //Sostituisce il trigger aggiornaQuantitaVariante, che eseguiva una UPDATE per ogni riga inserita.
+    //Se una giacenza diventerebbe negativa il vincolo check sulla variante fa fallire l'ordine
+    void scalaGiacenze(Connection con, List<DettaglioOrdine> dettagli) throws SQLException {
+        Map<Integer, Integer> quantitaPerVariante = new LinkedHashMap<>();
+        for (DettaglioOrdine dettaglioOrdine : dettagli) {
+            quantitaPerVariante.merge(dettaglioOrdine.getIdVariante(), dettaglioOrdine.getQuantita(), Integer::sum);
+        }
+
+        StringBuilder stringBuilder = new StringBuilder("UPDATE variante SET `quantità` = `quantità` - CASE id_variante");
+        for (int i = 0; i < quantitaPerVariante.size(); i++) {
+            stringBuilder.append(" WHEN ? THEN ?");
+        }
+        stringBuilder.append(" END WHERE id_variante IN (");
+        for (int i = 0; i < quantitaPerVariante.size(); i++) {
+            stringBuilder.append(i == 0 ? "?" : ", ?");
+        }
+        stringBuilder.append(")");
+
+        try (PreparedStatement ps = con.prepareStatement(stringBuilder.toString())) {
+            int paramIndex = 1;
+            for (Map.Entry<Integer, Integer> variante : quantitaPerVariante.entrySet()) {
+                ps.setInt(paramIndex++, variante.getKey());
+                ps.setInt(paramIndex++, variante.getValue());
+            }
+            for (Integer idVariante : quantitaPerVariante.keySet()) {
+                ps.setInt(paramIndex++, idVariante);
+            }
+            ps.executeUpdate();
         }
     }
 }
@@ -0,0 +1,109 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+//Gusti e confezioni in memoria, una sola istanza per id: le varianti lette dal DB puntano a queste invece di
+//portarsi dietro la propria copia del nome del gusto e del peso, così le query sulle varianti non fanno più
+//le join con gusto e confezione. Sono tabelle piccole che cambiano di rado: l'istantanea viene riletta quando
+//cambia la VersioneCatalogo (ogni scrittura dell'admin su gusto e confezione la fa aumentare).
+//Chi legge usa sempre un'istantanea completa; una ricarica la sostituisce con una sola assegnazione.
+public final class DimensioniCatalogo {
+
+    private static final List<Integer> NESSUNO = List.of();
+    private static volatile DimensioniCatalogo corrente;
+    //lock e non synchronized: la ricarica legge dal DB e un virtual thread bloccato in un monitor non libera il carrier
+    private static final ReentrantLock RICARICA = new ReentrantLock();
+
+    private final String versione;
+    private final Map<Integer, Gusto> gusti = new HashMap<>();
+    private final Map<Integer, Confezione> confezioni = new HashMap<>();
+    //per i filtri per nome del gusto e per peso, che ora confrontano gli id
+    private final Map<String, List<Integer>> idGustiPerNome = new HashMap<>();
+    private final Map<Integer, List<Integer>> idConfezioniPerPeso = new HashMap<>();
+
+    private DimensioniCatalogo(String versione, List<Gusto> gusti, List<Confezione> confezioni) {
+        this.versione = versione;
+        for (Gusto gusto : gusti) {
+            this.gusti.put(gusto.getIdGusto(), gusto);
+            if (gusto.getNomeGusto() != null) {
+                idGustiPerNome.computeIfAbsent(chiaveNome(gusto.getNomeGusto()), k -> new ArrayList<>()).add(gusto.getIdGusto());
+            }
+        }
+        for (Confezione confezione : confezioni) {
+            this.confezioni.put(confezione.getIdConfezione(), confezione);
+            idConfezioniPerPeso.computeIfAbsent(confezione.getPeso(), k -> new ArrayList<>()).add(confezione.getIdConfezione());
+        }
+    }
+
+    //Istantanea della versione corrente del catalogo, riletta dal DB se è cambiata
+    public static DimensioniCatalogo get() {
+        String versione = VersioneCatalogo.get();
+        DimensioniCatalogo dimensioni = corrente;
+        if (dimensioni != null && dimensioni.versione.equals(versione)) {
+            return dimensioni;
+        }
+        return ricarica(versione);
+    }
+
+    private static DimensioniCatalogo ricarica(String versione) {
+        RICARICA.lock();
+        try {
+            DimensioniCatalogo dimensioni = corrente;
+            if (dimensioni != null && dimensioni.versione.equals(versione)) {
+                return dimensioni;
+            }
+            dimensioni = ConPool.dalPrimario(() -> new DimensioniCatalogo(versione,
+                    new GustoDAO().doRetrieveAll(), new ConfezioneDAO().doRetrieveAll()));
+            corrente = dimensioni;
+            return dimensioni;
+        } finally {
+            RICARICA.unlock();
+        }
+    }
+
+    //Usato dai test e dai benchmark: fissa gusti e confezioni per la versione corrente del catalogo
+    public static DimensioniCatalogo carica(List<Gusto> gusti, List<Confezione> confezioni) {
+        DimensioniCatalogo dimensioni = new DimensioniCatalogo(VersioneCatalogo.get(), gusti, confezioni);
+        corrente = dimensioni;
+        return dimensioni;
+    }
+
+    public Gusto getGusto(int idGusto) {
+        return gusti.get(idGusto);
+    }
+
+    public Confezione getConfezione(int idConfezione) {
+        return confezioni.get(idConfezione);
+    }
+
+    //Id dei gusti con questo nome (confronto senza maiuscole, come la collation del DB); vuota se non esiste
+    public List<Integer> idGusti(String nomeGusto) {
+        return nomeGusto == null ? NESSUNO : idGustiPerNome.getOrDefault(chiaveNome(nomeGusto), NESSUNO);
+    }
+
+    public List<Integer> idConfezioni(int peso) {
+        return idConfezioniPerPeso.getOrDefault(peso, NESSUNO);
+    }
+
+    //Collega la variante appena letta al gusto e alla confezione condivisi (se l'istantanea li conosce)
+    public Variante collega(Variante variante) {
+        Gusto gusto = gusti.get(variante.getIdGusto());
+        if (gusto != null) {
+            variante.setGustoCatalogo(gusto);
+        }
+        Confezione confezione = confezioni.get(variante.getIdConfezione());
+        if (confezione != null) {
+            variante.setConfezione(confezione);
+        }
+        return variante;
+    }
+
+    private static String chiaveNome(String nome) {
+        return nome.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -8,23 +8,20 @@ public class GustoDAO {
 
 
     public Gusto doRetrieveById(int id){
-        Gusto gusto = new Gusto();
+        Gusto gusto = null;
         try (Connection connection = ConPool.getConnection()){
             PreparedStatement preparedStatement = connection.prepareStatement("SELECT * from gusto where id_gusto = ?");
             preparedStatement.setInt(1, id );
             ResultSet resultSet = preparedStatement.executeQuery();
 
-            while (resultSet.next()){
-                gusto.setIdGusto(resultSet.getInt("id_gusto"));
-                gusto.setNome(resultSet.getString("nomeGusto"));
-            }
+            gusto = MapperEntita.GUSTO.primo(resultSet);
 
         }catch (SQLException e){
             throw new RuntimeException(e);
         }
 
 
-        return gusto;
+        return gusto != null ? gusto : new Gusto();
     }
 
     public Gusto doRetrieveByIdVariante(int id) {
@@ -34,11 +31,7 @@ public class GustoDAO {
             preparedStatement.setInt(1, id);
             ResultSet resultSet = preparedStatement.executeQuery();
 
-            if (resultSet.next()) {
-                gusto = new Gusto();
-                gusto.setIdGusto(resultSet.getInt("id_gusto"));
-                gusto.setNome(resultSet.getString("nome"));
-            }
+            gusto = MapperEntita.GUSTO.primo(resultSet);
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
@@ -47,16 +40,11 @@ public class GustoDAO {
 
     public List<Gusto> doRetrieveAll() {
         List<Gusto> gusti = new ArrayList<>();
-        try (Connection connection = ConPool.getConnection()){
+        try (Connection connection = ConPool.getReadConnection()){
             PreparedStatement preparedStatement = connection.prepareStatement("select * from gusto");
             ResultSet resultSet = preparedStatement.executeQuery();
 
-            while (resultSet.next()){
-                Gusto gusto = new Gusto();
-                gusto.setIdGusto(resultSet.getInt("id_gusto"));
-                gusto.setNome(resultSet.getString("nomeGusto"));
-                gusti.add(gusto);
-            }
+            MapperEntita.GUSTO.perOgni(resultSet, gusti::add);
 
         }catch (SQLException e){
             throw new RuntimeException(e);
@@ -0,0 +1,255 @@
+package model;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+//Immagini dei prodotti: l'originale caricato dall'admin viene salvato con il nome uguale all'hash del contenuto
+//(Immagini/<hash>.png) e in background se ne generano le versioni ridimensionate e ricompresse in JPEG
+//(Immagini/derivate/<hash>-miniatura.jpg, -card.jpg, -dettaglio.jpg).
+//Il prodotto salva il percorso dell'originale: da quello si ricavano le derivate, usate appena sono pronte.
+public final class ImmaginiProdotto {
+
+    public enum Formato {
+        MINIATURA("miniatura", 160),
+        CARD("card", 400),
+        DETTAGLIO("dettaglio", 1000);
+
+        private final String nome;
+        private final int larghezza;
+
+        Formato(String nome, int larghezza) {
+            this.nome = nome;
+            this.larghezza = larghezza;
+        }
+    }
+
+    public static final String CARTELLA = "Immagini";
+    private static final String CARTELLA_DERIVATE = CARTELLA + "/derivate";
+    public static final List<String> ESTENSIONI = List.of("png", "jpg", "jpeg", "gif");
+    private static final float QUALITA_JPEG = 0.8f;
+    private static final int BUFFER_UPLOAD = 64 * 1024;
+    private static final Pattern NOME_CON_HASH =
+            Pattern.compile(CARTELLA + "/(derivate/[0-9a-f]{32}-(miniatura|card|dettaglio)\\.jpg|[0-9a-f]{32}\\.(png|jpg|jpeg|gif))");
+
+    //cartella della webapp sul disco; null se la webapp non è espansa (si usano sempre gli originali)
+    private static volatile Path radice;
+    private static volatile ExecutorService generatore;
+    //derivate già presenti sul disco: i nomi dipendono dal contenuto, quindi non cambiano più
+    private static final Set<String> PRONTE = ConcurrentHashMap.newKeySet();
+
+    private ImmaginiProdotto() {
+    }
+
+    public static synchronized void init(Path radiceWebapp) {
+        radice = radiceWebapp;
+        if (generatore == null) {
+            generatore = Executors.newFixedThreadPool(2, r -> {
+                Thread thread = new Thread(r, "derivate-immagini");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+        }
+    }
+
+    public static synchronized void shutdown() {
+        if (generatore != null) {
+            generatore.shutdownNow();
+            generatore = null;
+        }
+        radice = null;
+        PRONTE.clear();
+    }
+
+    //Copia il file caricato su disco con i canali NIO (senza caricarlo in memoria) calcolandone intanto l'hash,
+    //poi lo rinomina in <hash>.<estensione>: lo stesso file caricato due volte occupa un solo posto.
+    //Restituisce il percorso relativo da salvare nel prodotto.
+    public static String salvaOriginale(InputStream in, String estensione) throws IOException {
+        String ext = estensione.toLowerCase(Locale.ROOT);
+        if (!ESTENSIONI.contains(ext) || radice == null) {
+            throw new IllegalArgumentException("Immagine non valida: " + estensione);
+        }
+        Path cartella = radice.resolve(CARTELLA);
+        Files.createDirectories(cartella);
+        Path temporaneo = Files.createTempFile(cartella, "upload", ".tmp");
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (ReadableByteChannel sorgente = Channels.newChannel(new DigestInputStream(in, digest));
+                 FileChannel destinazione = FileChannel.open(temporaneo, StandardOpenOption.WRITE)) {
+                long posizione = 0;
+                long letti;
+                while ((letti = destinazione.transferFrom(sorgente, posizione, BUFFER_UPLOAD)) > 0) {
+                    posizione += letti;
+                }
+            }
+
+            String nome = HexFormat.of().formatHex(digest.digest()).substring(0, 32) + "." + ext;
+            Path finale = cartella.resolve(nome);
+            if (Files.exists(finale)) {
+                Files.delete(temporaneo);
+            } else {
+                Files.move(temporaneo, finale, StandardCopyOption.ATOMIC_MOVE);
+            }
+            return CARTELLA + "/" + nome;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            Files.deleteIfExists(temporaneo);
+        }
+    }
+
+    //Accoda la generazione delle derivate mancanti: la richiesta dell'admin non aspetta il ridimensionamento
+    public static void generaDerivateAsync(Collection<String> immagini) {
+        ExecutorService esecutore = generatore;
+        if (esecutore == null || radice == null) {
+            return;
+        }
+        for (String immagine : immagini) {
+            esecutore.execute(() -> {
+                try {
+                    generaDerivate(immagine);
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("Derivate non generate per " + immagine + " - " + e.getMessage());
+                }
+            });
+        }
+    }
+
+    //Genera nel thread corrente le derivate che non esistono ancora
+    static void generaDerivate(String immagine) throws IOException {
+        Path base = radice;
+        if (base == null || immagine == null || !immagine.startsWith(CARTELLA + "/")) {
+            return;
+        }
+        BufferedImage originale = null;
+        for (Formato formato : Formato.values()) {
+            Path destinazione = base.resolve(percorsoDerivata(immagine, formato));
+            if (Files.exists(destinazione)) {
+                continue;
+            }
+            if (originale == null) {
+                originale = ImageIO.read(base.resolve(immagine).toFile());
+                if (originale == null) {
+                    //formato non supportato da ImageIO: il negozio continua a usare l'originale
+                    return;
+                }
+            }
+
+            Files.createDirectories(destinazione.getParent());
+            Path temporaneo = Files.createTempFile(destinazione.getParent(), formato.nome, ".tmp");
+            try {
+                scriviJpeg(ridimensiona(originale, formato.larghezza), temporaneo);
+                Files.move(temporaneo, destinazione, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temporaneo);
+            }
+        }
+    }
+
+    //Percorso della derivata se è già stata generata, altrimenti quello dell'originale
+    public static String derivata(String immagine, Formato formato) {
+        Path base = radice;
+        if (base == null || immagine == null || !immagine.startsWith(CARTELLA + "/")) {
+            return immagine;
+        }
+        String percorso = percorsoDerivata(immagine, formato);
+        if (PRONTE.contains(percorso)) {
+            return percorso;
+        }
+        if (Files.exists(base.resolve(percorso))) {
+            PRONTE.add(percorso);
+            return percorso;
+        }
+        return immagine;
+    }
+
+    //Vero per gli originali e le derivate salvati con l'hash nel nome: il loro contenuto non cambia mai
+    public static boolean isNomeConHash(String percorso) {
+        return percorso != null && NOME_CON_HASH.matcher(percorso).matches();
+    }
+
+    static String percorsoDerivata(String immagine, Formato formato) {
+        String nome = immagine.substring(immagine.lastIndexOf('/') + 1);
+        int punto = nome.lastIndexOf('.');
+        return CARTELLA_DERIVATE + "/" + (punto > 0 ? nome.substring(0, punto) : nome) + "-" + formato.nome + ".jpg";
+    }
+
+    //Ridimensiona alla larghezza indicata (mai ingrandendo) su sfondo bianco: il JPEG non ha trasparenza
+    private static BufferedImage ridimensiona(BufferedImage originale, int larghezzaMassima) {
+        int larghezza = Math.min(larghezzaMassima, originale.getWidth());
+        int altezza = Math.max(1, Math.round(originale.getHeight() * (larghezza / (float) originale.getWidth())));
+
+        BufferedImage ridimensionata = new BufferedImage(larghezza, altezza, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = ridimensionata.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, larghezza, altezza);
+            g.drawImage(originale, 0, 0, larghezza, altezza, null);
+        } finally {
+            g.dispose();
+        }
+        return ridimensionata;
+    }
+
+    private static void scriviJpeg(BufferedImage immagine, Path destinazione) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(destinazione.toFile())) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(QUALITA_JPEG);
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            writer.write(null, new IIOImage(immagine, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    //Attende la fine delle generazioni accodate (usato dai test)
+    static boolean attendiGenerazioni(long timeout, TimeUnit unita) throws InterruptedException {
+        ExecutorService esecutore = generatore;
+        if (esecutore == null) {
+            return true;
+        }
+        esecutore.shutdown();
+        boolean finito = esecutore.awaitTermination(timeout, unita);
+        synchronized (ImmaginiProdotto.class) {
+            if (generatore == esecutore) {
+                generatore = null;
+            }
+        }
+        return finito;
+    }
+}
@@ -0,0 +1,142 @@
+package model;
+
+import java.sql.*;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+//Letture e scritture a blocchi usate dall'importazione del catalogo (ImportatoreCatalogo).
+//Tutti i metodi usano la connessione del chiamante, che gestisce le transazioni: ogni blocco
+//viene inviato con un solo executeBatch (riscritto dal driver in un'unica INSERT multi-riga).
+public class ImportCatalogoDAO {
+
+    //nome del gusto (minuscolo, senza spazi ai lati) -> id
+    public Map<String, Integer> doRetrieveIdGusti(Connection con) throws SQLException {
+        Map<String, Integer> gusti = new HashMap<>();
+        try (PreparedStatement ps = con.prepareStatement("SELECT id_gusto, nomeGusto FROM gusto ORDER BY id_gusto");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                gusti.putIfAbsent(chiaveGusto(rs.getString("nomeGusto")), rs.getInt("id_gusto"));
+            }
+        }
+        return gusti;
+    }
+
+    //peso della confezione -> id
+    public Map<Integer, Integer> doRetrieveIdConfezioni(Connection con) throws SQLException {
+        Map<Integer, Integer> confezioni = new HashMap<>();
+        try (PreparedStatement ps = con.prepareStatement("SELECT id_confezione, peso FROM confezione ORDER BY id_confezione");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                confezioni.putIfAbsent(rs.getInt("peso"), rs.getInt("id_confezione"));
+            }
+        }
+        return confezioni;
+    }
+
+    public Set<String> doRetrieveIdProdotti(Connection con) throws SQLException {
+        Set<String> prodotti = new HashSet<>();
+        try (PreparedStatement ps = con.prepareStatement("SELECT id_prodotto FROM prodotto");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                prodotti.add(rs.getString("id_prodotto"));
+            }
+        }
+        return prodotti;
+    }
+
+    //Inserisce i gusti e ne imposta l'id generato
+    public void doSaveGusti(Connection con, List<Gusto> gusti) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement("INSERT INTO gusto (nomeGusto) VALUES (?)", Statement.RETURN_GENERATED_KEYS)) {
+            for (Gusto gusto : gusti) {
+                ps.setString(1, gusto.getNomeGusto());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                for (Gusto gusto : gusti) {
+                    if (!keys.next()) {
+                        throw new SQLException("Chiavi generate mancanti per i gusti.");
+                    }
+                    gusto.setIdGusto(keys.getInt(1));
+                }
+            }
+        }
+    }
+
+    //Inserisce le confezioni e ne imposta l'id generato
+    public void doSaveConfezioni(Connection con, List<Confezione> confezioni) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement("INSERT INTO confezione (peso) VALUES (?)", Statement.RETURN_GENERATED_KEYS)) {
+            for (Confezione confezione : confezioni) {
+                ps.setInt(1, confezione.getPeso());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                for (Confezione confezione : confezioni) {
+                    if (!keys.next()) {
+                        throw new SQLException("Chiavi generate mancanti per le confezioni.");
+                    }
+                    confezione.setIdConfezione(keys.getInt(1));
+                }
+            }
+        }
+    }
+
+    //Inserisce i prodotti nuovi e aggiorna quelli già presenti (stesso id_prodotto);
+    //i prodotti in senzaCalorie vengono salvati con calorie NULL
+    public void doUpsertProdotti(Connection con, List<Prodotto> prodotti, Set<String> senzaCalorie) throws SQLException {
+        String sql = "INSERT INTO prodotto (id_prodotto, nome, descrizione, categoria, immagine, calorie, carboidrati, proteine, grassi) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE nome = VALUES(nome), descrizione = VALUES(descrizione), "
+                + "categoria = VALUES(categoria), immagine = VALUES(immagine), calorie = VALUES(calorie), "
+                + "carboidrati = VALUES(carboidrati), proteine = VALUES(proteine), grassi = VALUES(grassi)";
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            for (Prodotto prodotto : prodotti) {
+                ps.setString(1, prodotto.getIdProdotto());
+                ps.setString(2, prodotto.getNome());
+                ps.setString(3, prodotto.getDescrizione());
+                ps.setString(4, prodotto.getCategoria());
+                ps.setString(5, prodotto.getImmagine());
+                if (senzaCalorie.contains(prodotto.getIdProdotto())) {
+                    ps.setNull(6, Types.INTEGER);
+                } else {
+                    ps.setInt(6, prodotto.getCalorie());
+                }
+                ps.setInt(7, prodotto.getCarboidrati());
+                ps.setInt(8, prodotto.getProteine());
+                ps.setInt(9, prodotto.getGrassi());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    //Inserisce le varianti nuove e aggiorna prezzo, quantità, sconto ed evidenza di quelle già presenti
+    //(stessa terna prodotto, gusto, confezione: indice univoco uq_variante_prodotto_gusto_confezione)
+    public void doUpsertVarianti(Connection con, List<Variante> varianti) throws SQLException {
+        String sql = "INSERT INTO variante (id_prodotto_variante, id_gusto, id_confezione, prezzo, quantità, sconto, evidenza) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE prezzo = VALUES(prezzo), quantità = VALUES(quantità), "
+                + "sconto = VALUES(sconto), evidenza = VALUES(evidenza)";
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            for (Variante variante : varianti) {
+                ps.setString(1, variante.getIdProdotto());
+                ps.setInt(2, variante.getIdGusto());
+                ps.setInt(3, variante.getIdConfezione());
+                ps.setFloat(4, variante.getPrezzo());
+                ps.setInt(5, variante.getQuantita());
+                ps.setInt(6, variante.getSconto());
+                ps.setBoolean(7, variante.isEvidenza());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    public static String chiaveGusto(String nomeGusto) {
+        return nomeGusto.trim().toLowerCase();
+    }
+}
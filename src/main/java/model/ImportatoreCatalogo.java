@@ -0,0 +1,349 @@
+package model;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.function.Consumer;
+
+//Importazione del catalogo da file CSV con intestazione, uno per tabella (gusto, confezione, prodotto, variante).
+//I file vengono letti un record alla volta e scritti a blocchi di DIMENSIONE_BLOCCO righe, ognuno nella sua
+//transazione: un blocco che fallisce viene annullato e segnalato senza fermare il resto dell'importazione.
+//Gusti e confezioni delle varianti si indicano per nome e peso: vengono risolti con mappe caricate all'inizio,
+//quindi gusto.csv e confezione.csv vanno importati prima di variante.csv (ordine di TABELLE).
+public final class ImportatoreCatalogo implements AutoCloseable {
+
+    public static final List<String> TABELLE = List.of("gusto", "confezione", "prodotto", "variante");
+    public static final int DIMENSIONE_BLOCCO = 500;
+    //oltre questo numero gli errori vengono solo contati, così il report resta piccolo
+    public static final int MAX_ERRORI = 1000;
+
+    private static final Map<String, List<String>> COLONNE = Map.of(
+            "gusto", List.of("nomeGusto"),
+            "confezione", List.of("peso"),
+            "prodotto", List.of("idProdotto", "nome", "descrizione", "categoria", "immagine", "calorie", "carboidrati", "proteine", "grassi"),
+            "variante", List.of("idProdotto", "gusto", "peso", "prezzo", "quantita", "sconto"));
+
+    public static class ErroreRiga {
+        private final String file;
+        private final long riga;
+        private final String messaggio;
+
+        public ErroreRiga(String file, long riga, String messaggio) {
+            this.file = file;
+            this.riga = riga;
+            this.messaggio = messaggio;
+        }
+
+        public String getFile() {
+            return file;
+        }
+
+        public long getRiga() {
+            return riga;
+        }
+
+        public String getMessaggio() {
+            return messaggio;
+        }
+    }
+
+    private final Connection con;
+    private final ImportCatalogoDAO dao = new ImportCatalogoDAO();
+    private final Map<String, Integer> gusti;
+    private final Map<Integer, Integer> confezioni;
+    private final Set<String> prodotti;
+    //gusti e confezioni nuovi del blocco corrente, per non inserirli due volte
+    private final Set<String> gustiInAttesa = new HashSet<>();
+    private final Set<Integer> confezioniInAttesa = new HashSet<>();
+    //prodotti importati con le calorie vuote: Prodotto le tiene in un int, nel database vanno NULL
+    private final Set<String> senzaCalorie = new HashSet<>();
+
+    private final Map<String, Integer> importate = new LinkedHashMap<>();
+    private final List<ErroreRiga> errori = new ArrayList<>();
+    private long erroriTotali;
+
+    public ImportatoreCatalogo() {
+        try {
+            con = ConPool.getConnection();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+
+        try {
+            con.setAutoCommit(false);
+            gusti = dao.doRetrieveIdGusti(con);
+            confezioni = dao.doRetrieveIdConfezioni(con);
+            prodotti = dao.doRetrieveIdProdotti(con);
+            con.commit();
+        } catch (SQLException e) {
+            close();
+            throw new RuntimeException(e);
+        }
+    }
+
+    public void importa(String tabella, String nomeFile, Reader reader) throws IOException {
+        List<String> richieste = COLONNE.get(tabella);
+        if (richieste == null) {
+            throw new IllegalArgumentException("Tabella non importabile: " + tabella);
+        }
+
+        LettoreCsv lettore = new LettoreCsv(reader);
+        List<String> intestazione = lettore.leggiRiga();
+        if (intestazione == null) {
+            errore(nomeFile, 1, "File vuoto.");
+            return;
+        }
+        Map<String, Integer> indici = new HashMap<>();
+        for (int i = 0; i < intestazione.size(); i++) {
+            indici.put(intestazione.get(i).trim(), i);
+        }
+        for (String colonna : richieste) {
+            if (!indici.containsKey(colonna)) {
+                errore(nomeFile, 1, "Colonna mancante: " + colonna);
+                return;
+            }
+        }
+
+        switch (tabella) {
+            case "gusto" -> importa(lettore, indici, tabella, nomeFile, this::convertiGusto, blocco -> dao.doSaveGusti(con, blocco),
+                    blocco -> blocco.forEach(g -> gusti.put(ImportCatalogoDAO.chiaveGusto(g.getNomeGusto()), g.getIdGusto())));
+            case "confezione" -> importa(lettore, indici, tabella, nomeFile, this::convertiConfezione, blocco -> dao.doSaveConfezioni(con, blocco),
+                    blocco -> blocco.forEach(c -> confezioni.put(c.getPeso(), c.getIdConfezione())));
+            case "prodotto" -> importa(lettore, indici, tabella, nomeFile, this::convertiProdotto, blocco -> dao.doUpsertProdotti(con, blocco, senzaCalorie),
+                    blocco -> blocco.forEach(p -> prodotti.add(p.getIdProdotto())));
+            default -> importa(lettore, indici, tabella, nomeFile, this::convertiVariante, blocco -> dao.doUpsertVarianti(con, blocco),
+                    blocco -> { });
+        }
+    }
+
+    public Map<String, Integer> getImportate() {
+        return importate;
+    }
+
+    public List<ErroreRiga> getErrori() {
+        return errori;
+    }
+
+    public long getErroriTotali() {
+        return erroriTotali;
+    }
+
+    @Override
+    public void close() {
+        try {
+            con.setAutoCommit(true);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        } finally {
+            try {
+                con.close();
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    private interface Convertitore<T> {
+        //restituisce null se la riga non va salvata (es. gusto già presente)
+        T converti(Riga riga);
+    }
+
+    private interface Salvataggio<T> {
+        void salva(List<T> blocco) throws SQLException;
+    }
+
+    private <T> void importa(LettoreCsv lettore, Map<String, Integer> indici, String tabella, String nomeFile,
+                             Convertitore<T> convertitore, Salvataggio<T> salvataggio, Consumer<List<T>> dopoCommit) throws IOException {
+        List<T> blocco = new ArrayList<>(DIMENSIONE_BLOCCO);
+        List<Long> righeBlocco = new ArrayList<>(DIMENSIONE_BLOCCO);
+
+        List<String> campi;
+        while ((campi = lettore.leggiRiga()) != null) {
+            if (campi.size() == 1 && campi.get(0).isBlank()) {
+                continue;
+            }
+            try {
+                T oggetto = convertitore.converti(new Riga(campi, indici));
+                if (oggetto != null) {
+                    blocco.add(oggetto);
+                    righeBlocco.add(lettore.getNumeroRiga());
+                }
+            } catch (IllegalArgumentException e) {
+                errore(nomeFile, lettore.getNumeroRiga(), e.getMessage());
+            }
+
+            if (blocco.size() == DIMENSIONE_BLOCCO) {
+                salvaBlocco(tabella, nomeFile, blocco, righeBlocco, salvataggio, dopoCommit);
+            }
+        }
+        if (!blocco.isEmpty()) {
+            salvaBlocco(tabella, nomeFile, blocco, righeBlocco, salvataggio, dopoCommit);
+        }
+    }
+
+    private <T> void salvaBlocco(String tabella, String nomeFile, List<T> blocco, List<Long> righeBlocco,
+                                 Salvataggio<T> salvataggio, Consumer<List<T>> dopoCommit) {
+        try {
+            salvataggio.salva(blocco);
+            con.commit();
+            dopoCommit.accept(blocco);
+            importate.merge(tabella, blocco.size(), Integer::sum);
+        } catch (SQLException e) {
+            try {
+                con.rollback();
+            } catch (SQLException ex) {
+                throw new RuntimeException(ex);
+            }
+            for (long riga : righeBlocco) {
+                errore(nomeFile, riga, "Blocco non salvato: " + e.getMessage());
+            }
+        } finally {
+            blocco.clear();
+            righeBlocco.clear();
+            gustiInAttesa.clear();
+            confezioniInAttesa.clear();
+        }
+    }
+
+    private void errore(String nomeFile, long riga, String messaggio) {
+        erroriTotali++;
+        if (errori.size() < MAX_ERRORI) {
+            errori.add(new ErroreRiga(nomeFile, riga, messaggio));
+        }
+    }
+
+    private Gusto convertiGusto(Riga riga) {
+        String nome = riga.testo("nomeGusto", 50);
+        String chiave = ImportCatalogoDAO.chiaveGusto(nome);
+        if (gusti.containsKey(chiave) || !gustiInAttesa.add(chiave)) {
+            return null;
+        }
+        Gusto gusto = new Gusto();
+        gusto.setNome(nome);
+        return gusto;
+    }
+
+    private Confezione convertiConfezione(Riga riga) {
+        int peso = riga.intero("peso", 0, Integer.MAX_VALUE);
+        if (confezioni.containsKey(peso) || !confezioniInAttesa.add(peso)) {
+            return null;
+        }
+        Confezione confezione = new Confezione();
+        confezione.setPeso(peso);
+        return confezione;
+    }
+
+    private Prodotto convertiProdotto(Riga riga) {
+        Prodotto prodotto = new Prodotto();
+        prodotto.setIdProdotto(riga.testo("idProdotto", 30));
+        prodotto.setNome(riga.testo("nome", 100));
+        prodotto.setDescrizione(riga.testoFacoltativo("descrizione", 3000));
+        prodotto.setCategoria(riga.testo("categoria", 50));
+        prodotto.setImmagine(riga.testo("immagine", 2083));
+        if (riga.valore("calorie").isEmpty()) {
+            senzaCalorie.add(prodotto.getIdProdotto());
+        } else {
+            senzaCalorie.remove(prodotto.getIdProdotto());
+            prodotto.setCalorie(riga.intero("calorie", 0, Integer.MAX_VALUE));
+        }
+        prodotto.setCarboidrati(riga.intero("carboidrati", 0, Integer.MAX_VALUE));
+        prodotto.setProteine(riga.intero("proteine", 0, Integer.MAX_VALUE));
+        prodotto.setGrassi(riga.intero("grassi", 0, Integer.MAX_VALUE));
+        return prodotto;
+    }
+
+    private Variante convertiVariante(Riga riga) {
+        String idProdotto = riga.testo("idProdotto", 30);
+        if (!prodotti.contains(idProdotto)) {
+            throw new IllegalArgumentException("Prodotto inesistente: " + idProdotto);
+        }
+        String nomeGusto = riga.testo("gusto", 50);
+        Integer idGusto = gusti.get(ImportCatalogoDAO.chiaveGusto(nomeGusto));
+        if (idGusto == null) {
+            throw new IllegalArgumentException("Gusto inesistente: " + nomeGusto);
+        }
+        int peso = riga.intero("peso", 0, Integer.MAX_VALUE);
+        Integer idConfezione = confezioni.get(peso);
+        if (idConfezione == null) {
+            throw new IllegalArgumentException("Confezione inesistente: " + peso);
+        }
+
+        Variante variante = new Variante();
+        variante.setIdProdotto(idProdotto);
+        variante.setIdGusto(idGusto);
+        variante.setIdConfezione(idConfezione);
+        variante.setPrezzo(riga.prezzo("prezzo"));
+        variante.setQuantita(riga.intero("quantita", 0, Integer.MAX_VALUE));
+        variante.setSconto(riga.intero("sconto", 0, 100));
+        variante.setEvidenza(riga.booleano("evidenza"));
+        return variante;
+    }
+
+    //Accesso per nome di colonna ai campi di un record, con i controlli dello schema
+    private static class Riga {
+        private final List<String> campi;
+        private final Map<String, Integer> indici;
+
+        Riga(List<String> campi, Map<String, Integer> indici) {
+            this.campi = campi;
+            this.indici = indici;
+        }
+
+        String valore(String colonna) {
+            Integer indice = indici.get(colonna);
+            return indice == null || indice >= campi.size() ? "" : campi.get(indice).trim();
+        }
+
+        String testo(String colonna, int lunghezzaMax) {
+            String valore = valore(colonna);
+            if (valore.isEmpty()) {
+                throw new IllegalArgumentException("Campo obbligatorio mancante: " + colonna);
+            }
+            if (valore.length() > lunghezzaMax) {
+                throw new IllegalArgumentException("Campo troppo lungo: " + colonna);
+            }
+            return valore;
+        }
+
+        //colonna che nello schema ammette NULL: vuota o assente vale null
+        String testoFacoltativo(String colonna, int lunghezzaMax) {
+            return valore(colonna).isEmpty() ? null : testo(colonna, lunghezzaMax);
+        }
+
+        int intero(String colonna, int min, int max) {
+            try {
+                int valore = Integer.parseInt(testo(colonna, 11));
+                if (valore < min || valore > max) {
+                    throw new IllegalArgumentException("Valore fuori intervallo per " + colonna + ": " + valore);
+                }
+                return valore;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Numero non valido per " + colonna + ": " + valore(colonna));
+            }
+        }
+
+        float prezzo(String colonna) {
+            try {
+                float valore = Float.parseFloat(testo(colonna, 20));
+                if (!(valore > 0) || Float.isInfinite(valore)) {
+                    throw new IllegalArgumentException("Prezzo non valido: " + valore(colonna));
+                }
+                return valore;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Prezzo non valido: " + valore(colonna));
+            }
+        }
+
+        //colonna facoltativa: vuota o assente vale false
+        boolean booleano(String colonna) {
+            String valore = valore(colonna);
+            return switch (valore.toLowerCase()) {
+                case "", "0", "false" -> false;
+                case "1", "true" -> true;
+                default -> throw new IllegalArgumentException("Valore non valido per " + colonna + ": " + valore);
+            };
+        }
+    }
+}
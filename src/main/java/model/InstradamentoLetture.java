@@ -0,0 +1,123 @@
+package model;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+//Sceglie la replica a cui mandare una lettura (vedi ConPool.getReadConnection): a turno tra quelle sane,
+//cioè raggiungibili e con un ritardo di replica entro il massimo configurato. Il ritardo di ogni replica
+//viene riletto al più una volta per intervallo, dal primo thread che lo trova scaduto; gli altri usano
+//l'ultimo valore letto. Se nessuna replica è sana la lettura va al primario (scegli restituisce null).
+final class InstradamentoLetture {
+
+    //Ritardo della replica in secondi, null se la replica non sta replicando (thread di replica fermo)
+    @FunctionalInterface
+    interface SondaRitardo {
+        Long ritardoSecondi(DataSource replica) throws SQLException;
+    }
+
+    static final class Replica {
+        final String nome;
+        final DataSource dataSource;
+        private final AtomicBoolean inControllo = new AtomicBoolean();
+        private volatile long prossimoControllo;
+        private volatile boolean sana;
+        private volatile Long ritardoSecondi;
+
+        Replica(String nome, DataSource dataSource) {
+            this.nome = nome;
+            this.dataSource = dataSource;
+        }
+    }
+
+    private final List<Replica> repliche;
+    private final long maxRitardoSecondi;
+    private final long intervalloControlloMs;
+    private final SondaRitardo sonda;
+    private final LongSupplier orologio;
+    private final AtomicInteger turno = new AtomicInteger();
+
+    InstradamentoLetture(List<Replica> repliche, long maxRitardoSecondi, long intervalloControlloMs,
+                         SondaRitardo sonda, LongSupplier orologio) {
+        this.repliche = List.copyOf(repliche);
+        this.maxRitardoSecondi = maxRitardoSecondi;
+        this.intervalloControlloMs = intervalloControlloMs;
+        this.sonda = sonda;
+        this.orologio = orologio;
+    }
+
+    List<Replica> getRepliche() {
+        return repliche;
+    }
+
+    Replica scegli() {
+        int n = repliche.size();
+        int inizio = Math.floorMod(turno.getAndIncrement(), n);
+        for (int i = 0; i < n; i++) {
+            Replica replica = repliche.get((inizio + i) % n);
+            controllaSeScaduto(replica);
+            if (replica.sana) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    //Una connessione non ottenuta esclude la replica fino al prossimo controllo
+    void segnaGuasta(Replica replica) {
+        replica.sana = false;
+        replica.prossimoControllo = orologio.getAsLong() + intervalloControlloMs;
+    }
+
+    private void controllaSeScaduto(Replica replica) {
+        if (orologio.getAsLong() < replica.prossimoControllo || !replica.inControllo.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            Long ritardo = sonda.ritardoSecondi(replica.dataSource);
+            replica.ritardoSecondi = ritardo;
+            replica.sana = ritardo != null && ritardo <= maxRitardoSecondi;
+        } catch (SQLException | RuntimeException e) {
+            replica.ritardoSecondi = null;
+            replica.sana = false;
+        } finally {
+            replica.prossimoControllo = orologio.getAsLong() + intervalloControlloMs;
+            replica.inControllo.set(false);
+        }
+    }
+
+    List<Map<String, Object>> toList() {
+        List<Map<String, Object>> valori = new ArrayList<>();
+        for (Replica replica : repliche) {
+            Map<String, Object> valore = new LinkedHashMap<>();
+            valore.put("nome", replica.nome);
+            valore.put("sana", replica.sana);
+            valore.put("ritardoSecondi", replica.ritardoSecondi);
+            valori.add(valore);
+        }
+        return valori;
+    }
+
+    //Ritardo letto da SHOW REPLICA STATUS (MySQL 8.0.22+). Un server senza replica configurata
+    //(es. la copia locale su un'altra porta usata in sviluppo) ha il risultato vuoto e conta come allineato.
+    static Long ritardoMySql(DataSource replica) throws SQLException {
+        try (Connection con = replica.getConnection();
+             Statement st = con.createStatement();
+             ResultSet rs = st.executeQuery("SHOW REPLICA STATUS")) {
+            if (!rs.next()) {
+                return 0L;
+            }
+            long ritardo = rs.getLong("Seconds_Behind_Source");
+            return rs.wasNull() ? null : ritardo;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+//Istogramma di durate in microsecondi log-lineare (come HdrHistogram): ogni potenza di due è divisa in
+//SOTTO_INTERVALLI intervalli uguali, quindi un percentile è approssimato al più di 1/32 (~3%) del suo valore,
+//da 1µs fino a MASSIMO_TRACCIATO (oltre si registra il valore massimo tracciato; il massimo vero resta in getMassimo).
+//Registrare un valore costa qualche operazione sui bit e due incrementi: si può fare ad ogni richiesta.
+//Gli intervalli fissi di LIMITI (quasi logaritmici, da 50µs a 1s e oltre) restano per i bucket esportati a Prometheus.
+public final class Istogramma {
+
+    static final long[] LIMITI = {50, 100, 250, 500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000, 100_000,
+            250_000, 500_000, 1_000_000, Long.MAX_VALUE};
+
+    static final int BIT_SOTTO_INTERVALLI = 5;
+    static final int SOTTO_INTERVALLI = 1 << BIT_SOTTO_INTERVALLI;
+    //2^36µs, circa 19 ore
+    static final long MASSIMO_TRACCIATO = (1L << 36) - 1;
+
+    private final AtomicLongArray fini = new AtomicLongArray(indice(MASSIMO_TRACCIATO) + 1);
+    private final LongAdder[] conteggi = new LongAdder[LIMITI.length];
+    private final LongAdder totale = new LongAdder();
+    private final LongAdder somma = new LongAdder();
+    private final LongAccumulator massimo = new LongAccumulator(Math::max, 0);
+
+    Istogramma() {
+        for (int i = 0; i < conteggi.length; i++) {
+            conteggi[i] = new LongAdder();
+        }
+    }
+
+    public void registra(long micros) {
+        long valore = Math.max(0, micros);
+        int i = 0;
+        while (valore > LIMITI[i]) {
+            i++;
+        }
+        conteggi[i].increment();
+        fini.incrementAndGet(indice(Math.min(valore, MASSIMO_TRACCIATO)));
+        totale.increment();
+        somma.add(valore);
+        massimo.accumulate(valore);
+    }
+
+    //Sotto SOTTO_INTERVALLI un intervallo per valore; poi, per ogni potenza di due 2^e, SOTTO_INTERVALLI
+    //intervalli larghi 2^(e - BIT_SOTTO_INTERVALLI)
+    static int indice(long valore) {
+        if (valore < SOTTO_INTERVALLI) {
+            return (int) valore;
+        }
+        int esponente = 63 - Long.numberOfLeadingZeros(valore);
+        int spostamento = esponente - BIT_SOTTO_INTERVALLI;
+        return (spostamento + 1) * SOTTO_INTERVALLI + (int) (valore >>> spostamento) - SOTTO_INTERVALLI;
+    }
+
+    //Valore più alto che cade nell'intervallo di indice i
+    static long limiteSuperiore(int i) {
+        if (i < SOTTO_INTERVALLI) {
+            return i;
+        }
+        int spostamento = i / SOTTO_INTERVALLI - 1;
+        long inizio = (long) (SOTTO_INTERVALLI + i % SOTTO_INTERVALLI) << spostamento;
+        return inizio + (1L << spostamento) - 1;
+    }
+
+    public long getConteggio() {
+        return totale.sum();
+    }
+
+    public long getMedia() {
+        long n = totale.sum();
+        return n == 0 ? 0 : somma.sum() / n;
+    }
+
+    public long getMassimo() {
+        return massimo.get();
+    }
+
+    public long getSomma() {
+        return somma.sum();
+    }
+
+    //Limiti superiori degli intervalli in microsecondi; l'ultimo (Long.MAX_VALUE) raccoglie tutto il resto
+    public static long[] limiti() {
+        return LIMITI.clone();
+    }
+
+    //Per ogni limite di LIMITI, quanti valori ci sono fino a quel limite compreso (come i bucket di Prometheus)
+    public long[] conteggiCumulati() {
+        long[] cumulati = new long[LIMITI.length];
+        long cumulato = 0;
+        for (int i = 0; i < conteggi.length; i++) {
+            cumulato += conteggi[i].sum();
+            cumulati[i] = cumulato;
+        }
+        return cumulati;
+    }
+
+    //Limite superiore dell'intervallo log-lineare che contiene il percentile richiesto (es. 0.99), mai oltre il massimo
+    public long percentile(double p) {
+        long n = totale.sum();
+        if (n == 0) {
+            return 0;
+        }
+        long soglia = Math.max(1, (long) Math.ceil(p * n));
+        long cumulato = 0;
+        for (int i = 0; i < fini.length(); i++) {
+            cumulato += fini.get(i);
+            if (cumulato >= soglia) {
+                //l'ultimo intervallo raccoglie anche i valori oltre MASSIMO_TRACCIATO
+                return i == fini.length() - 1 ? getMassimo() : Math.min(limiteSuperiore(i), getMassimo());
+            }
+        }
+        return getMassimo();
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> valori = new LinkedHashMap<>();
+        valori.put("conteggio", getConteggio());
+        valori.put("mediaMicros", getMedia());
+        valori.put("p50Micros", percentile(0.50));
+        valori.put("p95Micros", percentile(0.95));
+        valori.put("p99Micros", percentile(0.99));
+        valori.put("massimoMicros", getMassimo());
+        Map<String, Long> intervalli = new LinkedHashMap<>();
+        for (int i = 0; i < LIMITI.length; i++) {
+            intervalli.put(LIMITI[i] == Long.MAX_VALUE ? "oltre" : "<=" + LIMITI[i], conteggi[i].sum());
+        }
+        valori.put("intervalli", intervalli);
+        return valori;
+    }
+}
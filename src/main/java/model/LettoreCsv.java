@@ -0,0 +1,109 @@
+package model;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+//Legge un file CSV (RFC 4180: separatore virgola, campi tra virgolette con virgolette raddoppiate,
+//a capo ammessi dentro le virgolette) un record alla volta, senza caricare il file in memoria.
+public class LettoreCsv {
+
+    private final Reader reader;
+    private final char[] buffer = new char[8192];
+    private int posizione;
+    private int letti;
+    private long numeroRiga;
+    private boolean inizio = true;
+    private boolean fine;
+
+    public LettoreCsv(Reader reader) {
+        this.reader = reader;
+    }
+
+    //Restituisce i campi del record successivo, oppure null a fine file
+    public List<String> leggiRiga() throws IOException {
+        if (fine) {
+            return null;
+        }
+
+        List<String> campi = new ArrayList<>();
+        StringBuilder campo = new StringBuilder();
+        boolean traVirgolette = false;
+        boolean vuota = true;
+        numeroRiga++;
+
+        int c;
+        while ((c = leggi()) != -1) {
+            if (inizio) {
+                inizio = false;
+                //BOM UTF-8 lasciato da Excel all'inizio del file
+                if (c == '\uFEFF') {
+                    continue;
+                }
+            }
+            vuota = false;
+
+            if (traVirgolette) {
+                if (c == '"') {
+                    if (guarda() == '"') {
+                        leggi();
+                        campo.append('"');
+                    } else {
+                        traVirgolette = false;
+                    }
+                } else {
+                    campo.append((char) c);
+                }
+            } else if (c == '"') {
+                traVirgolette = true;
+            } else if (c == ',') {
+                campi.add(campo.toString());
+                campo.setLength(0);
+            } else if (c == '\r' || c == '\n') {
+                if (c == '\r' && guarda() == '\n') {
+                    leggi();
+                }
+                campi.add(campo.toString());
+                return campi;
+            } else {
+                campo.append((char) c);
+            }
+        }
+
+        fine = true;
+        if (vuota) {
+            return null;
+        }
+        if (traVirgolette) {
+            throw new IOException("Virgolette non chiuse nella riga " + numeroRiga);
+        }
+        campi.add(campo.toString());
+        return campi;
+    }
+
+    //Numero dell'ultimo record letto (l'intestazione è il record 1)
+    public long getNumeroRiga() {
+        return numeroRiga;
+    }
+
+    private int leggi() throws IOException {
+        if (posizione == letti) {
+            letti = reader.read(buffer);
+            posizione = 0;
+            if (letti <= 0) {
+                letti = 0;
+                return -1;
+            }
+        }
+        return buffer[posizione++];
+    }
+
+    private int guarda() throws IOException {
+        int c = leggi();
+        if (c != -1) {
+            posizione--;
+        }
+        return c;
+    }
+}
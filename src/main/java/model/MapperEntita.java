@@ -0,0 +1,88 @@
+package model;
+
+//Mappatura delle righe delle tabelle sulle entità, condivisa da tutti i DAO (vedi RowMapper).
+//I nomi sono quelli delle colonne delle tabelle; le colonne opzionali arrivano solo dalle query con le join.
+public final class MapperEntita {
+
+    public static final RowMapper<Variante> VARIANTE = RowMapper.per(Variante::new)
+            .intero("id_variante", Variante::setIdVariante)
+            .stringa("id_prodotto_variante", Variante::setIdProdotto)
+            .intero("id_gusto", Variante::setIdGusto)
+            .intero("id_confezione", Variante::setIdConfezione)
+            .intero("quantità", Variante::setQuantita)
+            .decimale("prezzo", Variante::setPrezzo)
+            .intero("sconto", Variante::setSconto)
+            .booleano("evidenza", Variante::setEvidenza)
+            .build();
+
+    public static final RowMapper<Prodotto> PRODOTTO = RowMapper.per(Prodotto::new)
+            .stringa("id_prodotto", Prodotto::setIdProdotto)
+            .stringa("nome", Prodotto::setNome)
+            .stringa("descrizione", Prodotto::setDescrizione)
+            .stringa("categoria", Prodotto::setCategoria)
+            .stringa("immagine", Prodotto::setImmagine)
+            .intero("calorie", Prodotto::setCalorie)
+            .intero("carboidrati", Prodotto::setCarboidrati)
+            .intero("proteine", Prodotto::setProteine)
+            .intero("grassi", Prodotto::setGrassi)
+            .build();
+
+    //riga del carrello con nome e immagine del prodotto, gusto e peso della variante
+    public static final RowMapper<Carrello> CARRELLO = RowMapper.per(Carrello::new)
+            .stringa("email_utente", Carrello::setEmailUtente)
+            .stringa("id_prodotto", Carrello::setIdProdotto)
+            .intero("id_variante", Carrello::setIdVariante)
+            .intero("quantità", Carrello::setQuantita)
+            .decimale("prezzo", Carrello::setPrezzo)
+            .stringa("nomeGusto", Carrello::setGusto)
+            .intero("peso", Carrello::setPesoConfezione)
+            .stringa("nome", Carrello::setNomeProdotto)
+            .stringa("immagine", Carrello::setImmagineProdotto)
+            .build();
+
+    public static final RowMapper<DettaglioOrdine> DETTAGLIO_ORDINE = RowMapper.per(DettaglioOrdine::new)
+            .intero("id_ordine", DettaglioOrdine::setIdOrdine)
+            .stringa("id_prodotto", DettaglioOrdine::setIdProdotto)
+            .intero("id_variante", DettaglioOrdine::setIdVariante)
+            .intero("quantità", DettaglioOrdine::setQuantita)
+            .decimale("prezzo", DettaglioOrdine::setPrezzo)
+            .opzionale().stringa("nomeGusto", DettaglioOrdine::setGusto)
+            .opzionale().intero("peso", DettaglioOrdine::setPesoConfezione)
+            .opzionale().stringa("nome", DettaglioOrdine::setNomeProdotto)
+            .opzionale().stringa("immagine", DettaglioOrdine::setImmagineProdotto)
+            .build();
+
+    public static final RowMapper<Ordine> ORDINE = RowMapper.per(Ordine::new)
+            .intero("id_ordine", Ordine::setIdOrdine)
+            .stringa("email_utente", Ordine::setEmailUtente)
+            .data("data", Ordine::setDataOrdine)
+            .stringa("stato", Ordine::setStato)
+            .decimale("totale", Ordine::setTotale)
+            .stringa("descrizione", Ordine::setDescrizione)
+            .build();
+
+    public static final RowMapper<Utente> UTENTE = RowMapper.per(Utente::new)
+            .stringa("email", Utente::setEmail)
+            .stringa("password", Utente::setPassword)
+            .stringa("nome", Utente::setNome)
+            .stringa("cognome", Utente::setCognome)
+            .stringa("codice_fiscale", Utente::setCodiceFiscale)
+            .data("data_di_nascita", Utente::setDataNascita)
+            .stringa("indirizzo", Utente::setIndirizzo)
+            .stringa("numero_di_cellulare", Utente::setTelefono)
+            .booleano("poteri", Utente::setPoteri)
+            .build();
+
+    public static final RowMapper<Gusto> GUSTO = RowMapper.per(Gusto::new)
+            .intero("id_gusto", Gusto::setIdGusto)
+            .stringa("nomeGusto", Gusto::setNome)
+            .build();
+
+    public static final RowMapper<Confezione> CONFEZIONE = RowMapper.per(Confezione::new)
+            .intero("id_confezione", Confezione::setIdConfezione)
+            .intero("peso", Confezione::setPeso)
+            .build();
+
+    private MapperEntita() {
+    }
+}
@@ -0,0 +1,56 @@
+package model;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+//Contatori e istogrammi dell'applicazione (compressione delle risposte, attese del pool di connessioni, ...)
+//letti dalla pagina delle metriche dell'admin.
+//I contatori sono LongAdder: aggiornarli da molte richieste insieme non crea contesa.
+public final class Metriche {
+
+    private static final Map<String, LongAdder> CONTATORI = new ConcurrentHashMap<>();
+    private static final Map<String, Istogramma> ISTOGRAMMI = new ConcurrentHashMap<>();
+
+    private Metriche() {
+    }
+
+    public static void aggiungi(String nome, long valore) {
+        CONTATORI.computeIfAbsent(nome, k -> new LongAdder()).add(valore);
+    }
+
+    public static long valore(String nome) {
+        LongAdder contatore = CONTATORI.get(nome);
+        return contatore == null ? 0 : contatore.sum();
+    }
+
+    //Copia ordinata per nome dei valori correnti
+    public static Map<String, Long> istantanea() {
+        Map<String, Long> valori = new TreeMap<>();
+        CONTATORI.forEach((nome, contatore) -> valori.put(nome, contatore.sum()));
+        return valori;
+    }
+
+    //Istogramma con il nome indicato, creato al primo uso
+    public static Istogramma istogramma(String nome) {
+        return ISTOGRAMMI.computeIfAbsent(nome, k -> new Istogramma());
+    }
+
+    //Copia ordinata per nome degli istogrammi
+    public static Map<String, Istogramma> istogrammi() {
+        return new TreeMap<>(ISTOGRAMMI);
+    }
+
+    public static Map<String, Map<String, Object>> istantaneaIstogrammi() {
+        Map<String, Map<String, Object>> valori = new TreeMap<>();
+        ISTOGRAMMI.forEach((nome, istogramma) -> valori.put(nome, istogramma.toMap()));
+        return valori;
+    }
+
+    //Azzera contatori e istogrammi (usato dai test)
+    static void azzera() {
+        CONTATORI.clear();
+        ISTOGRAMMI.clear();
+    }
+}
@@ -1,6 +1,8 @@
 package model;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 
 public class Ordine {
@@ -17,6 +19,22 @@ public class Ordine {
     
     private String descrizione;
 
+    private List<DettaglioOrdine> dettagli;
+
+    //identificativo univoco assegnato al checkout, rende idempotente il salvataggio dell'ordine
+    private String token;
+
+
+    public List<DettaglioOrdine> getDettagli() {
+        if (this.dettagli == null) this.dettagli = new ArrayList<>();
+
+        return dettagli;
+    }
+
+    public void setDettagli(List<DettaglioOrdine> dettagli) {
+        this.dettagli = dettagli;
+    }
+
 
     
     public String getDescrizione() {
@@ -76,4 +94,14 @@ public class Ordine {
     public void setDataOrdine(Date dataOrdine) {
         this.dataOrdine = dataOrdine;
     }
+
+
+    
+    public String getToken() {
+        return token;
+    }
+
+    public void setToken(String token) {
+        this.token = token;
+    }
 }
@@ -4,25 +4,24 @@ import java.sql.*;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.locks.Lock;
 
 public class OrdineDao {
+
+    //se ORDER_PRICE_CHECK=true il DB verifica i prezzi delle righe inserite al checkout (vedi trigger updatePriceDettaglioOrdine)
+    private static final boolean VERIFICA_PREZZI = Boolean.parseBoolean(System.getenv("ORDER_PRICE_CHECK"));
+
+    //numero massimo di id in una singola clausola IN degli aggiornamenti di stato
+    private static final int MAX_ID_PER_QUERY = 1000;
+
     public Ordine doRetrieveById(int id) {
-        Ordine ordine = new Ordine();
+        Ordine ordine;
         try(Connection con= ConPool.getConnection())
         {
             PreparedStatement preparedStatement=con.prepareStatement("SELECT * FROM ordine WHERE id_ordine=?");
             preparedStatement.setInt(1,id);
             ResultSet resultSet=preparedStatement.executeQuery();
-            if(resultSet.next()){
-                ordine.setIdOrdine(resultSet.getInt("id_ordine"));
-                ordine.setEmailUtente(resultSet.getString("email_utente"));
-                ordine.setDataOrdine(resultSet.getDate("data"));
-                ordine.setStato(resultSet.getString("stato"));
-                ordine.setTotale(resultSet.getFloat("totale"));
-                ordine.setDescrizione(resultSet.getString("descrizione"));
-            }else {
-                return null;
-            }
+            ordine = MapperEntita.ORDINE.primo(resultSet);
 
         }
         catch (SQLException sqlException)
@@ -36,23 +35,89 @@ public class OrdineDao {
 
     public List<Ordine> doRetrieveByEmail(String email){
         List<Ordine> ordini = new ArrayList<>();
-        try (Connection connection = ConPool.getConnection()) {
+        try (Connection connection = ConPool.getReadConnection()) {
             PreparedStatement preparedStatement = connection.prepareStatement("SELECT * from ordine where email_utente = ?");
             preparedStatement.setString(1, email);
 
             ResultSet resultSet = preparedStatement.executeQuery();
-            while (resultSet.next()){
-                Ordine ordine = new Ordine();
-                ordine.setIdOrdine(resultSet.getInt("id_ordine"));
-                ordine.setEmailUtente(resultSet.getString("email_utente"));
-                ordine.setDataOrdine(resultSet.getDate("data"));
-                ordine.setStato(resultSet.getString("stato"));
-                ordine.setTotale(resultSet.getFloat("totale"));
-                ordine.setDescrizione(resultSet.getString("descrizione"));
-                ordini.add(ordine);
-            }
+            MapperEntita.ORDINE.perOgni(resultSet, ordini::add);
+
+
+
+        }catch (SQLException e){
+            throw new RuntimeException(e);
+        }
 
+        return ordini;
+    }
+
+    //Restituisce una pagina dello storico ordini dell'utente (dal più recente) insieme alle relative righe,
+    //con un'unica query. Il cursore (cursorData, cursorId) è l'ultimo ordine della pagina precedente:
+    //se cursorData è null viene restituita la prima pagina.
+    //Le righe vengono caricate solo per gli ordini senza descrizione, gli altri vengono ricostruiti dalla descrizione.
+    public List<Ordine> doRetrieveStoricoByEmail(String email, java.sql.Date cursorData, int cursorId, int limit){
+        List<Ordine> ordini = new ArrayList<>();
+
+        StringBuilder sql = new StringBuilder();
+        sql.append("SELECT o.id_ordine, o.email_utente, o.data, o.stato, o.totale, o.descrizione, ");
+        sql.append("d.id_prodotto, d.id_variante, d.quantità, d.prezzo, p.nome, p.immagine, g.nomeGusto, c.peso ");
+        sql.append("FROM (SELECT * FROM ordine WHERE email_utente = ? ");
+        if (cursorData != null) {
+            sql.append("AND (data < ? OR (data = ? AND id_ordine < ?)) ");
+        }
+        sql.append("ORDER BY data DESC, id_ordine DESC LIMIT ?) o ");
+        sql.append("LEFT JOIN (dettaglio_ordine d JOIN prodotto p ON d.id_prodotto = p.id_prodotto ");
+        sql.append("JOIN variante v ON d.id_variante = v.id_variante ");
+        sql.append("JOIN confezione c ON v.id_confezione = c.id_confezione ");
+        sql.append("JOIN gusto g ON v.id_gusto = g.id_gusto) ");
+        sql.append("ON d.id_ordine = o.id_ordine AND (o.descrizione IS NULL OR o.descrizione = '') ");
+        sql.append("ORDER BY o.data DESC, o.id_ordine DESC");
+
+        try (Connection connection = ConPool.getReadConnection()) {
+            PreparedStatement preparedStatement = connection.prepareStatement(sql.toString());
+
+            int paramIndex = 1;
+            preparedStatement.setString(paramIndex++, email);
+            if (cursorData != null) {
+                preparedStatement.setDate(paramIndex++, cursorData);
+                preparedStatement.setDate(paramIndex++, cursorData);
+                preparedStatement.setInt(paramIndex++, cursorId);
+            }
+            preparedStatement.setInt(paramIndex, limit);
 
+            ResultSet resultSet = preparedStatement.executeQuery();
+            Ordine ordine = null;
+            while (resultSet.next()){
+                int idOrdine = resultSet.getInt("id_ordine");
+
+                //le righe dello stesso ordine sono consecutive
+                if (ordine == null || ordine.getIdOrdine() != idOrdine) {
+                    ordine = new Ordine();
+                    ordine.setIdOrdine(idOrdine);
+                    ordine.setEmailUtente(resultSet.getString("email_utente"));
+                    ordine.setDataOrdine(resultSet.getDate("data"));
+                    ordine.setStato(resultSet.getString("stato"));
+                    ordine.setTotale(resultSet.getFloat("totale"));
+                    ordine.setDescrizione(resultSet.getString("descrizione"));
+                    ordini.add(ordine);
+                }
+
+                //con la left join un ordine senza righe ha le colonne del dettaglio a null
+                int idVariante = resultSet.getInt("id_variante");
+                if (idVariante > 0) {
+                    DettaglioOrdine dettaglioOrdine = new DettaglioOrdine();
+                    dettaglioOrdine.setIdOrdine(idOrdine);
+                    dettaglioOrdine.setIdProdotto(resultSet.getString("id_prodotto"));
+                    dettaglioOrdine.setIdVariante(idVariante);
+                    dettaglioOrdine.setQuantita(resultSet.getInt("quantità"));
+                    dettaglioOrdine.setPrezzo(resultSet.getFloat("prezzo"));
+                    dettaglioOrdine.setGusto(resultSet.getString("nomeGusto"));
+                    dettaglioOrdine.setPesoConfezione(resultSet.getInt("peso"));
+                    dettaglioOrdine.setNomeProdotto(resultSet.getString("nome"));
+                    dettaglioOrdine.setImmagineProdotto(resultSet.getString("immagine"));
+                    ordine.getDettagli().add(dettaglioOrdine);
+                }
+            }
 
         }catch (SQLException e){
             throw new RuntimeException(e);
@@ -60,6 +125,7 @@ public class OrdineDao {
 
         return ordini;
     }
+
     public int getLastInsertedId(){
         int id = 0;
         try (Connection connection = ConPool.getConnection()){
@@ -76,8 +142,136 @@ public class OrdineDao {
     }
 
     public void doSave(Ordine ordine) {
-        StringBuilder query = new StringBuilder("INSERT INTO ordine (id_ordine");
         List<Object> parameters = new ArrayList<>();
+        String query = buildInsertQuery(ordine, parameters);
+
+        try (Connection con = ConPool.getConnection();
+             PreparedStatement ps = con.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+
+            for (int i = 0; i < parameters.size(); i++) {
+                ps.setObject(i + 1, parameters.get(i));
+            }
+
+            if (ps.executeUpdate() != 1) {
+                throw new RuntimeException("INSERT error.");
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    //Salva l'ordine e tutte le sue righe in un'unica transazione e restituisce l'id generato.
+    //I prezzi delle righe e il totale sono calcolati dall'applicazione al checkout (dallo stesso snapshot del carrello),
+    //le righe vengono inserite con un'unica INSERT multi-riga.
+    //Se l'ordine ha un token già presente nel DB (ordine già salvato) non viene inserito di nuovo
+    //e viene restituito l'id esistente.
+    public int doSaveOrdine(Ordine ordine, List<DettaglioOrdine> dettagli) {
+        //con il group commit gli ordini concorrenti vengono salvati insieme in un'unica transazione
+        if (OrdineGroupCommit.isAbilitato()) {
+            return OrdineGroupCommit.getInstance().salva(ordine, dettagli);
+        }
+
+        try (Connection con = ConPool.getConnection()) {
+            return doSaveOrdine(con, ordine, dettagli);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    //Come doSaveOrdine, ma nella transazione di una connessione fornita dal chiamante
+    public int doSaveOrdine(Connection con, Ordine ordine, List<DettaglioOrdine> dettagli) throws SQLException {
+        con.setAutoCommit(false);
+        //i riepiloghi delle vendite non vanno svuotati dalla ricostruzione mentre l'ordine è in volo
+        Lock aggiornamenti = RicostruzioneVendite.lockAggiornamenti();
+        aggiornamenti.lock();
+        try {
+            impostaVerificaPrezzi(con, true);
+
+            int idOrdine = inserisciOrdine(con, ordine, dettagli);
+            new RiepilogoVenditeDAO().doAggiorna(con, List.of(idOrdine), 1);
+
+            con.commit();
+            ordine.setIdOrdine(idOrdine);
+            return idOrdine;
+        } catch (SQLException e) {
+            con.rollback();
+            int idEsistente = doRetrieveIdOrdineGiaSalvato(con, ordine, e);
+            if (idEsistente > 0) {
+                ordine.setIdOrdine(idEsistente);
+                return idEsistente;
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            con.rollback();
+            throw e;
+        } finally {
+            aggiornamenti.unlock();
+            impostaVerificaPrezzi(con, false);
+            //la connessione torna al pool: ripristiniamo l'autocommit
+            con.setAutoCommit(true);
+        }
+    }
+
+    //Inserisce l'ordine e le sue righe (con un'unica INSERT multi-riga) senza fare commit e restituisce l'id generato
+    int inserisciOrdine(Connection con, Ordine ordine, List<DettaglioOrdine> dettagli) throws SQLException {
+        List<Object> parameters = new ArrayList<>();
+        String query = buildInsertQuery(ordine, parameters);
+
+        int idOrdine;
+        try (PreparedStatement ps = con.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+            for (int i = 0; i < parameters.size(); i++) {
+                ps.setObject(i + 1, parameters.get(i));
+            }
+
+            if (ps.executeUpdate() != 1) {
+                throw new RuntimeException("INSERT error.");
+            }
+
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                if (!keys.next()) {
+                    throw new RuntimeException("INSERT error.");
+                }
+                idOrdine = keys.getInt(1);
+            }
+        }
+
+        for (DettaglioOrdine dettaglioOrdine : dettagli) {
+            dettaglioOrdine.setIdOrdine(idOrdine);
+        }
+        new DettaglioOrdineDAO().doSaveAll(con, dettagli);
+
+        return idOrdine;
+    }
+
+    //Se l'errore è la violazione del vincolo unique sul token l'ordine è già stato salvato:
+    //restituisce il suo id, altrimenti 0
+    int doRetrieveIdOrdineGiaSalvato(Connection con, Ordine ordine, SQLException e) throws SQLException {
+        if (ordine.getToken() == null || e.getSQLState() == null || !e.getSQLState().startsWith("23")) {
+            return 0;
+        }
+
+        try (PreparedStatement ps = con.prepareStatement("SELECT id_ordine FROM ordine WHERE token = ?")) {
+            ps.setString(1, ordine.getToken());
+            try (ResultSet resultSet = ps.executeQuery()) {
+                return resultSet.next() ? resultSet.getInt(1) : 0;
+            }
+        }
+    }
+
+    //Abilita sulla sessione il trigger di verifica dei prezzi delle righe (se ORDER_PRICE_CHECK=true)
+    static void impostaVerificaPrezzi(Connection con, boolean attiva) throws SQLException {
+        if (VERIFICA_PREZZI) {
+            //il trigger di verifica confronta i prezzi ricevuti con quelli correnti delle varianti
+            try (Statement st = con.createStatement()) {
+                st.execute(attiva ? "SET @verifica_prezzo_dettaglio = 1" : "SET @verifica_prezzo_dettaglio = NULL");
+            }
+        }
+    }
+
+    //Costruisce la INSERT dinamica dell'ordine includendo solo i campi valorizzati
+    private String buildInsertQuery(Ordine ordine, List<Object> parameters) {
+        StringBuilder query = new StringBuilder("INSERT INTO ordine (id_ordine");
 
         parameters.add(ordine.getIdOrdine());
 
@@ -108,26 +302,18 @@ public class OrdineDao {
             parameters.add(ordine.getDescrizione());
         }
 
+        if (ordine.getToken() != null) {
+            query.append(", token");
+            parameters.add(ordine.getToken());
+        }
+
         query.append(") VALUES (?");
         for (int i = 1; i < parameters.size(); i++) {
             query.append(", ?");
         }
         query.append(")");
 
-        try (Connection con = ConPool.getConnection();
-             PreparedStatement ps = con.prepareStatement(query.toString(), Statement.RETURN_GENERATED_KEYS)) {
-
-            for (int i = 0; i < parameters.size(); i++) {
-                ps.setObject(i + 1, parameters.get(i));
-            }
-
-            if (ps.executeUpdate() != 1) {
-                throw new RuntimeException("INSERT error.");
-            }
-
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
-        }
+        return query.toString();
     }
 
 
@@ -139,25 +325,13 @@ public class OrdineDao {
 
         ResultSet rs;
 
-        Ordine o;
-
-        try (Connection con = ConPool.getConnection()) {
+        try (Connection con = ConPool.getReadConnection()) {
 
             st = con.createStatement();
 
             rs = st.executeQuery("SELECT * FROM ordine");
 
-            while(rs.next()) {
-
-                o = new Ordine();
-                o.setIdOrdine(rs.getInt("id_ordine"));
-                o.setEmailUtente(rs.getString("email_utente"));
-                o.setDataOrdine(rs.getDate("data"));
-                o.setStato(rs.getString("stato"));
-                o.setTotale(rs.getFloat("totale"));
-                o.setDescrizione(rs.getString("descrizione"));
-                ordini.add(o);
-            }
+            MapperEntita.ORDINE.perOgni(rs, ordini::add);
 
             con.close();
 
@@ -170,34 +344,185 @@ public class OrdineDao {
         }
     }
 
+    //Modifica dall'admin: stato, data o id cambiano i riepiloghi delle vendite, quindi l'ordine ne esce
+    //prima della UPDATE e ci rientra dopo, nella stessa transazione
     public void doUpdateOrder(Ordine o, int idOrdine){
-
+        Lock aggiornamenti = RicostruzioneVendite.lockAggiornamenti();
+        aggiornamenti.lock();
         try (Connection con = ConPool.getConnection()) {
-            PreparedStatement preparedStatement = con.prepareStatement("update ordine set id_ordine = ?, email_utente = ?, stato = ?, data = ?, totale = ?, descrizione = ? where id_ordine = ?");
-            preparedStatement.setInt(1, o.getIdOrdine());
-            preparedStatement.setString(2, o.getEmailUtente());
-            preparedStatement.setString(3, o.getStato());
-            preparedStatement.setDate(4, new java.sql.Date(o.getDataOrdine().getTime()));
-            preparedStatement.setFloat(5, o.getTotale());
-            preparedStatement.setString(6, o.getDescrizione());
-            preparedStatement.setInt(7, idOrdine);
-
-            int rows = preparedStatement.executeUpdate();
+            con.setAutoCommit(false);
+            try {
+                RiepilogoVenditeDAO riepilogoDao = new RiepilogoVenditeDAO();
+                riepilogoDao.doRimuoviOrdini(con, List.of(idOrdine));
+
+                PreparedStatement preparedStatement = con.prepareStatement("update ordine set id_ordine = ?, email_utente = ?, stato = ?, data = ?, totale = ?, descrizione = ? where id_ordine = ?");
+                preparedStatement.setInt(1, o.getIdOrdine());
+                preparedStatement.setString(2, o.getEmailUtente());
+                preparedStatement.setString(3, o.getStato());
+                preparedStatement.setDate(4, new java.sql.Date(o.getDataOrdine().getTime()));
+                preparedStatement.setFloat(5, o.getTotale());
+                preparedStatement.setString(6, o.getDescrizione());
+                preparedStatement.setInt(7, idOrdine);
+
+                int rows = preparedStatement.executeUpdate();
+                riepilogoDao.doAggiungiOrdini(con, List.of(o.getIdOrdine()));
+                con.commit();
+            } catch (SQLException | RuntimeException e) {
+                con.rollback();
+                throw e;
+            } finally {
+                con.setAutoCommit(true);
+            }
         }
         catch (SQLException e) {
             throw new RuntimeException(e);
+        } finally {
+            aggiornamenti.unlock();
         }
     }
 
-    public void doDeleteOrder(int idOrdine){
-        try (Connection connection = ConPool.getConnection()){
-            PreparedStatement preparedStatement = connection.prepareStatement("delete from ordine where id_ordine = ?");
-            preparedStatement.setInt(1, idOrdine);
+    //Porta allo stato indicato gli ordini selezionati, in un'unica transazione.
+    //Vengono aggiornati solo gli ordini per cui il passaggio è consentito (vedi StatoOrdine):
+    //restituisce gli ordini effettivamente modificati, già con il nuovo stato.
+    public List<Ordine> doUpdateStatoByIds(List<Integer> ids, String stato) {
+        List<String> precedenti = StatoOrdine.getStatiPrecedenti(stato);
+        List<Ordine> aggiornati = new ArrayList<>();
+        if (ids == null || ids.isEmpty()) {
+            return aggiornati;
+        }
+
+        Lock aggiornamenti = RicostruzioneVendite.lockAggiornamenti();
+        aggiornamenti.lock();
+        try (Connection con = ConPool.getConnection()) {
+            con.setAutoCommit(false);
+            try {
+                //liste di id troppo lunghe vengono divise per non superare i limiti della query
+                for (int inizio = 0; inizio < ids.size(); inizio += MAX_ID_PER_QUERY) {
+                    List<Integer> blocco = ids.subList(inizio, Math.min(ids.size(), inizio + MAX_ID_PER_QUERY));
+                    aggiornati.addAll(aggiornaStato(con, "id_ordine IN (" + segnaposti(blocco.size()) + ")", new ArrayList<>(blocco), precedenti, stato));
+                }
+                con.commit();
+            } catch (SQLException | RuntimeException e) {
+                con.rollback();
+                throw e;
+            } finally {
+                con.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        } finally {
+            aggiornamenti.unlock();
+        }
+
+        return aggiornati;
+    }
+
+    //Come doUpdateStatoByIds, ma seleziona tutti gli ordini effettuati fino alla data indicata (compresa)
+    //che si trovano in uno stato da cui il passaggio è consentito (es. le spedizioni di fine giornata)
+    public List<Ordine> doUpdateStatoByData(java.sql.Date dataFino, String stato) {
+        List<String> precedenti = StatoOrdine.getStatiPrecedenti(stato);
+        List<Ordine> aggiornati;
+
+        Lock aggiornamenti = RicostruzioneVendite.lockAggiornamenti();
+        aggiornamenti.lock();
+        try (Connection con = ConPool.getConnection()) {
+            con.setAutoCommit(false);
+            try {
+                List<Object> parametri = new ArrayList<>();
+                parametri.add(dataFino);
+                aggiornati = aggiornaStato(con, "data <= ?", parametri, precedenti, stato);
+                con.commit();
+            } catch (SQLException | RuntimeException e) {
+                con.rollback();
+                throw e;
+            } finally {
+                con.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        } finally {
+            aggiornamenti.unlock();
+        }
+
+        return aggiornati;
+    }
+
+    //Blocca (FOR UPDATE) gli ordini che rispettano la condizione e sono in uno degli stati precedenti,
+    //poi li aggiorna tutti con una sola UPDATE. MySQL non ha UPDATE ... RETURNING:
+    //la SELECT bloccante garantisce che le righe lette siano proprio quelle modificate.
+    private List<Ordine> aggiornaStato(Connection con, String condizione, List<Object> parametri, List<String> precedenti, String stato) throws SQLException {
+        List<Ordine> ordini = new ArrayList<>();
+
+        PreparedStatement select = con.prepareStatement("SELECT * FROM ordine WHERE " + condizione
+                + " AND stato IN (" + segnaposti(precedenti.size()) + ") ORDER BY id_ordine FOR UPDATE");
+        int paramIndex = 1;
+        for (Object parametro : parametri) {
+            select.setObject(paramIndex++, parametro);
+        }
+        for (String precedente : precedenti) {
+            select.setString(paramIndex++, precedente);
+        }
+
+        ResultSet rs = select.executeQuery();
+        MapperEntita.ORDINE.perOgni(rs, ordini::add);
+
+        for (int inizio = 0; inizio < ordini.size(); inizio += MAX_ID_PER_QUERY) {
+            List<Ordine> blocco = ordini.subList(inizio, Math.min(ordini.size(), inizio + MAX_ID_PER_QUERY));
+            PreparedStatement update = con.prepareStatement("UPDATE ordine SET stato = ? WHERE id_ordine IN (" + segnaposti(blocco.size()) + ")");
+            update.setString(1, stato);
+            for (int i = 0; i < blocco.size(); i++) {
+                update.setInt(i + 2, blocco.get(i).getIdOrdine());
+            }
+
+            if (update.executeUpdate() != blocco.size()) {
+                throw new RuntimeException("UPDATE error.");
+            }
+
+            //gli ordini annullati escono dai riepiloghi delle vendite nella stessa transazione
+            //(se la ricostruzione in corso non li ha ancora contati, li leggerà già annullati)
+            if (StatoOrdine.ANNULLATO.equals(stato)) {
+                List<Integer> ids = new ArrayList<>();
+                for (Ordine o : blocco) {
+                    ids.add(o.getIdOrdine());
+                }
+                new RiepilogoVenditeDAO().doAggiorna(con, ids, -1);
+            }
+        }
 
-            int rows = preparedStatement.executeUpdate();
+        for (Ordine o : ordini) {
+            o.setStato(stato);
+        }
+        return ordini;
+    }
 
+    private static String segnaposti(int n) {
+        return String.join(", ", java.util.Collections.nCopies(n, "?"));
+    }
+
+    public void doDeleteOrder(int idOrdine){
+        Lock aggiornamenti = RicostruzioneVendite.lockAggiornamenti();
+        aggiornamenti.lock();
+        try (Connection connection = ConPool.getConnection()){
+            //l'ordine esce dai riepiloghi delle vendite nella stessa transazione in cui viene eliminato
+            connection.setAutoCommit(false);
+            try {
+                new RiepilogoVenditeDAO().doRimuoviOrdini(connection, List.of(idOrdine));
+
+                PreparedStatement preparedStatement = connection.prepareStatement("delete from ordine where id_ordine = ?");
+                preparedStatement.setInt(1, idOrdine);
+
+                int rows = preparedStatement.executeUpdate();
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
         }catch (SQLException e){
             throw new RuntimeException(e);
+        } finally {
+            aggiornamenti.unlock();
         }
     }
 }
@@ -0,0 +1,214 @@
+package model;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+//Group commit degli ordini: i checkout concorrenti che arrivano entro una breve finestra (default 2 ms
+//o 32 ordini) vengono salvati in un'unica transazione, così il costo del commit (fsync del redo log)
+//viene pagato una volta per gruppo invece che per ogni ordine.
+//Ogni ordine è protetto da un savepoint: se un ordine fallisce (es. variante eliminata) viene annullato
+//solo quello e il chiamante riceve il proprio errore, gli altri ordini del gruppo vengono salvati.
+//Si abilita con ORDER_GROUP_COMMIT=true; ORDER_GROUP_COMMIT_WINDOW_MS e ORDER_GROUP_COMMIT_MAX
+//cambiano la finestra e la dimensione massima del gruppo.
+public class OrdineGroupCommit {
+
+    //Fornisce la connessione usata per ogni gruppo (ConPool in produzione)
+    @FunctionalInterface
+    public interface ConnectionProvider {
+        Connection getConnection() throws SQLException;
+    }
+
+    private static final boolean ABILITATO = Boolean.parseBoolean(System.getenv("ORDER_GROUP_COMMIT"));
+    private static final long FINESTRA_DEFAULT_MS = 2;
+    private static final int MAX_ORDINI_DEFAULT = 32;
+
+    private static OrdineGroupCommit instance;
+
+    private final ConnectionProvider connectionProvider;
+    private final long finestraNanos;
+    private final int maxOrdini;
+    private final LinkedBlockingQueue<Richiesta> coda = new LinkedBlockingQueue<>();
+    private final Thread committer;
+    private volatile boolean attivo = true;
+
+    private static class Richiesta {
+        private final Ordine ordine;
+        private final List<DettaglioOrdine> dettagli;
+        private final CompletableFuture<Integer> esito = new CompletableFuture<>();
+        private int idOrdine;
+
+        Richiesta(Ordine ordine, List<DettaglioOrdine> dettagli) {
+            this.ordine = ordine;
+            this.dettagli = dettagli;
+        }
+    }
+
+    public OrdineGroupCommit(ConnectionProvider connectionProvider, long finestraMs, int maxOrdini) {
+        this.connectionProvider = connectionProvider;
+        this.finestraNanos = TimeUnit.MILLISECONDS.toNanos(finestraMs);
+        this.maxOrdini = maxOrdini;
+
+        committer = new Thread(this::esegui, "ordine-group-commit");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    public static boolean isAbilitato() {
+        return ABILITATO;
+    }
+
+    public static synchronized OrdineGroupCommit getInstance() {
+        if (instance == null) {
+            long finestraMs = Long.parseLong(System.getenv().getOrDefault("ORDER_GROUP_COMMIT_WINDOW_MS", String.valueOf(FINESTRA_DEFAULT_MS)));
+            int maxOrdini = Integer.parseInt(System.getenv().getOrDefault("ORDER_GROUP_COMMIT_MAX", String.valueOf(MAX_ORDINI_DEFAULT)));
+            instance = new OrdineGroupCommit(ConPool::getConnection, finestraMs, maxOrdini);
+        }
+        return instance;
+    }
+
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            instance.stop();
+            instance = null;
+        }
+    }
+
+    //Salva l'ordine nel prossimo gruppo e attende il commit; restituisce l'id generato.
+    //Gli errori vengono propagati come RuntimeException, come negli altri metodi dei DAO.
+    public int salva(Ordine ordine, List<DettaglioOrdine> dettagli) {
+        if (!attivo) {
+            throw new IllegalStateException("Group commit degli ordini non attivo.");
+        }
+
+        Richiesta richiesta = new Richiesta(ordine, dettagli);
+        coda.add(richiesta);
+
+        try {
+            int idOrdine = richiesta.esito.get();
+            ordine.setIdOrdine(idOrdine);
+            return idOrdine;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    public void stop() {
+        attivo = false;
+        committer.interrupt();
+        try {
+            committer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        //le richieste rimaste in coda non verranno più elaborate
+        List<Richiesta> rimaste = new ArrayList<>();
+        coda.drainTo(rimaste);
+        for (Richiesta richiesta : rimaste) {
+            richiesta.esito.completeExceptionally(new IllegalStateException("Group commit degli ordini non attivo."));
+        }
+    }
+
+    private void esegui() {
+        while (attivo) {
+            try {
+                Richiesta prima = coda.poll(1, TimeUnit.SECONDS);
+                if (prima == null) {
+                    continue;
+                }
+
+                //raccogliamo gli ordini che arrivano entro la finestra, fino alla dimensione massima del gruppo
+                List<Richiesta> gruppo = new ArrayList<>();
+                gruppo.add(prima);
+                long scadenza = System.nanoTime() + finestraNanos;
+                while (gruppo.size() < maxOrdini) {
+                    long attesa = scadenza - System.nanoTime();
+                    Richiesta richiesta = attesa > 0 ? coda.poll(attesa, TimeUnit.NANOSECONDS) : coda.poll();
+                    if (richiesta == null) {
+                        break;
+                    }
+                    gruppo.add(richiesta);
+                }
+
+                salvaGruppo(gruppo);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    private void salvaGruppo(List<Richiesta> gruppo) {
+        OrdineDao ordineDao = new OrdineDao();
+        List<Richiesta> salvate = new ArrayList<>();
+        List<Integer> nuovi = new ArrayList<>();
+
+        Lock aggiornamenti = RicostruzioneVendite.lockAggiornamenti();
+        aggiornamenti.lock();
+        try (Connection con = connectionProvider.getConnection()) {
+            con.setAutoCommit(false);
+            try {
+                OrdineDao.impostaVerificaPrezzi(con, true);
+
+                for (Richiesta richiesta : gruppo) {
+                    Savepoint savepoint = con.setSavepoint();
+                    try {
+                        richiesta.idOrdine = ordineDao.inserisciOrdine(con, richiesta.ordine, richiesta.dettagli);
+                        salvate.add(richiesta);
+                        nuovi.add(richiesta.idOrdine);
+                    } catch (SQLException e) {
+                        //annulliamo solo questo ordine; se il token è già presente l'ordine era già stato salvato
+                        con.rollback(savepoint);
+                        int idEsistente = ordineDao.doRetrieveIdOrdineGiaSalvato(con, richiesta.ordine, e);
+                        if (idEsistente > 0) {
+                            richiesta.idOrdine = idEsistente;
+                            salvate.add(richiesta);
+                        } else {
+                            richiesta.esito.completeExceptionally(new RuntimeException(e));
+                        }
+                    } catch (RuntimeException e) {
+                        con.rollback(savepoint);
+                        richiesta.esito.completeExceptionally(e);
+                    }
+                }
+
+                //un solo aggiornamento dei riepiloghi delle vendite per tutto il gruppo (gli ordini già salvati sono già contati)
+                new RiepilogoVenditeDAO().doAggiorna(con, nuovi, 1);
+                con.commit();
+            } catch (SQLException | RuntimeException e) {
+                con.rollback();
+                throw e;
+            } finally {
+                OrdineDao.impostaVerificaPrezzi(con, false);
+                con.setAutoCommit(true);
+            }
+        } catch (SQLException | RuntimeException e) {
+            //commit (o connessione) fallito: nessun ordine del gruppo è stato salvato
+            RuntimeException errore = e instanceof RuntimeException runtimeException ? runtimeException : new RuntimeException(e);
+            for (Richiesta richiesta : gruppo) {
+                richiesta.esito.completeExceptionally(errore);
+            }
+            return;
+        } finally {
+            aggiornamenti.unlock();
+        }
+
+        for (Richiesta richiesta : salvate) {
+            richiesta.esito.complete(richiesta.idOrdine);
+        }
+    }
+}
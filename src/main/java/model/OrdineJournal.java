@@ -0,0 +1,575 @@
+package model;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+//Journal locale degli ordini (write-ahead log): al checkout l'ordine viene prima registrato su disco
+//e poi salvato nel DB in background da OrdineJournalDrainer, così un checkout non fallisce se il DB è
+//momentaneamente lento o irraggiungibile.
+//Il journal è diviso in segmenti di dimensione fissa mappati in memoria (ordini-000000.journal, ...).
+//Ogni record è [lunghezza][crc32][ordine in JSON]; una lunghezza 0 indica la fine dei record del segmento.
+//Le posizioni sono globali: indice segmento * dimensione segmento + offset nel segmento.
+//Il file "checkpoint" contiene la posizione fino a cui i record sono già stati salvati nel DB:
+//all'avvio i record successivi vengono rielaborati.
+//Il journal si abilita impostando la variabile d'ambiente ORDER_JOURNAL_DIR.
+public class OrdineJournal implements Closeable {
+
+    static final String ENV_DIR = "ORDER_JOURNAL_DIR";
+    static final int DIMENSIONE_SEGMENTO_DEFAULT = 16 * 1024 * 1024;
+
+    private static final int HEADER = 8;
+    private static final String FILE_CHECKPOINT = "checkpoint";
+    private static final String FILE_SCARTATI = "scartati.jsonl";
+    private static final Pattern NOME_SEGMENTO = Pattern.compile("ordini-(\\d+)\\.journal");
+
+    private static volatile OrdineJournal instance;
+    private static OrdineJournalDrainer drainer;
+    private static Thread drainerThread;
+
+    private final Path dir;
+    private final int dimensioneSegmento;
+    private final boolean solaLettura;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushCompletato = lock.newCondition();
+    private final Condition nuoviRecord = lock.newCondition();
+    private final TreeMap<Long, MappedByteBuffer> segmenti = new TreeMap<>();
+
+    //fine dell'ultimo record scritto e dell'ultimo record reso persistente su disco
+    private long scritto;
+    private long durevole;
+    private boolean flushInCorso;
+    private boolean chiuso;
+    private volatile long checkpoint;
+
+    //Un record letto dal journal: posizione di inizio, posizione del record successivo e ordine in JSON
+    public static class Record {
+        private final long inizio;
+        private final long fine;
+        private final String json;
+
+        Record(long inizio, long fine, String json) {
+            this.inizio = inizio;
+            this.fine = fine;
+            this.json = json;
+        }
+
+        public long getInizio() {
+            return inizio;
+        }
+
+        public long getFine() {
+            return fine;
+        }
+
+        public String getJson() {
+            return json;
+        }
+    }
+
+    OrdineJournal(Path dir, int dimensioneSegmento) throws IOException {
+        this(dir, dimensioneSegmento, false);
+    }
+
+    OrdineJournal(Path dir, int dimensioneSegmento, boolean solaLettura) throws IOException {
+        this.dir = dir;
+        this.solaLettura = solaLettura;
+
+        if (!solaLettura) {
+            Files.createDirectories(dir);
+        }
+
+        //la dimensione dei segmenti è quella con cui il journal è stato creato
+        Properties stato = leggiCheckpoint();
+        this.dimensioneSegmento = Integer.parseInt(stato.getProperty("dimensioneSegmento", String.valueOf(dimensioneSegmento)));
+        this.checkpoint = Long.parseLong(stato.getProperty("checkpoint", "0"));
+
+        recupera();
+
+        if (!solaLettura && !Files.exists(dir.resolve(FILE_CHECKPOINT))) {
+            checkpoint(checkpoint);
+        }
+    }
+
+    //Avvia il journal e il thread che salva gli ordini nel DB, se ORDER_JOURNAL_DIR è impostata.
+    //Restituisce null se il journal non è abilitato o non può essere aperto (si usa il salvataggio diretto nel DB).
+    public static synchronized OrdineJournal start() {
+        String dir = System.getenv(ENV_DIR);
+        if (instance != null || dir == null || dir.isBlank()) {
+            return instance;
+        }
+
+        try {
+            OrdineJournal journal = new OrdineJournal(Paths.get(dir), DIMENSIONE_SEGMENTO_DEFAULT);
+            drainer = new OrdineJournalDrainer(journal);
+            drainerThread = new Thread(drainer, "ordine-journal-drainer");
+            drainerThread.setDaemon(true);
+            drainerThread.start();
+            instance = journal;
+        } catch (IOException e) {
+            System.err.println("CRITICAL: Impossibile aprire il journal degli ordini in " + dir + " - " + e.getMessage());
+        }
+        return instance;
+    }
+
+    public static OrdineJournal getInstance() {
+        return instance;
+    }
+
+    public static synchronized void shutdown() {
+        if (instance == null) {
+            return;
+        }
+
+        drainer.stop();
+        drainerThread.interrupt();
+        try {
+            drainerThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            instance.close();
+        } catch (IOException e) {
+            System.err.println("Errore nella chiusura del journal degli ordini - " + e.getMessage());
+        }
+        instance = null;
+        drainer = null;
+        drainerThread = null;
+    }
+
+    //Registra l'ordine con le sue righe e ritorna solo quando il record è su disco.
+    //Le scritture concorrenti vengono rese persistenti con un'unica force() (group commit).
+    public long append(Ordine ordine, List<DettaglioOrdine> dettagli) throws IOException {
+        return append(ordine, dettagli, false);
+    }
+
+    //carrelloSvuotato indica che il checkout ha già svuotato il carrello salvato nel DB:
+    //altrimenti il drainer, dopo il salvataggio dell'ordine, elimina dal carrello le sole righe ordinate
+    public long append(Ordine ordine, List<DettaglioOrdine> dettagli, boolean carrelloSvuotato) throws IOException {
+        byte[] payload = toJson(ordine, dettagli, carrelloSvuotato).getBytes(StandardCharsets.UTF_8);
+        if (HEADER + payload.length > dimensioneSegmento) {
+            throw new IOException("Ordine troppo grande per il journal.");
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        long inizio;
+        long fine;
+        lock.lock();
+        try {
+            if (chiuso || solaLettura) {
+                throw new IOException("Journal non disponibile in scrittura.");
+            }
+
+            long indice = scritto / dimensioneSegmento;
+            int offset = (int) (scritto % dimensioneSegmento);
+            if (offset + HEADER + payload.length > dimensioneSegmento) {
+                //il record non entra nel segmento corrente: passiamo al successivo
+                indice++;
+                offset = 0;
+            }
+
+            MappedByteBuffer buffer = mappaSegmento(indice);
+            buffer.putInt(offset + 4, (int) crc.getValue());
+            buffer.put(offset + HEADER, payload);
+            buffer.putInt(offset, payload.length);
+
+            inizio = indice * dimensioneSegmento + offset;
+            fine = inizio + HEADER + payload.length;
+            scritto = fine;
+        } finally {
+            lock.unlock();
+        }
+
+        attendiDurevole(fine);
+        return inizio;
+    }
+
+    private void attendiDurevole(long posizione) throws IOException {
+        lock.lock();
+        try {
+            while (durevole < posizione) {
+                if (chiuso) {
+                    throw new IOException("Journal chiuso.");
+                }
+
+                if (flushInCorso) {
+                    //un altro thread sta già facendo la force(): al termine ricontrolliamo se copre anche il nostro record
+                    flushCompletato.await();
+                    continue;
+                }
+
+                flushInCorso = true;
+                long obiettivo = scritto;
+                List<MappedByteBuffer> daForzare = new ArrayList<>(
+                        segmenti.subMap(durevole / dimensioneSegmento, true, (obiettivo - 1) / dimensioneSegmento, true).values());
+
+                boolean completato = false;
+                lock.unlock();
+                try {
+                    for (MappedByteBuffer buffer : daForzare) {
+                        buffer.force();
+                    }
+                    completato = true;
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                } finally {
+                    lock.lock();
+                    flushInCorso = false;
+                    if (completato) {
+                        durevole = Math.max(durevole, obiettivo);
+                        nuoviRecord.signalAll();
+                    }
+                    flushCompletato.signalAll();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Attesa della scrittura del journal interrotta.");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //Restituisce il primo record persistente a partire dalla posizione indicata, null se non ce ne sono
+    public Record leggi(long posizione) {
+        lock.lock();
+        try {
+            long pos = posizione;
+            while (pos < durevole) {
+                long indice = pos / dimensioneSegmento;
+                int offset = (int) (pos % dimensioneSegmento);
+                MappedByteBuffer buffer = segmenti.get(indice);
+
+                int lunghezza = buffer != null && offset + HEADER <= buffer.capacity() ? buffer.getInt(offset) : 0;
+                if (lunghezza <= 0) {
+                    //fine dei record del segmento
+                    pos = (indice + 1) * dimensioneSegmento;
+                    continue;
+                }
+
+                byte[] payload = new byte[lunghezza];
+                buffer.get(offset + HEADER, payload);
+                return new Record(pos, pos + HEADER + lunghezza, new String(payload, StandardCharsets.UTF_8));
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //Come leggi, ma se non ci sono record attende al massimo attesaMs che ne venga scritto uno
+    public Record prossimo(long posizione, long attesaMs) throws InterruptedException {
+        Record record = leggi(posizione);
+        if (record != null) {
+            return record;
+        }
+
+        lock.lock();
+        try {
+            if (durevole <= posizione && !chiuso) {
+                nuoviRecord.await(attesaMs, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return leggi(posizione);
+    }
+
+    //Salva la posizione fino a cui gli ordini sono nel DB ed elimina i segmenti non più necessari
+    public void checkpoint(long posizione) throws IOException {
+        Properties stato = new Properties();
+        stato.setProperty("dimensioneSegmento", String.valueOf(dimensioneSegmento));
+        stato.setProperty("checkpoint", String.valueOf(posizione));
+
+        Path tmp = dir.resolve(FILE_CHECKPOINT + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream out = Channels.newOutputStream(channel);
+            stato.store(out, "Journal ordini");
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(tmp, dir.resolve(FILE_CHECKPOINT), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        checkpoint = posizione;
+
+        lock.lock();
+        try {
+            long primoSegmento = posizione / dimensioneSegmento;
+            for (Long indice : new ArrayList<>(segmenti.headMap(primoSegmento).keySet())) {
+                segmenti.remove(indice);
+                Files.deleteIfExists(fileSegmento(indice));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //Registra un ordine che non può essere salvato nel DB (es. variante eliminata) per l'analisi manuale
+    @SuppressWarnings("unchecked")
+    public void scarta(Record record, Exception causa) throws IOException {
+        JSONObject riga = new JSONObject();
+        riga.put("posizione", record.getInizio());
+        riga.put("errore", String.valueOf(causa));
+        riga.put("ordine", record.getJson());
+        Files.writeString(dir.resolve(FILE_SCARTATI), riga.toJSONString() + System.lineSeparator(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    public long getCheckpoint() {
+        return checkpoint;
+    }
+
+    //posizione iniziale del primo segmento ancora presente
+    long getInizioJournal() {
+        lock.lock();
+        try {
+            return segmenti.isEmpty() ? checkpoint : segmenti.firstKey() * dimensioneSegmento;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long getFine() {
+        lock.lock();
+        try {
+            return durevole;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (chiuso) {
+                return;
+            }
+            chiuso = true;
+            if (!solaLettura) {
+                for (MappedByteBuffer buffer : segmenti.values()) {
+                    buffer.force();
+                }
+            }
+            segmenti.clear();
+            flushCompletato.signalAll();
+            nuoviRecord.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //All'apertura cerca la fine dell'ultimo record valido (crc corretto) a partire dal checkpoint:
+    //un record scritto a metà prima di un crash viene scartato e la coda del segmento azzerata
+    private void recupera() throws IOException {
+        long primoSegmento = checkpoint / dimensioneSegmento;
+        long ultimoSegmento = primoSegmento;
+
+        List<Long> indici = new ArrayList<>();
+        if (Files.isDirectory(dir)) {
+            try (var files = Files.list(dir)) {
+                files.forEach(file -> {
+                    Matcher matcher = NOME_SEGMENTO.matcher(file.getFileName().toString());
+                    if (matcher.matches()) {
+                        indici.add(Long.parseLong(matcher.group(1)));
+                    }
+                });
+            }
+        }
+
+        for (long indice : indici) {
+            if (indice < primoSegmento) {
+                if (!solaLettura) {
+                    Files.deleteIfExists(fileSegmento(indice));
+                }
+            } else {
+                ultimoSegmento = Math.max(ultimoSegmento, indice);
+            }
+        }
+
+        if (solaLettura && indici.stream().noneMatch(indice -> indice >= primoSegmento)) {
+            scritto = durevole = checkpoint;
+            return;
+        }
+
+        long fine = checkpoint;
+        for (long indice = primoSegmento; indice <= ultimoSegmento; indice++) {
+            MappedByteBuffer buffer = mappaSegmento(indice);
+            int offset = indice == primoSegmento ? (int) (checkpoint % dimensioneSegmento) : 0;
+
+            while (offset + HEADER <= buffer.capacity()) {
+                int lunghezza = buffer.getInt(offset);
+                if (lunghezza <= 0 || offset + HEADER + lunghezza > buffer.capacity()) {
+                    break;
+                }
+
+                byte[] payload = new byte[lunghezza];
+                buffer.get(offset + HEADER, payload);
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if ((int) crc.getValue() != buffer.getInt(offset + 4)) {
+                    break;
+                }
+                offset += HEADER + lunghezza;
+            }
+
+            fine = indice * dimensioneSegmento + offset;
+            if (indice == ultimoSegmento && !solaLettura) {
+                //azzeriamo tutto quello che segue l'ultimo record valido, così dati di un record incompleto
+                //non possono essere riletti come record dopo le prossime scritture
+                buffer.put(offset, new byte[dimensioneSegmento - offset]);
+                buffer.force();
+            }
+        }
+
+        scritto = fine;
+        durevole = fine;
+    }
+
+    private MappedByteBuffer mappaSegmento(long indice) throws IOException {
+        MappedByteBuffer buffer = segmenti.get(indice);
+        if (buffer != null) {
+            return buffer;
+        }
+
+        if (solaLettura) {
+            //in ispezione un segmento più corto del previsto viene letto fino alla sua lunghezza
+            try (FileChannel channel = FileChannel.open(fileSegmento(indice), StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), dimensioneSegmento));
+            }
+        } else {
+            try (FileChannel channel = FileChannel.open(fileSegmento(indice), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, dimensioneSegmento);
+            }
+        }
+
+        segmenti.put(indice, buffer);
+        return buffer;
+    }
+
+    private Path fileSegmento(long indice) {
+        return dir.resolve(String.format("ordini-%06d.journal", indice));
+    }
+
+    private Properties leggiCheckpoint() throws IOException {
+        Properties stato = new Properties();
+        Path file = dir.resolve(FILE_CHECKPOINT);
+        if (Files.exists(file)) {
+            try (var in = Files.newInputStream(file)) {
+                stato.load(in);
+            }
+        }
+        return stato;
+    }
+
+    @SuppressWarnings("unchecked")
+    static String toJson(Ordine ordine, List<DettaglioOrdine> dettagli, boolean carrelloSvuotato) {
+        JSONObject json = new JSONObject();
+        json.put("token", ordine.getToken());
+        json.put("email", ordine.getEmailUtente());
+        if (ordine.getDataOrdine() != null) {
+            json.put("data", new java.sql.Date(ordine.getDataOrdine().getTime()).toString());
+        }
+        json.put("totale", ordine.getTotale());
+
+        JSONArray righe = new JSONArray();
+        for (DettaglioOrdine dettaglio : dettagli) {
+            JSONObject riga = new JSONObject();
+            riga.put("idProdotto", dettaglio.getIdProdotto());
+            riga.put("idVariante", dettaglio.getIdVariante());
+            riga.put("quantita", dettaglio.getQuantita());
+            riga.put("prezzo", dettaglio.getPrezzo());
+            righe.add(riga);
+        }
+        json.put("righe", righe);
+        json.put("carrelloSvuotato", carrelloSvuotato);
+
+        return json.toJSONString();
+    }
+
+    //Ricostruisce l'ordine (con le righe in getDettagli()) da un record del journal
+    static Ordine fromJson(String testo) {
+        JSONObject json;
+        try {
+            json = (JSONObject) new JSONParser().parse(testo);
+        } catch (ParseException | ClassCastException e) {
+            throw new IllegalArgumentException("Record del journal non valido.", e);
+        }
+
+        Ordine ordine = new Ordine();
+        ordine.setToken((String) json.get("token"));
+        ordine.setEmailUtente((String) json.get("email"));
+        if (json.get("data") != null) {
+            ordine.setDataOrdine(java.sql.Date.valueOf((String) json.get("data")));
+        }
+        ordine.setTotale(((Number) json.get("totale")).floatValue());
+
+        for (Object elemento : (JSONArray) json.get("righe")) {
+            JSONObject riga = (JSONObject) elemento;
+            DettaglioOrdine dettaglio = new DettaglioOrdine();
+            dettaglio.setIdProdotto((String) riga.get("idProdotto"));
+            dettaglio.setIdVariante(((Number) riga.get("idVariante")).intValue());
+            dettaglio.setQuantita(((Number) riga.get("quantita")).intValue());
+            dettaglio.setPrezzo(((Number) riga.get("prezzo")).floatValue());
+            ordine.getDettagli().add(dettaglio);
+        }
+        return ordine;
+    }
+
+    //I record scritti prima di questo campo non lo hanno: il carrello va svuotato dal drainer
+    static boolean isCarrelloSvuotato(String testo) {
+        try {
+            return Boolean.TRUE.equals(((JSONObject) new JSONParser().parse(testo)).get("carrelloSvuotato"));
+        } catch (ParseException | ClassCastException e) {
+            throw new IllegalArgumentException("Record del journal non valido.", e);
+        }
+    }
+
+    //Ispezione del journal: java -cp ... model.OrdineJournal [cartella]
+    //stampa il checkpoint e tutti i record presenti, indicando quali sono già stati salvati nel DB
+    public static void main(String[] args) throws IOException {
+        String cartella = args.length > 0 ? args[0] : System.getenv(ENV_DIR);
+        if (cartella == null) {
+            System.err.println("Uso: OrdineJournal <cartella del journal>");
+            return;
+        }
+
+        try (OrdineJournal journal = new OrdineJournal(Paths.get(cartella), DIMENSIONE_SEGMENTO_DEFAULT, true)) {
+            System.out.println("checkpoint=" + journal.getCheckpoint() + " fine=" + journal.getFine());
+            for (Record record = journal.leggi(journal.getInizioJournal()); record != null; record = journal.leggi(record.getFine())) {
+                String stato = record.getInizio() < journal.getCheckpoint() ? "salvato" : "in attesa";
+                System.out.println(record.getInizio() + "\t" + stato + "\t" + record.getJson());
+            }
+        }
+    }
+}
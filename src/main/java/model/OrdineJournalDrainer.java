@@ -0,0 +1,136 @@
+package model;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+//Salva nel DB gli ordini registrati nel journal, nell'ordine in cui sono stati accettati.
+//Il salvataggio è idempotente grazie al token dell'ordine: un record rielaborato dopo un riavvio
+//(checkpoint non ancora aggiornato) non crea un ordine duplicato.
+//Se il DB non risponde il record viene ritentato con un'attesa crescente; un ordine che il DB rifiuta
+//(es. variante eliminata nel frattempo, giacenza esaurita) viene spostato nel file degli scartati per non
+//bloccare i successivi e contato in SCARTATI, su cui impostare un allarme.
+public class OrdineJournalDrainer implements Runnable {
+
+    static final String SCARTATI = "journal.ordini.scartati";
+
+    //ER_CHECK_CONSTRAINT_VIOLATED: MySQL lo segnala con SQLState HY000, come molti errori transitori
+    private static final int ERRORE_VINCOLO_CHECK = 3819;
+
+    private static final long ATTESA_RECORD_MS = 1000;
+    private static final long BACKOFF_INIZIALE_MS = 100;
+    private static final long BACKOFF_MAX_MS = 5000;
+    private static final int RECORD_PER_CHECKPOINT = 32;
+
+    private final OrdineJournal journal;
+    private volatile boolean attivo = true;
+
+    private long posizione;
+    private long backoff = BACKOFF_INIZIALE_MS;
+    private int daSalvareNelCheckpoint;
+
+    public OrdineJournalDrainer(OrdineJournal journal) {
+        this.journal = journal;
+        this.posizione = journal.getCheckpoint();
+    }
+
+    @Override
+    public void run() {
+        while (attivo) {
+            try {
+                if (!elaboraProssimo()) {
+                    Thread.sleep(backoff);
+                    backoff = Math.min(backoff * 2, BACKOFF_MAX_MS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (IOException e) {
+                System.err.println("Errore nell'aggiornamento del checkpoint del journal ordini - " + e.getMessage());
+            }
+        }
+
+        try {
+            salvaCheckpoint();
+        } catch (IOException e) {
+            System.err.println("Errore nell'aggiornamento del checkpoint del journal ordini - " + e.getMessage());
+        }
+    }
+
+    public void stop() {
+        attivo = false;
+    }
+
+    //Elabora il prossimo record del journal (attendendo che ne arrivi uno se non ce ne sono).
+    //Restituisce false se il DB non è disponibile e il record va ritentato.
+    boolean elaboraProssimo() throws InterruptedException, IOException {
+        OrdineJournal.Record record = journal.prossimo(posizione, ATTESA_RECORD_MS);
+        if (record == null) {
+            //nessun ordine in attesa: è il momento di aggiornare il checkpoint
+            salvaCheckpoint();
+            return true;
+        }
+
+        try {
+            salva(record);
+        } catch (RuntimeException e) {
+            if (!isErroreDefinitivo(e)) {
+                System.err.println("DB non disponibile, ordine del journal in posizione " + record.getInizio() + " da ritentare - " + e.getMessage());
+                return false;
+            }
+            System.err.println("Ordine del journal in posizione " + record.getInizio() + " rifiutato dal DB - " + e.getMessage());
+            journal.scarta(record, e);
+            Metriche.aggiungi(SCARTATI, 1);
+        }
+
+        backoff = BACKOFF_INIZIALE_MS;
+        posizione = record.getFine();
+        if (++daSalvareNelCheckpoint >= RECORD_PER_CHECKPOINT) {
+            salvaCheckpoint();
+        }
+        return true;
+    }
+
+    long getPosizione() {
+        return posizione;
+    }
+
+    private void salva(OrdineJournal.Record record) {
+        Ordine ordine = OrdineJournal.fromJson(record.getJson());
+        OrdineDao ordineDao = new OrdineDao();
+        ordineDao.doSaveOrdine(ordine, ordine.getDettagli());
+
+        //si eliminano dal carrello salvato solo le righe ordinate, per non cancellare quelle aggiunte e salvate
+        //da un logout dopo il checkout. I record scritti quando il checkout svuotava il carrello lo dicono nel JSON
+        if (!OrdineJournal.isCarrelloSvuotato(record.getJson())) {
+            CarrelloDAO carrelloDAO = new CarrelloDAO();
+            carrelloDAO.doRemoveRigheOrdinate(ordine.getEmailUtente(), ordine.getDettagli());
+        }
+    }
+
+    private void salvaCheckpoint() throws IOException {
+        if (daSalvareNelCheckpoint > 0) {
+            journal.checkpoint(posizione);
+            daSalvareNelCheckpoint = 0;
+        }
+    }
+
+    //Errori che non si risolvono ritentando: record illeggibile, vincoli violati (23xxx e i CHECK, es.
+    //quantità >= 0 quando scalaGiacenze vende più della giacenza), dati non validi (22xxx) o prezzo
+    //rifiutato dal trigger di verifica (45000)
+    private static boolean isErroreDefinitivo(RuntimeException e) {
+        if (e instanceof IllegalArgumentException || e instanceof ClassCastException || e instanceof NullPointerException) {
+            return true;
+        }
+
+        for (Throwable causa = e; causa != null; causa = causa.getCause()) {
+            if (causa instanceof SQLException sqlException && sqlException.getErrorCode() == ERRORE_VINCOLO_CHECK) {
+                return true;
+            }
+            if (causa instanceof SQLException sqlException && sqlException.getSQLState() != null) {
+                String sqlState = sqlException.getSQLState();
+                return sqlState.startsWith("23") || sqlState.startsWith("22") || sqlState.equals("45000");
+            }
+        }
+        return false;
+    }
+}
@@ -89,6 +89,15 @@ public class Prodotto {
         this.immagine = immagine;
     }
 
+    //Versioni ridotte dell'immagine (vedi ImmaginiProdotto): l'originale finché non sono pronte
+    public String getImmagineCard() {
+        return ImmaginiProdotto.derivata(immagine, ImmaginiProdotto.Formato.CARD);
+    }
+
+    public String getImmagineDettaglio() {
+        return ImmaginiProdotto.derivata(immagine, ImmaginiProdotto.Formato.DETTAGLIO);
+    }
+
 
     
     public int getCalorie() {
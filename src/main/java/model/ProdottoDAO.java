@@ -8,6 +8,10 @@ import java.util.Objects;
 
 public class ProdottoDAO {
 
+    //Con CATALOGO_COLONNARE=true i filtri del negozio vengono risolti in memoria su CatalogoColonnare invece
+    //che con una query per prodotto
+    private static final boolean FILTRI_IN_MEMORIA = Boolean.parseBoolean(System.getenv("CATALOGO_COLONNARE"));
+
     public Prodotto doRetrieveById(String id) {
         try (Connection con = ConPool.getConnection()) {
             PreparedStatement preparedStatement = con
@@ -17,17 +21,7 @@ public class ProdottoDAO {
             ResultSet resultSet = preparedStatement.executeQuery();
             List<Variante> varianti = new ArrayList<>();
             if (resultSet.next()) {
-                Prodotto p = new Prodotto();
-
-                p.setIdProdotto(resultSet.getString("id_prodotto"));
-                p.setNome(resultSet.getString("nome"));
-                p.setDescrizione(resultSet.getString("descrizione"));
-                p.setCategoria(resultSet.getString("categoria"));
-                p.setImmagine(resultSet.getString("immagine"));
-                p.setCalorie(resultSet.getInt("calorie"));
-                p.setCarboidrati(resultSet.getInt("carboidrati"));
-                p.setProteine(resultSet.getInt("proteine"));
-                p.setGrassi(resultSet.getInt("grassi"));
+                Prodotto p = MapperEntita.PRODOTTO.lega(resultSet).riga();
 
                 VarianteDAO varianteDAO = new VarianteDAO();
                 varianti = varianteDAO.doRetrieveVariantiByIdProdotto(p.getIdProdotto());
@@ -45,13 +39,14 @@ public class ProdottoDAO {
 
     public List<Prodotto> filterProducts(String category, String sortingFilter, String weightFilter, String tasteFilter,
             String nameFilter) throws SQLException {
+        if (FILTRI_IN_MEMORIA) {
+            return CatalogoColonnare.get().cerca(category, sortingFilter, weightFilter, tasteFilter, nameFilter);
+        }
         List<Prodotto> filteredProducts = new ArrayList<>();
         VarianteDAO varianteDAO = new VarianteDAO();
         boolean filterOnEvidence;
 
-        System.out.println("nameFilterDAO: " + nameFilter);
-
-        try (Connection connection = ConPool.getConnection()) {
+        try (Connection connection = ConPool.getReadConnection()) {
             StringBuilder sql = new StringBuilder();
             sql.append("SELECT p.* FROM prodotto p ");
 
@@ -74,8 +69,6 @@ public class ProdottoDAO {
                 sql.append(String.join(" AND ", conditions));
             }
 
-            System.out.println(sql.toString());
-
             PreparedStatement preparedStatement = connection.prepareStatement(sql.toString());
 
             // Imposta i parametri per il PreparedStatement
@@ -84,10 +77,7 @@ public class ProdottoDAO {
             }
 
             ResultSet resultSet = preparedStatement.executeQuery();
-            while (resultSet.next()) {
-                Prodotto p = extractProductFromResultSet(resultSet);
-                filteredProducts.add(p);
-            }
+            MapperEntita.PRODOTTO.perOgni(resultSet, filteredProducts::add);
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
@@ -143,16 +133,6 @@ public class ProdottoDAO {
         return variante.getPrezzo() * (1 - variante.getSconto() / 100.0f);
     }
 
-    private Prodotto extractProductFromResultSet(ResultSet resultSet) throws SQLException {
-        Prodotto p = new Prodotto();
-        p.setIdProdotto(resultSet.getString("id_prodotto"));
-        p.setNome(resultSet.getString("nome"));
-        p.setCategoria(resultSet.getString("categoria"));
-        p.setCalorie(resultSet.getInt("calorie"));
-        p.setImmagine(resultSet.getString("immagine"));
-        return p;
-    }
-
     public void doSave(Prodotto prodotto) {
         try (Connection con = ConPool.getConnection()) {
             PreparedStatement ps = con.prepareStatement(
@@ -187,23 +167,15 @@ public class ProdottoDAO {
 
         Prodotto p;
 
-        try (Connection connection = ConPool.getConnection()) {
+        try (Connection connection = ConPool.getReadConnection()) {
 
             preparedStatement = connection.prepareStatement("SELECT * FROM prodotto where " + attribute + " = ?");
             preparedStatement.setString(1, value);
             resultSet = preparedStatement.executeQuery();
 
+            RowMapper.Righe<Prodotto> righe = MapperEntita.PRODOTTO.lega(resultSet);
             while (resultSet.next()) {
-                p = new Prodotto();
-                p.setIdProdotto(resultSet.getString("id_prodotto"));
-                p.setNome(resultSet.getString("nome"));
-                p.setDescrizione(resultSet.getString("descrizione"));
-                p.setCategoria(resultSet.getString("categoria"));
-                p.setImmagine(resultSet.getString("immagine"));
-                p.setCalorie(resultSet.getInt("calorie"));
-                p.setCarboidrati(resultSet.getInt("carboidrati"));
-                p.setProteine(resultSet.getInt("proteine"));
-                p.setGrassi(resultSet.getInt("grassi"));
+                p = righe.riga();
 
                 /*
                  * VarianteDAO varianteDAO = new VarianteDAO();
@@ -229,6 +201,19 @@ public class ProdottoDAO {
         }
     }
 
+    //Solo i prodotti, senza cercare le varianti (vedi CatalogoColonnare)
+    public List<Prodotto> doRetrieveAllSenzaVarianti() {
+        List<Prodotto> prodotti = new ArrayList<>();
+        try (Connection con = ConPool.getReadConnection()) {
+            PreparedStatement preparedStatement = con.prepareStatement("SELECT * FROM prodotto");
+            ResultSet resultSet = preparedStatement.executeQuery();
+            MapperEntita.PRODOTTO.perOgni(resultSet, prodotti::add);
+            return prodotti;
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     public List<Prodotto> doRetrieveAll() {
 
         ArrayList<Prodotto> prodotti = new ArrayList<>();
@@ -236,7 +221,7 @@ public class ProdottoDAO {
         ResultSet resultSet;
         Prodotto p;
 
-        try (Connection con = ConPool.getConnection()) {
+        try (Connection con = ConPool.getReadConnection()) {
 
             st = con.createStatement();
 
@@ -244,17 +229,9 @@ public class ProdottoDAO {
 
             resultSet = st.executeQuery(query);
 
+            RowMapper.Righe<Prodotto> righe = MapperEntita.PRODOTTO.lega(resultSet);
             while (resultSet.next()) {
-                p = new Prodotto();
-                p.setIdProdotto(resultSet.getString("id_prodotto"));
-                p.setNome(resultSet.getString("nome"));
-                p.setDescrizione(resultSet.getString("descrizione"));
-                p.setCategoria(resultSet.getString("categoria"));
-                p.setImmagine(resultSet.getString("immagine"));
-                p.setCalorie(resultSet.getInt("calorie"));
-                p.setCarboidrati(resultSet.getInt("carboidrati"));
-                p.setProteine(resultSet.getInt("proteine"));
-                p.setGrassi(resultSet.getInt("grassi"));
+                p = righe.riga();
 
                 VarianteDAO varianteDAO = new VarianteDAO();
                 List<Variante> varianti = new ArrayList<>();
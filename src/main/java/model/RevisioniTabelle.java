@@ -0,0 +1,46 @@
+package model;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Numero di revisione di ogni tabella dell'admin: aumenta di uno ad ogni scrittura fatta dai pannelli admin.
+//La tabella paginata lo riceve con la prima pagina e lo confronta con quello restituito dopo una modifica:
+//se è aumentato esattamente di uno nessun altro ha scritto nel frattempo e basta aggiornare le righe toccate,
+//altrimenti la tabella va ricaricata.
+//Le revisioni stanno in memoria (ripartono da 0 al riavvio e valgono per la singola istanza): un valore
+//inatteso porta solo a una ricarica in più.
+public final class RevisioniTabelle {
+
+    //Tabelle modificate dalle cancellazioni/aggiornamenti a cascata delle chiavi esterne
+    private static final Map<String, List<String>> CASCATA = Map.of(
+            "utente", List.of("ordine", "dettaglioOrdine"),
+            "prodotto", List.of("variante", "dettaglioOrdine"),
+            "gusto", List.of("variante", "dettaglioOrdine"),
+            "confezione", List.of("variante", "dettaglioOrdine"),
+            "variante", List.of("dettaglioOrdine"),
+            "ordine", List.of("dettaglioOrdine"));
+
+    private static final Map<String, AtomicLong> REVISIONI = new ConcurrentHashMap<>();
+
+    private RevisioniTabelle() {
+    }
+
+    public static long get(String tabella) {
+        AtomicLong revisione = REVISIONI.get(tabella);
+        return revisione != null ? revisione.get() : 0;
+    }
+
+    //Registra una scrittura sulla tabella (e su quelle collegate a cascata) e restituisce la nuova revisione.
+    //Le scritture sulle tabelle del catalogo cambiano anche la VersioneCatalogo usata dalle cache HTTP del negozio.
+    public static long incrementa(String tabella) {
+        if (VersioneCatalogo.isTabellaCatalogo(tabella)) {
+            VersioneCatalogo.incrementa();
+        }
+        for (String collegata : CASCATA.getOrDefault(tabella, List.of())) {
+            REVISIONI.computeIfAbsent(collegata, t -> new AtomicLong()).incrementAndGet();
+        }
+        return REVISIONI.computeIfAbsent(tabella, t -> new AtomicLong()).incrementAndGet();
+    }
+}
@@ -0,0 +1,172 @@
+package model;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+//Ricostruzione da zero dei riepiloghi delle vendite (prima installazione, modifiche manuali agli ordini...).
+//I riepiloghi vengono contati in copie vuote delle tabelle, che alla fine prendono il posto di quelle in uso
+//con un'unica RENAME TABLE: fino ad allora la dashboard legge i riepiloghi di prima, e se la ricostruzione
+//fallisce a metà restano quelli (le copie parziali vengono eliminate).
+//Scorre lo storico degli ordini a blocchi di id (keyset sull'id, senza OFFSET né risultati in memoria)
+//e conferma ogni blocco con un commit separato.
+//Le transazioni che cambiano gli ordini tengono AGGIORNAMENTI in lettura fino al commit; la ricostruzione lo
+//prende in scrittura mentre legge l'ultimo id (nessun ordine con id <= ultimo è ancora in volo, quelli
+//successivi sono contati dall'aggiornamento incrementale), mentre conta un blocco e mentre sostituisce le
+//tabelle. Nel frattempo l'aggiornamento incrementale va sia nelle tabelle in uso sia nelle copie, ma in queste
+//solo per gli ordini già contati o successivi all'ultimo: gli altri la scansione li leggerà nel loro stato finale.
+//Il lock è del processo: vale finché l'applicazione gira in una sola istanza.
+public final class RicostruzioneVendite {
+
+    static final int DIMENSIONE_BLOCCO = 1000;
+
+    private static final AtomicBoolean IN_CORSO = new AtomicBoolean();
+    private static final ReentrantReadWriteLock AGGIORNAMENTI = new ReentrantReadWriteLock();
+
+    //ordini (cursore, ultimo] ancora da contare nelle tabelle in costruzione
+    private static volatile boolean scansione;
+    private static volatile int ultimo;
+    private static volatile int cursore;
+
+    private RicostruzioneVendite() {
+    }
+
+    //Avvia la ricostruzione in background; restituisce false se ce n'è già una in corso
+    public static boolean avvia() {
+        if (!IN_CORSO.compareAndSet(false, true)) {
+            return false;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                ricostruisci();
+            } catch (RuntimeException e) {
+                System.err.println("Ricostruzione dei riepiloghi delle vendite non riuscita - " + e.getMessage());
+            } finally {
+                IN_CORSO.set(false);
+            }
+        }, "ricostruzione-vendite");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    public static boolean isInCorso() {
+        return IN_CORSO.get();
+    }
+
+    //Lock da tenere dall'inizio al commit delle transazioni che cambiano i riepiloghi delle vendite
+    public static Lock lockAggiornamenti() {
+        return AGGIORNAMENTI.readLock();
+    }
+
+    //Con il lock degli aggiornamenti: true se esistono tabelle in costruzione da tenere aggiornate
+    static boolean isScansioneInCorso() {
+        return scansione;
+    }
+
+    //Con il lock degli aggiornamenti: false se l'ordine verrà contato dalla ricostruzione in corso,
+    //quindi le sue variazioni non vanno riportate nelle tabelle in costruzione
+    public static boolean isConteggiato(int idOrdine) {
+        return !scansione || idOrdine <= cursore || idOrdine > ultimo;
+    }
+
+    //Esegue la ricostruzione nel thread corrente e restituisce il numero di ordini conteggiati.
+    //Gli ordini annullati non vengono conteggiati.
+    static int ricostruisci() {
+        RiepilogoVenditeDAO riepilogoDao = new RiepilogoVenditeDAO();
+
+        try (Connection con = ConPool.getConnection()) {
+            //DDL fuori dalla transazione: CREATE e DROP fanno comunque un commit implicito
+            riepilogoDao.doCreaRicostruzione(con);
+            con.setAutoCommit(false);
+            try {
+                int fine;
+                AGGIORNAMENTI.writeLock().lock();
+                try {
+                    //gli ordini salvati da qui in poi sono contati dall'aggiornamento incrementale, anche nelle copie
+                    try (PreparedStatement ps = con.prepareStatement("SELECT COALESCE(MAX(id_ordine), 0) FROM ordine");
+                         ResultSet rs = ps.executeQuery()) {
+                        fine = rs.next() ? rs.getInt(1) : 0;
+                    }
+                    cursore = 0;
+                    ultimo = fine;
+                    scansione = true;
+                } finally {
+                    AGGIORNAMENTI.writeLock().unlock();
+                }
+
+                int conteggiati = 0;
+                while (cursore < fine) {
+                    AGGIORNAMENTI.writeLock().lock();
+                    try {
+                        List<Integer> blocco = new ArrayList<>();
+                        try (PreparedStatement ps = con.prepareStatement(
+                                "SELECT id_ordine FROM ordine WHERE id_ordine > ? AND id_ordine <= ? AND stato <> ? ORDER BY id_ordine LIMIT ?")) {
+                            ps.setInt(1, cursore);
+                            ps.setInt(2, fine);
+                            ps.setString(3, StatoOrdine.ANNULLATO);
+                            ps.setInt(4, DIMENSIONE_BLOCCO);
+                            try (ResultSet rs = ps.executeQuery()) {
+                                while (rs.next()) {
+                                    blocco.add(rs.getInt(1));
+                                }
+                            }
+                        }
+                        if (blocco.isEmpty()) {
+                            break;
+                        }
+
+                        riepilogoDao.doAggiornaRicostruzione(con, blocco);
+                        con.commit();
+                        conteggiati += blocco.size();
+                        cursore = blocco.get(blocco.size() - 1);
+                    } finally {
+                        AGGIORNAMENTI.writeLock().unlock();
+                    }
+                }
+
+                AGGIORNAMENTI.writeLock().lock();
+                try {
+                    riepilogoDao.doSostituisciConRicostruzione(con);
+                    termina();
+                } finally {
+                    AGGIORNAMENTI.writeLock().unlock();
+                }
+                return conteggiati;
+            } catch (SQLException | RuntimeException e) {
+                con.rollback();
+                //le tabelle in uso non sono state toccate: si eliminano solo le copie parziali,
+                //dopo aver smesso di aggiornarle
+                AGGIORNAMENTI.writeLock().lock();
+                try {
+                    termina();
+                } finally {
+                    AGGIORNAMENTI.writeLock().unlock();
+                }
+                try {
+                    riepilogoDao.doEliminaRicostruzione(con);
+                } catch (SQLException eliminazione) {
+                    e.addSuppressed(eliminazione);
+                }
+                throw e;
+            } finally {
+                con.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    //Con il lock degli aggiornamenti in scrittura
+    private static void termina() {
+        scansione = false;
+        ultimo = 0;
+        cursore = 0;
+    }
+}
@@ -0,0 +1,250 @@
+package model;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+//Riepiloghi delle vendite (tabelle vendite_giorno, vendite_variante_giorno e vendite_categoria_giorno).
+//Vengono aggiornati in modo incrementale nella transazione che salva, modifica, annulla o elimina gli ordini
+//(o le loro righe), così la dashboard dell'admin legge solo poche righe pre-aggregate invece di scorrere
+//dettaglio_ordine. Le modifiche dell'admin tolgono il contributo degli ordini prima di cambiarli
+//(doRimuoviOrdini) e lo rimettono dopo (doAggiungiOrdini), sotto RicostruzioneVendite.lockAggiornamenti().
+//La ricostruzione da zero riempie copie delle tabelle (suffisso _ricostruzione) e le sostituisce alle
+//tabelle in uso solo alla fine: se fallisce, i riepiloghi in uso restano quelli di prima.
+public class RiepilogoVenditeDAO {
+
+    private static final String[] TABELLE = {"vendite_giorno", "vendite_variante_giorno", "vendite_categoria_giorno"};
+    static final String SUFFISSO_RICOSTRUZIONE = "_ricostruzione";
+    private static final String SUFFISSO_SOSTITUITE = "_sostituite";
+
+    private static final String AGGIORNA_GIORNO = "INSERT INTO %s (giorno, ordini, articoli, incasso) "
+            + "SELECT o.data, ? * COUNT(DISTINCT o.id_ordine), ? * SUM(d.quantità), ? * SUM(d.prezzo) "
+            + "FROM ordine o JOIN dettaglio_ordine d ON d.id_ordine = o.id_ordine "
+            + "WHERE o.id_ordine IN (%s) GROUP BY o.data "
+            + "ON DUPLICATE KEY UPDATE ordini = ordini + VALUES(ordini), articoli = articoli + VALUES(articoli), incasso = incasso + VALUES(incasso)";
+
+    private static final String AGGIORNA_VARIANTE = "INSERT INTO %s (giorno, id_variante, id_prodotto, articoli, incasso) "
+            + "SELECT o.data, d.id_variante, d.id_prodotto, ? * SUM(d.quantità), ? * SUM(d.prezzo) "
+            + "FROM ordine o JOIN dettaglio_ordine d ON d.id_ordine = o.id_ordine "
+            + "WHERE o.id_ordine IN (%s) GROUP BY o.data, d.id_variante, d.id_prodotto "
+            + "ON DUPLICATE KEY UPDATE articoli = articoli + VALUES(articoli), incasso = incasso + VALUES(incasso)";
+
+    private static final String AGGIORNA_CATEGORIA = "INSERT INTO %s (giorno, categoria, articoli, incasso) "
+            + "SELECT o.data, p.categoria, ? * SUM(d.quantità), ? * SUM(d.prezzo) "
+            + "FROM ordine o JOIN dettaglio_ordine d ON d.id_ordine = o.id_ordine JOIN prodotto p ON p.id_prodotto = d.id_prodotto "
+            + "WHERE o.id_ordine IN (%s) GROUP BY o.data, p.categoria "
+            + "ON DUPLICATE KEY UPDATE articoli = articoli + VALUES(articoli), incasso = incasso + VALUES(incasso)";
+
+    //Somma (segno 1) o sottrae (segno -1, ordini annullati) ai riepiloghi le vendite degli ordini indicati,
+    //nella transazione del chiamante: i riepiloghi cambiano solo se l'ordine viene davvero salvato.
+    //Va chiamato subito prima del commit, per tenere bloccate il meno possibile le righe del giorno corrente,
+    //e con RicostruzioneVendite.lockAggiornamenti(): durante una ricostruzione la variazione va anche nelle
+    //tabelle in costruzione, per gli ordini che la scansione ha già contato o che non vedrà.
+    public void doAggiorna(Connection con, List<Integer> idOrdini, int segno) throws SQLException {
+        if (idOrdini == null || idOrdini.isEmpty()) {
+            return;
+        }
+        aggiorna(con, idOrdini, segno, "");
+
+        if (RicostruzioneVendite.isScansioneInCorso()) {
+            List<Integer> conteggiati = new ArrayList<>();
+            for (Integer idOrdine : idOrdini) {
+                if (RicostruzioneVendite.isConteggiato(idOrdine)) {
+                    conteggiati.add(idOrdine);
+                }
+            }
+            aggiorna(con, conteggiati, segno, SUFFISSO_RICOSTRUZIONE);
+        }
+    }
+
+    //Toglie dai riepiloghi gli ordini che stanno per essere modificati o eliminati, nella stessa transazione e
+    //prima della modifica (servono ancora le loro righe). Gli ordini annullati ne sono già usciti.
+    public void doRimuoviOrdini(Connection con, List<Integer> idOrdini) throws SQLException {
+        doAggiorna(con, nonAnnullati(con, "id_ordine", idOrdini), -1);
+    }
+
+    //Come doRimuoviOrdini, per gli ordini degli utenti che stanno per essere eliminati (la DELETE li elimina a cascata)
+    public void doRimuoviOrdiniDiUtenti(Connection con, List<String> emailUtenti) throws SQLException {
+        doAggiorna(con, nonAnnullati(con, "email_utente", emailUtenti), -1);
+    }
+
+    //Rimette nei riepiloghi gli ordini appena modificati, con le righe e la data nuove
+    public void doAggiungiOrdini(Connection con, List<Integer> idOrdini) throws SQLException {
+        doAggiorna(con, nonAnnullati(con, "id_ordine", idOrdini), 1);
+    }
+
+    //Conta un blocco della ricostruzione, solo nelle tabelle in costruzione
+    void doAggiornaRicostruzione(Connection con, List<Integer> idOrdini) throws SQLException {
+        aggiorna(con, idOrdini, 1, SUFFISSO_RICOSTRUZIONE);
+    }
+
+    //Crea le tabelle vuote in cui contare la ricostruzione, eliminando quelle lasciate da una ricostruzione interrotta
+    void doCreaRicostruzione(Connection con) throws SQLException {
+        doEliminaRicostruzione(con);
+        for (String tabella : TABELLE) {
+            try (PreparedStatement ps = con.prepareStatement(
+                    "CREATE TABLE " + tabella + SUFFISSO_RICOSTRUZIONE + " LIKE " + tabella)) {
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    //Mette le tabelle ricostruite al posto di quelle in uso, con un'unica RENAME TABLE (atomica),
+    //poi elimina le vecchie
+    void doSostituisciConRicostruzione(Connection con) throws SQLException {
+        List<String> rinomine = new ArrayList<>();
+        for (String tabella : TABELLE) {
+            rinomine.add(tabella + " TO " + tabella + SUFFISSO_SOSTITUITE);
+            rinomine.add(tabella + SUFFISSO_RICOSTRUZIONE + " TO " + tabella);
+        }
+        try (PreparedStatement ps = con.prepareStatement("RENAME TABLE " + String.join(", ", rinomine))) {
+            ps.executeUpdate();
+        }
+        elimina(con, SUFFISSO_SOSTITUITE);
+    }
+
+    //Elimina le tabelle di una ricostruzione non conclusa (e quelle sostituite, se ne sono rimaste)
+    void doEliminaRicostruzione(Connection con) throws SQLException {
+        elimina(con, SUFFISSO_RICOSTRUZIONE);
+        elimina(con, SUFFISSO_SOSTITUITE);
+    }
+
+    private static void elimina(Connection con, String suffisso) throws SQLException {
+        List<String> tabelle = new ArrayList<>();
+        for (String tabella : TABELLE) {
+            tabelle.add(tabella + suffisso);
+        }
+        try (PreparedStatement ps = con.prepareStatement("DROP TABLE IF EXISTS " + String.join(", ", tabelle))) {
+            ps.executeUpdate();
+        }
+    }
+
+    private static void aggiorna(Connection con, List<Integer> idOrdini, int segno, String suffisso) throws SQLException {
+        if (idOrdini.isEmpty()) {
+            return;
+        }
+        String segnaposti = String.join(", ", Collections.nCopies(idOrdini.size(), "?"));
+
+        esegui(con, String.format(AGGIORNA_GIORNO, TABELLE[0] + suffisso, segnaposti), 3, idOrdini, segno);
+        esegui(con, String.format(AGGIORNA_VARIANTE, TABELLE[1] + suffisso, segnaposti), 2, idOrdini, segno);
+        esegui(con, String.format(AGGIORNA_CATEGORIA, TABELLE[2] + suffisso, segnaposti), 2, idOrdini, segno);
+    }
+
+    //Gli ordini non annullati con la colonna indicata tra i valori, bloccati (FOR UPDATE) fino alla fine della transazione
+    private static List<Integer> nonAnnullati(Connection con, String colonna, List<?> valori) throws SQLException {
+        List<Integer> ordini = new ArrayList<>();
+        if (valori == null || valori.isEmpty()) {
+            return ordini;
+        }
+        try (PreparedStatement ps = con.prepareStatement("SELECT id_ordine FROM ordine WHERE " + colonna + " IN ("
+                + String.join(", ", Collections.nCopies(valori.size(), "?")) + ") AND stato <> ? FOR UPDATE")) {
+            int paramIndex = 1;
+            for (Object valore : valori) {
+                ps.setObject(paramIndex++, valore);
+            }
+            ps.setString(paramIndex, StatoOrdine.ANNULLATO);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ordini.add(rs.getInt(1));
+                }
+            }
+        }
+        return ordini;
+    }
+
+    private static void esegui(Connection con, String sql, int segni, List<Integer> idOrdini, int segno) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            int paramIndex = 1;
+            for (int i = 0; i < segni; i++) {
+                ps.setInt(paramIndex++, segno);
+            }
+            for (Integer idOrdine : idOrdini) {
+                ps.setInt(paramIndex++, idOrdine);
+            }
+            ps.executeUpdate();
+        }
+    }
+
+    //Vendite di ogni giorno dell'intervallo (estremi compresi), in ordine di data
+    public List<Map<String, Object>> doRetrievePerGiorno(java.sql.Date da, java.sql.Date a) {
+        try (Connection con = ConPool.getReadConnection();
+             PreparedStatement ps = con.prepareStatement(
+                     "SELECT giorno, ordini, articoli, incasso FROM vendite_giorno WHERE giorno BETWEEN ? AND ? ORDER BY giorno")) {
+            ps.setDate(1, da);
+            ps.setDate(2, a);
+
+            List<Map<String, Object>> righe = new ArrayList<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Map<String, Object> riga = new LinkedHashMap<>();
+                    riga.put("giorno", rs.getDate("giorno").toString());
+                    riga.put("ordini", rs.getInt("ordini"));
+                    riga.put("articoli", rs.getInt("articoli"));
+                    riga.put("incasso", rs.getBigDecimal("incasso"));
+                    righe.add(riga);
+                }
+            }
+            return righe;
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    //Totali dell'intervallo per categoria, dalla più venduta
+    public List<Map<String, Object>> doRetrievePerCategoria(java.sql.Date da, java.sql.Date a) {
+        try (Connection con = ConPool.getReadConnection();
+             PreparedStatement ps = con.prepareStatement(
+                     "SELECT categoria, SUM(articoli) AS articoli, SUM(incasso) AS incasso FROM vendite_categoria_giorno "
+                             + "WHERE giorno BETWEEN ? AND ? GROUP BY categoria ORDER BY incasso DESC")) {
+            ps.setDate(1, da);
+            ps.setDate(2, a);
+
+            List<Map<String, Object>> righe = new ArrayList<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Map<String, Object> riga = new LinkedHashMap<>();
+                    riga.put("categoria", rs.getString("categoria"));
+                    riga.put("articoli", rs.getInt("articoli"));
+                    riga.put("incasso", rs.getBigDecimal("incasso"));
+                    righe.add(riga);
+                }
+            }
+            return righe;
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    //Le varianti con più pezzi venduti nell'intervallo
+    public List<Map<String, Object>> doRetrievePerVariante(java.sql.Date da, java.sql.Date a, int limite) {
+        try (Connection con = ConPool.getReadConnection();
+             PreparedStatement ps = con.prepareStatement(
+                     "SELECT id_variante, id_prodotto, SUM(articoli) AS articoli, SUM(incasso) AS incasso FROM vendite_variante_giorno "
+                             + "WHERE giorno BETWEEN ? AND ? GROUP BY id_variante, id_prodotto ORDER BY articoli DESC LIMIT ?")) {
+            ps.setDate(1, da);
+            ps.setDate(2, a);
+            ps.setInt(3, limite);
+
+            List<Map<String, Object>> righe = new ArrayList<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Map<String, Object> riga = new LinkedHashMap<>();
+                    riga.put("idVariante", rs.getInt("id_variante"));
+                    riga.put("idProdotto", rs.getString("id_prodotto"));
+                    riga.put("articoli", rs.getInt("articoli"));
+                    riga.put("incasso", rs.getBigDecimal("incasso"));
+                    righe.add(riga);
+                }
+            }
+            return righe;
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
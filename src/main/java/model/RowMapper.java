@@ -0,0 +1,188 @@
+package model;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
+
+//Mappatura dichiarativa delle righe di un ResultSet su un'entità: le colonne si elencano una volta sola
+//(vedi MapperEntita) invece di ripetere in ogni metodo dei DAO le stesse chiamate getXxx("colonna").
+//Gli indici delle colonne si cercano nei metadati una volta per ResultSet, poi ogni riga si legge per posizione.
+//Le colonne opzionali (es. nomeGusto e peso, presenti solo nelle query con le join) si saltano se la query non le ha.
+//Se il ResultSet non ha metadati (es. i mock dei test) le colonne si leggono per nome, come prima.
+public final class RowMapper<T> {
+
+    @FunctionalInterface
+    public interface ObjFloatConsumer<T> {
+        void accept(T entita, float valore);
+    }
+
+    @FunctionalInterface
+    public interface ObjBooleanConsumer<T> {
+        void accept(T entita, boolean valore);
+    }
+
+    //Legge una colonna e la imposta sull'entità: per posizione se indice > 0, altrimenti per nome
+    @FunctionalInterface
+    private interface Lettura<T> {
+        void leggi(ResultSet rs, int indice, String nome, T entita) throws SQLException;
+    }
+
+    private static final int PER_NOME = 0;
+    private static final int ASSENTE = -1;
+
+    private final Supplier<T> costruttore;
+    private final String[] colonne;
+    private final boolean[] opzionali;
+    private final Lettura<T>[] letture;
+
+    @SuppressWarnings("unchecked")
+    private RowMapper(Builder<T> builder) {
+        this.costruttore = builder.costruttore;
+        int n = builder.colonne.size();
+        this.colonne = builder.colonne.toArray(new String[n]);
+        this.opzionali = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            opzionali[i] = builder.opzionali.get(i);
+        }
+        this.letture = builder.letture.toArray(new Lettura[n]);
+    }
+
+    public static <T> Builder<T> per(Supplier<T> costruttore) {
+        return new Builder<>(costruttore);
+    }
+
+    //Risolve le colonne sul ResultSet: il risultato legge la riga corrente con riga()
+    public Righe<T> lega(ResultSet rs) throws SQLException {
+        int[] indici = new int[colonne.length];
+        ResultSetMetaData metaData = rs.getMetaData();
+        if (metaData != null) {
+            //a parità di nome vale la prima colonna, come per rs.getXxx("colonna")
+            Map<String, Integer> posizioni = new HashMap<>();
+            for (int i = metaData.getColumnCount(); i >= 1; i--) {
+                posizioni.put(metaData.getColumnLabel(i).toLowerCase(Locale.ROOT), i);
+            }
+            for (int i = 0; i < colonne.length; i++) {
+                Integer posizione = posizioni.get(colonne[i].toLowerCase(Locale.ROOT));
+                if (posizione == null && !opzionali[i]) {
+                    throw new SQLException("Colonna " + colonne[i] + " non presente nel risultato");
+                }
+                indici[i] = posizione == null ? ASSENTE : posizione;
+            }
+        }
+        return new Righe<>(this, rs, indici);
+    }
+
+    //Prima riga del risultato, null se è vuoto
+    public T primo(ResultSet rs) throws SQLException {
+        return rs.next() ? lega(rs).riga() : null;
+    }
+
+    public List<T> tutte(ResultSet rs) throws SQLException {
+        List<T> risultato = new ArrayList<>();
+        perOgni(rs, risultato::add);
+        return risultato;
+    }
+
+    //Passa le righe una alla volta al consumer, senza tenerle tutte in memoria
+    public void perOgni(ResultSet rs, Consumer<? super T> consumer) throws SQLException {
+        Righe<T> righe = lega(rs);
+        while (rs.next()) {
+            consumer.accept(righe.riga());
+        }
+    }
+
+    //Un RowMapper legato ad un ResultSet, con gli indici delle colonne già risolti
+    public static final class Righe<T> {
+
+        private final RowMapper<T> mapper;
+        private final ResultSet rs;
+        private final int[] indici;
+
+        private Righe(RowMapper<T> mapper, ResultSet rs, int[] indici) {
+            this.mapper = mapper;
+            this.rs = rs;
+            this.indici = indici;
+        }
+
+        public T riga() throws SQLException {
+            T entita = mapper.costruttore.get();
+            for (int i = 0; i < indici.length; i++) {
+                int indice = indici[i];
+                if (indice == ASSENTE) {
+                    continue;
+                }
+                if (indice == PER_NOME && mapper.opzionali[i]) {
+                    try {
+                        mapper.letture[i].leggi(rs, PER_NOME, mapper.colonne[i], entita);
+                    } catch (SQLException e) {
+                        //senza metadati non si sa se la colonna opzionale c'è: se manca si lascia il valore di default
+                    }
+                    continue;
+                }
+                mapper.letture[i].leggi(rs, indice, mapper.colonne[i], entita);
+            }
+            return entita;
+        }
+    }
+
+    public static final class Builder<T> {
+
+        private final Supplier<T> costruttore;
+        private final List<String> colonne = new ArrayList<>();
+        private final List<Boolean> opzionali = new ArrayList<>();
+        private final List<Lettura<T>> letture = new ArrayList<>();
+        private boolean prossimaOpzionale;
+
+        private Builder(Supplier<T> costruttore) {
+            this.costruttore = costruttore;
+        }
+
+        //La colonna dichiarata subito dopo può mancare nel risultato
+        public Builder<T> opzionale() {
+            prossimaOpzionale = true;
+            return this;
+        }
+
+        public Builder<T> intero(String colonna, ObjIntConsumer<T> setter) {
+            return aggiungi(colonna, (rs, i, nome, e) -> setter.accept(e, i > 0 ? rs.getInt(i) : rs.getInt(nome)));
+        }
+
+        public Builder<T> decimale(String colonna, ObjFloatConsumer<T> setter) {
+            return aggiungi(colonna, (rs, i, nome, e) -> setter.accept(e, i > 0 ? rs.getFloat(i) : rs.getFloat(nome)));
+        }
+
+        public Builder<T> booleano(String colonna, ObjBooleanConsumer<T> setter) {
+            return aggiungi(colonna, (rs, i, nome, e) -> setter.accept(e, i > 0 ? rs.getBoolean(i) : rs.getBoolean(nome)));
+        }
+
+        public Builder<T> stringa(String colonna, BiConsumer<T, String> setter) {
+            return aggiungi(colonna, (rs, i, nome, e) -> setter.accept(e, i > 0 ? rs.getString(i) : rs.getString(nome)));
+        }
+
+        public Builder<T> data(String colonna, BiConsumer<T, Date> setter) {
+            return aggiungi(colonna, (rs, i, nome, e) -> setter.accept(e, i > 0 ? rs.getDate(i) : rs.getDate(nome)));
+        }
+
+        private Builder<T> aggiungi(String colonna, Lettura<T> lettura) {
+            colonne.add(colonna);
+            opzionali.add(prossimaOpzionale);
+            letture.add(lettura);
+            prossimaOpzionale = false;
+            return this;
+        }
+
+        public RowMapper<T> build() {
+            return new RowMapper<>(this);
+        }
+    }
+}
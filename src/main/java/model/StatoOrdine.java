@@ -0,0 +1,42 @@
+package model;
+
+import java.util.List;
+import java.util.Map;
+
+//Stati di un ordine e passaggi consentiti tra uno stato e l'altro.
+//Un ordine nasce "in esecuzione" (default della colonna), viene spedito e poi consegnato;
+//può essere annullato solo finché non è stato spedito.
+public final class StatoOrdine {
+
+    public static final String IN_ESECUZIONE = "in esecuzione";
+    public static final String SPEDITO = "spedito";
+    public static final String CONSEGNATO = "consegnato";
+    public static final String ANNULLATO = "annullato";
+
+    //per ogni stato di arrivo, gli stati da cui ci si può arrivare
+    private static final Map<String, List<String>> STATI_PRECEDENTI = Map.of(
+            SPEDITO, List.of(IN_ESECUZIONE),
+            CONSEGNATO, List.of(SPEDITO),
+            ANNULLATO, List.of(IN_ESECUZIONE)
+    );
+
+    private StatoOrdine() {
+    }
+
+    public static boolean isStatoDiArrivo(String stato) {
+        return stato != null && STATI_PRECEDENTI.containsKey(stato);
+    }
+
+    //Restituisce gli stati da cui è consentito passare a quello indicato
+    public static List<String> getStatiPrecedenti(String stato) {
+        List<String> precedenti = stato != null ? STATI_PRECEDENTI.get(stato) : null;
+        if (precedenti == null) {
+            throw new IllegalArgumentException("Stato ordine non valido: " + stato);
+        }
+        return precedenti;
+    }
+
+    public static boolean isTransizioneValida(String da, String a) {
+        return isStatoDiArrivo(a) && getStatiPrecedenti(a).contains(da);
+    }
+}
@@ -0,0 +1,390 @@
+package model;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+//Misure per metodo dei DAO: ogni connessione data da ConPool viene avvolta in un proxy che attribuisce
+//attesa del pool, tempo di esecuzione delle query, righe lette e modificate ed errori al metodo DAO che l'ha
+//chiesta (cercato una volta sola nello stack, al prestito della connessione). Le query più lente di
+//DB_SLOW_QUERY_MS finiscono nel log e tra le ultime lente mostrate dalla pagina delle metriche, con l'SQL
+//normalizzato e un'impronta dei parametri: i tipi e un HMAC dei valori con una chiave casuale del processo,
+//mai i valori (es. le password) né un loro hash che si possa ricalcolare provando valori noti.
+//Ogni esecuzione viene anche contata nel BudgetQuery della richiesta, se ce n'è uno aperto.
+public final class StrumentazioneDao {
+
+    private static final Logger LOG = Logger.getLogger(StrumentazioneDao.class.getName());
+    private static final int MAX_LENTE = 50;
+    //chiave dell'HMAC dei parametri: le impronte si confrontano solo all'interno dello stesso processo
+    private static final byte[] CHIAVE_PARAMETRI = new byte[32];
+
+    static {
+        new SecureRandom().nextBytes(CHIAVE_PARAMETRI);
+    }
+    private static final Set<String> ESECUZIONI = Set.of("execute", "executeQuery", "executeUpdate", "executeLargeUpdate",
+            "executeBatch", "executeLargeBatch");
+    private static final Pattern SPAZI = Pattern.compile("\\s+");
+    private static final Pattern ELENCO_SEGNAPOSTI = Pattern.compile("\\?(\\s*,\\s*\\?)+");
+    private static final StackWalker STACK = StackWalker.getInstance();
+
+    private static final Map<String, MetodoDao> METODI = new ConcurrentHashMap<>();
+    private static final ArrayDeque<Map<String, Object>> LENTE = new ArrayDeque<>();
+    private static volatile long sogliaLentaMicros = 200_000;
+
+    private StrumentazioneDao() {
+    }
+
+    //Contatori e istogrammi di un metodo DAO
+    public static final class MetodoDao {
+        private final LongAdder chiamate = new LongAdder();
+        private final LongAdder query = new LongAdder();
+        private final LongAdder righe = new LongAdder();
+        private final LongAdder righeModificate = new LongAdder();
+        private final LongAdder errori = new LongAdder();
+        private final LongAdder lente = new LongAdder();
+        private final Istogramma attesa = new Istogramma();
+        private final Istogramma esecuzione = new Istogramma();
+
+        public long getChiamate() {
+            return chiamate.sum();
+        }
+
+        public long getQuery() {
+            return query.sum();
+        }
+
+        public long getRighe() {
+            return righe.sum();
+        }
+
+        public long getRigheModificate() {
+            return righeModificate.sum();
+        }
+
+        public long getErrori() {
+            return errori.sum();
+        }
+
+        public long getLente() {
+            return lente.sum();
+        }
+
+        //Attesa di una connessione libera nel pool
+        public Istogramma getAttesa() {
+            return attesa;
+        }
+
+        //Durata di ogni execute sul database
+        public Istogramma getEsecuzione() {
+            return esecuzione;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> valori = new LinkedHashMap<>();
+            valori.put("chiamate", getChiamate());
+            valori.put("query", getQuery());
+            valori.put("righe", getRighe());
+            valori.put("righeModificate", getRigheModificate());
+            valori.put("errori", getErrori());
+            valori.put("lente", getLente());
+            valori.put("attesa", attesa.toMap());
+            valori.put("esecuzione", esecuzione.toMap());
+            return valori;
+        }
+    }
+
+    static void setSogliaLentaMillis(long millis) {
+        sogliaLentaMicros = millis * 1000;
+    }
+
+    //Misure per metodo, ordinate per nome ("VarianteDAO.doRetrieveAll" -> misure)
+    public static Map<String, MetodoDao> metodi() {
+        return new TreeMap<>(METODI);
+    }
+
+    public static Map<String, Map<String, Object>> istantanea() {
+        Map<String, Map<String, Object>> valori = new TreeMap<>();
+        METODI.forEach((nome, metodo) -> valori.put(nome, metodo.toMap()));
+        return valori;
+    }
+
+    //Ultime query lente, dalla più recente
+    public static List<Map<String, Object>> ultimeLente() {
+        synchronized (LENTE) {
+            return new ArrayList<>(LENTE);
+        }
+    }
+
+    //Usato dai test
+    static void azzera() {
+        METODI.clear();
+        synchronized (LENTE) {
+            LENTE.clear();
+        }
+    }
+
+    //Avvolge una connessione appena presa dal pool: le misure vanno al metodo DAO chiamante.
+    //Pubblico per i test delle servlet che simulano ConPool e vogliono controllare un BudgetQuery.
+    public static Connection avvolgi(Connection con, long attesaMicros) {
+        String nome = chiamante();
+        MetodoDao metodo = METODI.computeIfAbsent(nome, k -> new MetodoDao());
+        metodo.chiamate.increment();
+        metodo.attesa.registra(attesaMicros);
+        return (Connection) Proxy.newProxyInstance(StrumentazioneDao.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new ConnessioneMisurata(con, nome, metodo));
+    }
+
+    //Primo metodo nello stack fuori da ConPool e da questa classe, es. "VarianteDAO.doRetrieveAll"
+    private static String chiamante() {
+        return STACK.walk(frames -> frames
+                .filter(f -> !f.getClassName().equals(ConPool.class.getName())
+                        && !f.getClassName().equals(StrumentazioneDao.class.getName()))
+                .findFirst()
+                .map(f -> f.getClassName().substring(f.getClassName().lastIndexOf('.') + 1) + "." + f.getMethodName())
+                .orElse("sconosciuto"));
+    }
+
+    private static Object invoca(Object destinazione, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(destinazione, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static final class ConnessioneMisurata implements InvocationHandler {
+        private final Connection con;
+        private final String nome;
+        private final MetodoDao metodo;
+
+        ConnessioneMisurata(Connection con, String nome, MetodoDao metodo) {
+            this.con = con;
+            this.nome = nome;
+            this.metodo = metodo;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object risultato = invoca(con, method, args);
+            String nomeMetodo = method.getName();
+            if (nomeMetodo.equals("prepareStatement") || nomeMetodo.equals("prepareCall")) {
+                return avvolgiStatement((Statement) risultato, (String) args[0],
+                        nomeMetodo.equals("prepareCall") ? CallableStatement.class : PreparedStatement.class);
+            }
+            if (nomeMetodo.equals("createStatement")) {
+                return avvolgiStatement((Statement) risultato, null, Statement.class);
+            }
+            return risultato;
+        }
+
+        private Statement avvolgiStatement(Statement statement, String sql, Class<?> tipo) {
+            return (Statement) Proxy.newProxyInstance(StrumentazioneDao.class.getClassLoader(),
+                    new Class<?>[]{tipo}, new StatementMisurato(statement, sql, nome, metodo));
+        }
+    }
+
+    private static final class StatementMisurato implements InvocationHandler {
+        private final Statement statement;
+        private final String sql;
+        private final String nome;
+        private final MetodoDao metodo;
+        //parametri legati con setXxx(indice, valore), per l'impronta delle query lente
+        private Object[] parametri = new Object[8];
+
+        StatementMisurato(Statement statement, String sql, String nome, MetodoDao metodo) {
+            this.statement = statement;
+            this.sql = sql;
+            this.nome = nome;
+            this.metodo = metodo;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String nomeMetodo = method.getName();
+            if (nomeMetodo.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer indice) {
+                ricordaParametro(indice, args[1]);
+            } else if (nomeMetodo.equals("clearParameters")) {
+                Arrays.fill(parametri, null);
+            }
+            if (!ESECUZIONI.contains(nomeMetodo)) {
+                Object risultato = invoca(statement, method, args);
+                if (nomeMetodo.equals("getResultSet") && risultato != null) {
+                    return avvolgiResultSet((ResultSet) risultato);
+                }
+                return risultato;
+            }
+
+            String testo = args != null && args.length > 0 && args[0] instanceof String s ? s : sql;
+            BudgetQuery.registra(testo);
+            long inizio = System.nanoTime();
+            Object risultato;
+            try {
+                risultato = invoca(statement, method, args);
+            } catch (SQLException e) {
+                metodo.errori.increment();
+                throw e;
+            } finally {
+                long micros = (System.nanoTime() - inizio) / 1000;
+                metodo.query.increment();
+                metodo.esecuzione.registra(micros);
+                if (micros >= sogliaLentaMicros) {
+                    registraLenta(nome, metodo, testo, parametri, micros);
+                }
+            }
+
+            if (risultato instanceof ResultSet rs) {
+                return avvolgiResultSet(rs);
+            }
+            if (risultato instanceof Integer n) {
+                metodo.righeModificate.add(Math.max(0, n));
+            } else if (risultato instanceof Long n) {
+                metodo.righeModificate.add(Math.max(0, n));
+            }
+            return risultato;
+        }
+
+        private void ricordaParametro(int indice, Object valore) {
+            if (indice < 1 || indice > 10_000) {
+                return;
+            }
+            if (indice > parametri.length) {
+                parametri = Arrays.copyOf(parametri, Math.max(indice, parametri.length * 2));
+            }
+            parametri[indice - 1] = valore;
+        }
+
+        private ResultSet avvolgiResultSet(ResultSet rs) {
+            return (ResultSet) Proxy.newProxyInstance(StrumentazioneDao.class.getClassLoader(),
+                    new Class<?>[]{ResultSet.class}, new RigheContate(rs, metodo));
+        }
+    }
+
+    //Conta le righe lette; il totale va nelle misure alla chiusura o alla fine del risultato
+    private static final class RigheContate implements InvocationHandler {
+        private final ResultSet rs;
+        private final MetodoDao metodo;
+        private long righe;
+
+        RigheContate(ResultSet rs, MetodoDao metodo) {
+            this.rs = rs;
+            this.metodo = metodo;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object risultato = invoca(rs, method, args);
+            String nomeMetodo = method.getName();
+            if (nomeMetodo.equals("next")) {
+                if ((Boolean) risultato) {
+                    righe++;
+                } else {
+                    scarica();
+                }
+            } else if (nomeMetodo.equals("close")) {
+                scarica();
+            }
+            return risultato;
+        }
+
+        private void scarica() {
+            metodo.righe.add(righe);
+            righe = 0;
+        }
+    }
+
+    static void registraLenta(String nome, MetodoDao metodo, String sql, Object[] parametri, long micros) {
+        metodo.lente.increment();
+        String normalizzato = normalizza(sql);
+        Map<String, Object> lenta = new LinkedHashMap<>();
+        lenta.put("istante", System.currentTimeMillis());
+        lenta.put("metodo", nome);
+        lenta.put("millis", micros / 1000);
+        lenta.put("sql", normalizzato);
+        lenta.put("impronta", hash(normalizzato));
+        lenta.put("parametri", improntaParametri(parametri));
+        synchronized (LENTE) {
+            LENTE.addFirst(lenta);
+            while (LENTE.size() > MAX_LENTE) {
+                LENTE.removeLast();
+            }
+        }
+        //nel log del container (Tomcat inoltra java.util.logging ai suoi file), non su stderr
+        LOG.warning("Query lenta (" + micros / 1000 + " ms) in " + nome + " [" + lenta.get("impronta") + "] "
+                + normalizzato + " " + lenta.get("parametri"));
+    }
+
+    //SQL su una riga, con gli elenchi di segnaposti degli IN ridotti a "?+": le query che differiscono
+    //solo per la lunghezza dell'elenco hanno la stessa impronta
+    static String normalizza(String sql) {
+        if (sql == null) {
+            return "";
+        }
+        return ELENCO_SEGNAPOSTI.matcher(SPAZI.matcher(sql.trim()).replaceAll(" ")).replaceAll("?+");
+    }
+
+    //Tipi dei parametri legati e HMAC dei loro valori, es. "[String, Integer] #1a2b3c4d".
+    //Stessi valori, stessa impronta finché il processo resta in vita; senza la chiave non si risale ai valori
+    static String improntaParametri(Object[] parametri) {
+        int n = parametri.length;
+        while (n > 0 && parametri[n - 1] == null) {
+            n--;
+        }
+        if (n == 0) {
+            return "[]";
+        }
+        List<String> tipi = new ArrayList<>();
+        StringBuilder valori = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            tipi.add(parametri[i] == null ? "null" : parametri[i].getClass().getSimpleName());
+            valori.append(parametri[i]).append('\u0000');
+        }
+        return tipi + " #" + hmac(valori.toString());
+    }
+
+    private static String hmac(String testo) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(CHIAVE_PARAMETRI, "HmacSHA256"));
+            return HexFormat.of().formatHex(mac.doFinal(testo.getBytes(StandardCharsets.UTF_8)), 0, 4);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hash(String testo) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(testo.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 4);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
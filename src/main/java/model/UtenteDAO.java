@@ -6,6 +6,7 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.locks.Lock;
 
 public class UtenteDAO {
 
@@ -22,18 +23,7 @@ public class UtenteDAO {
 
 
             ResultSet resultSet = preparedStatement.executeQuery();
-            if (resultSet.next()){ // Usa if invece di while perché ti aspetti al massimo un utente
-                u = new Utente();
-                u.setEmail(resultSet.getString("email"));
-                u.setPassword(resultSet.getString("password"));
-                u.setNome(resultSet.getString("nome"));
-                u.setCognome(resultSet.getString("cognome"));
-                u.setCodiceFiscale(resultSet.getString("codice_fiscale"));
-                u.setDataNascita(resultSet.getDate("data_di_nascita"));
-                u.setIndirizzo(resultSet.getString("indirizzo"));
-                u.setTelefono(resultSet.getString("numero_di_cellulare"));
-                u.setPoteri(resultSet.getBoolean("poteri"));
-            }
+            u = MapperEntita.UTENTE.primo(resultSet); // al massimo un utente
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
@@ -47,18 +37,7 @@ public class UtenteDAO {
             PreparedStatement preparedStatement=con.prepareStatement("SELECT email,password,nome,cognome,codice_fiscale,data_di_nascita,indirizzo,numero_di_cellulare,poteri FROM utente WHERE email=?");
             preparedStatement.setString(1,email);
             ResultSet resultSet = preparedStatement.executeQuery();
-            while (resultSet.next()){
-                u = new Utente();
-                u.setEmail(resultSet.getString("email"));
-                u.setPassword(resultSet.getString("password"));
-                u.setNome(resultSet.getString("nome"));
-                u.setCognome(resultSet.getString("cognome"));
-                u.setCodiceFiscale(resultSet.getString("codice_fiscale"));
-                u.setDataNascita(resultSet.getDate("data_di_nascita"));
-                u.setIndirizzo(resultSet.getString("indirizzo"));
-                u.setTelefono(resultSet.getString("numero_di_cellulare"));
-                u.setPoteri(resultSet.getBoolean("poteri"));
-            }
+            u = MapperEntita.UTENTE.primo(resultSet);
         }
         catch (SQLException sqlException)
         {
@@ -103,7 +82,7 @@ public class UtenteDAO {
 
         Utente p;
 
-        try (Connection con = ConPool.getConnection()) {
+        try (Connection con = ConPool.getReadConnection()) {
 
             st = con.createStatement();
 
@@ -208,21 +187,37 @@ public class UtenteDAO {
     }
 
 
+    //L'eliminazione dell'utente elimina a cascata i suoi ordini: escono prima dai riepiloghi delle vendite,
+    //nella stessa transazione
     public void doRemoveUserByEmail(String email){
+        Lock aggiornamenti = RicostruzioneVendite.lockAggiornamenti();
+        aggiornamenti.lock();
         try (Connection connection = ConPool.getConnection()){
-            PreparedStatement preparedStatement = connection.prepareStatement("delete from utente where email = ?");
-            preparedStatement.setString(1, email);
+            connection.setAutoCommit(false);
+            try {
+                new RiepilogoVenditeDAO().doRimuoviOrdiniDiUtenti(connection, List.of(email));
 
-            int rowsDeleted = preparedStatement.executeUpdate();
+                PreparedStatement preparedStatement = connection.prepareStatement("delete from utente where email = ?");
+                preparedStatement.setString(1, email);
 
-            if (rowsDeleted <= 0){
-                System.out.println("No user was deleted from db");
-            }else {
-                System.out.println("User with email:" + email + " was deleted from db");
-            }
+                int rowsDeleted = preparedStatement.executeUpdate();
+                connection.commit();
 
+                if (rowsDeleted <= 0){
+                    System.out.println("No user was deleted from db");
+                }else {
+                    System.out.println("User with email:" + email + " was deleted from db");
+                }
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
         }catch (SQLException e){
             throw new RuntimeException(e);
+        } finally {
+            aggiornamenti.unlock();
         }
     }
 }
@@ -8,11 +8,12 @@ public class Variante {
     
     private int idGusto;
     
-    private String gusto;
+    //gusto e confezione condivisi con le altre varianti (vedi DimensioniCatalogo)
+    private Gusto gusto;
     
     private int idConfezione;
     
-    private int pesoConfezione;
+    private Confezione confezione;
     
     private int quantita; //Quantità disponibile
     
@@ -25,25 +26,47 @@ public class Variante {
 
     
     public String getGusto() {
-        return gusto;
+        return gusto == null ? null : gusto.getNomeGusto();
     }
     /*@
     @   requires gusto != null;
     @   assignable this.gusto;
-    @   ensures this.gusto.equals(gusto);
+    @   ensures getGusto().equals(gusto);
     @*/
     public void setGusto(String gusto) {
+        Gusto nuovo = new Gusto();
+        nuovo.setIdGusto(idGusto);
+        nuovo.setNome(gusto);
+        this.gusto = nuovo;
+    }
+
+    public Gusto getGustoCatalogo() {
+        return gusto;
+    }
+
+    public void setGustoCatalogo(Gusto gusto) {
         this.gusto = gusto;
     }
 
+    public Confezione getConfezione() {
+        return confezione;
+    }
+
+    public void setConfezione(Confezione confezione) {
+        this.confezione = confezione;
+    }
+
 
     
     public int getPesoConfezione() {
-        return pesoConfezione;
+        return confezione == null ? 0 : confezione.getPeso();
     }
 
     public void setPesoConfezione(int pesoConfezione) {
-        this.pesoConfezione = pesoConfezione;
+        Confezione nuova = new Confezione();
+        nuova.setIdConfezione(idConfezione);
+        nuova.setPeso(pesoConfezione);
+        this.confezione = nuova;
     }
 
 
@@ -5,35 +5,29 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
+//Le varianti vengono lette senza join con gusto e confezione: nome del gusto e peso arrivano da
+//DimensioniCatalogo, e i filtri per gusto e per peso confrontano gli id corrispondenti.
 public class VarianteDAO {
+    //Criteri con cui l'admin sceglie le varianti di un aggiornamento massivo dei prezzi
+    public static final List<String> CRITERI_PREZZI = List.of("categoria", "gusto", "confezione", "ids");
+    private static final int MAX_ID_PER_QUERY = 1000;
 
     public List<Variante> doRetrieveVariantiByIdProdotto(String idProdotto){
         List<Variante> varianti = new ArrayList<>();
+        DimensioniCatalogo dimensioni = DimensioniCatalogo.get();
 
         try (Connection connection = ConPool.getConnection()){
-            PreparedStatement preparedStatement = connection.prepareStatement("select v.*, g.nomeGusto, c.peso from variante v join gusto g on v.id_gusto = g.id_gusto join confezione c on v.id_confezione = c.id_confezione " +
+            PreparedStatement preparedStatement = connection.prepareStatement("select v.* from variante v " +
                     "where id_prodotto_variante = ? order by (v.prezzo * (1 - v.sconto / 100)) asc");
             preparedStatement.setString(1, idProdotto);
 
             ResultSet resultSet = preparedStatement.executeQuery();
 
-            while (resultSet.next()){
-                Variante variante = new Variante();
-                variante.setIdVariante(resultSet.getInt("id_variante"));
-                variante.setIdProdotto(resultSet.getString("id_prodotto_variante"));
-                variante.setIdGusto(resultSet.getInt("id_gusto"));
-                variante.setIdConfezione(resultSet.getInt("id_confezione"));
-                variante.setQuantita(resultSet.getInt("quantità"));
-                variante.setPrezzo(resultSet.getFloat("prezzo"));
-                variante.setSconto(resultSet.getInt("sconto"));
-                variante.setEvidenza(resultSet.getBoolean("evidenza"));
-                variante.setGusto(resultSet.getString("nomeGusto"));
-                variante.setPesoConfezione(resultSet.getInt("peso"));
-
-                varianti.add(variante);
-            }
+            MapperEntita.VARIANTE.perOgni(resultSet, v -> varianti.add(dimensioni.collega(v)));
 
 
         }catch (SQLException e){
@@ -46,24 +40,13 @@ public class VarianteDAO {
 
     public List<Variante> doRetrieveAll(){
         List<Variante> varianti = new ArrayList<>();
+        DimensioniCatalogo dimensioni = DimensioniCatalogo.get();
 
-        try (Connection connection = ConPool.getConnection()){
+        try (Connection connection = ConPool.getReadConnection()){
             PreparedStatement preparedStatement = connection.prepareStatement("select * from variante");
 
             ResultSet resultSet = preparedStatement.executeQuery();
-            while (resultSet.next()) {
-                Variante variante = new Variante();
-                variante.setIdVariante(resultSet.getInt("id_variante"));
-                variante.setIdProdotto(resultSet.getString("id_prodotto_variante"));
-                variante.setIdGusto(resultSet.getInt("id_gusto"));
-                variante.setIdConfezione(resultSet.getInt("id_confezione"));
-                variante.setQuantita(resultSet.getInt("quantità"));
-                variante.setPrezzo(resultSet.getFloat("prezzo"));
-                variante.setSconto(resultSet.getInt("sconto"));
-                variante.setEvidenza(resultSet.getBoolean("evidenza"));
-
-                varianti.add(variante);
-            }
+            MapperEntita.VARIANTE.perOgni(resultSet, v -> varianti.add(dimensioni.collega(v)));
         }catch (SQLException e){
             throw new RuntimeException();
         }
@@ -76,41 +59,37 @@ public class VarianteDAO {
 
     public List<Variante> doRetrieveVariantByCriteria(String idProdotto, String attribute, String value) {
         List<Variante> varianti = new ArrayList<>();
-
-        try (Connection connection = ConPool.getConnection()) {
-            String sql = "select * from variante v join gusto g on v.id_gusto = g.id_gusto join confezione c on v.id_confezione = c.id_confezione where id_prodotto_variante = ?";
-
-            switch (attribute) {
-                case "flavour" -> sql += " and g.nomeGusto = ?";
-                case "weight" -> sql += " and c.peso = ?";
+        DimensioniCatalogo dimensioni = DimensioniCatalogo.get();
+
+        String sql = "select * from variante v where id_prodotto_variante = ?";
+        List<Integer> ids = List.of();
+        switch (attribute) {
+            case "flavour" -> {
+                ids = dimensioni.idGusti(value);
+                sql += " and v.id_gusto in (" + segnaposti(ids.size()) + ")";
+            }
+            case "weight" -> {
+                ids = dimensioni.idConfezioni(Integer.parseInt(value));
+                sql += " and v.id_confezione in (" + segnaposti(ids.size()) + ")";
             }
+        }
+        //gusto o peso che non esistono: nessuna variante
+        if ((attribute.equals("flavour") || attribute.equals("weight")) && ids.isEmpty()) {
+            return varianti;
+        }
 
+        try (Connection connection = ConPool.getConnection()) {
             PreparedStatement preparedStatement = connection.prepareStatement(sql);
             preparedStatement.setString(1, idProdotto);
 
-            if (attribute.equals("flavour")) {
-                preparedStatement.setString(2, value);
-            } else if (attribute.equals("weight")) {
-                preparedStatement.setInt(2, Integer.parseInt(value));
+            int paramIndex = 2;
+            for (int id : ids) {
+                preparedStatement.setInt(paramIndex++, id);
             }
 
             ResultSet resultSet = preparedStatement.executeQuery();
 
-            while (resultSet.next()) {
-                Variante variante = new Variante();
-                variante.setIdVariante(resultSet.getInt("id_variante"));
-                variante.setIdProdotto(resultSet.getString("id_prodotto_variante"));
-                variante.setIdGusto(resultSet.getInt("id_gusto"));
-                variante.setIdConfezione(resultSet.getInt("id_confezione"));
-                variante.setQuantita(resultSet.getInt("quantità"));
-                variante.setPrezzo(resultSet.getFloat("prezzo"));
-                variante.setSconto(resultSet.getInt("sconto"));
-                variante.setEvidenza(resultSet.getBoolean("evidenza"));
-                variante.setGusto(resultSet.getString("nomeGusto"));
-                variante.setPesoConfezione(resultSet.getInt("peso"));
-
-                varianti.add(variante);
-            }
+            MapperEntita.VARIANTE.perOgni(resultSet, v -> varianti.add(dimensioni.collega(v)));
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
@@ -122,35 +101,32 @@ public class VarianteDAO {
 
     public List<Variante> doRetrieveVariantByFlavourAndWeight(String idProdotto, String flavour, int weight) {
         List<Variante> varianti = new ArrayList<>();
+        DimensioniCatalogo dimensioni = DimensioniCatalogo.get();
+        List<Integer> idGusti = dimensioni.idGusti(flavour);
+        List<Integer> idConfezioni = dimensioni.idConfezioni(weight);
+        if (idGusti.isEmpty() || idConfezioni.isEmpty()) {
+            return varianti;
+        }
 
         try (Connection connection = ConPool.getConnection()) {
-            String sql = "select * from variante v join gusto g on v.id_gusto = g.id_gusto join confezione c on v.id_confezione = c.id_confezione" +
-                    " where id_prodotto_variante = ? and g.nomeGusto = ? and c.peso = ? order by (v.prezzo * (1-v.sconto/100))";
+            String sql = "select * from variante v where id_prodotto_variante = ? and v.id_gusto in (" + segnaposti(idGusti.size()) + ")" +
+                    " and v.id_confezione in (" + segnaposti(idConfezioni.size()) + ") order by (v.prezzo * (1-v.sconto/100))";
 
 
             PreparedStatement preparedStatement = connection.prepareStatement(sql);
             preparedStatement.setString(1, idProdotto);
 
-            preparedStatement.setString(2, flavour);
-            preparedStatement.setInt(3, weight);
+            int paramIndex = 2;
+            for (int id : idGusti) {
+                preparedStatement.setInt(paramIndex++, id);
+            }
+            for (int id : idConfezioni) {
+                preparedStatement.setInt(paramIndex++, id);
+            }
 
             ResultSet resultSet = preparedStatement.executeQuery();
 
-            while (resultSet.next()) {
-                Variante variante = new Variante();
-                variante.setIdVariante(resultSet.getInt("id_variante"));
-                variante.setIdProdotto(resultSet.getString("id_prodotto_variante"));
-                variante.setIdGusto(resultSet.getInt("id_gusto"));
-                variante.setIdConfezione(resultSet.getInt("id_confezione"));
-                variante.setQuantita(resultSet.getInt("quantità"));
-                variante.setPrezzo(resultSet.getFloat("prezzo"));
-                variante.setSconto(resultSet.getInt("sconto"));
-                variante.setEvidenza(resultSet.getBoolean("evidenza"));
-                variante.setGusto(resultSet.getString("nomeGusto"));
-                variante.setPesoConfezione(resultSet.getInt("peso"));
-
-                varianti.add(variante);
-            }
+            MapperEntita.VARIANTE.perOgni(resultSet, v -> varianti.add(dimensioni.collega(v)));
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
@@ -161,69 +137,36 @@ public class VarianteDAO {
 
 
     public Variante doRetrieveVarianteByIdVariante(int idVariante){
-        Variante variante = new Variante();
-
+        DimensioniCatalogo dimensioni = DimensioniCatalogo.get();
         try (Connection connection = ConPool.getConnection()){
-            String sql = "select * from variante v join gusto g on v.id_gusto = g.id_gusto join confezione c on v.id_confezione = c.id_confezione where id_variante = ?";
+            String sql = "select * from variante v where id_variante = ?";
             PreparedStatement preparedStatement = connection.prepareStatement(sql);
             preparedStatement.setInt(1, idVariante);
 
             ResultSet resultSet = preparedStatement.executeQuery();
-
-            if (resultSet.next()){
-                variante.setIdVariante(resultSet.getInt("id_variante"));
-                variante.setIdProdotto(resultSet.getString("id_prodotto_variante"));
-                variante.setIdGusto(resultSet.getInt("id_gusto"));
-                variante.setIdConfezione(resultSet.getInt("id_confezione"));
-                variante.setPrezzo(resultSet.getFloat("prezzo"));
-                variante.setSconto(resultSet.getInt("sconto"));
-                variante.setEvidenza(resultSet.getBoolean("evidenza"));
-                variante.setQuantita(resultSet.getInt("quantità"));
-
-
-                variante.setGusto(resultSet.getString("nomeGusto"));
-                variante.setPesoConfezione(resultSet.getInt("peso"));
-            }else {
-                return null;
-            }
-
+            Variante variante = MapperEntita.VARIANTE.primo(resultSet);
+            return variante != null ? dimensioni.collega(variante) : null;
         }catch (SQLException e){
             throw new RuntimeException(e);
         }
-
-
-        return variante;
     }
 
 
     public Variante doRetrieveCheapestVariant(String idProdotto){
-        Variante variante = new Variante();
-
-
+        DimensioniCatalogo dimensioni = DimensioniCatalogo.get();
         try (Connection connection = ConPool.getConnection()){
-            String sql = "select v.*, g.nomeGusto, c.peso from prodotto p join variante v on p.id_prodotto = v.id_prodotto_variante join gusto g on v.id_gusto = g.id_gusto join confezione c on v.id_confezione = c.id_confezione" +
-                    " where p.id_prodotto = ? order by (v.prezzo * (1 - v.sconto / 100)) limit 1";
+            String sql = "select v.* from variante v" +
+                    " where v.id_prodotto_variante = ? order by (v.prezzo * (1 - v.sconto / 100)) limit 1";
             PreparedStatement preparedStatement = connection.prepareStatement(sql);
             preparedStatement.setString(1, idProdotto);
 
             ResultSet resultSet = preparedStatement.executeQuery();
-            while (resultSet.next()){
-                variante.setIdVariante(resultSet.getInt("id_variante"));
-                variante.setIdProdotto(resultSet.getString("id_prodotto_variante"));
-                variante.setIdGusto(resultSet.getInt("id_gusto"));
-                variante.setIdConfezione(resultSet.getInt("id_confezione"));
-                variante.setQuantita(resultSet.getInt("quantità"));
-                variante.setPrezzo(resultSet.getFloat("prezzo"));
-                variante.setSconto(resultSet.getInt("sconto"));
-                variante.setEvidenza(resultSet.getBoolean("evidenza"));
-                variante.setGusto(resultSet.getString("nomeGusto"));
-                variante.setPesoConfezione(resultSet.getInt("peso"));
-            }
+            //un prodotto senza varianti restituisce una variante vuota
+            Variante variante = MapperEntita.VARIANTE.primo(resultSet);
+            return variante != null ? dimensioni.collega(variante) : new Variante();
         }catch (SQLException e){
             throw new RuntimeException(e);
         }
-
-        return variante;
     }
 
 
@@ -233,11 +176,10 @@ public class VarianteDAO {
         }
 
         List<Variante> varianti = new ArrayList<>();
+        DimensioniCatalogo dimensioni = DimensioniCatalogo.get();
 
-        try (Connection connection = ConPool.getConnection()) {
-            StringBuilder sql = new StringBuilder("SELECT v.*, g.nomeGusto, c.peso FROM variante v ")
-                    .append("JOIN gusto g ON v.id_gusto = g.id_gusto ")
-                    .append("JOIN confezione c ON v.id_confezione = c.id_confezione ")
+        try (Connection connection = ConPool.getReadConnection()) {
+            StringBuilder sql = new StringBuilder("SELECT v.* FROM variante v ")
                     .append("WHERE v.id_prodotto_variante IN (");
 
             for (int i = 0; i < prodotti.size(); i++) {
@@ -254,21 +196,7 @@ public class VarianteDAO {
             }
 
             ResultSet rs = ps.executeQuery();
-            while (rs.next()) {
-                Variante variante = new Variante();
-                variante.setIdVariante(rs.getInt("id_variante"));
-                variante.setIdProdotto(rs.getString("id_prodotto_variante"));
-                variante.setIdGusto(rs.getInt("id_gusto"));
-                variante.setIdConfezione(rs.getInt("id_confezione"));
-                variante.setQuantita(rs.getInt("quantità"));
-                variante.setPrezzo(rs.getFloat("prezzo"));
-                variante.setSconto(rs.getInt("sconto"));
-                variante.setEvidenza(rs.getBoolean("evidenza"));
-                variante.setGusto(rs.getString("nomeGusto"));
-                variante.setPesoConfezione(rs.getInt("peso"));
-
-                varianti.add(variante);
-            }
+            MapperEntita.VARIANTE.perOgni(rs, v -> varianti.add(dimensioni.collega(v)));
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
@@ -279,49 +207,32 @@ public class VarianteDAO {
 
     public List<Variante> doRetrieveFilteredVariantiByIdProdotto(String idProdotto, String weightFilter, String tasteFilter) throws SQLException {
         List<Variante> varianti = new ArrayList<>();
+        DimensioniCatalogo dimensioni = DimensioniCatalogo.get();
+        List<Integer> idConfezioni = idConfezioniFiltro(dimensioni, weightFilter);
+        List<Integer> idGusti = idGustiFiltro(dimensioni, tasteFilter);
+        if ((idConfezioni != null && idConfezioni.isEmpty()) || (idGusti != null && idGusti.isEmpty())) {
+            return varianti;
+        }
 
-        try (Connection connection = ConPool.getConnection()) {
+        try (Connection connection = ConPool.getReadConnection()) {
             StringBuilder sql = new StringBuilder();
-            sql.append("SELECT v.*, g.nomeGusto, c.peso FROM variante v ");
-            sql.append("JOIN gusto g ON v.id_gusto = g.id_gusto ");
-            sql.append("JOIN confezione c ON v.id_confezione = c.id_confezione ");
+            sql.append("SELECT v.* FROM variante v ");
             sql.append("WHERE v.id_prodotto_variante = ? ");
 
             // Gestione dei filtri
-            if (weightFilter != null && !weightFilter.isBlank()) {
-                sql.append("AND c.peso = ? ");
+            if (idConfezioni != null) {
+                sql.append("AND v.id_confezione IN (").append(segnaposti(idConfezioni.size())).append(") ");
             }
-            if (tasteFilter != null && !tasteFilter.isBlank()) {
-                sql.append("AND g.nomeGusto = ? ");
+            if (idGusti != null) {
+                sql.append("AND v.id_gusto IN (").append(segnaposti(idGusti.size())).append(") ");
             }
 
             PreparedStatement preparedStatement = connection.prepareStatement(sql.toString());
             preparedStatement.setString(1, idProdotto);
-
-            int paramIndex = 2;
-            if (weightFilter != null && !weightFilter.isBlank()) {
-                preparedStatement.setInt(paramIndex++, Integer.parseInt(weightFilter.split(" ")[0]));
-            }
-            if (tasteFilter != null && !tasteFilter.isBlank()) {
-                preparedStatement.setString(paramIndex++, tasteFilter.split(" \\(")[0]);
-            }
+            impostaIdFiltri(preparedStatement, 2, idConfezioni, idGusti);
 
             ResultSet resultSet = preparedStatement.executeQuery();
-            while (resultSet.next()) {
-                Variante variante = new Variante();
-                variante.setIdVariante(resultSet.getInt("id_variante"));
-                variante.setIdProdotto(resultSet.getString("id_prodotto_variante"));
-                variante.setIdGusto(resultSet.getInt("id_gusto"));
-                variante.setIdConfezione(resultSet.getInt("id_confezione"));
-                variante.setQuantita(resultSet.getInt("quantità"));
-                variante.setPrezzo(resultSet.getFloat("prezzo"));
-                variante.setSconto(resultSet.getInt("sconto"));
-                variante.setEvidenza(resultSet.getBoolean("evidenza"));
-                variante.setGusto(resultSet.getString("nomeGusto"));
-                variante.setPesoConfezione(resultSet.getInt("peso"));
-
-                varianti.add(variante);
-            }
+            MapperEntita.VARIANTE.perOgni(resultSet, v -> varianti.add(dimensioni.collega(v)));
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
@@ -332,21 +243,25 @@ public class VarianteDAO {
 
     public Variante doRetrieveCheapestFilteredVarianteByIdProdotto(String idProdotto, String weightFilter, String tasteFilter, boolean evidence) throws SQLException {
         Variante cheapestVariante = null;
+        DimensioniCatalogo dimensioni = DimensioniCatalogo.get();
+        List<Integer> idConfezioni = idConfezioniFiltro(dimensioni, weightFilter);
+        List<Integer> idGusti = idGustiFiltro(dimensioni, tasteFilter);
+        if ((idConfezioni != null && idConfezioni.isEmpty()) || (idGusti != null && idGusti.isEmpty())) {
+            return null;
+        }
 
-        try (Connection connection = ConPool.getConnection()) {
+        try (Connection connection = ConPool.getReadConnection()) {
             StringBuilder sql = new StringBuilder();
-            sql.append("SELECT v.*, g.nomeGusto, c.peso, ");
+            sql.append("SELECT v.*, ");
             sql.append("(v.prezzo * (1 - v.sconto / 100.0)) AS prezzo_scontato ");
             sql.append("FROM variante v ");
-            sql.append("JOIN gusto g ON v.id_gusto = g.id_gusto ");
-            sql.append("JOIN confezione c ON v.id_confezione = c.id_confezione ");
             sql.append("WHERE v.id_prodotto_variante = ? ");
 
-            if (weightFilter != null && !weightFilter.isBlank()) {
-                sql.append("AND c.peso = ? ");
+            if (idConfezioni != null) {
+                sql.append("AND v.id_confezione IN (").append(segnaposti(idConfezioni.size())).append(") ");
             }
-            if (tasteFilter != null && !tasteFilter.isBlank()) {
-                sql.append("AND g.nomeGusto = ? ");
+            if (idGusti != null) {
+                sql.append("AND v.id_gusto IN (").append(segnaposti(idGusti.size())).append(") ");
             }
             if (evidence)
                 sql.append("AND v.evidenza = 1 ");
@@ -355,28 +270,12 @@ public class VarianteDAO {
 
             PreparedStatement preparedStatement = connection.prepareStatement(sql.toString());
             preparedStatement.setString(1, idProdotto);
-
-            int paramIndex = 2;
-            if (weightFilter != null && !weightFilter.isBlank()) {
-                preparedStatement.setInt(paramIndex++, Integer.parseInt(weightFilter.split(" ")[0]));
-            }
-            if (tasteFilter != null && !tasteFilter.isBlank()) {
-                preparedStatement.setString(paramIndex++, tasteFilter.split(" \\(")[0]);
-            }
+            impostaIdFiltri(preparedStatement, 2, idConfezioni, idGusti);
 
             ResultSet resultSet = preparedStatement.executeQuery();
-            if (resultSet.next()) {
-                cheapestVariante = new Variante();
-                cheapestVariante.setIdVariante(resultSet.getInt("id_variante"));
-                cheapestVariante.setIdProdotto(resultSet.getString("id_prodotto_variante"));
-                cheapestVariante.setIdGusto(resultSet.getInt("id_gusto"));
-                cheapestVariante.setIdConfezione(resultSet.getInt("id_confezione"));
-                cheapestVariante.setQuantita(resultSet.getInt("quantità"));
-                cheapestVariante.setPrezzo(resultSet.getFloat("prezzo"));
-                cheapestVariante.setSconto(resultSet.getInt("sconto"));
-                cheapestVariante.setEvidenza(resultSet.getBoolean("evidenza"));
-                cheapestVariante.setGusto(resultSet.getString("nomeGusto"));
-                cheapestVariante.setPesoConfezione(resultSet.getInt("peso"));
+            cheapestVariante = MapperEntita.VARIANTE.primo(resultSet);
+            if (cheapestVariante != null) {
+                dimensioni.collega(cheapestVariante);
             }
         } catch (SQLException e) {
             throw new RuntimeException(e);
@@ -386,6 +285,37 @@ public class VarianteDAO {
     }
 
 
+    //Id delle confezioni del filtro per peso ("500 g" -> peso 500); null se il filtro non c'è
+    private static List<Integer> idConfezioniFiltro(DimensioniCatalogo dimensioni, String weightFilter) {
+        if (weightFilter == null || weightFilter.isBlank()) {
+            return null;
+        }
+        return dimensioni.idConfezioni(Integer.parseInt(weightFilter.split(" ")[0]));
+    }
+
+    //Id dei gusti del filtro per gusto ("Fragola (3)" -> "Fragola"); null se il filtro non c'è
+    private static List<Integer> idGustiFiltro(DimensioniCatalogo dimensioni, String tasteFilter) {
+        if (tasteFilter == null || tasteFilter.isBlank()) {
+            return null;
+        }
+        return dimensioni.idGusti(tasteFilter.split(" \\(")[0]);
+    }
+
+    private static void impostaIdFiltri(PreparedStatement preparedStatement, int paramIndex, List<Integer> idConfezioni,
+                                        List<Integer> idGusti) throws SQLException {
+        for (List<Integer> ids : Arrays.asList(idConfezioni, idGusti)) {
+            if (ids != null) {
+                for (int id : ids) {
+                    preparedStatement.setInt(paramIndex++, id);
+                }
+            }
+        }
+    }
+
+    private static String segnaposti(int n) {
+        return String.join(", ", Collections.nCopies(n, "?"));
+    }
+
     public void updateVariante(Variante v, int idVariante){
         try (Connection connection = ConPool.getConnection()){
             PreparedStatement preparedStatement = connection.prepareStatement("update variante set id_variante = ?, id_prodotto_variante = ?, id_gusto = ?, id_confezione = ?, prezzo = ?, quantità = ?, sconto = ?, evidenza = ? where id_variante = ?");
@@ -436,4 +366,86 @@ public class VarianteDAO {
             throw new RuntimeException(e);
         }
     }
+
+    //Aggiornamento massivo dei prezzi (es. i saldi): imposta lo sconto e/o l'evidenza e/o varia il prezzo in percentuale
+    //di tutte le varianti di una categoria, di un gusto, di una confezione o di un elenco di id.
+    //Una sola UPDATE in un'unica transazione (divisa solo per elenchi di id molto lunghi): il negozio vede
+    //tutte le varianti aggiornate oppure nessuna. I parametri null non vengono modificati.
+    //Restituisce il numero di varianti aggiornate.
+    public int doUpdatePrezzi(String criterio, List<String> valori, Integer sconto, Float variazionePercentuale, Boolean evidenza) {
+        if (!CRITERI_PREZZI.contains(criterio)) {
+            throw new IllegalArgumentException("Criterio non valido: " + criterio);
+        }
+        if (sconto == null && variazionePercentuale == null && evidenza == null) {
+            throw new IllegalArgumentException("Nessuna modifica richiesta");
+        }
+        if (sconto != null && (sconto < 0 || sconto > 100)) {
+            throw new IllegalArgumentException("Sconto non valido: " + sconto);
+        }
+        //il prezzo non può diventare negativo o nullo
+        if (variazionePercentuale != null && (variazionePercentuale <= -100 || variazionePercentuale.isNaN() || variazionePercentuale.isInfinite())) {
+            throw new IllegalArgumentException("Variazione non valida: " + variazionePercentuale);
+        }
+        if (valori == null || valori.isEmpty()) {
+            return 0;
+        }
+
+        StringBuilder set = new StringBuilder();
+        if (sconto != null) {
+            set.append("v.sconto = ?");
+        }
+        if (variazionePercentuale != null) {
+            set.append(set.length() > 0 ? ", " : "").append("v.prezzo = ROUND(v.prezzo * (100 + ?) / 100, 2)");
+        }
+        if (evidenza != null) {
+            set.append(set.length() > 0 ? ", " : "").append("v.evidenza = ?");
+        }
+
+        String update;
+        switch (criterio) {
+            case "categoria" -> update = "UPDATE variante v JOIN prodotto p ON p.id_prodotto = v.id_prodotto_variante SET " + set + " WHERE p.categoria IN (";
+            case "gusto" -> update = "UPDATE variante v SET " + set + " WHERE v.id_gusto IN (";
+            case "confezione" -> update = "UPDATE variante v SET " + set + " WHERE v.id_confezione IN (";
+            default -> update = "UPDATE variante v SET " + set + " WHERE v.id_variante IN (";
+        }
+
+        try (Connection con = ConPool.getConnection()) {
+            con.setAutoCommit(false);
+            try {
+                int aggiornate = 0;
+                for (int inizio = 0; inizio < valori.size(); inizio += MAX_ID_PER_QUERY) {
+                    List<String> blocco = valori.subList(inizio, Math.min(valori.size(), inizio + MAX_ID_PER_QUERY));
+                    try (PreparedStatement ps = con.prepareStatement(update + String.join(", ", java.util.Collections.nCopies(blocco.size(), "?")) + ")")) {
+                        int paramIndex = 1;
+                        if (sconto != null) {
+                            ps.setInt(paramIndex++, sconto);
+                        }
+                        if (variazionePercentuale != null) {
+                            ps.setFloat(paramIndex++, variazionePercentuale);
+                        }
+                        if (evidenza != null) {
+                            ps.setBoolean(paramIndex++, evidenza);
+                        }
+                        for (String valore : blocco) {
+                            if (criterio.equals("categoria")) {
+                                ps.setString(paramIndex++, valore);
+                            } else {
+                                ps.setInt(paramIndex++, Integer.parseInt(valore.trim()));
+                            }
+                        }
+                        aggiornate += ps.executeUpdate();
+                    }
+                }
+                con.commit();
+                return aggiornate;
+            } catch (SQLException | RuntimeException e) {
+                con.rollback();
+                throw e;
+            } finally {
+                con.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
 }
@@ -0,0 +1,41 @@
+package model;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Versione globale dei dati del catalogo (prodotti, varianti, gusti e confezioni), usata dalle cache HTTP
+//delle pagine e dei JSON del negozio: aumenta ad ogni scrittura dell'admin su queste tabelle (vedi RevisioniTabelle)
+//e ad ogni ripubblicazione del catalogo. Leggerla non costa nulla, quindi si può confrontare prima di ogni lavoro sul DB.
+//Come le revisioni sta in memoria: il momento dell'avvio fa parte della versione, così dopo un riavvio
+//nessun valore vecchio può coincidere con uno nuovo.
+public final class VersioneCatalogo {
+
+    static final Set<String> TABELLE = Set.of("prodotto", "variante", "gusto", "confezione");
+
+    private static final long AVVIO = System.currentTimeMillis();
+    private static final AtomicLong VERSIONE = new AtomicLong();
+    private static volatile long ultimaModifica = AVVIO;
+
+    private VersioneCatalogo() {
+    }
+
+    //Versione corrente in forma di stringa, es. "m1abc2de-15"
+    public static String get() {
+        return Long.toString(AVVIO, 36) + "-" + VERSIONE.get();
+    }
+
+    //Istante (in millisecondi) dell'ultima modifica del catalogo, per l'header Last-Modified
+    public static long getUltimaModifica() {
+        return ultimaModifica;
+    }
+
+    //Da chiamare dopo il commit della scrittura: chi ha letto la versione prima vedrà comunque un valore diverso
+    public static void incrementa() {
+        ultimaModifica = Math.max(System.currentTimeMillis(), ultimaModifica);
+        VERSIONE.incrementAndGet();
+    }
+
+    static boolean isTabellaCatalogo(String tabella) {
+        return TABELLE.contains(tabella);
+    }
+}
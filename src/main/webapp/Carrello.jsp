@@ -38,7 +38,7 @@
                                  5. c:out PROTEGGE DA XSS.
                                  escapeXml="true" è il default, ma lo specifico per chiarezza.
                             --%>
-                        <img src="<c:out value='${cartItem.immagineProdotto}'/>"
+                        <img src="<c:out value='${cartItem.immagineMiniatura}'/>"
                              alt="<c:out value='${cartItem.nomeProdotto}'/>">
 
                         <div class="product-info">
@@ -79,402 +79,551 @@ function showUpdateForm(dataTable, nameTable, primaryKey) {
     button.innerText = "Modifica";
     button.type = "submit";
     form.append(button);
+    form.onsubmit = function (event) {
+        event.preventDefault();
+        submitAdminForm(form, divForm);
+    };
 
     divForm.append(form);
     document.body.append(divForm);
 }
 
+// Invia il form di inserimento/modifica e torna alla tabella: la risposta contiene solo la chiave della riga
+// e la nuova revisione, quindi la tabella viene ricaricata dalla prima pagina (la riga può aver cambiato posizione)
+function submitAdminForm(form, divForm) {
+    fetch(form.action, {
+        method: "POST",
+        headers: {"Accept": "application/json"},
+        body: new FormData(form)
+    })
+        .then(response => {
+            if (!response.ok) throw new Error(`Network error: ${response.status} - ${response.statusText}`);
+            return response.json();
+        })
+        .then(() => {
+            divForm.remove();
+            document.querySelector(".tableDB").style.display = "";
+            reloadAdminGrid();
+        })
+        .catch(error => {
+            console.error(error);
+            alert("Operazione non riuscita: controlla i dati inseriti.");
+        });
+}
 
-function deleteTableRow(nameTable, primaryKey) {
-    let urlSearch = new URLSearchParams();
-    urlSearch.append("tableName", nameTable);
-    urlSearch.append("primaryKey", primaryKey);
+
+function deleteTableRow(nameTable, valoriChiave) {
     if (confirm("Vuoi davvero eliminare questa riga?")) {
-        fetch("deleteRow?" + urlSearch.toString())
-            .then(response => {
-                // --- SECURITY FIX START ---
-                if (response.redirected) {
-                    console.log("Response redirected");
-                    
-                    // Parse the new URL
-                    const potentialRedirect = new URL(response.url);
-                    
-                    // Check if the redirect matches your current origin (Domain, Protocol, Port)
-                    if (potentialRedirect.origin === window.location.origin) {
-                        window.location.href = response.url;
-                    } else {
-                        console.error("Blocked unsafe redirect to: ", response.url);
-                        // Optional: Show an error message to the user
-                        alert("Security Warning: Attempted redirect to an external site blocked.");
-                    }
-                    return; 
-                }
-                // --- SECURITY FIX END ---
-
-                if (!response.ok) throw new Error(`Network error: ${response.status} - ${response.statusText}`);
-                return response.json();
-            })
-            .then(responseData => {
-                // Check if responseData exists before using it to prevent errors if the redirect block triggered
-                if(responseData) {
-                    console.log(responseData);
-                    updateTableView(nameTable, responseData);
-                }
-            })
-            .catch(error => {
-                console.error(error);
-            });
+        sendDeleteRows(nameTable, [valoriChiave]);
     }
 }
 
-function updateTableView(tableName, data) {
-    let table = document.querySelector(".tableDB");
-    if (table.style.display === "none") table.style.display = "block";
-    let rows = table.getElementsByTagName("tr");
-
-    // Cancella tutte le righe tranne l'intestazione
-    for (let i = rows.length - 1; i > 0; i--) {
-        table.deleteRow(i);
+function deleteSelectedRows() {
+    let chiavi = Array.from(adminGrid.selezionate.values());
+    if (chiavi.length === 0) {
+        alert("Seleziona almeno una riga.");
+        return;
     }
-
-    if (tableName === "utente") {
-        updateUserView(table, data);
-    } else if (tableName === "prodotto") {
-        updateProductView(table, data);
-    } else if (tableName === "variante") {
-        updateVarianteView(table, data);
-    } else if (tableName === "ordine"){
-        updateOrdiniView(table, data);
-    } else if (tableName === "dettaglioOrdine"){
-        updateDettaglioOrdiniView(table, data);
-    } else if (tableName === "gusto"){
-        updateGustoView(table, data);
-    } else if (tableName === "confezione"){
-        updateConfezioneView(table, data);
+    if (confirm("Vuoi davvero eliminare " + chiavi.length + " righe?")) {
+        sendDeleteRows(adminGrid.tableName, chiavi);
     }
 }
 
+// Le righe selezionate vengono eliminate con un'unica richiesta (e un'unica DELETE).
+// Ogni chiave è l'array dei valori delle colonne della chiave primaria: i valori non vengono mai separati da testo
+function sendDeleteRows(nameTable, chiavi) {
+    let params = new URLSearchParams();
+    params.append("tableName", nameTable);
+    params.append("chiavi", JSON.stringify(chiavi));
+
+    fetch("deleteRow", {
+        method: "POST",
+        headers: {"Content-Type": "application/x-www-form-urlencoded", "Accept": "application/json"},
+        body: params.toString()
+    })
+        .then(response => {
+            // --- SECURITY FIX START ---
+            if (response.redirected) {
+                console.log("Response redirected");
+
+                // Parse the new URL
+                const potentialRedirect = new URL(response.url);
+
+                // Check if the redirect matches your current origin (Domain, Protocol, Port)
+                if (potentialRedirect.origin === window.location.origin) {
+                    window.location.href = response.url;
+                } else {
+                    console.error("Blocked unsafe redirect to: ", response.url);
+                    // Optional: Show an error message to the user
+                    alert("Security Warning: Attempted redirect to an external site blocked.");
+                }
+                return;
+            }
+            // --- SECURITY FIX END ---
 
-function updateConfezioneView(table, data){
-    data.forEach(confezione =>{
-        let row = table.insertRow();
-        let idConfezioneCell = row.insertCell();
-        idConfezioneCell.innerText = confezione.idConfezione ?? 'undefined';
-        let pesoConfezioneCell = row.insertCell();
-        pesoConfezioneCell.innerText = confezione.pesoConfezione ?? 'undefined';
-
-        let actionCell = row.insertCell();
-        
-        let editBtn = document.createElement("button");
-        editBtn.className = "button";
-        editBtn.innerText = "Modifica";
-        editBtn.onclick = function() { editTableRow('confezione', confezione.idConfezione); };
-        
-        let deleteBtn = document.createElement("button");
-        deleteBtn.className = "button";
-        deleteBtn.innerText = "Elimina";
-        deleteBtn.onclick = function() { deleteTableRow('confezione', confezione.idConfezione); };
-        
-        actionCell.appendChild(editBtn);
-        actionCell.appendChild(deleteBtn);
-    });
-    // Aggiungi la riga del pulsante "add"
-    let addRow1 = table.insertRow();
-    let addCell = addRow1.insertCell();
-    addCell.colSpan = 8;
-    addCell.className = "center";
-    let addButton = document.createElement("button");
-    addButton.className = "add-button";
-    addButton.innerText = "+";
-    addButton.addEventListener("click", function () {
-        addRow('confezione');
-    });
-    addCell.appendChild(addButton);
+            if (!response.ok) throw new Error(`Network error: ${response.status} - ${response.statusText}`);
+            return response.json();
+        })
+        .then(risposta => {
+            // Check if risposta exists before using it to prevent errors if the redirect block triggered
+            if (risposta) {
+                removeAdminGridRows(risposta);
+            }
+        })
+        .catch(error => {
+            console.error(error);
+        });
 }
 
-function updateGustoView(table, data){
-    data.forEach(gusto =>{
-        let row = table.insertRow();
-        let idGustoCell = row.insertCell();
-        idGustoCell.innerText = gusto.idGusto ?? 'undefined';
-        let nomeGustoCell = row.insertCell();
-        nomeGustoCell.innerText = gusto.nomeGusto  ?? 'undefined';
-
-        let actionCell = row.insertCell();
-        
-        let editBtn = document.createElement("button");
-        editBtn.className = "button";
-        editBtn.innerText = "Modifica";
-        editBtn.onclick = function() { editTableRow('gusto', gusto.idGusto); };
-        
-        let deleteBtn = document.createElement("button");
-        deleteBtn.className = "button";
-        deleteBtn.innerText = "Elimina";
-        deleteBtn.onclick = function() { deleteTableRow('gusto', gusto.idGusto); };
-        
-        actionCell.appendChild(editBtn);
-        actionCell.appendChild(deleteBtn);
+// Se nessun altro ha modificato la tabella (revisione aumentata di uno) basta togliere le righe eliminate,
+// altrimenti la tabella viene ricaricata
+function removeAdminGridRows(risposta) {
+    if (adminGrid.revisione === null || risposta.revisione !== adminGrid.revisione + 1) {
+        reloadAdminGrid();
+        return;
+    }
+    adminGrid.revisione = risposta.revisione;
+
+    // righe eliminate in pagine non più in memoria: rileggendole si sposterebbero le altre, meglio ricaricare
+    let chiavi = new Set(risposta.chiavi);
+    let trovate = adminGrid.pagine.reduce((n, pagina) =>
+        n + (pagina.righe || []).filter(riga => chiavi.has(chiaveAdminGrid(riga))).length, 0);
+    if (trovate < chiavi.size) {
+        reloadAdminGrid();
+        return;
+    }
+    adminGrid.pagine.forEach(pagina => {
+        if (pagina.righe === null) return;
+        let rimaste = pagina.righe.filter(riga => !chiavi.has(chiaveAdminGrid(riga)));
+        adminGrid.caricate -= pagina.righe.length - rimaste.length;
+        adminGrid.totale -= pagina.righe.length - rimaste.length;
+        pagina.righe = rimaste;
+        pagina.numero = rimaste.length;
     });
+    chiavi.forEach(chiave => adminGrid.selezionate.delete(chiave));
+    let selectAll = document.getElementById("bulk-select-all");
+    if (selectAll) selectAll.checked = false;
+    updateAdminGridInfo();
+    drawAdminGrid();
+}
 
-    // Aggiungi la riga del pulsante "add"
-    let addRow1 = table.insertRow();
-    let addCell = addRow1.insertCell();
-    addCell.colSpan = 8;
-    addCell.className = "center";
-    let addButton = document.createElement("button");
-    addButton.className = "add-button";
-    addButton.innerText = "+";
-    addButton.addEventListener("click", function () {
-        addRow('gusto');
+// Righe disegnate oltre quelle visibili, sopra e sotto, e pagine tenute in memoria oltre quelle disegnate
+const GRID_RIGHE_MARGINE = 20;
+const GRID_PAGINE_VICINE = 2;
+
+// Stato della tabella paginata (selezionate: chiave della riga -> valori della chiave primaria): le righe vengono chieste ad adminGrid una pagina alla volta
+// mentre si scorre, con ordinamento e filtri applicati dal server.
+// Scorrimento virtuale: nel DOM ci sono solo le righe visibili (più GRID_RIGHE_MARGINE), tra due righe vuote
+// alte quanto quelle che sostituiscono; delle pagine lontane resta solo il cursore da cui sono state lette,
+// e vengono richieste di nuovo se si torna a scorrerle. DOM e memoria non crescono con la tabella.
+const adminGrid = {
+    tableName: null,
+    sort: null,
+    dir: "asc",
+    filtri: {},
+    chiave: [],
+    pagine: [],
+    cursor: null,
+    finita: false,
+    caricamento: false,
+    generazione: 0,
+    totale: null,
+    caricate: 0,
+    revisione: null,
+    altezzaRiga: 36,
+    selezionate: new Map(),
+    disegnoRichiesto: false
+};
+
+function initAdminGrid(tableName) {
+    adminGrid.tableName = tableName;
+    let headerRow = document.querySelector(".tableDB thead tr");
+    let colonne = headerRow.querySelectorAll("th").length;
+
+    // Riga dei filtri sotto l'intestazione, un campo per ogni colonna
+    let filterRow = document.createElement("tr");
+    filterRow.className = "grid-filtri";
+    headerRow.querySelectorAll("th").forEach(th => {
+        let cell = document.createElement("td");
+        if (th.dataset.colonna) {
+            let input = document.createElement("input");
+            input.type = "text";
+            input.placeholder = "Filtra";
+            let timer;
+            input.addEventListener("input", function () {
+                clearTimeout(timer);
+                timer = setTimeout(function () {
+                    adminGrid.filtri[th.dataset.colonna] = input.value;
+                    reloadAdminGrid();
+                }, 300);
+            });
+            cell.appendChild(input);
+        }
+        filterRow.appendChild(cell);
+    });
+    headerRow.after(filterRow);
+
+    // Righe vuote che prendono il posto di quelle non disegnate
+    let tbody = document.querySelector(".tableDB tbody");
+    ["grid-spazio-sopra", "grid-spazio-sotto"].forEach(classe => {
+        let spazio = document.createElement("tr");
+        spazio.className = "grid-spazio " + classe;
+        spazio.insertCell().colSpan = colonne;
+        tbody.appendChild(spazio);
     });
-    addCell.appendChild(addButton);
+
+    window.addEventListener("scroll", requestAdminGridDraw, {passive: true});
+    window.addEventListener("resize", requestAdminGridDraw);
+
+    loadAdminGridPage();
 }
 
-function updateDettaglioOrdiniView(table, data){
-    data.forEach(dettaglioOrdine =>{
-        let row = table.insertRow();
-        let idOrdineCell = row.insertCell();
-        idOrdineCell.innerText = dettaglioOrdine.idOrdine ?? 'undefined';
-        let idProdottoCell = row.insertCell();
-        idProdottoCell.innerText = dettaglioOrdine.idProdotto ?? 'undefined';
-        let idVarianteCell = row.insertCell();
-        idVarianteCell.innerText = dettaglioOrdine.idVariante ?? 'undefined';
-        let quantityCell = row.insertCell();
-        quantityCell.innerText = dettaglioOrdine.quantity ?? 'undefined';
-        let prezzoCell = row.insertCell();
-        prezzoCell.innerText = dettaglioOrdine.prezzo ?? 'undefined';
-
-        let actionCell = row.insertCell();
-        let primaryKey = dettaglioOrdine.idOrdine + ", " + dettaglioOrdine.idProdotto + ", " + dettaglioOrdine.idVariante;
-        
-        let editBtn = document.createElement("button");
-        editBtn.className = "button";
-        editBtn.innerText = "Modifica";
-        editBtn.onclick = function() { editTableRow('dettaglioOrdine', primaryKey); };
-        
-        let deleteBtn = document.createElement("button");
-        deleteBtn.className = "button";
-        deleteBtn.innerText = "Elimina";
-        deleteBtn.onclick = function() { deleteTableRow('dettaglioOrdine', primaryKey); };
-        
-        actionCell.appendChild(editBtn);
-        actionCell.appendChild(deleteBtn);
-    });
+function reloadAdminGrid() {
+    adminGrid.generazione++;
+    adminGrid.pagine = [];
+    adminGrid.cursor = null;
+    adminGrid.finita = false;
+    adminGrid.caricamento = false;
+    adminGrid.caricate = 0;
+    adminGrid.selezionate.clear();
+    let selectAll = document.getElementById("bulk-select-all");
+    if (selectAll) selectAll.checked = false;
+    drawAdminGrid();
+    loadAdminGridPage();
+}
 
-    // Aggiungi la riga del pulsante "add"
-    let addRow1 = table.insertRow();
-    let addCell = addRow1.insertCell();
-    addCell.colSpan = 8;
-    addCell.className = "center";
-    let addButton = document.createElement("button");
-    addButton.className = "add-button";
-    addButton.innerText = "+";
-    addButton.addEventListener("click", function () {
-        addRow('dettaglioOrdine');
-    });
-    addCell.appendChild(addButton);
+// Scarica l'intera tabella (con i filtri correnti) in CSV o NDJSON compresso
+function exportAdminGrid(format) {
+    let params = new URLSearchParams();
+    params.append("tableName", adminGrid.tableName);
+    params.append("format", format);
+    params.append("gzip", "true");
+    for (let colonna in adminGrid.filtri) {
+        if (adminGrid.filtri[colonna]) params.append("f_" + colonna, adminGrid.filtri[colonna]);
+    }
+    window.location.href = "adminExport?" + params.toString();
 }
 
+// Pagina che inizia dal cursore indicato (null = prima pagina), con l'ordinamento e i filtri correnti
+function fetchAdminGridPage(cursor) {
+    let params = new URLSearchParams();
+    params.append("tableName", adminGrid.tableName);
+    if (adminGrid.sort) {
+        params.append("sort", adminGrid.sort);
+        params.append("dir", adminGrid.dir);
+    }
+    if (cursor) params.append("cursor", JSON.stringify(cursor));
+    for (let colonna in adminGrid.filtri) {
+        if (adminGrid.filtri[colonna]) params.append("f_" + colonna, adminGrid.filtri[colonna]);
+    }
 
+    return fetch("adminGrid?" + params.toString())
+        .then(response => {
+            if (!response.ok) throw new Error(`Network error: ${response.status} - ${response.statusText}`);
+            return response.json();
+        });
+}
 
-function updateOrdiniView(table, data) {
-    data.forEach(ordine => {
-        let row = table.insertRow();
-        let idOrdineCell = row.insertCell();
-        idOrdineCell.innerText = ordine.idOrdine ?? 'undefined';
-        let emailUtenteCell = row.insertCell();
-        emailUtenteCell.innerText = ordine.emailUtente ?? 'undefined';
-        let statoCell = row.insertCell();
-        statoCell.innerText = ordine.stato ?? 'undefined';
-        let dataCell = row.insertCell();
-        dataCell.innerText = ordine.data ?? 'undefined';
-        let totaleCell = row.insertCell();
-        totaleCell.innerText = ordine.totale ?? 'undefined';
-        let descrizioneCell = row.insertCell();
-        if (ordine.descrizione) {
-            descrizioneCell.innerText = ordine.descrizione;
-        } else {
-            let link = document.createElement("a");
-            link.href = "showTable?tableName=dettaglioOrdine";
-            link.innerText = "Dettaglio ordine";
-            descrizioneCell.appendChild(link);
-        }
+// Aggiunge in fondo la pagina successiva a quelle lette
+function loadAdminGridPage() {
+    if (adminGrid.caricamento || adminGrid.finita) return;
+    adminGrid.caricamento = true;
+    // le risposte di richieste superate (es. filtro cambiato nel frattempo) vengono ignorate
+    let generazione = adminGrid.generazione;
+    let cursor = adminGrid.cursor;
+
+    fetchAdminGridPage(cursor)
+        .then(pagina => {
+            if (generazione !== adminGrid.generazione) return;
+            if (pagina.colonne) {
+                adminGrid.chiave = pagina.chiave;
+                adminGrid.totale = pagina.totale;
+                adminGrid.revisione = pagina.revisione;
+                setupAdminGridSort(pagina.colonne);
+            }
+            adminGrid.pagine.push({cursor: cursor, righe: pagina.righe, numero: pagina.righe.length, caricamento: false});
+            adminGrid.caricate += pagina.righe.length;
+            adminGrid.cursor = pagina.cursor;
+            adminGrid.finita = pagina.cursor === null;
+            adminGrid.caricamento = false;
+            updateAdminGridInfo();
+            // se la pagina non riempie lo schermo il disegno chiede subito la successiva
+            drawAdminGrid();
+        })
+        .catch(error => {
+            if (generazione === adminGrid.generazione) adminGrid.caricamento = false;
+            console.error(error);
+        });
+}
 
-        let actionCell = row.insertCell();
-        
-        let editBtn = document.createElement("button");
-        editBtn.className = "button";
-        editBtn.innerText = "Modifica";
-        editBtn.onclick = function() { editTableRow('ordine', ordine.idOrdine); };
-        
-        let deleteBtn = document.createElement("button");
-        deleteBtn.className = "button";
-        deleteBtn.innerText = "Elimina";
-        deleteBtn.onclick = function() { deleteTableRow('ordine', ordine.idOrdine); };
-        
-        actionCell.appendChild(editBtn);
-        actionCell.appendChild(deleteBtn);
-    });
+// Rilegge una pagina scaricata dalla memoria, dal cursore da cui era stata letta. Tiene al più le righe che
+// aveva: quelle aggiunte nel frattempo da altri si vedono ricaricando la tabella
+function reloadAdminGridPage(pagina) {
+    if (pagina.caricamento) return;
+    pagina.caricamento = true;
+    let generazione = adminGrid.generazione;
+
+    fetchAdminGridPage(pagina.cursor)
+        .then(risposta => {
+            if (generazione !== adminGrid.generazione) return;
+            pagina.caricamento = false;
+            pagina.righe = risposta.righe.slice(0, pagina.numero);
+            adminGrid.caricate -= pagina.numero - pagina.righe.length;
+            pagina.numero = pagina.righe.length;
+            updateAdminGridInfo();
+            drawAdminGrid();
+        })
+        .catch(error => {
+            pagina.caricamento = false;
+            console.error(error);
+        });
+}
 
-    // Aggiungi la riga del pulsante "add"
-    let addRow1 = table.insertRow();
-    let addCell = addRow1.insertCell();
-    addCell.colSpan = 8;
-    addCell.className = "center";
-    let addButton = document.createElement("button");
-    addButton.className = "add-button";
-    addButton.innerText = "+";
-    addButton.addEventListener("click", function () {
-        addRow('ordine');
-    });
-    addCell.appendChild(addButton);
+function requestAdminGridDraw() {
+    if (adminGrid.disegnoRichiesto) return;
+    adminGrid.disegnoRichiesto = true;
+    requestAnimationFrame(drawAdminGrid);
 }
 
-function updateVarianteView(table, data) {
-    data.forEach(variante => {
-        let row = table.insertRow();
-        let idVarianteCell = row.insertCell();
-        idVarianteCell.innerText = variante.idVariante ?? 'undefined';
-        let idProdottoVarianteCell = row.insertCell();
-        idProdottoVarianteCell.innerText = variante.idProdottoVariante ?? 'undefined';
-        let idGustoCell = row.insertCell();
-        idGustoCell.innerText = variante.idGusto ?? 'undefined';
-        let idConfezioneCell = row.insertCell();
-        idConfezioneCell.innerText = variante.idConfezione ?? 'undefined';
-        let prezzoCell = row.insertCell();
-        prezzoCell.innerText = variante.prezzo ?? 'undefined';
-        let quantityCell = row.insertCell();
-        quantityCell.innerText = variante.quantity ?? 'undefined';
-        let scontoCell = row.insertCell();
-        scontoCell.innerText = variante.sconto ?? 'undefined';
-        let evidenzaCell = row.insertCell();
-        evidenzaCell.innerText = variante.evidenza ?? 'undefined';
-        let actionCell = row.insertCell();
-        
-        let editBtn = document.createElement("button");
-        editBtn.className = "button";
-        editBtn.innerText = "Modifica";
-        editBtn.onclick = function() { editTableRow('variante', variante.idVariante); };
-        
-        let deleteBtn = document.createElement("button");
-        deleteBtn.className = "button";
-        deleteBtn.innerText = "Elimina";
-        deleteBtn.onclick = function() { deleteTableRow('variante', variante.idVariante); };
-        
-        actionCell.appendChild(editBtn);
-        actionCell.appendChild(deleteBtn);
+// Disegna le righe visibili con il loro margine; le righe vuote sopra e sotto tengono l'altezza di quelle mancanti
+function drawAdminGrid() {
+    adminGrid.disegnoRichiesto = false;
+    let tbody = document.querySelector(".tableDB tbody");
+    let sopra = tbody.querySelector(".grid-spazio-sopra");
+    let sotto = tbody.querySelector(".grid-spazio-sotto");
+    let altezza = adminGrid.altezzaRiga;
+
+    // primo pari: le righe mantengono lo sfondo alternato (nth-child) mentre si scorre
+    let primo = Math.floor(-sopra.getBoundingClientRect().top / altezza) - GRID_RIGHE_MARGINE;
+    primo = Math.max(0, Math.min(primo, adminGrid.caricate - 1));
+    primo -= primo % 2;
+    let ultimo = Math.min(adminGrid.caricate, primo + Math.ceil(window.innerHeight / altezza) + 2 * GRID_RIGHE_MARGINE);
+
+    while (sopra.nextElementSibling !== sotto) sopra.nextElementSibling.remove();
+    let righe = document.createDocumentFragment();
+    let inizioPagina = 0;
+    adminGrid.pagine.forEach((pagina, indice) => {
+        let finePagina = inizioPagina + pagina.numero;
+        let vicina = finePagina + GRID_PAGINE_VICINE * pagina.numero > primo && inizioPagina - GRID_PAGINE_VICINE * pagina.numero < ultimo;
+        if (!vicina) {
+            // pagina lontana dalle righe visibili: resta solo il cursore per rileggerla
+            if (!pagina.caricamento) pagina.righe = null;
+        } else if (pagina.righe === null) {
+            reloadAdminGridPage(pagina);
+        }
+        for (let i = Math.max(primo, inizioPagina); i < Math.min(ultimo, finePagina); i++) {
+            righe.appendChild(pagina.righe === null ? createAdminGridPlaceholder() : createAdminGridRow(pagina.righe[i - inizioPagina]));
+        }
+        inizioPagina = finePagina;
     });
+    sotto.before(righe);
+
+    sopra.style.height = (primo * altezza) + "px";
+    sotto.style.height = ((adminGrid.caricate - ultimo) * altezza) + "px";
+    // l'altezza delle righe dipende dal contenuto: si usa la media di quelle appena disegnate
+    if (ultimo > primo) {
+        let misurata = (sotto.getBoundingClientRect().top - sopra.getBoundingClientRect().bottom) / (ultimo - primo);
+        if (misurata > 0) adminGrid.altezzaRiga = misurata;
+    }
 
-    // Aggiungi la riga del pulsante "add" indietro
-    let addRow1 = table.insertRow();
-    let addCell = addRow1.insertCell();
-    addCell.colSpan = 8;
-    addCell.className = "center";
-    let addButton = document.createElement("button");
-    addButton.className = "add-button";
-    addButton.innerText = "+";
-    addButton.addEventListener("click", function () {
-        addRow('variante');
-    });
-    addCell.appendChild(addButton);
+    if (!adminGrid.finita && ultimo + GRID_RIGHE_MARGINE >= adminGrid.caricate) loadAdminGridPage();
 }
 
-function updateProductView(table, data) {
-    data.forEach(product => {
-        let row = table.insertRow();
-        let idProductCell = row.insertCell();
-        idProductCell.innerText = product.idProdotto ?? 'undefined';
-        let nomeCell = row.insertCell();
-        nomeCell.innerText = product.nome ?? 'undefined';
-        let categoriaCell = row.insertCell();
-        categoriaCell.innerText = product.categoria ?? 'undefined';
-        let immmagineCell = row.insertCell();
-        immmagineCell.innerText = product.immagine ?? 'undefined';
-        let calorieCell = row.insertCell();
-        calorieCell.innerText = product.calorie ?? 'undefined';
-        let carboidratiCell = row.insertCell();
-        carboidratiCell.innerText = product.carboidrati ?? 'undefined';
-        let proteineCell = row.insertCell();
-        proteineCell.innerText = product.proteine ?? 'undefined';
-        let grassiCell = row.insertCell();
-        grassiCell.innerText = product.grassi ?? 'undefined';
-        let actionCell = row.insertCell();
-        actionCell.className = "center";
-        
-        let editBtn = document.createElement("button");
-        editBtn.className = "button";
-        editBtn.innerText = "Modifica";
-        editBtn.onclick = function() { editTableRow('prodotto', product.idProdotto); };
-        
-        let deleteBtn = document.createElement("button");
-        deleteBtn.className = "button";
-        deleteBtn.innerText = "Elimina";
-        deleteBtn.onclick = function() { deleteTableRow('prodotto', product.idProdotto); };
-        
-        actionCell.appendChild(editBtn);
-        actionCell.appendChild(deleteBtn);
-    });
+function updateAdminGridInfo() {
+    document.querySelector(".grid-info").innerText = adminGrid.caricate + " di " + adminGrid.totale + " righe";
+}
 
-    // Aggiungi la riga del pulsante "add" indietro
-    let addRow1 = table.insertRow();
-    let addCell = addRow1.insertCell();
-    addCell.colSpan = 8;
-    addCell.className = "center";
-    let addButton = document.createElement("button");
-    addButton.className = "add-button";
-    addButton.innerText = "+";
-    addButton.addEventListener("click", function () {
-        addRow('prodotto');
+// Le colonne ordinabili si ordinano cliccando sull'intestazione (un secondo click inverte l'ordine)
+function setupAdminGridSort(colonne) {
+    document.querySelectorAll(".tableDB thead th[data-colonna]").forEach(th => {
+        let colonna = colonne.find(c => c.nome === th.dataset.colonna);
+        if (!colonna || !colonna.ordinabile || th.dataset.ordinabile) return;
+        th.dataset.ordinabile = "true";
+        th.classList.add("ordinabile");
+        th.addEventListener("click", function (event) {
+            if (event.target.tagName === "A") return;
+            if (adminGrid.sort === th.dataset.colonna) {
+                adminGrid.dir = adminGrid.dir === "asc" ? "desc" : "asc";
+            } else {
+                adminGrid.sort = th.dataset.colonna;
+                adminGrid.dir = "asc";
+            }
+            document.querySelectorAll(".tableDB thead th").forEach(h => h.classList.remove("asc", "desc"));
+            th.classList.add(adminGrid.dir);
+            reloadAdminGrid();
+        });
     });
-    addCell.appendChild(addButton);
 }
 
-function updateUserView(table, data) {
-    data.forEach(user => {
-        let row = table.insertRow();
-        let emailCell = row.insertCell();
-        emailCell.innerText = user.email || 'undefined';
-        let nomeCell = row.insertCell();
-        nomeCell.innerText = user.nome || 'undefined';
-        let cognomeCell = row.insertCell();
-        cognomeCell.innerText = user.cognome || 'undefined';
-        let codiceFiscaleCell = row.insertCell();
-        codiceFiscaleCell.innerText = user.codiceFiscale || 'undefined';
-        let dataDiNascitaCell = row.insertCell();
-        dataDiNascitaCell.innerText = user.dataDiNascita || 'undefined';
-        let indirizzoCell = row.insertCell();
-        indirizzoCell.innerText = user.indirizzo || 'undefined';
-        let telefonoCell = row.insertCell();
-        telefonoCell.innerText = user.telefono || 'undefined';
-        let actionCell = row.insertCell();
-        actionCell.className = "center";
-        
-        let editBtn = document.createElement("button");
-        editBtn.className = "button";
-        editBtn.innerText = "Modifica";
-        editBtn.onclick = function() { editTableRow('utente', user.email); };
-        
-        let deleteBtn = document.createElement("button");
-        deleteBtn.className = "button";
-        deleteBtn.innerText = "Elimina";
-        deleteBtn.onclick = function() { deleteTableRow('utente', user.email); };
-        
-        actionCell.appendChild(editBtn);
-        actionCell.appendChild(deleteBtn);
-    });
+function valoriChiaveAdminGrid(riga) {
+    return adminGrid.chiave.map(colonna => String(riga[colonna]));
+}
+
+function chiaveAdminGrid(riga) {
+    return valoriChiaveAdminGrid(riga).join(", ");
+}
+
+// Riga di una pagina che si sta rileggendo
+function createAdminGridPlaceholder() {
+    let row = document.createElement("tr");
+    row.className = "grid-in-caricamento";
+    row.insertCell().colSpan = document.querySelectorAll(".tableDB thead tr:first-child th").length;
+    return row;
+}
 
-    // Aggiungi la riga del pulsante "add" indietro
-    let addRow1 = table.insertRow();
-    let addCell = addRow1.insertCell();
-    addCell.colSpan = 8;
-    addCell.className = "center";
-    let addButton = document.createElement("button");
-    addButton.className = "add-button";
-    addButton.innerText = "+";
-    addButton.addEventListener("click", function () {
-        addRow('utente');
+// Crea la riga seguendo le colonne dell'intestazione della pagina
+function createAdminGridRow(riga) {
+    let row = document.createElement("tr");
+    let primaryKey = chiaveAdminGrid(riga);
+    row.dataset.chiave = primaryKey;
+
+    document.querySelectorAll(".tableDB thead tr:first-child th").forEach(th => {
+        let cell = row.insertCell();
+        if (th.dataset.tipo === "select") {
+            // la selezione è nello stato della tabella: le righe vengono ricreate mentre si scorre
+            let checkbox = document.createElement("input");
+            checkbox.type = "checkbox";
+            checkbox.className = "bulk-select";
+            checkbox.value = primaryKey;
+            checkbox.checked = adminGrid.selezionate.has(primaryKey);
+            checkbox.onchange = function () {
+                if (checkbox.checked) adminGrid.selezionate.set(primaryKey, valoriChiaveAdminGrid(riga));
+                else adminGrid.selezionate.delete(primaryKey);
+            };
+            cell.appendChild(checkbox);
+        } else if (th.dataset.tipo === "azioni") {
+            cell.className = "center";
+
+            let editBtn = document.createElement("button");
+            editBtn.className = "button";
+            editBtn.innerText = "Modifica";
+            editBtn.onclick = function() { editTableRow(adminGrid.tableName, primaryKey); };
+
+            let deleteBtn = document.createElement("button");
+            deleteBtn.className = "button";
+            deleteBtn.innerText = "Elimina";
+            deleteBtn.onclick = function() { deleteTableRow(adminGrid.tableName, valoriChiaveAdminGrid(riga)); };
+
+            cell.appendChild(editBtn);
+            cell.appendChild(deleteBtn);
+        } else {
+            let valore = riga[th.dataset.colonna];
+            cell.dataset.colonna = th.dataset.colonna;
+            if (th.dataset.classe) cell.className = th.dataset.classe;
+            if ((valore === null || valore === undefined || valore === "") && th.dataset.linkVuoto) {
+                let link = document.createElement("a");
+                link.href = th.dataset.linkVuoto;
+                link.innerText = "Dettaglio ordine";
+                cell.appendChild(link);
+            } else {
+                cell.innerText = valore ?? "";
+            }
+        }
     });
-    addCell.appendChild(addButton);
+    return row;
+}
+
+// Seleziona le righe delle pagine in memoria, anche quelle non disegnate
+function selectAllRows(checked) {
+    adminGrid.selezionate.clear();
+    if (checked) {
+        adminGrid.pagine.forEach(pagina => (pagina.righe || []).forEach(riga => adminGrid.selezionate.set(chiaveAdminGrid(riga), valoriChiaveAdminGrid(riga))));
+    }
+    document.querySelectorAll(".tableDB .bulk-select").forEach(checkbox => checkbox.checked = checked);
+}
+
+function bulkUpdateStatoOrdini() {
+    let ids = Array.from(adminGrid.selezionate.keys());
+    if (ids.length === 0) {
+        alert("Seleziona almeno un ordine.");
+        return;
+    }
+    let params = new URLSearchParams();
+    params.append("stato", document.getElementById("bulk-stato-select").value);
+    params.append("ids", ids.join(","));
+    sendBulkStatoOrdini(params, ids.length);
+}
+
+function bulkUpdateStatoOrdiniByData() {
+    let dataFino = document.getElementById("bulk-data-fino").value;
+    if (!dataFino) {
+        alert("Seleziona una data.");
+        return;
+    }
+    let stato = document.getElementById("bulk-stato-select").value;
+    if (!confirm("Portare a \"" + stato + "\" tutti gli ordini fino al " + dataFino + "?")) return;
+    let params = new URLSearchParams();
+    params.append("stato", stato);
+    params.append("dataFino", dataFino);
+    sendBulkStatoOrdini(params, null);
+}
+
+// Sconto, variazione di prezzo ed evidenza applicati a tutte le varianti scelte con un'unica richiesta
+function bulkUpdatePrezzi() {
+    let criterio = document.getElementById("bulk-prezzi-criterio").value;
+    let valori = criterio === "ids"
+        ? Array.from(adminGrid.selezionate.keys()).join(",")
+        : document.getElementById("bulk-prezzi-valori").value;
+    if (!valori.trim()) {
+        alert(criterio === "ids" ? "Seleziona almeno una variante." : "Indica almeno un valore.");
+        return;
+    }
+    let params = new URLSearchParams();
+    params.append("criterio", criterio);
+    params.append("valori", valori);
+    params.append("sconto", document.getElementById("bulk-prezzi-sconto").value);
+    params.append("variazione", document.getElementById("bulk-prezzi-variazione").value);
+    params.append("evidenza", document.getElementById("bulk-prezzi-evidenza").value);
+
+    fetch("bulkPrezzi", {
+        method: "POST",
+        headers: {"Content-Type": "application/x-www-form-urlencoded"},
+        body: params.toString()
+    })
+        .then(response => {
+            if (!response.ok) throw new Error(`Network error: ${response.status} - ${response.statusText}`);
+            return response.json();
+        })
+        .then(esito => {
+            document.getElementById("bulk-prezzi-esito").innerText = esito.aggiornate + " varianti aggiornate";
+            if (esito.aggiornate > 0) reloadAdminGrid();
+        })
+        .catch(error => {
+            console.error(error);
+            alert("Aggiornamento non riuscito: controlla i valori inseriti.");
+        });
+}
+
+// Invia il cambio di stato e aggiorna solo le righe modificate
+function sendBulkStatoOrdini(params, selezionati) {
+    fetch("bulkOrderStatus", {
+        method: "POST",
+        headers: {"Content-Type": "application/x-www-form-urlencoded"},
+        body: params.toString()
+    })
+        .then(response => {
+            if (!response.ok) throw new Error(`Network error: ${response.status} - ${response.statusText}`);
+            return response.json();
+        })
+        .then(ordini => {
+            let stati = new Map(ordini.map(ordine => [String(ordine.idOrdine), ordine.stato]));
+            adminGrid.pagine.forEach(pagina => (pagina.righe || []).forEach(riga => {
+                let chiave = chiaveAdminGrid(riga);
+                if (stati.has(chiave)) riga.stato = stati.get(chiave);
+            }));
+            adminGrid.selezionate.clear();
+            document.getElementById("bulk-select-all").checked = false;
+            drawAdminGrid();
+
+            let esito = ordini.length + " ordini aggiornati";
+            if (selezionati !== null && selezionati > ordini.length) {
+                esito += ", " + (selezionati - ordini.length) + " ignorati (passaggio di stato non consentito)";
+            }
+            document.getElementById("bulk-esito").innerText = esito;
+        })
+        .catch(error => {
+            console.error(error);
+        });
 }
 
 function addRow(tableName) {
@@ -533,6 +682,10 @@ function addRow(tableName) {
     button.innerText = "Aggiungi";
 
     form.appendChild(button);
+    form.onsubmit = function (event) {
+        event.preventDefault();
+        submitAdminForm(form, divForm);
+    };
     divForm.appendChild(form);
     document.body.append(divForm);
 }
@@ -35,6 +35,30 @@
             color: black;
             cursor: pointer;
         }
+        #importCatalogo{
+            width: 270px;
+            margin: 30px auto;
+            display: flex;
+            flex-direction: column;
+            row-gap: 8px;
+        }
+        #esitoImport{
+            white-space: pre-wrap;
+            max-height: 300px;
+            overflow-y: auto;
+        }
+        #dashboardVendite{
+            width: 90%;
+            margin: 30px auto;
+        }
+        #dashboardVendite table{
+            border-collapse: collapse;
+            margin: 10px 0;
+        }
+        #dashboardVendite th, #dashboardVendite td{
+            border: 1px solid #ccc;
+            padding: 4px 10px;
+        }
 
     </style>
 </head>
@@ -78,7 +102,106 @@
     </form>
 </div>
 
+<%-- Importazione del catalogo: un CSV per la tabella scelta oppure uno ZIP con gusto/confezione/prodotto/variante.csv --%>
+<form id="importCatalogo" onsubmit="importaCatalogo(event)">
+    <label for="importTabella">Importa catalogo (CSV o ZIP)</label>
+    <select id="importTabella" name="tableName">
+        <option value="gusto">gusto</option>
+        <option value="confezione">confezione</option>
+        <option value="prodotto">prodotto</option>
+        <option value="variante">variante</option>
+    </select>
+    <input type="file" name="file" accept=".csv,.zip" required>
+    <button type="submit">Importa</button>
+    <p id="esitoImport"></p>
+</form>
+
+<%-- Vendite per giorno, per categoria e varianti più vendute, lette dai riepiloghi pre-aggregati --%>
+<div id="dashboardVendite">
+    <h2>Vendite</h2>
+    <label for="venditeDa">Dal</label>
+    <input type="date" id="venditeDa">
+    <label for="venditeA">al</label>
+    <input type="date" id="venditeA">
+    <button onclick="caricaVendite()">Aggiorna</button>
+    <button onclick="ricostruisciVendite()">Ricostruisci riepiloghi</button>
+    <p id="esitoVendite"></p>
+    <table id="venditeGiorni"></table>
+    <table id="venditeCategorie"></table>
+    <table id="venditeVarianti"></table>
+</div>
+
+<script>
+    function tabellaVendite(id, intestazioni, chiavi, righe) {
+        let tabella = document.getElementById(id);
+        tabella.replaceChildren();
+        let intestazione = tabella.insertRow();
+        intestazioni.forEach(testo => {
+            let th = document.createElement("th");
+            th.textContent = testo;
+            intestazione.appendChild(th);
+        });
+        righe.forEach(riga => {
+            let tr = tabella.insertRow();
+            chiavi.forEach(chiave => tr.insertCell().textContent = riga[chiave]);
+        });
+    }
+
+    function caricaVendite() {
+        let params = new URLSearchParams();
+        params.append("da", document.getElementById("venditeDa").value);
+        params.append("a", document.getElementById("venditeA").value);
+        fetch("dashboardVendite?" + params.toString())
+            .then(response => {
+                if (!response.ok) throw new Error(`Network error: ${response.status} - ${response.statusText}`);
+                return response.json();
+            })
+            .then(vendite => {
+                document.getElementById("venditeDa").value = vendite.da;
+                document.getElementById("venditeA").value = vendite.a;
+                document.getElementById("esitoVendite").textContent = vendite.ricostruzioneInCorso ? "Ricostruzione dei riepiloghi in corso: i dati sono parziali." : "";
+                tabellaVendite("venditeGiorni", ["Giorno", "Ordini", "Articoli", "Incasso"], ["giorno", "ordini", "articoli", "incasso"], vendite.giorni);
+                tabellaVendite("venditeCategorie", ["Categoria", "Articoli", "Incasso"], ["categoria", "articoli", "incasso"], vendite.categorie);
+                tabellaVendite("venditeVarianti", ["Variante", "Prodotto", "Articoli", "Incasso"], ["idVariante", "idProdotto", "articoli", "incasso"], vendite.varianti);
+            })
+            .catch(error => document.getElementById("esitoVendite").textContent = "Lettura delle vendite non riuscita: " + error.message);
+    }
+
+    function ricostruisciVendite() {
+        if (!confirm("Ricostruire i riepiloghi delle vendite da tutto lo storico degli ordini?")) return;
+        fetch("dashboardVendite", {
+            method: "POST",
+            headers: {"Content-Type": "application/x-www-form-urlencoded"},
+            body: "azione=ricostruisci"
+        })
+            .then(response => {
+                if (!response.ok) throw new Error(`Network error: ${response.status} - ${response.statusText}`);
+                return response.json();
+            })
+            .then(esito => document.getElementById("esitoVendite").textContent = esito.avviata
+                ? "Ricostruzione avviata." : "Una ricostruzione è già in corso.")
+            .catch(error => document.getElementById("esitoVendite").textContent = "Ricostruzione non riuscita: " + error.message);
+    }
+
+    caricaVendite();
 
+    function importaCatalogo(event) {
+        event.preventDefault();
+        let esito = document.getElementById("esitoImport");
+        esito.textContent = "Importazione in corso...";
+        fetch("importCatalogo", {method: "POST", body: new FormData(event.target)})
+            .then(response => {
+                if (!response.ok) throw new Error(`Network error: ${response.status} - ${response.statusText}`);
+                return response.json();
+            })
+            .then(risultato => {
+                let testo = "Importate: " + JSON.stringify(risultato.importate) + "\nErrori: " + risultato.erroriTotali;
+                risultato.errori.forEach(e => testo += "\n" + e.file + " riga " + e.riga + ": " + e.messaggio);
+                esito.textContent = testo;
+            })
+            .catch(error => esito.textContent = "Importazione non riuscita: " + error.message);
+    }
+</script>
 
 <%@include file="../Footer.jsp"%>
 </body>
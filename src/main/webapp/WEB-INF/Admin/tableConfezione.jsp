@@ -1,5 +1,4 @@
-<%@ page import="model.Confezione" %>
-<%@ page import="java.util.List" %><%--
+<%--
   Created by IntelliJ IDEA.
   User: raffa
   Date: 13/07/2024
@@ -17,10 +16,6 @@
 <body>
 <script src="JS/Tables.js"></script>
 <a class="backbutton" href="admin">Torna indietro</a>
-<%
-    List<Confezione> confezioni = (List<Confezione>) request.getAttribute("tableConfezione");
-    if (confezioni != null){
-%>
 <div class="nav-list-tables">
     <a href="showTable?tableName=variante">Variante</a>
     <a href="showTable?tableName=prodotto">Prodotto</a>
@@ -30,31 +25,28 @@
     <a href="showTable?tableName=dettaglioOrdine">Dettaglio Ordini</a>
 </div>
 <div class="tableContainer">
-    <table class="tableDB">
+    <table class="tableDB" data-table="confezione">
+        <thead>
         <tr>
-            <th>Id Confezione</th>
-            <th>Peso Confezione</th>
-            <th>Azione</th>
+            <th data-tipo="select"><input type="checkbox" id="bulk-select-all" onclick="selectAllRows(this.checked)"></th>
+            <th data-colonna="idConfezione">Id Confezione</th>
+            <th data-colonna="pesoConfezione">Peso Confezione</th>
+            <th data-tipo="azioni">Azione</th>
         </tr>
-        <% for (Confezione c : confezioni) {
-        %>
+        </thead>
+        <tbody></tbody>
+        <tfoot>
         <tr>
-            <td><%= c.getIdConfezione() %></td>
-            <td><%= c.getPeso() %></td>
-            <td class="center">
-                <button class="button" onclick="editTableRow('confezione', '<%=c.getIdConfezione()%>')">Modifica</button>
-                <button class="button" onclick="deleteTableRow('confezione', '<%=c.getIdConfezione()%>')">Elimina</button>
-            </td>
-        </tr>
-        <% } %>
-        <tr>
-            <td colspan="3" class="center">
+            <td colspan="4" class="center">
                 <button class="add-button" onclick="addRow('confezione')">+</button>
+                <button class="button" onclick="deleteSelectedRows()">Elimina selezionati</button>
             </td>
         </tr>
+        </tfoot>
     </table>
+    <p class="grid-info"></p>
 </div>
-<% } %>
 
+<script>initAdminGrid("confezione");</script>
 </body>
 </html>
@@ -1,5 +1,4 @@
-<%@ page import="model.DettaglioOrdine" %>
-<%@ page import="java.util.List" %><%--
+<%--
   Created by IntelliJ IDEA.
   User: raffa
   Date: 13/07/2024
@@ -17,10 +16,6 @@
 <body>
 <script src="JS/Tables.js"></script>
 <a class="backbutton" href="admin">Torna indietro</a>
-<%   @SuppressWarnings("unchecked")
-     List<DettaglioOrdine> dettaglioOrdini = (List<DettaglioOrdine>) request.getAttribute("tableDettaglioOrdini");
-    if (dettaglioOrdini != null){
-%>
 
 <div class="nav-list-tables">
     <a href="showTable?tableName=ordine">Ordine</a>
@@ -30,38 +25,37 @@
     <a href="showTable?tableName=confezione">Confezione</a>
     <a href="showTable?tableName=utente">Utente</a>
 </div>
+<div class="grid-export">
+    <button class="button" onclick="exportAdminGrid('csv')">Esporta CSV</button>
+    <button class="button" onclick="exportAdminGrid('ndjson')">Esporta NDJSON</button>
+</div>
+
 <div class="tableContainer">
-    <table class="tableDB">
+    <table class="tableDB" data-table="dettaglioOrdine">
+        <thead>
         <tr>
-            <th><a href="showTable?tableName=ordine">Id Ordine</a></th>
-            <th><a href="showTable?tableName=prodotto">Id Prodotto</a></th>
-            <th><a href="showTable?tableName=variante">Id Variante</a></th>
-            <th>Quantità</th>
-            <th>Prezzo</th>
-            <th>Azione</th>
-        </tr>
-        <% for (DettaglioOrdine d : dettaglioOrdini) {
-        %>
-        <tr>
-            <td><%= d.getIdOrdine() %></td>
-            <td><%= d.getIdProdotto() %></td>
-            <td><%= d.getIdVariante() %></td>
-            <td><%= d.getQuantita() %></td>
-            <td><%= d.getPrezzo() %></td>
-            <td class="center">
-                <button class="button" onclick="editTableRow('dettaglioOrdine', '<%= d.getIdOrdine() %>, <%=d.getIdProdotto()%>, <%=d.getIdVariante()%>')">Modifica</button>
-                <button class="button" onclick="deleteTableRow('dettaglioOrdine', '<%= d.getIdOrdine() %>, <%=d.getIdProdotto()%>, <%=d.getIdVariante()%>')">Elimina</button>
-            </td>
+            <th data-tipo="select"><input type="checkbox" id="bulk-select-all" onclick="selectAllRows(this.checked)"></th>
+            <th data-colonna="idOrdine"><a href="showTable?tableName=ordine">Id Ordine</a></th>
+            <th data-colonna="idProdotto"><a href="showTable?tableName=prodotto">Id Prodotto</a></th>
+            <th data-colonna="idVariante"><a href="showTable?tableName=variante">Id Variante</a></th>
+            <th data-colonna="quantity">Quantità</th>
+            <th data-colonna="prezzo">Prezzo</th>
+            <th data-tipo="azioni">Azione</th>
         </tr>
-        <% } %>
+        </thead>
+        <tbody></tbody>
+        <tfoot>
         <tr>
-            <td colspan="6" class="center">
+            <td colspan="7" class="center">
                 <button class="add-button" onclick="addRow('dettaglioOrdine')">+</button>
+                <button class="button" onclick="deleteSelectedRows()">Elimina selezionati</button>
             </td>
         </tr>
+        </tfoot>
     </table>
+    <p class="grid-info"></p>
 </div>
-<% } %>
 
+<script>initAdminGrid("dettaglioOrdine");</script>
 </body>
 </html>
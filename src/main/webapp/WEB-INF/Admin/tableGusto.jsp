@@ -1,5 +1,4 @@
-<%@ page import="model.Gusto" %>
-<%@ page import="java.util.List" %><%--
+<%--
   Created by IntelliJ IDEA.
   User: raffa
   Date: 13/07/2024
@@ -18,10 +17,6 @@
 <body>
 <script src="JS/Tables.js"></script>
 <a class="backbutton" href="admin">Torna indietro</a>
-<%  @SuppressWarnings("unchecked")
-    List<Gusto> gusti = (List<Gusto>) request.getAttribute("tableGusto");
-    if (gusti != null){
-%>
 
 <div class="nav-list-tables">
     <a href="showTable?tableName=prodotto">Prodotto</a>
@@ -33,31 +28,28 @@
 </div>
 
 <div class="tableContainer">
-    <table class="tableDB">
+    <table class="tableDB" data-table="gusto">
+        <thead>
         <tr>
-            <th>Id Gusto</th>
-            <th>Nome Gusto</th>
-            <th>Azione</th>
+            <th data-tipo="select"><input type="checkbox" id="bulk-select-all" onclick="selectAllRows(this.checked)"></th>
+            <th data-colonna="idGusto">Id Gusto</th>
+            <th data-colonna="nomeGusto">Nome Gusto</th>
+            <th data-tipo="azioni">Azione</th>
         </tr>
-        <% for (Gusto g : gusti) {
-        %>
+        </thead>
+        <tbody></tbody>
+        <tfoot>
         <tr>
-            <td><%= g.getIdGusto() %></td>
-            <td><%= g.getNomeGusto() %></td>
-            <td class="center">
-                <button class="button" onclick="editTableRow('gusto', '<%=g.getIdGusto()%>')">Modifica</button>
-                <button class="button" onclick="deleteTableRow('gusto', '<%=g.getIdGusto()%>')">Elimina</button>
-            </td>
-        </tr>
-        <% } %>
-        <tr>
-            <td colspan="3" class="center">
+            <td colspan="4" class="center">
                 <button class="add-button" onclick="addRow('gusto')">+</button>
+                <button class="button" onclick="deleteSelectedRows()">Elimina selezionati</button>
             </td>
         </tr>
+        </tfoot>
     </table>
+    <p class="grid-info"></p>
 </div>
-<% } %>
 
+<script>initAdminGrid("gusto");</script>
 </body>
 </html>
@@ -1,5 +1,4 @@
-<%@ page import="model.Ordine" %>
-<%@ page import="java.util.List" %><%--
+<%--
   Created by IntelliJ IDEA.
   User: raffa
   Date: 11/07/2024
@@ -17,12 +16,6 @@
 <body>
 <script src="JS/Tables.js"></script>
 <a class="backbutton" href="admin">Torna indietro</a>
-<%
-    List<Ordine> ordini = (List<Ordine>) request.getAttribute("tableOrdine");
-
-%>
-
-
 
 <div class="nav-list-tables">
     <a href="showTable?tableName=dettaglioOrdine">Dettaglio Ordini</a>
@@ -33,55 +26,52 @@
     <a href="showTable?tableName=utente">Utente</a>
 </div>
 
+<div class="bulk-stato">
+    <label for="bulk-stato-select">Nuovo stato:</label>
+    <select id="bulk-stato-select">
+        <option value="spedito">spedito</option>
+        <option value="consegnato">consegnato</option>
+        <option value="annullato">annullato</option>
+    </select>
+    <button class="button" onclick="bulkUpdateStatoOrdini()">Applica ai selezionati</button>
+    <label for="bulk-data-fino">oppure a tutti gli ordini fino al:</label>
+    <input type="date" id="bulk-data-fino">
+    <button class="button" onclick="bulkUpdateStatoOrdiniByData()">Applica</button>
+    <span id="bulk-esito"></span>
+</div>
+
+<div class="grid-export">
+    <button class="button" onclick="exportAdminGrid('csv')">Esporta CSV</button>
+    <button class="button" onclick="exportAdminGrid('ndjson')">Esporta NDJSON</button>
+</div>
+
 <div class="tableContainer">
-    <table class="tableDB">
-        <tr>
-            <th>Id Ordine</th>
-            <th><a href="showTable?tableName=utente">Email Utente</a></th>
-            <th>Data Ordine</th>
-            <th>Stato</th>
-            <th>Totale</th>
-            <th>Descrizione</th>
-            <th>Azione</th>
-        </tr>
-        <%
-            for (Ordine o : ordini) {
-                String descrizione = o.getDescrizione();
-        %>
+    <table class="tableDB" data-table="ordine">
+        <thead>
         <tr>
-            <td><%=o.getIdOrdine()%></td>
-            <td><%=o.getEmailUtente()%></td>
-            <td><%=o.getDataOrdine()%></td>
-            <td><%=o.getStato()%></td>
-            <td><%=o.getTotale()%></td>
-            <td class="description-scroll">
-                <%
-                    if (descrizione == null || descrizione.isBlank()) {
-                %>
-                <a href="showTable?tableName=dettaglioOrdine">Dettaglio ordine</a>
-                <%
-                } else {
-                %>
-                 <%=o.getDescrizione()%>
-                <%
-                    }
-                %>
-            </td>
-            <td class="center">
-                <button class="button" onclick="editTableRow('ordine', '<%=o.getIdOrdine()%>')">Modifica</button>
-                <button class="button" onclick="deleteTableRow('ordine', '<%=o.getIdOrdine()%>')">Elimina</button>
-            </td>
+            <th data-tipo="select"><input type="checkbox" id="bulk-select-all" onclick="selectAllRows(this.checked)"></th>
+            <th data-colonna="idOrdine">Id Ordine</th>
+            <th data-colonna="emailUtente"><a href="showTable?tableName=utente">Email Utente</a></th>
+            <th data-colonna="data">Data Ordine</th>
+            <th data-colonna="stato">Stato</th>
+            <th data-colonna="totale">Totale</th>
+            <th data-colonna="descrizione" data-link-vuoto="showTable?tableName=dettaglioOrdine" data-classe="description-scroll">Descrizione</th>
+            <th data-tipo="azioni">Azione</th>
         </tr>
-        <%
-            }
-        %>
+        </thead>
+        <tbody></tbody>
+        <tfoot>
         <tr>
-            <td colspan="7" class="center">
+            <td colspan="8" class="center">
                 <button class="add-button" onclick="addRow('ordine')">+</button>
+                <button class="button" onclick="deleteSelectedRows()">Elimina selezionati</button>
             </td>
         </tr>
+        </tfoot>
     </table>
+    <p class="grid-info"></p>
 </div>
 
+<script>initAdminGrid("ordine");</script>
 </body>
 </html>
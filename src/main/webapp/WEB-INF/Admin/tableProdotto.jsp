@@ -1,5 +1,4 @@
-<%@ page import="model.Prodotto" %>
-<%@ page import="java.util.List" %><%--
+<%--
   Created by IntelliJ IDEA.
   User: raffa
   Date: 11/07/2024
@@ -17,10 +16,6 @@
 <body>
 <script src="JS/Tables.js"></script>
 <a class="backbutton" href="admin">Torna indietro</a>
-<%  @SuppressWarnings("unchecked")
-    List<Prodotto> prodotti = (List<Prodotto>) request.getAttribute("tableProdotto");
-    if (prodotti != null){
-%>
 
 <div class="nav-list-tables">
     <a href="showTable?tableName=variante">Variante</a>
@@ -31,41 +26,34 @@
     <a href="showTable?tableName=dettaglioOrdine">Dettaglio Ordini</a>
 </div>
 <div class="tableContainer">
-    <table class="tableDB">
+    <table class="tableDB" data-table="prodotto">
+        <thead>
         <tr>
-            <th>Id Prodotto</th>
-            <th>Nome</th>
-            <th>Categoria</th>
-            <th>Immagine</th>
-            <th>Calorie</th>
-            <th>Carboidrati</th>
-            <th>Proteine</th>
-            <th>Grassi</th>
-            <th>Azione</th>
+            <th data-tipo="select"><input type="checkbox" id="bulk-select-all" onclick="selectAllRows(this.checked)"></th>
+            <th data-colonna="idProdotto">Id Prodotto</th>
+            <th data-colonna="nome">Nome</th>
+            <th data-colonna="categoria">Categoria</th>
+            <th data-colonna="immagine">Immagine</th>
+            <th data-colonna="calorie">Calorie</th>
+            <th data-colonna="carboidrati">Carboidrati</th>
+            <th data-colonna="proteine">Proteine</th>
+            <th data-colonna="grassi">Grassi</th>
+            <th data-tipo="azioni">Azione</th>
         </tr>
-        <% for (Prodotto p : prodotti) { %>
-        <tr>
-            <td><%= p.getIdProdotto() %></td>
-            <td><%= p.getNome() %></td>
-            <td><%= p.getCategoria() %></td>
-            <td><%= p.getImmagine() %></td>
-            <td><%= p.getCalorie() %></td>
-            <td><%= p.getCarboidrati() %></td>
-            <td><%= p.getProteine() %></td>
-            <td><%= p.getGrassi() %></td>
-            <td class="center">
-                <button class="button" onclick="editTableRow('prodotto', '<%=p.getIdProdotto()%>')">Modifica</button>
-                <button class="button" onclick="deleteTableRow('prodotto', '<%=p.getIdProdotto()%>')">Elimina</button>
-            </td>
-        </tr>
-        <% } %>
+        </thead>
+        <tbody></tbody>
+        <tfoot>
         <tr>
             <td colspan="10" class="center">
                 <button class="add-button" onclick="addRow('prodotto')">+</button>
+                <button class="button" onclick="deleteSelectedRows()">Elimina selezionati</button>
             </td>
         </tr>
+        </tfoot>
     </table>
+    <p class="grid-info"></p>
 </div>
-<% } %>
+
+<script>initAdminGrid("prodotto");</script>
 </body>
 </html>
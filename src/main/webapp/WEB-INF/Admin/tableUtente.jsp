@@ -1,6 +1,4 @@
-<%@ page import="model.Utente" %>
-<%@ page import="java.util.ArrayList" %>
-<%@ page import="java.util.List" %><%--
+<%--
   Created by IntelliJ IDEA.
   User: raffa
   Date: 10/07/2024
@@ -18,10 +16,6 @@
 <body>
 <script src="JS/Tables.js"></script>
 <a class="backbutton" href="admin">Torna indietro</a>
-<%
-  List<Utente> utenti = (List<Utente>) request.getAttribute("tableUtente");
-  if (utenti != null){
-%>
 
 <div class="nav-list-tables">
   <a href="showTable?tableName=prodotto">Prodotto</a>
@@ -33,42 +27,33 @@
 </div>
 
 <div class="tableContainer">
-<table class="tableDB">
-  <tr>
-    <th>Email</th>
-    <th>Nome</th>
-    <th>Cognome</th>
-    <th>Codice Fiscale</th>
-    <th>Data di Nascita</th>
-    <th>Indirizzo</th>
-    <th>Numero di cellulare</th>
-    <th>Azione</th>
-  </tr>
-  <% for (Utente u : utenti) { %>
-  <tr>
-    <td><%= u.getEmail() %></td>
-    <td><%= u.getNome() %></td>
-    <td><%= u.getCognome() %></td>
-    <td><%= u.getCodiceFiscale() %></td>
-    <td><%= u.getDataNascita() %></td>
-    <td><%= u.getIndirizzo() %></td>
-    <td><%= u.getTelefono() %></td>
-    <td class="center">
-      <button class="button" onclick="editTableRow('utente', '<%=u.getEmail()%>')">Modifica</button>
-      <button class="button" onclick="deleteTableRow('utente', '<%=u.getEmail()%>')">Elimina</button>
-    </td>
-
-  </tr>
-  <% } %>
-  <tr>
-    <td colspan="8" class="center">
-      <button class="add-button" onclick="addRow('utente')">+</button>
-    </td>
-  </tr>
-</table>
-<% } %>
+  <table class="tableDB" data-table="utente">
+    <thead>
+    <tr>
+      <th data-tipo="select"><input type="checkbox" id="bulk-select-all" onclick="selectAllRows(this.checked)"></th>
+      <th data-colonna="email">Email</th>
+      <th data-colonna="nome">Nome</th>
+      <th data-colonna="cognome">Cognome</th>
+      <th data-colonna="codiceFiscale">Codice Fiscale</th>
+      <th data-colonna="dataDiNascita">Data di Nascita</th>
+      <th data-colonna="indirizzo">Indirizzo</th>
+      <th data-colonna="telefono">Numero di cellulare</th>
+      <th data-tipo="azioni">Azione</th>
+    </tr>
+    </thead>
+    <tbody></tbody>
+    <tfoot>
+    <tr>
+      <td colspan="9" class="center">
+        <button class="add-button" onclick="addRow('utente')">+</button>
+        <button class="button" onclick="deleteSelectedRows()">Elimina selezionati</button>
+      </td>
+    </tr>
+    </tfoot>
+  </table>
+  <p class="grid-info"></p>
 </div>
 
-
+<script>initAdminGrid("utente");</script>
 </body>
 </html>
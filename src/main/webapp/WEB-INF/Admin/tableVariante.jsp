@@ -1,5 +1,4 @@
-<%@ page import="model.Variante" %>
-<%@ page import="java.util.List" %><%--
+<%--
   Created by IntelliJ IDEA.
   User: raffa
   Date: 11/07/2024
@@ -17,11 +16,6 @@
 <body>
 <script src="JS/Tables.js"></script>
 <a class="backbutton" href="admin">Torna indietro</a>
-    <%
-     List<Variante> varianti = (List<Variante>) request.getAttribute("tableVariante");
-    if (varianti != null){
-%>
-
 
 <div class="nav-list-tables">
     <a href="showTable?tableName=prodotto">Prodotto</a>
@@ -31,44 +25,59 @@
     <a href="showTable?tableName=ordine">Ordine</a>
     <a href="showTable?tableName=dettaglioOrdine">Dettaglio Ordini</a>
 </div>
-<div class="tableContainer">
-<table class="tableDB">
-    <tr>
-        <th>Id Variante</th>
-        <th><a href="showTable?tableName=prodotto">Id Prodotto Variante</a></th>
-        <th><a href="showTable?tableName=gusto">Id Gusto</a></th>
-        <th><a href="showTable?tableName=confezione">Id Confezione</a></th>
-        <th>Prezzo</th>
-        <th>Quantità</th>
-        <th>Sconto</th>
-        <th>Evidenza</th>
-        <th>Azione</th>
-    </tr>
-    <% for (Variante v: varianti) {
-        int evidence = 0;
-        if (v.isEvidenza()) evidence = 1;
-    %>
-    <tr>
-        <td><%= v.getIdVariante() %></td>
-        <td><%= v.getIdProdotto() %></td>
-        <td><%= v.getIdGusto() %></td>
-        <td><%= v.getIdConfezione() %></td>
-        <td><%= v.getPrezzo() %></td>
-        <td><%= v.getQuantita() %></td>
-        <td><%= v.getSconto() %></td>
-        <td><%= evidence %></td>
-        <td class="center">
-            <button class="button" onclick="editTableRow('variante', '<%=v.getIdVariante()%>')">Modifica</button>
-            <button class="button" onclick="deleteTableRow('variante', '<%=v.getIdVariante()%>')">Elimina</button>
-        </td>
 
-    </tr>
-    <% } %>
-    <tr>
-        <td colspan="9" class="center">
-            <button class="add-button" onclick="addRow('variante')">+</button>
-        </td>
-    </tr>
-</table>
-    <% } %>
+<div class="bulk-prezzi">
+    <label for="bulk-prezzi-criterio">Applica a:</label>
+    <select id="bulk-prezzi-criterio">
+        <option value="ids">varianti selezionate</option>
+        <option value="categoria">categoria</option>
+        <option value="gusto">id gusto</option>
+        <option value="confezione">id confezione</option>
+    </select>
+    <input type="text" id="bulk-prezzi-valori" placeholder="valori separati da virgola">
+    <label for="bulk-prezzi-sconto">Sconto %:</label>
+    <input type="number" id="bulk-prezzi-sconto" min="0" max="100">
+    <label for="bulk-prezzi-variazione">Variazione prezzo %:</label>
+    <input type="number" id="bulk-prezzi-variazione" step="0.01">
+    <label for="bulk-prezzi-evidenza">Evidenza:</label>
+    <select id="bulk-prezzi-evidenza">
+        <option value="">invariata</option>
+        <option value="1">sì</option>
+        <option value="0">no</option>
+    </select>
+    <button class="button" onclick="bulkUpdatePrezzi()">Applica</button>
+    <span id="bulk-prezzi-esito"></span>
+</div>
+
+<div class="tableContainer">
+    <table class="tableDB" data-table="variante">
+        <thead>
+        <tr>
+            <th data-tipo="select"><input type="checkbox" id="bulk-select-all" onclick="selectAllRows(this.checked)"></th>
+            <th data-colonna="idVariante">Id Variante</th>
+            <th data-colonna="idProdottoVariante"><a href="showTable?tableName=prodotto">Id Prodotto Variante</a></th>
+            <th data-colonna="idGusto"><a href="showTable?tableName=gusto">Id Gusto</a></th>
+            <th data-colonna="idConfezione"><a href="showTable?tableName=confezione">Id Confezione</a></th>
+            <th data-colonna="prezzo">Prezzo</th>
+            <th data-colonna="quantity">Quantità</th>
+            <th data-colonna="sconto">Sconto</th>
+            <th data-colonna="evidenza">Evidenza</th>
+            <th data-tipo="azioni">Azione</th>
+        </tr>
+        </thead>
+        <tbody></tbody>
+        <tfoot>
+        <tr>
+            <td colspan="10" class="center">
+                <button class="add-button" onclick="addRow('variante')">+</button>
+                <button class="button" onclick="deleteSelectedRows()">Elimina selezionati</button>
+            </td>
+        </tr>
+        </tfoot>
+    </table>
+    <p class="grid-info"></p>
 </div>
+
+<script>initAdminGrid("variante");</script>
+</body>
+</html>
@@ -193,7 +193,22 @@
             </div>
             <% } %>
         </div>
-        <% } } %>
+        <% } %>
+        <div class="paginazione-ordini">
+            <% if (Boolean.TRUE.equals(request.getAttribute("paginaOrdini"))) { %>
+            <form action="areaUtenteServlet" method="post">
+                <button type="submit">Ordini più recenti</button>
+            </form>
+            <% } %>
+            <% if (request.getAttribute("nextCursorId") != null) { %>
+            <form action="areaUtenteServlet" method="post">
+                <input type="hidden" name="cursorData" value="<%= request.getAttribute("nextCursorData") %>">
+                <input type="hidden" name="cursorId" value="<%= request.getAttribute("nextCursorId") %>">
+                <button type="submit">Ordini precedenti</button>
+            </form>
+            <% } %>
+        </div>
+        <% } %>
     </div>
 
 
@@ -223,6 +238,11 @@
     if (message && messageType && field) {
         handleMessages(messageType, message, field);
     }
+
+    //se stiamo sfogliando lo storico ordini riapriamo direttamente la tab degli ordini
+    <% if (Boolean.TRUE.equals(request.getAttribute("paginaOrdini"))) { %>
+    opentab(document.querySelectorAll('.tablinks')[2], 'areaordini');
+    <% } %>
 </script>
 
 
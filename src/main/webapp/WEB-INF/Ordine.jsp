@@ -79,6 +79,12 @@
             border-top: 1px solid lightgray;
         }
 
+        .order-pending {
+            padding: 5px;
+            color: gray;
+            text-align: right;
+        }
+
     </style>
 </head>
 <body>
@@ -98,7 +104,7 @@
                     for (DettaglioOrdine item: dettaglioOrdine){
             %>
             <div class="order-item">
-                <img src="<%=item.getImmagineProdotto()%>" class="product-image" alt="<%=item.getNomeProdotto()%>">
+                <img src="<%=item.getImmagineMiniatura()%>" class="product-image" alt="<%=item.getNomeProdotto()%>">
                 <div class="product-details">
                     <p style="font-size: 21px;font-weight: 450"><%=item.getNomeProdotto()%></p>
                     <p>Gusto: <%=item.getGusto()%></p>
@@ -116,6 +122,13 @@
     <div class="container-price">
         Totale ordine: <%=ordine.getTotale()%>€
     </div>
+    <%
+        if (request.getAttribute("orderPending") != null){
+    %>
+    <p class="order-pending">Il tuo ordine è stato ricevuto e comparirà a breve nella tua area personale.</p>
+    <%
+        }
+    %>
 </div>
 
 
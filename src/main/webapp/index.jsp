@@ -118,7 +118,7 @@
                 <form id="<%=p.getIdProdotto()%>" action="ProductInfo" method="post">
                     <input type="hidden" name="primaryKey" value="<%=p.getIdProdotto()%>">
                 </form>
-                <img src="<%= p.getImmagine() %>" alt="<%= p.getNome() %>" onclick="document.getElementById('<%=p.getIdProdotto()%>').submit();">
+                <img src="<%= p.getImmagineCard() %>" alt="<%= p.getNome() %>" onclick="document.getElementById('<%=p.getIdProdotto()%>').submit();">
             </div>
             <div class="product-info">
                 <h2 class="product-info-name"><%= p.getNome() %></h2>
@@ -163,7 +163,7 @@
                 <form id="<%=p.getIdProdotto()%>" action="ProductInfo" method="post">
                     <input type="hidden" name="primaryKey" value="<%=p.getIdProdotto()%>">
                 </form>
-                <img src="<%= p.getImmagine() %>" alt="<%= p.getNome() %>" onclick="document.getElementById('<%=p.getIdProdotto()%>').submit();">
+                <img src="<%= p.getImmagineCard() %>" alt="<%= p.getNome() %>" onclick="document.getElementById('<%=p.getIdProdotto()%>').submit();">
             </div>
             <div class="product-info">
                 <h2 class="product-info-name"><%= p.getNome() %></h2>
@@ -0,0 +1,179 @@
+package benchmark;
+
+import model.CatalogoColonnare;
+import model.Confezione;
+import model.DimensioniCatalogo;
+import model.Gusto;
+import model.Prodotto;
+import model.Variante;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+
+// BENCHMARK DEL CATALOGO IN MEMORIA: liste di Prodotto e Variante contro le colonne di CatalogoColonnare.
+// Stessa ricerca del negozio (categoria, parte del nome, peso, la variante più economica di ogni prodotto e
+// ordinamento per prezzo); a fine prova stampa l'heap occupato dalle due forme del catalogo.
+public class CatalogoColonnareBenchmark {
+
+    private static final String[] CATEGORIE = {"proteine", "snack", "integratori", "vitamine", "accessori"};
+    private static final int GUSTI = 40;
+    private static final int CONFEZIONI = 8;
+
+    @Param({"1000000"})
+    public int varianti;
+
+    @Param({"100"})
+    public int variantiPerProdotto;
+
+    private List<Prodotto> oggetti;
+    private CatalogoColonnare colonne;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        List<Gusto> gusti = new ArrayList<>();
+        for (int i = 1; i <= GUSTI; i++) {
+            Gusto gusto = new Gusto();
+            gusto.setIdGusto(i);
+            gusto.setNome("Gusto " + i);
+            gusti.add(gusto);
+        }
+        List<Confezione> confezioni = new ArrayList<>();
+        for (int i = 1; i <= CONFEZIONI; i++) {
+            Confezione confezione = new Confezione();
+            confezione.setIdConfezione(i);
+            confezione.setPeso(i * 250);
+            confezioni.add(confezione);
+        }
+        DimensioniCatalogo.carica(gusti, confezioni);
+
+        oggetti = creaProdotti();
+        List<Prodotto> prodotti = new ArrayList<>();
+        List<Variante> tutte = new ArrayList<>();
+        for (Prodotto p : oggetti) {
+            Prodotto senzaVarianti = new Prodotto();
+            senzaVarianti.setIdProdotto(p.getIdProdotto());
+            senzaVarianti.setNome(p.getNome());
+            senzaVarianti.setCategoria(p.getCategoria());
+            senzaVarianti.setCalorie(p.getCalorie());
+            prodotti.add(senzaVarianti);
+            tutte.addAll(p.getVarianti());
+        }
+        colonne = CatalogoColonnare.da(prodotti, tutte);
+    }
+
+    // Catalogo come lo costruirebbero i DAO: un Prodotto con la lista completa delle sue Variante
+    private List<Prodotto> creaProdotti() {
+        DimensioniCatalogo dimensioni = DimensioniCatalogo.get();
+        List<Prodotto> prodotti = new ArrayList<>();
+        int nProdotti = varianti / variantiPerProdotto;
+        int id = 0;
+        for (int p = 0; p < nProdotti; p++) {
+            Prodotto prodotto = new Prodotto();
+            prodotto.setIdProdotto("P" + p);
+            prodotto.setNome("Prodotto " + (p % 500 == 0 ? "Whey " : "") + p);
+            prodotto.setCategoria(CATEGORIE[p % CATEGORIE.length]);
+            prodotto.setCalorie(100 + p % 400);
+            List<Variante> lista = new ArrayList<>(variantiPerProdotto);
+            for (int v = 0; v < variantiPerProdotto; v++) {
+                Variante variante = new Variante();
+                variante.setIdVariante(++id);
+                variante.setIdProdotto(prodotto.getIdProdotto());
+                variante.setIdGusto(v % GUSTI + 1);
+                variante.setIdConfezione(v % CONFEZIONI + 1);
+                variante.setPrezzo(10 + (id * 7919 % 9000) / 100f);
+                variante.setSconto(id % 5 == 0 ? 20 : 0);
+                variante.setEvidenza(id % 11 == 0);
+                lista.add(dimensioni.collega(variante));
+            }
+            prodotto.setVarianti(lista);
+            prodotti.add(prodotto);
+        }
+        return prodotti;
+    }
+
+    @TearDown(Level.Trial)
+    public void heapCatalogo() {
+        long liste = heapTrattenuto(this::creaProdotti);
+        long colonnare = heapTrattenuto(() -> colonneDa(creaProdotti()));
+        System.out.printf("%nHeap per %d varianti: liste di oggetti %d MB, colonne %d MB%n",
+                varianti, liste / (1024 * 1024), colonnare / (1024 * 1024));
+    }
+
+    private static CatalogoColonnare colonneDa(List<Prodotto> prodotti) {
+        List<Variante> tutte = new ArrayList<>();
+        for (Prodotto p : prodotti) {
+            tutte.addAll(p.getVarianti());
+            p.setVarianti(null);
+        }
+        CatalogoColonnare catalogo = CatalogoColonnare.da(prodotti, tutte);
+        tutte.clear();
+        return catalogo;
+    }
+
+    private static long heapTrattenuto(Supplier<Object> crea) {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long prima = runtime.totalMemory() - runtime.freeMemory();
+        Object catalogo = crea.get();
+        System.gc();
+        long dopo = runtime.totalMemory() - runtime.freeMemory();
+        Reference.reachabilityFence(catalogo);
+        return Math.max(0, dopo - prima);
+    }
+
+    // --- BENCHMARK 1: Ricerca sulle liste di oggetti (come filterProducts, ma in memoria) ---
+    @Benchmark
+    public List<Prodotto> testRicercaOggetti() {
+        String nome = "whey";
+        List<Prodotto> risultato = new ArrayList<>();
+        for (Prodotto p : oggetti) {
+            if (!p.getCategoria().equalsIgnoreCase("proteine") || !p.getNome().toLowerCase(Locale.ROOT).contains(nome)) {
+                continue;
+            }
+            Variante migliore = null;
+            float prezzoMigliore = Float.MAX_VALUE;
+            for (Variante v : p.getVarianti()) {
+                float prezzo = v.getPrezzo() * (1 - v.getSconto() / 100f);
+                if (v.getPesoConfezione() == 500 && prezzo < prezzoMigliore) {
+                    prezzoMigliore = prezzo;
+                    migliore = v;
+                }
+            }
+            if (migliore != null) {
+                Prodotto copia = new Prodotto();
+                copia.setIdProdotto(p.getIdProdotto());
+                copia.setNome(p.getNome());
+                copia.setVarianti(List.of(migliore));
+                risultato.add(copia);
+            }
+        }
+        risultato.sort(Comparator.comparingDouble(p -> p.getVarianti().get(0).getPrezzo() * (1 - p.getVarianti().get(0).getSconto() / 100f)));
+        return risultato;
+    }
+
+    // --- BENCHMARK 2: Stessa ricerca sulle colonne, materializzando solo la prima pagina ---
+    @Benchmark
+    public List<Prodotto> testRicercaColonnare() {
+        CatalogoColonnare.Selezione selezione = colonne.ordina(colonne.filtra("proteine", "whey", "500 g", null, false), "PriceAsc");
+        return colonne.pagina(selezione, 0, 24);
+    }
+
+    // --- BENCHMARK 3: Scansione completa (tutte le categorie, nessun filtro sul nome) ordinata per prezzo ---
+    @Benchmark
+    public CatalogoColonnare.Selezione testScansioneCompletaColonnare() {
+        return colonne.ordina(colonne.filtra("tutto", null, "500 g", null, false), "PriceAsc");
+    }
+}
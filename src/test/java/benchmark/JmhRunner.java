@@ -28,11 +28,28 @@ public class JmhRunner {
         optBuilder.include(OrderProcessingBenchmark.class.getSimpleName());
 
         // 5. Benchmark per testare la doRetriveAll dei gusti per capire se il problema di efficienza è nell'implementazione o l'interazione col db.
+        // Misura anche le varianti lette con le join rispetto a quelle collegate ai gusti e alle confezioni condivisi
+        // (tempo di mappatura e, a fine prova, heap di un catalogo grande)
         optBuilder.include(doRetriveAllGustoBenchmark.class.getSimpleName());
 
         // 6. Benchmark per testare la velcoità dell'inserimento di un nuovo prodotto e check dell'esistenza di un prodotto uguale.
         optBuilder.include(ProductInsertBenchmark.class.getSimpleName());
 
+        // 7. Benchmark per confrontare gli ordini al secondo con una transazione per ordine e con il group commit.
+        optBuilder.include(OrderGroupCommitBenchmark.class.getSimpleName());
+
+        // 8. Benchmark per confrontare la latenza di una query con il profilo di connessione base e con quello
+        // con la cache degli statement (richiede il database locale, vedi docker-compose.yml)
+        optBuilder.include(StatementCacheBenchmark.class.getSimpleName());
+
+        // 9. Benchmark per confrontare la ricerca nel catalogo (1M varianti) sulle liste di oggetti e sulle colonne
+        // di CatalogoColonnare, con l'heap occupato dalle due forme stampato a fine prova
+        optBuilder.include(CatalogoColonnareBenchmark.class.getSimpleName());
+
+        // 10. Benchmark di carico con 2000 sessioni concorrenti: thread della piattaforma contro virtual thread
+        // (anche con il vecchio synchronized sulla sessione, che blocca i carrier)
+        optBuilder.include(VirtualThreadLoadBenchmark.class.getSimpleName());
+
         Options opt = optBuilder
                 .forks(1) // Esegui un solo fork per velocizzare i test in sviluppo
                 .build();
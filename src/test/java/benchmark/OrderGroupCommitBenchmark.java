@@ -0,0 +1,143 @@
+package benchmark;
+
+import model.DettaglioOrdine;
+import model.Ordine;
+import model.OrdineDao;
+import model.OrdineGroupCommit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS) // Ordini salvati al secondo
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(32) // Checkout concorrenti nel momento di picco
+
+// BENCHMARK DEL SALVATAGGIO DEGLI ORDINI: una transazione per ordine contro il group commit
+public class OrderGroupCommitBenchmark {
+
+    // SIMULAZIONE COSTO DB
+    // Ogni istruzione paga un round trip verso il DB, ogni commit paga l'fsync del redo log.
+    // Le fsync sono serializzate (un solo log su disco), per questo il commit per ordine non scala con i thread.
+    private static final long ROUND_TRIP_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final long FSYNC_NANOS = TimeUnit.MICROSECONDS.toNanos(1000);
+
+    private static final ReentrantLock REDO_LOG = new ReentrantLock();
+    private static final AtomicInteger ID_ORDINE = new AtomicInteger();
+
+    private OrdineDao ordineDao;
+    private OrdineGroupCommit groupCommit;
+
+    @Setup
+    public void setup() {
+        ordineDao = new OrdineDao();
+        groupCommit = new OrdineGroupCommit(OrderGroupCommitBenchmark::connessioneSimulata, 2, 32);
+    }
+
+    @TearDown
+    public void tearDown() {
+        groupCommit.stop();
+    }
+
+    // --- BENCHMARK 1: Una transazione (e un commit) per ogni ordine ---
+    @Benchmark
+    public void testTransazionePerOrdine(Blackhole bh) throws SQLException {
+        try (Connection con = connessioneSimulata()) {
+            bh.consume(ordineDao.doSaveOrdine(con, creaOrdine(), creaDettagli()));
+        }
+    }
+
+    // --- BENCHMARK 2: Group commit (finestra di 2 ms o 32 ordini) ---
+    @Benchmark
+    public void testGroupCommit(Blackhole bh) {
+        bh.consume(groupCommit.salva(creaOrdine(), creaDettagli()));
+    }
+
+    private static Ordine creaOrdine() {
+        Ordine ordine = new Ordine();
+        ordine.setEmailUtente("benchmark@studenti.unisa.it");
+        ordine.setTotale(52.5f);
+        return ordine;
+    }
+
+    private static List<DettaglioOrdine> creaDettagli() {
+        List<DettaglioOrdine> dettagli = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            DettaglioOrdine dettaglio = new DettaglioOrdine();
+            dettaglio.setIdProdotto(String.valueOf(i));
+            dettaglio.setIdVariante(i * 10);
+            dettaglio.setQuantita(1);
+            dettaglio.setPrezzo(17.5f);
+            dettagli.add(dettaglio);
+        }
+        return dettagli;
+    }
+
+    // Connessione finta costruita con un Proxy: nessuna dipendenza da un DB reale
+    private static Connection connessioneSimulata() {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "prepareStatement" -> statementSimulato((String) args[0]);
+                    case "createStatement" -> statementSimulato("");
+                    case "setSavepoint" -> Proxy.newProxyInstance(Savepoint.class.getClassLoader(), new Class<?>[]{Savepoint.class}, (p, m, a) -> null);
+                    case "commit" -> {
+                        REDO_LOG.lock();
+                        try {
+                            LockSupport.parkNanos(FSYNC_NANOS);
+                        } finally {
+                            REDO_LOG.unlock();
+                        }
+                        yield null;
+                    }
+                    case "isClosed", "getAutoCommit" -> false;
+                    default -> null;
+                });
+    }
+
+    private static PreparedStatement statementSimulato(String sql) {
+        // le righe inserite sono tante quante i gruppi di valori della INSERT
+        int righe = Math.max(1, sql.split("\\(\\?", -1).length - 1);
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), new Class<?>[]{PreparedStatement.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "executeUpdate" -> {
+                        LockSupport.parkNanos(ROUND_TRIP_NANOS);
+                        yield righe;
+                    }
+                    case "execute" -> {
+                        LockSupport.parkNanos(ROUND_TRIP_NANOS);
+                        yield false;
+                    }
+                    case "getGeneratedKeys" -> chiaveGenerata(ID_ORDINE.incrementAndGet());
+                    default -> null;
+                });
+    }
+
+    private static ResultSet chiaveGenerata(int id) {
+        boolean[] letta = {false};
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "next" -> {
+                        boolean prima = !letta[0];
+                        letta[0] = true;
+                        yield prima;
+                    }
+                    case "getInt" -> id;
+                    default -> null;
+                });
+    }
+}
@@ -0,0 +1,75 @@
+package benchmark;
+
+import model.ConfigurazionePool;
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.apache.tomcat.jdbc.pool.PoolProperties;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Latenza di una query tipica dei DAO (connessione presa dal pool, prepareStatement con SQL costante,
+// esecuzione, chiusura) con il profilo di connessione "base" e con quello "prestazioni".
+// Richiede il database locale (es. docker compose up db) raggiungibile con le variabili DB_* di ConPool.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+public class StatementCacheBenchmark {
+
+    private static final String QUERY = "SELECT v.id_variante, v.prezzo, v.sconto, v.quantità, g.nomeGusto, c.peso "
+            + "FROM variante v JOIN gusto g ON v.id_gusto = g.id_gusto JOIN confezione c ON v.id_confezione = c.id_confezione "
+            + "WHERE v.id_variante = ?";
+
+    @Param({ConfigurazionePool.PROFILO_BASE, ConfigurazionePool.PROFILO_PRESTAZIONI})
+    public String profilo;
+
+    private DataSource dataSource;
+    private int maxIdVariante;
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+        Map<String, String> ambiente = new HashMap<>(System.getenv());
+        ambiente.put("DB_PROFILO", profilo);
+        ambiente.put("DB_POOL_INITIAL_SIZE", "4");
+        ambiente.put("DB_POOL_MIN_IDLE", "4");
+        PoolProperties p = ConfigurazionePool.carica(ambiente, new Properties()).toPoolProperties();
+        dataSource = new DataSource(p);
+
+        try (Connection con = dataSource.getConnection();
+             PreparedStatement ps = con.prepareStatement("SELECT COALESCE(MAX(id_variante), 1) FROM variante");
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            maxIdVariante = rs.getInt(1);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dataSource.close(true);
+    }
+
+    @Benchmark
+    public void queryPerIdVariante(Blackhole bh) throws SQLException {
+        try (Connection con = dataSource.getConnection();
+             PreparedStatement ps = con.prepareStatement(QUERY)) {
+            ps.setInt(1, ThreadLocalRandom.current().nextInt(1, maxIdVariante + 1));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    bh.consume(rs.getFloat("prezzo"));
+                    bh.consume(rs.getString("nomeGusto"));
+                }
+            }
+        }
+    }
+}
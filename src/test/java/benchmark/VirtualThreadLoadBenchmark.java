@@ -0,0 +1,126 @@
+package benchmark;
+
+import controller.Http.BloccoSessione;
+import jakarta.servlet.http.HttpSession;
+import jakarta.servlet.http.HttpSessionEvent;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS) // Tempo per servire una richiesta di ognuna delle sessioni
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+
+// BENCHMARK DI CARICO: 2000 sessioni che chiedono il carrello insieme, servite dai thread della piattaforma
+// (come il connettore di Tomcat, 200 thread) o dai virtual thread (TOMCAT_VIRTUAL_THREADS=true).
+// La terza modalità tiene synchronized(session) come prima: i virtual thread restano attaccati ai carrier.
+public class VirtualThreadLoadBenchmark {
+
+    // SIMULAZIONE COSTO DELLA RICHIESTA
+    // La query prende una delle 100 connessioni del pool (DB_POOL_MAX_ACTIVE) per un round trip;
+    // la risposta va poi scritta a un client lento, che occupa il thread ma non la connessione.
+    private static final int SESSIONI = 2000;
+    private static final int THREAD_TOMCAT = 200;
+    private static final long QUERY_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long SCRITTURA_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    @Param({"piattaforma", "virtuali", "virtualiSynchronized"})
+    public String modalita;
+
+    private final Semaphore connessioni = new Semaphore(100);
+    private List<HttpSession> sessioni;
+    private ExecutorService connettore;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        sessioni = new ArrayList<>();
+        BloccoSessione listener = new BloccoSessione();
+        for (int i = 0; i < SESSIONI; i++) {
+            HttpSession sessione = sessioneInMemoria();
+            listener.sessionCreated(new HttpSessionEvent(sessione));
+            sessione.setAttribute("cart", new ArrayList<>(List.of("variante-" + i)));
+            sessioni.add(sessione);
+        }
+        connettore = modalita.equals("piattaforma")
+                ? Executors.newFixedThreadPool(THREAD_TOMCAT)
+                : Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        connettore.shutdownNow();
+    }
+
+    // --- BENCHMARK 1: Una richiesta al carrello per ognuna delle 2000 sessioni, tutte insieme ---
+    @Benchmark
+    public int testRichiesteConcorrenti() throws InterruptedException, ExecutionException {
+        boolean synchronizedSessione = modalita.equals("virtualiSynchronized");
+        List<Future<Integer>> risposte = new ArrayList<>(SESSIONI);
+        for (HttpSession sessione : sessioni) {
+            risposte.add(connettore.submit(() -> synchronizedSessione ? carrelloSynchronized(sessione) : carrello(sessione)));
+        }
+        int totale = 0;
+        for (Future<Integer> risposta : risposte) {
+            totale += risposta.get();
+        }
+        return totale;
+    }
+
+    // Come CarrelloServlet: lock della sessione attorno a lettura del carrello, query e scrittura della risposta
+    private int carrello(HttpSession sessione) {
+        ReentrantLock blocco = BloccoSessione.di(sessione);
+        blocco.lock();
+        try {
+            return gestisci(sessione);
+        } finally {
+            blocco.unlock();
+        }
+    }
+
+    private int carrelloSynchronized(HttpSession sessione) {
+        synchronized (sessione) {
+            return gestisci(sessione);
+        }
+    }
+
+    private int gestisci(HttpSession sessione) {
+        List<?> carrello = (List<?>) sessione.getAttribute("cart");
+        connessioni.acquireUninterruptibly();
+        try {
+            LockSupport.parkNanos(QUERY_NANOS);
+        } finally {
+            connessioni.release();
+        }
+        String json = carrello.toString();
+        LockSupport.parkNanos(SCRITTURA_NANOS);
+        return json.length();
+    }
+
+    // Sessione con i soli attributi, abbastanza per il lock di sessione e il carrello
+    private static HttpSession sessioneInMemoria() {
+        Map<String, Object> attributi = new HashMap<>();
+        return (HttpSession) Proxy.newProxyInstance(HttpSession.class.getClassLoader(), new Class<?>[]{HttpSession.class},
+                (proxy, metodo, argomenti) -> switch (metodo.getName()) {
+                    case "getAttribute" -> attributi.get((String) argomenti[0]);
+                    case "setAttribute" -> attributi.put((String) argomenti[0], argomenti[1]);
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == argomenti[0];
+                    default -> null;
+                });
+    }
+}
@@ -1,11 +1,17 @@
 package benchmark;
 
+import model.Confezione;
+import model.DimensioniCatalogo;
 import model.Gusto;
+import model.Variante;
 import org.openjdk.jmh.annotations.*;
 
+import java.lang.ref.Reference;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
 
 @BenchmarkMode(Mode.AverageTime)
 @OutputTimeUnit(TimeUnit.MICROSECONDS) // Misuriamo in microsecondi
@@ -45,6 +51,101 @@ public class doRetriveAllGustoBenchmark {
         }
     }
 
+    // --- STATE: Righe della tabella variante, con e senza le colonne delle join ---
+    @State(Scope.Thread)
+    public static class VarianteState {
+
+        private static final int GUSTI = 40;
+        private static final int CONFEZIONI = 8;
+
+        // Dati grezzi simulati: id delle dimensioni e, per la query con le join, i byte del nome del gusto
+        // come arrivano dal driver (ogni getString crea una nuova String)
+        public int[] rawIdGusto;
+        public int[] rawIdConfezione;
+        public byte[][] rawNomeGusto;
+        public int[] rawPeso;
+        public DimensioniCatalogo dimensioni;
+
+        @Param({"1000", "100000"})
+        public int righe;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            List<Gusto> gusti = new ArrayList<>();
+            for (int i = 1; i <= GUSTI; i++) {
+                Gusto gusto = new Gusto();
+                gusto.setIdGusto(i);
+                gusto.setNome("Gusto Delizioso " + i);
+                gusti.add(gusto);
+            }
+            List<Confezione> confezioni = new ArrayList<>();
+            for (int i = 1; i <= CONFEZIONI; i++) {
+                Confezione confezione = new Confezione();
+                confezione.setIdConfezione(i);
+                confezione.setPeso(i * 250);
+                confezioni.add(confezione);
+            }
+            dimensioni = DimensioniCatalogo.carica(gusti, confezioni);
+
+            rawIdGusto = new int[righe];
+            rawIdConfezione = new int[righe];
+            rawNomeGusto = new byte[righe][];
+            rawPeso = new int[righe];
+            for (int i = 0; i < righe; i++) {
+                rawIdGusto[i] = i % GUSTI + 1;
+                rawIdConfezione[i] = i % CONFEZIONI + 1;
+                rawNomeGusto[i] = ("Gusto Delizioso " + rawIdGusto[i]).getBytes(StandardCharsets.UTF_8);
+                rawPeso[i] = rawIdConfezione[i] * 250;
+            }
+        }
+
+        // Heap trattenuto da un catalogo di "righe" varianti nelle due forme, stampato a fine prova
+        @TearDown(Level.Trial)
+        public void heapCatalogo() {
+            long conJoin = heapTrattenuto(n -> mappaConJoin(this), righe);
+            long canoniche = heapTrattenuto(n -> mappaCanoniche(this), righe);
+            System.out.printf("%nHeap per %d varianti: copie per riga %d KB, dimensioni condivise %d KB (-%d%%)%n",
+                    righe, conJoin / 1024, canoniche / 1024, conJoin == 0 ? 0 : 100 - canoniche * 100 / conJoin);
+        }
+    }
+
+    // Simuliamo la query con le join: nome del gusto e peso letti ad ogni riga
+    static List<Variante> mappaConJoin(VarianteState state) {
+        List<Variante> varianti = new ArrayList<>(state.righe);
+        for (int i = 0; i < state.righe; i++) {
+            Variante v = new Variante();
+            v.setIdGusto(state.rawIdGusto[i]);
+            v.setIdConfezione(state.rawIdConfezione[i]);
+            v.setGusto(new String(state.rawNomeGusto[i], StandardCharsets.UTF_8));
+            v.setPesoConfezione(state.rawPeso[i]);
+            varianti.add(v);
+        }
+        return varianti;
+    }
+
+    // Simuliamo la query senza join: solo gli id, gusto e confezione dalle istanze condivise
+    static List<Variante> mappaCanoniche(VarianteState state) {
+        List<Variante> varianti = new ArrayList<>(state.righe);
+        for (int i = 0; i < state.righe; i++) {
+            Variante v = new Variante();
+            v.setIdGusto(state.rawIdGusto[i]);
+            v.setIdConfezione(state.rawIdConfezione[i]);
+            varianti.add(state.dimensioni.collega(v));
+        }
+        return varianti;
+    }
+
+    private static long heapTrattenuto(IntFunction<Object> crea, int righe) {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long prima = runtime.totalMemory() - runtime.freeMemory();
+        Object catalogo = crea.apply(righe);
+        System.gc();
+        long dopo = runtime.totalMemory() - runtime.freeMemory();
+        Reference.reachabilityFence(catalogo);
+        return Math.max(0, dopo - prima);
+    }
+
     // --- BENCHMARK 1: Mapping Logic (Simulazione doRetrieveAll) ---
     // Misura quanto tempo impiega Java a trasformare i dati grezzi in Oggetti Gusto
     @Benchmark
@@ -64,6 +165,18 @@ public class doRetriveAllGustoBenchmark {
         return gusti;
     }
 
+    // --- BENCHMARK 3: Varianti con il nome del gusto e il peso copiati in ogni riga (query con le join) ---
+    @Benchmark
+    public List<Variante> testMappingVariantiConJoin(VarianteState state) {
+        return mappaConJoin(state);
+    }
+
+    // --- BENCHMARK 4: Varianti collegate a gusti e confezioni condivisi (DimensioniCatalogo, senza join) ---
+    @Benchmark
+    public List<Variante> testMappingVariantiCanoniche(VarianteState state) {
+        return mappaCanoniche(state);
+    }
+
     // --- BENCHMARK 2: Query Building (Logica doSaveGusto) ---
     // Misura l'efficienza dello StringBuilder e della logica condizionale nel creare la query
     @Benchmark
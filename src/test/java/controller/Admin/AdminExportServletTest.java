@@ -0,0 +1,118 @@
+package controller.Admin;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletConfig;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Classe di test per adminExportServlet.
+ * Verifica che le richieste non valide vengano rifiutate prima di avviare l'esportazione asincrona
+ * e che le esportazioni oltre il limite ricevano 503.
+ */
+public class AdminExportServletTest {
+    private adminExportServlet servlet;
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+
+    @BeforeEach
+    void setup() throws Exception {
+        servlet = new adminExportServlet();
+        request = mock(HttpServletRequest.class);
+        response = mock(HttpServletResponse.class);
+
+        // Mock ServletConfig e ServletContext per permettere il logging
+        ServletConfig servletConfig = mock(ServletConfig.class);
+        when(servletConfig.getServletContext()).thenReturn(mock(ServletContext.class));
+        servlet.init(servletConfig);
+
+        when(request.getParameterMap()).thenReturn(Map.of());
+    }
+
+    @AfterEach
+    void tearDown() {
+        servlet.destroy();
+    }
+
+    @Test
+    @DisplayName("Tabella non valida -> 400")
+    void doGet_InvalidTable_BadRequest() throws Exception {
+        when(request.getParameter("tableName")).thenReturn("carrello");
+
+        servlet.doGet(request, response);
+
+        verify(response).sendError(eq(HttpServletResponse.SC_BAD_REQUEST), anyString());
+        verify(request, never()).startAsync();
+    }
+
+    @Test
+    @DisplayName("Formato non valido -> 400")
+    void doGet_InvalidFormat_BadRequest() throws Exception {
+        when(request.getParameter("tableName")).thenReturn("ordine");
+        when(request.getParameter("format")).thenReturn("xlsx");
+
+        servlet.doGet(request, response);
+
+        verify(response).sendError(eq(HttpServletResponse.SC_BAD_REQUEST), anyString());
+        verify(request, never()).startAsync();
+    }
+
+    @Test
+    @DisplayName("Filtro su una colonna inesistente -> 400")
+    void doGet_InvalidFilter_BadRequest() throws Exception {
+        when(request.getParameter("tableName")).thenReturn("utente");
+        when(request.getParameterMap()).thenReturn(Map.of("tableName", new String[]{"utente"}, "f_password", new String[]{"x"}));
+
+        servlet.doGet(request, response);
+
+        verify(response).sendError(eq(HttpServletResponse.SC_BAD_REQUEST), anyString());
+        verify(request, never()).startAsync();
+    }
+
+    @Test
+    @DisplayName("Esportazioni in corso e coda piene -> 503 senza accodare")
+    void doGet_Sovraccarico_ServiceUnavailable() throws Exception {
+        CountDownLatch sblocca = new CountDownLatch(1);
+        CountDownLatch avviate = new CountDownLatch(adminExportServlet.ESPORTAZIONI_CONCORRENTI);
+        AsyncContext asyncContext = mock(AsyncContext.class);
+        // le esportazioni restano ferme finché il test non le sblocca
+        when(asyncContext.getResponse()).thenAnswer(inv -> {
+            avviate.countDown();
+            sblocca.await(5, TimeUnit.SECONDS);
+            return response;
+        });
+        when(request.startAsync()).thenReturn(asyncContext);
+        when(request.getParameter("tableName")).thenReturn("ordine");
+
+        try {
+            for (int i = 0; i < adminExportServlet.ESPORTAZIONI_CONCORRENTI; i++) {
+                servlet.doGet(request, response);
+            }
+            assertTrue(avviate.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < adminExportServlet.ESPORTAZIONI_IN_CODA; i++) {
+                servlet.doGet(request, response);
+            }
+            verify(response, never()).sendError(anyInt(), anyString());
+
+            servlet.doGet(request, response);
+
+            verify(response).sendError(eq(HttpServletResponse.SC_SERVICE_UNAVAILABLE), anyString());
+            verify(asyncContext).complete();
+        } finally {
+            sblocca.countDown();
+        }
+    }
+}
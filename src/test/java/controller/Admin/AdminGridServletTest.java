@@ -0,0 +1,155 @@
+package controller.Admin;
+
+import jakarta.servlet.ServletConfig;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import model.AdminGridDAO;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedConstruction;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Classe di test per adminGridServlet.
+ * Verifica il passaggio di ordinamento, filtri e cursore al DAO e il formato della risposta.
+ */
+public class AdminGridServletTest {
+    private adminGridServlet servlet;
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+    private StringWriter stringWriter;
+
+    @BeforeEach
+    void setup() throws Exception {
+        servlet = new adminGridServlet();
+        request = mock(HttpServletRequest.class);
+        response = mock(HttpServletResponse.class);
+
+        // Mock ServletConfig e ServletContext per permettere il logging
+        ServletConfig servletConfig = mock(ServletConfig.class);
+        when(servletConfig.getServletContext()).thenReturn(mock(ServletContext.class));
+        servlet.init(servletConfig);
+
+        stringWriter = new StringWriter();
+        when(response.getWriter()).thenReturn(new PrintWriter(stringWriter));
+        when(request.getParameterMap()).thenReturn(Map.of());
+    }
+
+    private static AdminGridDAO.Pagina pagina() {
+        AdminGridDAO.Pagina pagina = mock(AdminGridDAO.Pagina.class);
+        Map<String, Object> riga = new LinkedHashMap<>();
+        riga.put("idOrdine", 1);
+        riga.put("stato", "spedito");
+        when(pagina.getRighe()).thenReturn(List.of(riga));
+        when(pagina.getCursor()).thenReturn(List.of("1"));
+        when(pagina.getTotale()).thenReturn(200000L);
+        return pagina;
+    }
+
+    @Test
+    @DisplayName("Prima pagina -> righe, cursore, totale e colonne")
+    void doGet_FirstPage_ReturnsMetadata() throws Exception {
+        when(request.getParameter("tableName")).thenReturn("ordine");
+        when(request.getParameter("sort")).thenReturn("data");
+        when(request.getParameter("dir")).thenReturn("desc");
+        when(request.getParameterMap()).thenReturn(Map.of("tableName", new String[]{"ordine"}, "f_stato", new String[]{"spedito"}));
+
+        AdminGridDAO.Pagina pagina = pagina();
+        try (MockedConstruction<AdminGridDAO> mocked = mockConstruction(AdminGridDAO.class, (mock, ctx) ->
+                when(mock.doRetrievePagina(anyString(), any(), anyBoolean(), anyMap(), any(), anyInt())).thenReturn(pagina))) {
+            servlet.doGet(request, response);
+
+            verify(mocked.constructed().get(0)).doRetrievePagina("ordine", "data", true, Map.of("stato", "spedito"), null, AdminGridDAO.LIMIT_DEFAULT);
+
+            JSONObject json = (JSONObject) new JSONParser().parse(stringWriter.toString());
+            assertEquals(1, ((List<?>) json.get("righe")).size());
+            assertEquals(List.of("1"), json.get("cursor"));
+            assertEquals(200000L, json.get("totale"));
+            assertEquals(List.of("idOrdine"), json.get("chiave"));
+            assertEquals(6, ((List<?>) json.get("colonne")).size());
+        }
+    }
+
+    @Test
+    @DisplayName("Pagina successiva -> il cursore viene passato al DAO, niente metadati")
+    void doGet_NextPage_PassesCursor() throws Exception {
+        when(request.getParameter("tableName")).thenReturn("ordine");
+        when(request.getParameter("cursor")).thenReturn("[\"2024-07-18\",\"15\"]");
+        when(request.getParameter("limit")).thenReturn("100");
+
+        AdminGridDAO.Pagina pagina = pagina();
+        try (MockedConstruction<AdminGridDAO> mocked = mockConstruction(AdminGridDAO.class, (mock, ctx) ->
+                when(mock.doRetrievePagina(anyString(), any(), anyBoolean(), anyMap(), any(), anyInt())).thenReturn(pagina))) {
+            servlet.doGet(request, response);
+
+            verify(mocked.constructed().get(0)).doRetrievePagina(eq("ordine"), isNull(), eq(false), anyMap(), eq(List.of("2024-07-18", "15")), eq(100));
+            JSONObject json = (JSONObject) new JSONParser().parse(stringWriter.toString());
+            assertFalse(json.containsKey("colonne"));
+            assertFalse(json.containsKey("totale"));
+        }
+    }
+
+    @Test
+    @DisplayName("Tabella non valida -> 400")
+    void doGet_InvalidTable_BadRequest() throws Exception {
+        when(request.getParameter("tableName")).thenReturn("carrello");
+
+        try (MockedConstruction<AdminGridDAO> mocked = mockConstruction(AdminGridDAO.class)) {
+            servlet.doGet(request, response);
+
+            assertTrue(mocked.constructed().isEmpty());
+            verify(response).sendError(eq(HttpServletResponse.SC_BAD_REQUEST), anyString());
+        }
+    }
+
+    @Test
+    @DisplayName("Cursore malformato -> 400")
+    void doGet_InvalidCursor_BadRequest() throws Exception {
+        when(request.getParameter("tableName")).thenReturn("ordine");
+        when(request.getParameter("cursor")).thenReturn("[1, 2");
+
+        servlet.doGet(request, response);
+
+        verify(response).sendError(eq(HttpServletResponse.SC_BAD_REQUEST), anyString());
+    }
+
+    @Test
+    @DisplayName("Colonna di ordinamento non valida -> 400")
+    void doGet_InvalidSort_BadRequest() throws Exception {
+        when(request.getParameter("tableName")).thenReturn("ordine");
+        when(request.getParameter("sort")).thenReturn("descrizione");
+
+        try (MockedConstruction<AdminGridDAO> mocked = mockConstruction(AdminGridDAO.class, (mock, ctx) ->
+                when(mock.doRetrievePagina(anyString(), any(), anyBoolean(), anyMap(), any(), anyInt())).thenThrow(new IllegalArgumentException("Colonna non ordinabile")))) {
+            servlet.doGet(request, response);
+
+            verify(response).sendError(eq(HttpServletResponse.SC_BAD_REQUEST), anyString());
+        }
+    }
+
+    @Test
+    @DisplayName("Errore del DB -> 500")
+    void doGet_DatabaseError_InternalServerError() throws Exception {
+        when(request.getParameter("tableName")).thenReturn("ordine");
+
+        try (MockedConstruction<AdminGridDAO> mocked = mockConstruction(AdminGridDAO.class, (mock, ctx) ->
+                when(mock.doRetrievePagina(anyString(), any(), anyBoolean(), anyMap(), any(), anyInt())).thenThrow(new RuntimeException("DB down")))) {
+            servlet.doGet(request, response);
+
+            verify(response).sendError(eq(HttpServletResponse.SC_INTERNAL_SERVER_ERROR), anyString());
+        }
+    }
+}
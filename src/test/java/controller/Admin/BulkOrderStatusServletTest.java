@@ -0,0 +1,134 @@
+package controller.Admin;
+
+import jakarta.servlet.ServletConfig;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import model.Ordine;
+import model.OrdineDao;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedConstruction;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Classe di test per bulkOrderStatusServlet.
+ * Verifica la validazione dei parametri e che vengano restituite solo le righe modificate.
+ */
+public class BulkOrderStatusServletTest {
+    private bulkOrderStatusServlet servlet;
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+    private StringWriter stringWriter;
+
+    @BeforeEach
+    void setup() throws Exception {
+        servlet = new bulkOrderStatusServlet();
+        request = mock(HttpServletRequest.class);
+        response = mock(HttpServletResponse.class);
+
+        // Mock ServletConfig e ServletContext per permettere il logging
+        ServletConfig servletConfig = mock(ServletConfig.class);
+        when(servletConfig.getServletContext()).thenReturn(mock(ServletContext.class));
+        servlet.init(servletConfig);
+
+        stringWriter = new StringWriter();
+        when(response.getWriter()).thenReturn(new PrintWriter(stringWriter));
+    }
+
+    @Test
+    @DisplayName("Ids selezionati -> un solo aggiornamento, JSON con le righe modificate")
+    void doPost_Ids_ReturnsChangedRows() throws Exception {
+        when(request.getParameter("stato")).thenReturn("spedito");
+        when(request.getParameter("ids")).thenReturn("4, 7,9");
+
+        Ordine spedito = new Ordine();
+        spedito.setIdOrdine(7);
+        spedito.setStato("spedito");
+
+        try (MockedConstruction<OrdineDao> mocked = mockConstruction(OrdineDao.class, (mock, ctx) ->
+                when(mock.doUpdateStatoByIds(List.of(4, 7, 9), "spedito")).thenReturn(List.of(spedito)))) {
+            servlet.doPost(request, response);
+
+            verify(mocked.constructed().get(0)).doUpdateStatoByIds(List.of(4, 7, 9), "spedito");
+            String json = stringWriter.toString();
+            assertTrue(json.contains("\"idOrdine\":7"));
+            assertTrue(json.contains("\"stato\":\"spedito\""));
+            verify(response).setContentType("application/json");
+        }
+    }
+
+    @Test
+    @DisplayName("Filtro per data -> aggiornamento per data")
+    void doPost_DataFino_UsesDateFilter() throws Exception {
+        when(request.getParameter("stato")).thenReturn("consegnato");
+        when(request.getParameter("dataFino")).thenReturn("2024-07-18");
+
+        try (MockedConstruction<OrdineDao> mocked = mockConstruction(OrdineDao.class)) {
+            servlet.doPost(request, response);
+
+            verify(mocked.constructed().get(0)).doUpdateStatoByData(java.sql.Date.valueOf("2024-07-18"), "consegnato");
+            assertEquals("[]", stringWriter.toString().trim());
+        }
+    }
+
+    @Test
+    @DisplayName("Stato non previsto -> 400 senza toccare il DB")
+    void doPost_InvalidState_BadRequest() throws Exception {
+        when(request.getParameter("stato")).thenReturn("in esecuzione");
+        when(request.getParameter("ids")).thenReturn("1");
+
+        try (MockedConstruction<OrdineDao> mocked = mockConstruction(OrdineDao.class)) {
+            servlet.doPost(request, response);
+
+            assertTrue(mocked.constructed().isEmpty());
+            verify(response).sendError(eq(HttpServletResponse.SC_BAD_REQUEST), anyString());
+        }
+    }
+
+    @Test
+    @DisplayName("Id non numerico -> 400")
+    void doPost_InvalidId_BadRequest() throws Exception {
+        when(request.getParameter("stato")).thenReturn("spedito");
+        when(request.getParameter("ids")).thenReturn("1,abc");
+
+        try (MockedConstruction<OrdineDao> mocked = mockConstruction(OrdineDao.class)) {
+            servlet.doPost(request, response);
+
+            verify(mocked.constructed().get(0), never()).doUpdateStatoByIds(anyList(), anyString());
+            verify(response).sendError(eq(HttpServletResponse.SC_BAD_REQUEST), anyString());
+        }
+    }
+
+    @Test
+    @DisplayName("Nessuna selezione -> 400")
+    void doPost_NoSelection_BadRequest() throws Exception {
+        when(request.getParameter("stato")).thenReturn("spedito");
+
+        servlet.doPost(request, response);
+
+        verify(response).sendError(eq(HttpServletResponse.SC_BAD_REQUEST), anyString());
+    }
+
+    @Test
+    @DisplayName("Errore del DB -> 500")
+    void doPost_DatabaseError_InternalServerError() throws Exception {
+        when(request.getParameter("stato")).thenReturn("spedito");
+        when(request.getParameter("ids")).thenReturn("1");
+
+        try (MockedConstruction<OrdineDao> mocked = mockConstruction(OrdineDao.class, (mock, ctx) ->
+                when(mock.doUpdateStatoByIds(anyList(), anyString())).thenThrow(new RuntimeException("DB down")))) {
+            servlet.doPost(request, response);
+
+            verify(response).sendError(eq(HttpServletResponse.SC_INTERNAL_SERVER_ERROR), anyString());
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package controller.Admin;
+
+import jakarta.servlet.ServletConfig;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import model.CatalogoCache;
+import model.ProdottoDAO;
+import model.VarianteDAO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedConstruction;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Classe di test per bulkPrezziServlet.
+ * Verifica la validazione dei parametri e la ripubblicazione del catalogo dopo l'aggiornamento.
+ */
+public class BulkPrezziServletTest {
+    private bulkPrezziServlet servlet;
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+    private ServletContext servletContext;
+    private StringWriter stringWriter;
+
+    @BeforeEach
+    void setup() throws Exception {
+        servlet = new bulkPrezziServlet();
+        request = mock(HttpServletRequest.class);
+        response = mock(HttpServletResponse.class);
+
+        // Mock ServletConfig e ServletContext per permettere il logging e la pubblicazione del catalogo
+        ServletConfig servletConfig = mock(ServletConfig.class);
+        servletContext = mock(ServletContext.class);
+        when(servletConfig.getServletContext()).thenReturn(servletContext);
+        servlet.init(servletConfig);
+
+        stringWriter = new StringWriter();
+        when(response.getWriter()).thenReturn(new PrintWriter(stringWriter));
+    }
+
+    @Test
+    @DisplayName("Sconto per categoria -> un solo aggiornamento e una sola ripubblicazione del catalogo")
+    void doPost_Categoria_UpdatesAndRepublishesCatalog() throws Exception {
+        when(request.getParameter("criterio")).thenReturn("categoria");
+        when(request.getParameter("valori")).thenReturn("proteine, creatina");
+        when(request.getParameter("sconto")).thenReturn("20");
+        when(request.getParameter("evidenza")).thenReturn("1");
+        long versione = CatalogoCache.getVersione();
+
+        try (MockedConstruction<VarianteDAO> varianti = mockConstruction(VarianteDAO.class, (mock, ctx) ->
+                when(mock.doUpdatePrezzi("categoria", List.of("proteine", "creatina"), 20, null, true)).thenReturn(12));
+             MockedConstruction<ProdottoDAO> prodotti = mockConstruction(ProdottoDAO.class, (mock, ctx) ->
+                     when(mock.doRetrieveAll()).thenReturn(new ArrayList<>()))) {
+            servlet.doPost(request, response);
+
+            verify(varianti.constructed().get(0)).doUpdatePrezzi("categoria", List.of("proteine", "creatina"), 20, null, true);
+            verify(prodotti.constructed().get(0)).doRetrieveAll();
+            verify(servletContext).setAttribute(eq("Products"), any());
+            String json = stringWriter.toString();
+            assertTrue(json.contains("\"aggiornate\":12"));
+            assertTrue(json.contains("\"versioneCatalogo\":" + (versione + 1)));
+        }
+    }
+
+    @Test
+    @DisplayName("Sconto non numerico -> 400 senza toccare il catalogo")
+    void doPost_InvalidSconto_SendsBadRequest() throws Exception {
+        when(request.getParameter("criterio")).thenReturn("gusto");
+        when(request.getParameter("valori")).thenReturn("3");
+        when(request.getParameter("sconto")).thenReturn("venti");
+
+        try (MockedConstruction<VarianteDAO> varianti = mockConstruction(VarianteDAO.class)) {
+            servlet.doPost(request, response);
+
+            assertTrue(varianti.constructed().isEmpty());
+            verify(response).sendError(eq(HttpServletResponse.SC_BAD_REQUEST), anyString());
+            verify(servletContext, never()).setAttribute(eq("Products"), any());
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package controller.Admin;
+
+import jakarta.servlet.ServletConfig;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import model.RiepilogoVenditeDAO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedConstruction;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Classe di test per dashboardVenditeServlet.
+ * Verifica che la dashboard legga solo i riepiloghi e validi l'intervallo di date.
+ */
+public class DashboardVenditeServletTest {
+    private dashboardVenditeServlet servlet;
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+    private StringWriter stringWriter;
+
+    @BeforeEach
+    void setup() throws Exception {
+        servlet = new dashboardVenditeServlet();
+        request = mock(HttpServletRequest.class);
+        response = mock(HttpServletResponse.class);
+
+        // Mock ServletConfig e ServletContext per permettere il logging
+        ServletConfig servletConfig = mock(ServletConfig.class);
+        when(servletConfig.getServletContext()).thenReturn(mock(ServletContext.class));
+        servlet.init(servletConfig);
+
+        stringWriter = new StringWriter();
+        when(response.getWriter()).thenReturn(new PrintWriter(stringWriter));
+    }
+
+    @Test
+    @DisplayName("Intervallo valido -> JSON con vendite per giorno, categoria e variante")
+    void doGet_ValidRange_ReturnsRollups() throws Exception {
+        when(request.getParameter("da")).thenReturn("2024-07-01");
+        when(request.getParameter("a")).thenReturn("2024-07-31");
+        java.sql.Date da = java.sql.Date.valueOf("2024-07-01");
+        java.sql.Date a = java.sql.Date.valueOf("2024-07-31");
+
+        try (MockedConstruction<RiepilogoVenditeDAO> mocked = mockConstruction(RiepilogoVenditeDAO.class, (mock, ctx) -> {
+            when(mock.doRetrievePerGiorno(da, a)).thenReturn(List.of(Map.of("giorno", "2024-07-18", "incasso", new BigDecimal("845.50"))));
+            when(mock.doRetrievePerCategoria(da, a)).thenReturn(List.of(Map.of("categoria", "proteine")));
+        })) {
+            servlet.doGet(request, response);
+
+            verify(mocked.constructed().get(0)).doRetrievePerVariante(eq(da), eq(a), anyInt());
+            String json = stringWriter.toString();
+            assertTrue(json.contains("\"incasso\":845.50"));
+            assertTrue(json.contains("\"categoria\":\"proteine\""));
+            assertTrue(json.contains("\"varianti\":[]"));
+            verify(response).setContentType("application/json");
+        }
+    }
+
+    @Test
+    @DisplayName("Data finale precedente a quella iniziale -> 400 senza leggere i riepiloghi")
+    void doGet_InvertedRange_SendsBadRequest() throws Exception {
+        when(request.getParameter("da")).thenReturn("2024-08-01");
+        when(request.getParameter("a")).thenReturn("2024-07-01");
+
+        try (MockedConstruction<RiepilogoVenditeDAO> mocked = mockConstruction(RiepilogoVenditeDAO.class)) {
+            servlet.doGet(request, response);
+
+            assertTrue(mocked.constructed().isEmpty());
+            verify(response).sendError(eq(HttpServletResponse.SC_BAD_REQUEST), anyString());
+        }
+    }
+}
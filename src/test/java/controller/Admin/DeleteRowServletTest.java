@@ -20,6 +20,7 @@ import java.util.List;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -144,7 +145,7 @@ public class DeleteRowServletTest {
             // Verifica che checkIfAdminDeletingSelf (corretto) abbia restituito false
             // e che la servlet abbia proseguito normalmente con l'output JSON
             verify(response, never()).sendRedirect(anyString());
-            assertTrue(getJsonOutput().startsWith("[")); // Ha scritto il JSON
+            assertTrue(getJsonOutput().startsWith("{")); // Ha scritto il JSON
         }
     }
 
@@ -169,11 +170,12 @@ public class DeleteRowServletTest {
 
             servlet.doGet(request, response);
 
-            // Verifica che la cancellazione sia stata chiamata
+            // Verifica che la cancellazione sia stata chiamata e che la tabella non venga riletta
             verify(dao.constructed().get(0)).removeProductFromIdProdotto("P1");
+            verify(dao.constructed().get(0), never()).doRetrieveAll();
             // Verifica che il JSON sia stato inviato
             verify(response).getWriter();
-            assertTrue(getJsonOutput().equals("[]")); // JSON di una lista vuota
+            assertTrue(getJsonOutput().contains("\"chiavi\":[\"P1\"]")); // solo la chiave eliminata
         }
     }
 
@@ -251,7 +253,7 @@ public class DeleteRowServletTest {
 
             verify(dao.constructed().get(0)).doRemoveUserByEmail("user@example.com");
             verify(response).getWriter();
-            assertTrue(getJsonOutput().equals("[]"));
+            assertTrue(getJsonOutput().contains("\"chiavi\":[\"user@example.com\"]")); // solo la chiave eliminata
         }
     }
 
@@ -289,7 +291,7 @@ public class DeleteRowServletTest {
 
             verify(dao.constructed().get(0)).doRemoveVariante(1);
             verify(response).getWriter();
-            assertTrue(getJsonOutput().equals("[]"));
+            assertTrue(getJsonOutput().contains("\"chiavi\":[\"1\"]")); // solo la chiave eliminata
         }
     }
 
@@ -326,7 +328,7 @@ public class DeleteRowServletTest {
 
             verify(dao.constructed().get(0)).doDeleteOrder(1);
             verify(response).getWriter();
-            assertTrue(getJsonOutput().equals("[]"));
+            assertTrue(getJsonOutput().contains("\"chiavi\":[\"1\"]")); // solo la chiave eliminata
         }
     }
 
@@ -346,7 +348,7 @@ public class DeleteRowServletTest {
 
             verify(dao.constructed().get(0)).doRemoveDettaglioOrdine(1, 3);
             verify(response).getWriter();
-            assertTrue(getJsonOutput().equals("[]"));
+            assertTrue(getJsonOutput().contains("\"chiavi\":[\"1, 2, 3\"]")); // solo la chiave eliminata
         }
     }
 
@@ -410,7 +412,7 @@ public class DeleteRowServletTest {
 
             verify(dao.constructed().get(0)).doRemoveGusto(1);
             verify(response).getWriter();
-            assertTrue(getJsonOutput().equals("[]"));
+            assertTrue(getJsonOutput().contains("\"chiavi\":[\"1\"]")); // solo la chiave eliminata
         }
     }
 
@@ -430,7 +432,7 @@ public class DeleteRowServletTest {
 
             verify(dao.constructed().get(0)).doRemoveConfezione(1);
             verify(response).getWriter();
-            assertTrue(getJsonOutput().equals("[]"));
+            assertTrue(getJsonOutput().contains("\"chiavi\":[\"1\"]")); // solo la chiave eliminata
         }
     }
 
@@ -460,39 +462,78 @@ public class DeleteRowServletTest {
         verify(response).sendError(eq(HttpServletResponse.SC_BAD_REQUEST), anyString());
     }
 
-    // --- Test 13: JSON Helper Edge Cases ---
+    // --- Test 13: Cancellazione multipla ---
 
     @Test
-    @DisplayName("Utente con dataNascita null -> JSON corretto")
-    void doGet_utenteNullDataNascita_returnsCorrectJson() throws ServletException, IOException {
-        when(request.getParameter("tableName")).thenReturn("utente");
-        when(request.getParameter("primaryKey")).thenReturn("user@example.com");
+    @DisplayName("Cancellazione multipla -> una sola DELETE, restituisce chiavi e revisione")
+    void doPost_bulkDelete_singleDeleteReturnsKeys() throws ServletException, IOException {
+        when(request.getParameter("tableName")).thenReturn("dettaglioOrdine");
+        when(request.getParameter("chiavi")).thenReturn("[[\"1\",\"P1\",\"3\"],[\"2\",\"P1\",\"4\"]]");
+        when(session.getAttribute("Utente")).thenReturn(mock(Utente.class));
+        long revisione = RevisioniTabelle.get("dettaglioOrdine");
 
-        Utente sessionUser = mock(Utente.class);
-        when(sessionUser.getEmail()).thenReturn("admin@example.com");
-        when(session.getAttribute("Utente")).thenReturn(sessionUser);
+        try (MockedConstruction<AdminGridDAO> dao = mockConstruction(AdminGridDAO.class)) {
+            servlet.doPost(request, response);
 
-        try (MockedConstruction<UtenteDAO> dao = mockConstruction(UtenteDAO.class, (mock, ctx) -> {
-            Utente u = new Utente();
-            u.setEmail("user@example.com");
-            when(mock.doRetrieveByEmail("user@example.com")).thenReturn(u);
+            verify(dao.constructed().get(0)).doDeleteByChiavi("dettaglioOrdine", List.of(List.of("1", "P1", "3"), List.of("2", "P1", "4")));
+            String json = getJsonOutput();
+            assertTrue(json.contains("\"chiavi\":[\"1, P1, 3\",\"2, P1, 4\"]"));
+            assertTrue(json.contains("\"revisione\":" + (revisione + 1)));
+        }
+    }
 
-            // Utente con dataNascita null per il JSON
-            Utente u2 = new Utente();
-            u2.setEmail("user2@example.com");
-            u2.setDataNascita(null); // Explicitly null
-            List<Utente> list = new ArrayList<>();
-            list.add(u2);
-            when(mock.doRetrieveAll()).thenReturn(list);
-        })) {
-            servlet.doGet(request, response);
+    @Test
+    @DisplayName("Cancellazione multipla con chiave non valida -> 400, nessuna DELETE")
+    void doPost_bulkDelete_invalidKey_sendsError() throws ServletException, IOException {
+        when(request.getParameter("tableName")).thenReturn("gusto");
+        when(request.getParameter("chiavi")).thenReturn("[[\"1\"],[\"abc\"]]");
 
-            verify(response).getWriter();
-            String json = getJsonOutput();
-            assertTrue(json.contains("\"dataDiNascita\":\"\"")); // Verifica che sia gestito come stringa vuota
+        try (MockedConstruction<AdminGridDAO> dao = mockConstruction(AdminGridDAO.class)) {
+            servlet.doPost(request, response);
+
+            verify(response).sendError(eq(HttpServletResponse.SC_BAD_REQUEST), anyString());
+            verify(response, never()).getWriter();
+            assertTrue(dao.constructed().isEmpty());
+        }
+    }
+
+    @Test
+    @DisplayName("Cancellazione multipla con una variante inesistente -> stessi controlli della singola, 400")
+    void doPost_bulkDelete_missingVariante_sendsError() throws ServletException, IOException {
+        when(request.getParameter("tableName")).thenReturn("variante");
+        when(request.getParameter("chiavi")).thenReturn("[[\"1\"],[\"99\"]]");
+
+        try (MockedConstruction<VarianteDAO> varianti = mockConstruction(VarianteDAO.class, (mock, ctx) ->
+                when(mock.doRetrieveVarianteByIdVariante(1)).thenReturn(new Variante()));
+             MockedConstruction<AdminGridDAO> dao = mockConstruction(AdminGridDAO.class)) {
+            servlet.doPost(request, response);
+
+            verify(varianti.constructed().get(0)).doRetrieveVarianteByIdVariante(99);
+            verify(response).sendError(eq(HttpServletResponse.SC_BAD_REQUEST), anyString());
+            assertTrue(dao.constructed().isEmpty());
         }
     }
 
+    @Test
+    @DisplayName("Cancellazione multipla: i valori con virgole restano interi, JSON non valido -> 400")
+    void doPost_bulkDelete_valuesAreNotSplit() throws ServletException, IOException {
+        when(request.getParameter("tableName")).thenReturn("prodotto");
+        when(request.getParameter("chiavi")).thenReturn("[[\"P1, bis\"],[\"P2\"]]");
+        when(session.getAttribute("Utente")).thenReturn(mock(Utente.class));
+
+        try (MockedConstruction<ProdottoDAO> prodotti = mockConstruction(ProdottoDAO.class, (mock, ctx) ->
+                when(mock.doRetrieveById(anyString())).thenReturn(new Prodotto()));
+             MockedConstruction<AdminGridDAO> dao = mockConstruction(AdminGridDAO.class)) {
+            servlet.doPost(request, response);
+
+            verify(dao.constructed().get(0)).doDeleteByChiavi("prodotto", List.of(List.of("P1, bis"), List.of("P2")));
+        }
+
+        when(request.getParameter("chiavi")).thenReturn("P1, P2");
+        servlet.doPost(request, response);
+        verify(response).sendError(eq(HttpServletResponse.SC_BAD_REQUEST), anyString());
+    }
+
     // --- Test 14: Additional Edge Cases (Coverage Improvement) ---
 
     @Test
@@ -18,6 +18,7 @@ import model.Gusto;
 import model.GustoDAO;
 import model.Confezione;
 import model.ConfezioneDAO;
+import model.RevisioniTabelle;
 import java.util.ArrayList;
 import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
@@ -27,11 +28,14 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.MockedConstruction;
 
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
@@ -206,6 +210,28 @@ public class EditRowServletTest {
         }
     }
 
+    @Test
+    @DisplayName("Modifica 'utente' da Tables.js (Accept JSON) -> Restituisce solo la chiave e la revisione")
+    void doPost_editUtente_acceptJson_returnsKeyAndRevision() throws ServletException, IOException {
+        setupValidUtenteParams();
+        when(request.getParameter("tableName")).thenReturn("utente");
+        when(request.getParameter("primaryKey")).thenReturn("old@email.com");
+        when(request.getHeader("Accept")).thenReturn("application/json");
+        StringWriter stringWriter = new StringWriter();
+        when(response.getWriter()).thenReturn(new PrintWriter(stringWriter));
+        long revisione = RevisioniTabelle.get("utente");
+
+        try (MockedConstruction<UtenteDAO> dao = mockConstruction(UtenteDAO.class)) {
+            servlet.doPost(request, response);
+
+            verify(dao.constructed().get(0)).doUpdateCustomer(any(Utente.class), eq("old@email.com"));
+            String json = stringWriter.toString();
+            assertTrue(json.contains("\"chiavi\":[\"old@email.com\"]"));
+            assertTrue(json.contains("\"revisione\":" + (revisione + 1)));
+            verify(request, never()).getRequestDispatcher(anyString());
+        }
+    }
+
     // --- Test 4: Sad Path (Logica di business) ---
 
     @Test
@@ -0,0 +1,44 @@
+package controller.Admin;
+
+import model.AdminGridDAO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per EsportatoreTabella.
+ * Verifica il formato CSV (virgolette e formule) e NDJSON (escape e null).
+ */
+public class EsportatoreTabellaTest {
+
+    @Test
+    @DisplayName("CSV -> intestazione, campi tra virgolette e formule neutralizzate")
+    void riga_Csv_QuotesAndNeutralizesFormulas() throws Exception {
+        StringWriter writer = new StringWriter();
+        EsportatoreTabella esportatore = new EsportatoreTabella(writer, EsportatoreTabella.Formato.CSV, AdminGridDAO.getTabella("ordine").getColonne());
+
+        esportatore.riga(new Object[]{1, "a@test.com", "2024-07-18", "spedito", 52.5f, "Whey, \"gusto\" vaniglia"});
+        esportatore.riga(new Object[]{2, "=HYPERLINK(\"x\")", "2024-07-19", "annullato", null, null});
+
+        assertEquals("idOrdine,emailUtente,data,stato,totale,descrizione\r\n"
+                + "1,a@test.com,2024-07-18,spedito,52.5,\"Whey, \"\"gusto\"\" vaniglia\"\r\n"
+                + "2,\"'=HYPERLINK(\"\"x\"\")\",2024-07-19,annullato,,\r\n", writer.toString());
+        assertEquals(2, esportatore.getRighe());
+    }
+
+    @Test
+    @DisplayName("NDJSON -> un oggetto per riga, stringhe con escape e null espliciti")
+    void riga_Ndjson_EscapesAndNulls() throws Exception {
+        StringWriter writer = new StringWriter();
+        EsportatoreTabella esportatore = new EsportatoreTabella(writer, EsportatoreTabella.Formato.NDJSON, AdminGridDAO.getTabella("gusto").getColonne());
+
+        esportatore.riga(new Object[]{3, "Cioccolato \"fondente\"\n"});
+        esportatore.riga(new Object[]{4, null});
+
+        assertEquals("{\"idGusto\":3,\"nomeGusto\":\"Cioccolato \\\"fondente\\\"\\n\"}\n"
+                + "{\"idGusto\":4,\"nomeGusto\":null}\n", writer.toString());
+    }
+}
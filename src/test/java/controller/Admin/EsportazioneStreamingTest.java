@@ -0,0 +1,103 @@
+package controller.Admin;
+
+import model.AdminGridDAO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifica che l'esportazione di una tabella usi memoria costante:
+ * un milione di ordini sintetici vengono esportati in CSV gzip da una JVM separata con heap di 24 MB.
+ * Se le righe venissero accumulate in memoria (come faceva showTable) la JVM terminerebbe con OutOfMemoryError.
+ */
+public class EsportazioneStreamingTest {
+
+    private static final int RIGHE = 1_000_000;
+
+    @Test
+    @DisplayName("Un milione di righe esportate con heap fisso di 24 MB")
+    void esporta_MilioneDiRighe_HeapPiccolo() throws Exception {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        Process process = new ProcessBuilder(java, "-Xmx24m", "-XX:+UseSerialGC",
+                "-cp", System.getProperty("java.class.path"),
+                EsportazioneMilioneDiRighe.class.getName())
+                .redirectErrorStream(true)
+                .start();
+
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        assertTrue(process.waitFor(2, TimeUnit.MINUTES), "Esportazione non terminata");
+        assertEquals(0, process.exitValue(), output);
+        assertTrue(output.contains("righe=" + RIGHE), output);
+    }
+
+    // Eseguito nella JVM con heap ridotto: la tabella "ordine" arriva da un ResultSet sintetico
+    public static class EsportazioneMilioneDiRighe {
+        public static void main(String[] args) throws Exception {
+            CountingOutputStream contatore = new CountingOutputStream();
+            Writer writer = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(contatore, 64 * 1024), StandardCharsets.UTF_8), 64 * 1024);
+
+            EsportatoreTabella esportatore = new EsportatoreTabella(writer, EsportatoreTabella.Formato.CSV, AdminGridDAO.getTabella("ordine").getColonne());
+            new AdminGridDAO().doStreamTabella(connessioneSintetica(), "ordine", Map.of(), esportatore);
+            writer.close();
+
+            System.out.println("righe=" + esportatore.getRighe() + " byte=" + contatore.byteScritti);
+        }
+
+        private static Connection connessioneSintetica() {
+            ResultSet resultSet = resultSetSintetico();
+            PreparedStatement statement = (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), new Class<?>[]{PreparedStatement.class},
+                    (proxy, method, args) -> method.getName().equals("executeQuery") ? resultSet : null);
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> switch (method.getName()) {
+                        case "prepareStatement" -> statement;
+                        case "getAutoCommit" -> true;
+                        default -> null;
+                    });
+        }
+
+        private static ResultSet resultSetSintetico() {
+            int[] riga = {0};
+            Date data = Date.valueOf("2024-07-18");
+            return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                    (proxy, method, args) -> switch (method.getName()) {
+                        case "next" -> ++riga[0] <= RIGHE;
+                        case "getInt" -> riga[0];
+                        case "getFloat" -> 52.5f;
+                        case "getDate" -> data;
+                        case "getString" -> "descrizione".equals(args[0]) ? "Ordine " + riga[0] + ", \"spedizione\" rapida" : "utente" + riga[0] % 1000 + "@test.com";
+                        case "wasNull" -> false;
+                        default -> null;
+                    });
+        }
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        private long byteScritti;
+
+        @Override
+        public void write(int b) {
+            byteScritti++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            byteScritti += len;
+        }
+    }
+}
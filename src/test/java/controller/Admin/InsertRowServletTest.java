@@ -7,6 +7,7 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.Part;
+import model.ImmaginiProdotto;
 import model.Prodotto;
 import model.ProdottoDAO;
 import model.Utente;
@@ -233,28 +234,10 @@ public class InsertRowServletTest {
         servlet.init(servletConfig);
         // --- FINE CORREZIONE TEST ---
 
-        // 3. Mock avanzato per il sistema di file (Paths e Files)
-        try (MockedStatic<Paths> pathsMock = mockStatic(Paths.class);
-                MockedStatic<Files> filesMock = mockStatic(Files.class)) {
-
-            // Prepara i mock per i Path
-            Path mockPath = mock(Path.class);
-            Path mockParentPath = mock(Path.class);
-
-            pathsMock.when(() -> Paths.get(anyString())).thenReturn(mockPath);
-            when(mockPath.getFileName()).thenReturn(mockPath);
-            when(mockPath.toString()).thenReturn("test-image.jpg");
-
-            // Simula la logica di 'getServletContext().getRealPath(...)'
-            // (Ora usa servletContext, non request.getServletContext())
-            when(servletContext.getRealPath("Immagini/test-image.jpg"))
-                    .thenReturn("/fake/path/Immagini/test-image.jpg");
-
-            // (Il resto dei mock di Files e DAO rimane identico...)
-            filesMock.when(() -> Files.exists(any(Path.class))).thenReturn(false);
-            when(mockPath.getParent()).thenReturn(mockParentPath);
-            filesMock.when(() -> Files.createDirectories(any(Path.class))).thenReturn(mockParentPath);
-            filesMock.when(() -> Files.copy(any(InputStream.class), any(Path.class))).thenReturn(0L);
+        // 3. Il salvataggio dell'immagine è delegato a ImmaginiProdotto
+        try (MockedStatic<ImmaginiProdotto> immaginiMock = mockStatic(ImmaginiProdotto.class)) {
+            immaginiMock.when(() -> ImmaginiProdotto.salvaOriginale(any(InputStream.class), eq("jpg")))
+                    .thenReturn("Immagini/3fa9c1d2e4b5a6978c0d1e2f3a4b5c6d.jpg");
 
             // 4. Mock del DAO (ProdottoDAO)
             try (MockedConstruction<ProdottoDAO> dao = mockConstruction(ProdottoDAO.class, (mock, ctx) -> {
@@ -264,12 +247,12 @@ public class InsertRowServletTest {
                 // 5. Esegui la servlet
                 servlet.doPost(request, response);
 
-                // 6. Verifica (rimane identica)
-                filesMock.verify(() -> Files.copy(any(InputStream.class), any(Path.class)));
+                // 6. Il prodotto punta all'originale con il nome uguale all'hash, le derivate sono accodate
                 ProdottoDAO mockDao = dao.constructed().get(0);
                 ArgumentCaptor<Prodotto> pCaptor = ArgumentCaptor.forClass(Prodotto.class);
                 verify(mockDao).doSave(pCaptor.capture());
-                assertEquals("Immagini/test-image.jpg", pCaptor.getValue().getImmagine());
+                assertEquals("Immagini/3fa9c1d2e4b5a6978c0d1e2f3a4b5c6d.jpg", pCaptor.getValue().getImmagine());
+                immaginiMock.verify(() -> ImmaginiProdotto.generaDerivateAsync(List.of("Immagini/3fa9c1d2e4b5a6978c0d1e2f3a4b5c6d.jpg")));
                 verify(dispatcher).forward(request, response);
             }
         }
@@ -517,50 +500,25 @@ public class InsertRowServletTest {
         verify(response).sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Invalid input data.");
     }
 
-    // --- Test 12: Prodotto File Collision & Edge Cases ---
+    // --- Test 12: Prodotto File Edge Cases ---
 
     @Test
-    @DisplayName("Inserimento 'prodotto' (File Collision) -> Rinomina file")
-    void doPost_insertProdotto_fileCollision() throws ServletException, IOException {
+    @DisplayName("Inserimento 'prodotto' (Estensione non ammessa) -> Invia 500 senza salvare il file")
+    void doPost_insertProdotto_unsupportedExtension() throws ServletException, IOException {
         setupValidProdottoParams();
         when(request.getParameter("nameTable")).thenReturn("prodotto");
-        when(request.getRequestDispatcher("showTable?tableName=prodotto")).thenReturn(dispatcher);
-
-        ServletContext servletContext = mock(ServletContext.class);
-        ServletConfig servletConfig = mock(ServletConfig.class);
-        when(servletConfig.getServletContext()).thenReturn(servletContext);
-        servlet.init(servletConfig);
-
-        try (MockedStatic<Paths> pathsMock = mockStatic(Paths.class);
-                MockedStatic<Files> filesMock = mockStatic(Files.class)) {
-
-            Path mockPath = mock(Path.class);
-            Path mockParentPath = mock(Path.class);
-
-            pathsMock.when(() -> Paths.get(anyString())).thenReturn(mockPath);
-            when(mockPath.getFileName()).thenReturn(mockPath);
-            when(mockPath.toString()).thenReturn("test-image.jpg");
-
-            // Mock collision: first exists, second doesn't
-            when(servletContext.getRealPath(anyString())).thenReturn("/fake/path");
-            filesMock.when(() -> Files.exists(any(Path.class)))
-                    .thenReturn(true) // First check: exists (collision)
-                    .thenReturn(false); // Second check: free
-
-            when(mockPath.getParent()).thenReturn(mockParentPath);
-            filesMock.when(() -> Files.createDirectories(any(Path.class))).thenReturn(mockParentPath);
-            filesMock.when(() -> Files.copy(any(InputStream.class), any(Path.class))).thenReturn(0L);
+        Part filePart = request.getPart("immagine");
+        when(filePart.getSubmittedFileName()).thenReturn("script.jsp");
 
-            try (MockedConstruction<ProdottoDAO> dao = mockConstruction(ProdottoDAO.class, (mock, ctx) -> {
-                doNothing().when(mock).doSave(any(Prodotto.class));
-            })) {
-                servlet.doPost(request, response);
+        try (MockedStatic<ImmaginiProdotto> immaginiMock = mockStatic(ImmaginiProdotto.class);
+             MockedConstruction<ProdottoDAO> dao = mockConstruction(ProdottoDAO.class)) {
+            servlet.doPost(request, response);
 
-                verify(dispatcher).forward(request, response);
-                // Verify that the loop ran (Files.exists called at least twice)
-                filesMock.verify(() -> Files.exists(any(Path.class)), atLeast(2));
-            }
+            immaginiMock.verify(() -> ImmaginiProdotto.salvaOriginale(any(), anyString()), never());
+            assertTrue(dao.constructed().isEmpty());
         }
+
+        verify(response).sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Invalid input data.");
     }
 
     @Test
@@ -0,0 +1,49 @@
+package controller.Admin;
+
+import jakarta.servlet.ServletConfig;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import model.Metriche;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Classe di test per metrichePrometheusServlet.
+ */
+public class MetrichePrometheusServletTest {
+
+    @Test
+    @DisplayName("GET -> contatori e istogrammi nel formato di testo di Prometheus")
+    void doGet_WritesPrometheusText() throws Exception {
+        metrichePrometheusServlet servlet = new metrichePrometheusServlet();
+        ServletConfig servletConfig = mock(ServletConfig.class);
+        when(servletConfig.getServletContext()).thenReturn(mock(ServletContext.class));
+        servlet.init(servletConfig);
+
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        StringWriter stringWriter = new StringWriter();
+        when(response.getWriter()).thenReturn(new PrintWriter(stringWriter));
+        Metriche.aggiungi("test.prometheus", 3);
+        Metriche.istogramma("test.prometheusMicros").registra(75);
+
+        servlet.doGet(request, response);
+
+        verify(response).setContentType("text/plain; version=0.0.4");
+        String testo = stringWriter.toString();
+        assertTrue(testo.contains("# TYPE acgainz_test_prometheus_total counter\n"));
+        assertTrue(testo.contains("acgainz_test_prometheus_total 3\n"));
+        //75µs cade nel bucket da 100µs e in tutti quelli dopo, non in quello da 50µs
+        assertTrue(testo.contains("acgainz_test_prometheusMicros_seconds_bucket{le=\"5.0E-5\"} 0\n"));
+        assertTrue(testo.contains("acgainz_test_prometheusMicros_seconds_bucket{le=\"1.0E-4\"} 1\n"));
+        assertTrue(testo.contains("acgainz_test_prometheusMicros_seconds_bucket{le=\"+Inf\"} 1\n"));
+        assertTrue(testo.contains("acgainz_test_prometheusMicros_seconds_count 1\n"));
+    }
+}
@@ -0,0 +1,48 @@
+package controller.Admin;
+
+import jakarta.servlet.ServletConfig;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import model.Metriche;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Classe di test per metricheServlet.
+ */
+public class MetricheServletTest {
+
+    @Test
+    @DisplayName("GET -> contatori e rapporto di compressione in JSON")
+    void doGet_ReturnsCountersAndCompressionRatio() throws Exception {
+        metricheServlet servlet = new metricheServlet();
+        ServletConfig servletConfig = mock(ServletConfig.class);
+        when(servletConfig.getServletContext()).thenReturn(mock(ServletContext.class));
+        servlet.init(servletConfig);
+
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        StringWriter stringWriter = new StringWriter();
+        when(response.getWriter()).thenReturn(new PrintWriter(stringWriter));
+        Metriche.aggiungi("compressione.byteOriginali", 1000);
+        Metriche.aggiungi("compressione.byteCompressi", 250);
+        Metriche.aggiungi("compressione.risposte", 1);
+
+        servlet.doGet(request, response);
+
+        verify(response).setContentType("application/json");
+        JSONObject json = (JSONObject) new JSONParser().parse(stringWriter.toString());
+        JSONObject contatori = (JSONObject) json.get("contatori");
+        assertTrue((Long) contatori.get("compressione.byteOriginali") >= 1000);
+        assertNotNull(((JSONObject) json.get("compressione")).get("rapporto"));
+    }
+}
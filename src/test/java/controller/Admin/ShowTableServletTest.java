@@ -28,6 +28,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
@@ -114,10 +115,11 @@ public class ShowTableServletTest {
 
             servlet.doGet(request, response);
 
-            // Verifica che il DAO corretto sia stato chiamato
-            verify(dao.constructed().get(0)).doRetrieveAll();
-            // Verifica che l'attributo sia stato impostato
-            verify(request).setAttribute("tableUtente", listUtenti);
+            // Le righe non vengono caricate: la pagina le chiede ad adminGrid
+
+            assertTrue(dao.constructed().isEmpty());
+
+            verify(request, never()).setAttribute(anyString(), any());
             // Verifica il forward
             verify(dispatcher).forward(request, response);
             // Verifica che non ci sia stato redirect
@@ -143,8 +145,9 @@ public class ShowTableServletTest {
 
             servlet.doGet(request, response);
 
-            verify(dao.constructed().get(0)).doRetrieveAll();
-            verify(request).setAttribute("tableProdotto", listProdotti);
+            assertTrue(dao.constructed().isEmpty());
+
+            verify(request, never()).setAttribute(anyString(), any());
             verify(dispatcher).forward(request, response);
             verify(response, never()).sendRedirect(anyString());
         }
@@ -167,8 +170,9 @@ public class ShowTableServletTest {
 
             servlet.doGet(request, response);
 
-            verify(dao.constructed().get(0)).doRetrieveAll();
-            verify(request).setAttribute("tableVariante", listVarianti);
+            assertTrue(dao.constructed().isEmpty());
+
+            verify(request, never()).setAttribute(anyString(), any());
             verify(dispatcher).forward(request, response);
         }
     }
@@ -190,8 +194,9 @@ public class ShowTableServletTest {
 
             servlet.doGet(request, response);
 
-            verify(dao.constructed().get(0)).doRetrieveAll();
-            verify(request).setAttribute("tableOrdine", listOrdini);
+            assertTrue(dao.constructed().isEmpty());
+
+            verify(request, never()).setAttribute(anyString(), any());
             verify(dispatcher).forward(request, response);
         }
     }
@@ -213,8 +218,9 @@ public class ShowTableServletTest {
 
             servlet.doGet(request, response);
 
-            verify(dao.constructed().get(0)).doRetrieveAll();
-            verify(request).setAttribute("tableDettaglioOrdini", listDettagli);
+            assertTrue(dao.constructed().isEmpty());
+
+            verify(request, never()).setAttribute(anyString(), any());
             verify(dispatcher).forward(request, response);
         }
     }
@@ -236,8 +242,9 @@ public class ShowTableServletTest {
 
             servlet.doGet(request, response);
 
-            verify(dao.constructed().get(0)).doRetrieveAll();
-            verify(request).setAttribute("tableGusto", listGusti);
+            assertTrue(dao.constructed().isEmpty());
+
+            verify(request, never()).setAttribute(anyString(), any());
             verify(dispatcher).forward(request, response);
         }
     }
@@ -259,8 +266,9 @@ public class ShowTableServletTest {
 
             servlet.doGet(request, response);
 
-            verify(dao.constructed().get(0)).doRetrieveAll();
-            verify(request).setAttribute("tableConfezione", listConfezioni);
+            assertTrue(dao.constructed().isEmpty());
+
+            verify(request, never()).setAttribute(anyString(), any());
             verify(dispatcher).forward(request, response);
         }
     }
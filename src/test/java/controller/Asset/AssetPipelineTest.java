@@ -0,0 +1,73 @@
+package controller.Asset;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AssetPipelineTest {
+
+    @TempDir
+    Path temp;
+
+    @Test
+    void esegui_HashesAssetsRewritesReferencesAndWritesGzip() throws IOException {
+        Path webapp = temp.resolve("webapp");
+        Path output = temp.resolve("output");
+        Files.createDirectories(webapp.resolve("Immagini"));
+        Files.createDirectories(webapp.resolve("CSS"));
+        Files.createDirectories(webapp.resolve("WEB-INF/Admin"));
+        Files.write(webapp.resolve("Immagini/logo.png"), new byte[]{1, 2, 3});
+        String css = ".logo { background: url(../Immagini/logo.png); }\n" + ".riga { margin: 0; }\n".repeat(100);
+        Files.writeString(webapp.resolve("CSS/Tables.css"), css);
+        Files.writeString(webapp.resolve("index.jsp"),
+                "<link href=\"CSS/Tables.css\"><img src=\"./Immagini/logo.png\"><img src=\"Immagini/logo.png.bak\">");
+        Files.writeString(webapp.resolve("WEB-INF/Admin/tabella.jsp"), "<script src='${ctx}/CSS/Tables.css?v=1'></script>");
+
+        Map<String, String> manifest = AssetPipeline.esegui(webapp, output);
+
+        String logo = manifest.get("Immagini/logo.png");
+        String tables = manifest.get("CSS/Tables.css");
+        assertTrue(logo.matches("Immagini/logo\\.[0-9a-f]{10}\\.png"), logo);
+        assertTrue(tables.matches("CSS/Tables\\.[0-9a-f]{10}\\.css"), tables);
+
+        //il CSS punta già all'immagine con l'hash e la sua versione compressa ha lo stesso contenuto
+        String cssGenerato = Files.readString(output.resolve(tables));
+        assertTrue(cssGenerato.contains("url(../" + logo + ")"));
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(Files.readAllBytes(output.resolve(tables + ".gz"))))) {
+            assertEquals(cssGenerato, new String(gzip.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        //immagini troppo piccole o già compresse: niente .gz
+        assertFalse(Files.exists(output.resolve(logo + ".gz")));
+
+        assertEquals("<link href=\"" + tables + "\"><img src=\"./" + logo + "\"><img src=\"Immagini/logo.png.bak\">",
+                Files.readString(output.resolve("index.jsp")));
+        assertEquals("<script src='${ctx}/" + tables + "?v=1'></script>", Files.readString(output.resolve("WEB-INF/Admin/tabella.jsp")));
+
+        Properties properties = new Properties();
+        try (var reader = Files.newBufferedReader(output.resolve(AssetPipeline.MANIFEST))) {
+            properties.load(reader);
+        }
+        assertEquals(tables, properties.getProperty("CSS/Tables.css"));
+        assertEquals(logo, properties.getProperty("Immagini/logo.png"));
+    }
+
+    @Test
+    void nomeConHash_SameContentSameName_DifferentContentDifferentName() {
+        byte[] a = "a".getBytes(StandardCharsets.UTF_8);
+        byte[] b = "b".getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(AssetPipeline.nomeConHash("JS/Tables.js", a), AssetPipeline.nomeConHash("JS/Tables.js", a));
+        assertNotEquals(AssetPipeline.nomeConHash("JS/Tables.js", a), AssetPipeline.nomeConHash("JS/Tables.js", b));
+        assertTrue(AssetPipeline.nomeConHash("Immagini/LICENSE", a).matches("Immagini/LICENSE\\.[0-9a-f]{10}"));
+    }
+}
@@ -0,0 +1,106 @@
+package controller.Asset;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.FilterConfig;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.mockito.Mockito.*;
+
+public class StaticAssetFilterTest {
+
+    private static final byte[] GZIP = {31, -117, 8, 0};
+
+    private StaticAssetFilter filter;
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+    private FilterChain chain;
+    private ByteArrayOutputStream corpo;
+
+    @BeforeEach
+    void setup() throws Exception {
+        ServletContext context = mock(ServletContext.class);
+        FilterConfig config = mock(FilterConfig.class);
+        when(config.getServletContext()).thenReturn(context);
+        when(context.getResourceAsStream("/" + AssetPipeline.MANIFEST)).thenReturn(new ByteArrayInputStream(
+                "CSS/Tables.css=CSS/Tables.0123456789.css\nImmagini/logo.png=Immagini/logo.abcdef0123.png\n".getBytes(StandardCharsets.UTF_8)));
+        when(context.getResourceAsStream("/CSS/Tables.0123456789.css.gz")).thenReturn(new ByteArrayInputStream(GZIP));
+        when(context.getMimeType("CSS/Tables.0123456789.css")).thenReturn("text/css");
+
+        filter = new StaticAssetFilter();
+        filter.init(config);
+
+        request = mock(HttpServletRequest.class);
+        response = mock(HttpServletResponse.class);
+        chain = mock(FilterChain.class);
+        corpo = new ByteArrayOutputStream();
+        when(request.getMethod()).thenReturn("GET");
+        when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+
+            @Override
+            public void write(int b) {
+                corpo.write(b);
+            }
+        });
+    }
+
+    @Test
+    void doFilter_hashedCss_acceptsGzip_servesPrecompressedImmutable() throws Exception {
+        when(request.getServletPath()).thenReturn("/CSS/Tables.0123456789.css");
+        when(request.getHeader("Accept-Encoding")).thenReturn("br;q=0, gzip, deflate");
+
+        filter.doFilter(request, response, chain);
+
+        verify(response).setHeader("Cache-Control", StaticAssetFilter.CACHE_IMMUTABILE);
+        verify(response).addHeader("Vary", "Accept-Encoding");
+        verify(response).setHeader("Content-Encoding", "gzip");
+        verify(response).setContentType("text/css");
+        verify(response).setContentLength(GZIP.length);
+        assertArrayEquals(GZIP, corpo.toByteArray());
+        verify(chain, never()).doFilter(request, response);
+    }
+
+    @Test
+    void doFilter_hashedCss_noGzipAccepted_passesToDefaultServlet() throws Exception {
+        when(request.getServletPath()).thenReturn("/CSS/Tables.0123456789.css");
+        when(request.getHeader("Accept-Encoding")).thenReturn("identity, gzip;q=0");
+
+        filter.doFilter(request, response, chain);
+
+        verify(response).setHeader("Cache-Control", StaticAssetFilter.CACHE_IMMUTABILE);
+        verify(response).addHeader("Vary", "Accept-Encoding");
+        verify(response, never()).setHeader(eq("Content-Encoding"), anyString());
+        verify(chain).doFilter(request, response);
+    }
+
+    @Test
+    void doFilter_originalOrUploadedNames_onlyHashedUploadsAreImmutable() throws Exception {
+        when(request.getServletPath()).thenReturn("/CSS/Tables.css", "/Immagini/derivate/0123456789abcdef0123456789abcdef-card.jpg");
+
+        filter.doFilter(request, response, chain);
+        verify(response, never()).setHeader(eq("Cache-Control"), anyString());
+
+        filter.doFilter(request, response, chain);
+        verify(response).setHeader("Cache-Control", StaticAssetFilter.CACHE_IMMUTABILE);
+        verify(response, never()).addHeader(eq("Vary"), anyString());
+        verify(chain, times(2)).doFilter(request, response);
+    }
+}
@@ -0,0 +1,244 @@
+package controller.Http;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import model.Metriche;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Classe di test per CompressionFilter.
+ * Verifica quando la risposta viene compressa e che lo stream gzip prodotto sia valido.
+ */
+public class CompressionFilterTest {
+
+    private CompressionFilter filter;
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+    private FilterChain chain;
+    private ByteArrayOutputStream inviati;
+
+    @BeforeEach
+    void setup() throws Exception {
+        filter = new CompressionFilter();
+        request = mock(HttpServletRequest.class);
+        response = mock(HttpServletResponse.class);
+        chain = mock(FilterChain.class);
+        inviati = new ByteArrayOutputStream();
+
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getHeader("Accept-Encoding")).thenReturn("gzip, deflate, br");
+        when(response.getStatus()).thenReturn(200);
+        when(response.getCharacterEncoding()).thenReturn("UTF-8");
+        when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+
+            @Override
+            public void write(int b) {
+                inviati.write(b);
+            }
+        });
+    }
+
+    private void rispondeCon(String testo) throws Exception {
+        doAnswer(inv -> {
+            ServletResponse risposta = inv.getArgument(1);
+            risposta.getWriter().write(testo);
+            return null;
+        }).when(chain).doFilter(eq(request), any());
+    }
+
+    @Test
+    @DisplayName("JSON sopra la soglia -> gzip valido con Content-Encoding, Vary e metriche")
+    void doFilter_LargeJson_IsGzipped() throws Exception {
+        when(response.getContentType()).thenReturn("application/json;charset=UTF-8");
+        String json = "[" + "{\"nome\":\"Proteine Whey\",\"prezzo\":29.9},".repeat(200) + "{}]";
+        rispondeCon(json);
+        long compressePrima = Metriche.valore(CompressionFilter.RISPOSTE_COMPRESSE);
+        long originaliPrima = Metriche.valore(CompressionFilter.BYTE_ORIGINALI);
+
+        filter.doFilter(request, response, chain);
+
+        verify(response).setHeader("Content-Encoding", "gzip");
+        verify(response).addHeader("Vary", "Accept-Encoding");
+        verify(response, never()).setContentLengthLong(longThat(l -> l >= 0));
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(inviati.toByteArray()))) {
+            assertEquals(json, new String(gzip.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertTrue(inviati.size() < json.length() / 5);
+        assertEquals(compressePrima + 1, Metriche.valore(CompressionFilter.RISPOSTE_COMPRESSE));
+        assertEquals(originaliPrima + json.length(), Metriche.valore(CompressionFilter.BYTE_ORIGINALI));
+    }
+
+    @Test
+    @DisplayName("Compressione su un thread virtuale -> tempo misurato con nanoTime, mai negativo")
+    void doFilter_ThreadVirtuale_CpuNanosPositivi() throws Exception {
+        when(response.getContentType()).thenReturn("application/json;charset=UTF-8");
+        String json = "[" + "{\"nome\":\"Proteine Whey\",\"prezzo\":29.9},".repeat(200) + "{}]";
+        rispondeCon(json);
+        long cpuPrima = Metriche.valore(CompressionFilter.CPU_NANOS);
+
+        Thread virtuale = Thread.ofVirtual().start(() -> {
+            try {
+                filter.doFilter(request, response, chain);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        virtuale.join();
+
+        verify(response).setHeader("Content-Encoding", "gzip");
+        assertTrue(Metriche.valore(CompressionFilter.CPU_NANOS) > cpuPrima);
+    }
+
+    @Test
+    @DisplayName("Risposta sotto la soglia -> inviata non compressa con la sua lunghezza")
+    void doFilter_SmallResponse_SentAsIs() throws Exception {
+        when(response.getContentType()).thenReturn("application/json;charset=UTF-8");
+        rispondeCon("{\"ok\":true}");
+
+        filter.doFilter(request, response, chain);
+
+        verify(response, never()).setHeader(eq("Content-Encoding"), anyString());
+        verify(response).setContentLengthLong(11);
+        assertEquals("{\"ok\":true}", inviati.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Tipo già compresso o Content-Encoding già impostato -> passa intatto")
+    void doFilter_AlreadyCompressedContent_PassesThrough() throws Exception {
+        when(response.getContentType()).thenReturn("image/png");
+        byte[] png = new byte[4 * CompressionFilter.SOGLIA];
+        doAnswer(inv -> {
+            ((ServletResponse) inv.getArgument(1)).getOutputStream().write(png);
+            return null;
+        }).when(chain).doFilter(eq(request), any());
+
+        filter.doFilter(request, response, chain);
+
+        verify(response, never()).setHeader(eq("Content-Encoding"), anyString());
+        assertArrayEquals(png, inviati.toByteArray());
+
+        inviati.reset();
+        when(response.getContentType()).thenReturn("text/css");
+        when(response.getHeader("Content-Encoding")).thenReturn("gzip");
+        filter.doFilter(request, response, chain);
+        assertArrayEquals(png, inviati.toByteArray());
+    }
+
+    @Test
+    @DisplayName("Browser senza gzip -> la risposta originale non viene avvolta")
+    void doFilter_NoAcceptEncoding_UsesOriginalResponse() throws Exception {
+        when(request.getHeader("Accept-Encoding")).thenReturn("identity, gzip;q=0");
+
+        filter.doFilter(request, response, chain);
+
+        verify(chain).doFilter(request, response);
+        assertFalse(CompressionFilter.accettaGzip(null));
+        assertTrue(CompressionFilter.accettaGzip("br;q=1.0, gzip;q=0.8"));
+    }
+
+    //Stream originale che ricorda il listener registrato e conta le scritture ricevute
+    private static final class StreamNonBloccante extends ServletOutputStream {
+        final ByteArrayOutputStream ricevuti = new ByteArrayOutputStream();
+        WriteListener listener;
+        int scritture;
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            listener = writeListener;
+        }
+
+        @Override
+        public void write(int b) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            if (listener != null && len > 0) {
+                scritture++;
+            }
+            ricevuti.write(b, off, len);
+        }
+    }
+
+    @Test
+    @DisplayName("setWriteListener prima della soglia -> risposta non compressa, listener sullo stream originale")
+    void setWriteListener_InAttesa_PassaNonCompressa() throws Exception {
+        StreamNonBloccante originale = new StreamNonBloccante();
+        when(response.getOutputStream()).thenReturn(originale);
+        when(response.getContentType()).thenReturn("application/json;charset=UTF-8");
+        WriteListener listener = mock(WriteListener.class);
+        String testo = "{\"voce\":1},".repeat(300);
+        doAnswer(inv -> {
+            ServletOutputStream uscita = ((ServletResponse) inv.getArgument(1)).getOutputStream();
+            uscita.write("[".getBytes(StandardCharsets.UTF_8));
+            uscita.setWriteListener(listener);
+            assertTrue(uscita.isReady());
+            uscita.write(testo.getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(chain).doFilter(eq(request), any());
+
+        filter.doFilter(request, response, chain);
+
+        assertSame(listener, originale.listener);
+        verify(response, never()).setHeader(eq("Content-Encoding"), anyString());
+        assertEquals("[" + testo, originale.ricevuti.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("setWriteListener a compressione avviata -> una scrittura sull'originale per ogni scrittura, gzip valido")
+    void setWriteListener_Compressa_UnaScritturaPerVolta() throws Exception {
+        StreamNonBloccante originale = new StreamNonBloccante();
+        when(response.getOutputStream()).thenReturn(originale);
+        when(response.getContentType()).thenReturn("text/html;charset=UTF-8");
+        WriteListener listener = mock(WriteListener.class);
+        byte[] blocco = "<p>Proteine Whey, gusto cioccolato, confezione da 1kg</p>\n".repeat(100).getBytes(StandardCharsets.UTF_8);
+        doAnswer(inv -> {
+            ServletOutputStream uscita = ((ServletResponse) inv.getArgument(1)).getOutputStream();
+            uscita.write(blocco);
+            uscita.setWriteListener(listener);
+            for (int i = 0; i < 5; i++) {
+                assertTrue(uscita.isReady());
+                uscita.write(blocco);
+            }
+            return null;
+        }).when(chain).doFilter(eq(request), any());
+
+        filter.doFilter(request, response, chain);
+
+        verify(response).setHeader("Content-Encoding", "gzip");
+        // al più una scrittura per ognuna delle 5 scritture dell'applicazione, più quella di chiusura
+        assertTrue(originale.scritture <= 6, "scritture: " + originale.scritture);
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(originale.ricevuti.toByteArray()))) {
+            assertEquals(blocco.length * 6, gzip.readAllBytes().length);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package controller.Http;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import model.RevisioniTabelle;
+import model.Utente;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Classe di test per ConditionalGetFilter.
+ * Verifica che un ETag ancora valido produca un 304 senza eseguire la servlet.
+ */
+public class ConditionalGetFilterTest {
+
+    private ConditionalGetFilter filter;
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+    private FilterChain chain;
+
+    @BeforeEach
+    void setup() throws Exception {
+        filter = new ConditionalGetFilter();
+        request = mock(HttpServletRequest.class);
+        response = mock(HttpServletResponse.class);
+        chain = mock(FilterChain.class);
+
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getServletPath()).thenReturn("/genericFilter");
+        when(request.getParameterMap()).thenReturn(Map.of("category", new String[]{"proteine "}, "flavour", new String[]{""}));
+        when(request.getDateHeader("If-Modified-Since")).thenReturn(-1L);
+        when(response.getStatus()).thenReturn(200);
+        when(response.getWriter()).thenReturn(new PrintWriter(new StringWriter()));
+        doAnswer(inv -> {
+            ((ServletResponse) inv.getArgument(1)).getWriter().write("[]");
+            return null;
+        }).when(chain).doFilter(eq(request), any());
+    }
+
+    private String primaRisposta() throws Exception {
+        filter.doFilter(request, response, chain);
+        ArgumentCaptor<String> etag = ArgumentCaptor.forClass(String.class);
+        verify(response).setHeader(eq("ETag"), etag.capture());
+        verify(response).setHeader("Cache-Control", ConditionalGetFilter.CACHE_CONTROL);
+        verify(response).setDateHeader(eq("Last-Modified"), anyLong());
+        reset(response);
+        when(response.getStatus()).thenReturn(200);
+        when(response.getWriter()).thenReturn(new PrintWriter(new StringWriter()));
+        return etag.getValue();
+    }
+
+    @Test
+    @DisplayName("ETag ancora valido -> 304 senza eseguire la servlet")
+    void doFilter_MatchingEtag_Returns304WithoutDaoWork() throws Exception {
+        String etag = primaRisposta();
+        assertTrue(etag.startsWith("W/\""));
+
+        when(request.getHeader("If-None-Match")).thenReturn("\"altro\", " + etag);
+        filter.doFilter(request, response, chain);
+
+        verify(response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(chain, times(1)).doFilter(eq(request), any());
+    }
+
+    @Test
+    @DisplayName("Scrittura dell'admin sul catalogo -> l'ETag vecchio non vale più")
+    void doFilter_CatalogWrite_InvalidatesEtag() throws Exception {
+        String etag = primaRisposta();
+
+        RevisioniTabelle.incrementa("gusto");
+        when(request.getHeader("If-None-Match")).thenReturn(etag);
+        filter.doFilter(request, response, chain);
+
+        verify(response, never()).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(chain, times(2)).doFilter(eq(request), any());
+        verify(response).setHeader(eq("ETag"), argThat(nuovo -> !nuovo.equals(etag)));
+    }
+
+    @Test
+    @DisplayName("Parametri normalizzati e utente collegato fanno parte della chiave")
+    void etag_NormalisedParamsAndUser() {
+        String versione = "v-1";
+        String anonimo = ConditionalGetFilter.etag(request, versione);
+
+        HttpServletRequest stessiParametri = mock(HttpServletRequest.class);
+        when(stessiParametri.getServletPath()).thenReturn("/genericFilter");
+        when(stessiParametri.getParameterMap()).thenReturn(Map.of("category", new String[]{"proteine"}));
+        assertEquals(anonimo, ConditionalGetFilter.etag(stessiParametri, versione));
+
+        HttpSession session = mock(HttpSession.class);
+        Utente utente = new Utente();
+        utente.setEmail("mario@example.com");
+        when(session.getAttribute("Utente")).thenReturn(utente);
+        when(stessiParametri.getSession(false)).thenReturn(session);
+        assertNotEquals(anonimo, ConditionalGetFilter.etag(stessiParametri, versione));
+    }
+}
@@ -0,0 +1,188 @@
+package controller.Http;
+
+import controller.Filters.GenericFilterServlet;
+import controller.Filters.SearchBarServlet;
+import controller.homepage.CarrelloServlet;
+import jakarta.servlet.ServletConfig;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import jakarta.servlet.http.HttpSessionEvent;
+import model.Prodotto;
+import model.ProdottoDAO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.MockedConstruction;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Classe di test per l'esecuzione delle richieste sui virtual thread.
+ * Registra con JFR gli eventi jdk.VirtualThreadPinned (gli stessi stack che stampa -Djdk.tracePinnedThreads):
+ * le servlet che tengono il lock di sessione attorno al DB non devono comparirci.
+ */
+public class PinningVirtualThreadTest {
+
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+    private HttpSession session;
+
+    private interface Azione {
+        void esegui() throws Exception;
+    }
+
+    @BeforeEach
+    void setup() throws Exception {
+        request = mock(HttpServletRequest.class);
+        response = mock(HttpServletResponse.class);
+        session = mock(HttpSession.class);
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getSession()).thenReturn(session);
+        when(response.getWriter()).thenReturn(new PrintWriter(new StringWriter()));
+    }
+
+    private static <T extends HttpServlet> T inizializza(T servlet) throws Exception {
+        ServletConfig servletConfig = mock(ServletConfig.class);
+        when(servletConfig.getServletContext()).thenReturn(mock(ServletContext.class));
+        servlet.init(servletConfig);
+        return servlet;
+    }
+
+    //Esegue l'azione su un virtual thread e restituisce gli stack degli eventi jdk.VirtualThreadPinned registrati
+    private static List<String> suVirtualThread(Azione azione) throws Exception {
+        List<String> bloccati = new CopyOnWriteArrayList<>();
+        AtomicReference<Exception> errore = new AtomicReference<>();
+        try (RecordingStream registrazione = new RecordingStream()) {
+            registrazione.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            registrazione.onEvent("jdk.VirtualThreadPinned", evento -> bloccati.add(stack(evento)));
+            registrazione.startAsync();
+            Thread.ofVirtual().start(() -> {
+                try {
+                    azione.esegui();
+                } catch (Exception e) {
+                    errore.set(e);
+                }
+            }).join();
+            //stop() aspetta che gli eventi già registrati siano stati consegnati
+            registrazione.stop();
+        }
+        if (errore.get() != null) {
+            throw errore.get();
+        }
+        return bloccati;
+    }
+
+    private static String stack(RecordedEvent evento) {
+        if (evento.getStackTrace() == null) {
+            return "";
+        }
+        return evento.getStackTrace().getFrames().stream()
+                .map(frame -> frame.getMethod().getType().getName() + "." + frame.getMethod().getName())
+                .collect(Collectors.joining("\n"));
+    }
+
+    //Un evento il cui stack passa dal codice dell'applicazione
+    private static boolean bloccatoInUnMonitor(List<String> bloccati) {
+        return bloccati.stream().anyMatch(stack -> stack.contains("controller."));
+    }
+
+    //Una query lenta: il virtual thread si sospende come farebbe su un socket JDBC
+    private static <T> T queryLenta(T risultato) throws InterruptedException {
+        Thread.sleep(20);
+        return risultato;
+    }
+
+    @Test
+    @DisplayName("Controllo: un virtual thread che si sospende dentro synchronized viene segnalato")
+    void controllo_SynchronizedVieneSegnalato() throws Exception {
+        Object monitor = new Object();
+        List<String> traccia = suVirtualThread(() -> {
+            synchronized (monitor) {
+                queryLenta(null);
+            }
+        });
+        assertTrue(bloccatoInUnMonitor(traccia), traccia.toString());
+    }
+
+    @Test
+    @DisplayName("GenericFilterServlet: filtro con query lenta senza bloccare il carrier")
+    void genericFilter_NessunPinning() throws Exception {
+        GenericFilterServlet servlet = inizializza(new GenericFilterServlet());
+        List<String> traccia = suVirtualThread(() -> {
+            try (MockedConstruction<ProdottoDAO> mocked = mockConstruction(ProdottoDAO.class, (mock, ctx) ->
+                    when(mock.filterProducts(any(), any(), any(), any(), any())).thenAnswer(inv -> queryLenta(new ArrayList<Prodotto>())))) {
+                servlet.service(request, response);
+                verify(mocked.constructed().get(0)).filterProducts(any(), eq("default"), any(), any(), any());
+            }
+        });
+        assertFalse(bloccatoInUnMonitor(traccia), String.join("\n---\n", traccia));
+    }
+
+    @Test
+    @DisplayName("SearchBarServlet: ricerca per nome con query lenta senza bloccare il carrier")
+    void searchBar_NessunPinning() throws Exception {
+        when(request.getParameter("name")).thenReturn("whey");
+        SearchBarServlet servlet = inizializza(new SearchBarServlet());
+        List<String> traccia = suVirtualThread(() -> {
+            try (MockedConstruction<ProdottoDAO> mocked = mockConstruction(ProdottoDAO.class, (mock, ctx) ->
+                    when(mock.filterProducts("", "", "", "", "whey")).thenAnswer(inv -> queryLenta(new ArrayList<Prodotto>())))) {
+                servlet.service(request, response);
+                verify(mocked.constructed().get(0)).filterProducts("", "", "", "", "whey");
+            }
+        });
+        assertFalse(bloccatoInUnMonitor(traccia), String.join("\n---\n", traccia));
+    }
+
+    @Test
+    @DisplayName("CarrelloServlet: aggiunta al carrello con query lenta senza bloccare il carrier")
+    void carrello_NessunPinning() throws Exception {
+        when(request.getParameter("action")).thenReturn("addVariant");
+        when(request.getParameter("id")).thenReturn("P1");
+        CarrelloServlet servlet = inizializza(new CarrelloServlet());
+        List<String> traccia = suVirtualThread(() -> {
+            try (MockedConstruction<ProdottoDAO> mocked = mockConstruction(ProdottoDAO.class, (mock, ctx) ->
+                    when(mock.doRetrieveById("P1")).thenAnswer(inv -> queryLenta(null)))) {
+                servlet.service(request, response);
+                verify(mocked.constructed().get(0)).doRetrieveById("P1");
+            }
+        });
+        assertFalse(bloccatoInUnMonitor(traccia), String.join("\n---\n", traccia));
+    }
+
+    @Test
+    @DisplayName("BloccoSessione: un lock per sessione, creato insieme alla sessione")
+    void bloccoSessione_UnLockPerSessione() {
+        HttpSessionEvent evento = mock(HttpSessionEvent.class);
+        when(evento.getSession()).thenReturn(session);
+        new BloccoSessione().sessionCreated(evento);
+
+        ArgumentCaptor<Object> blocco = ArgumentCaptor.forClass(Object.class);
+        verify(session).setAttribute(eq(BloccoSessione.ATTRIBUTO), blocco.capture());
+        assertInstanceOf(ReentrantLock.class, blocco.getValue());
+        when(session.getAttribute(BloccoSessione.ATTRIBUTO)).thenReturn(blocco.getValue());
+        assertSame(blocco.getValue(), BloccoSessione.di(session));
+
+        //sessione senza lock (es. ripristinata da disco): sempre lo stesso lock condiviso
+        HttpSession vecchia = mock(HttpSession.class);
+        assertSame(BloccoSessione.di(vecchia), BloccoSessione.di(vecchia));
+    }
+}
@@ -0,0 +1,84 @@
+package controller.Http;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import model.BudgetQuery;
+import model.Metriche;
+import model.StrumentazioneDao;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Classe di test per QueryBudgetFilter.
+ * Verifica che le query eseguite durante la richiesta vengano contate e che un N+1 venga segnalato.
+ */
+public class QueryBudgetFilterTest {
+
+    private QueryBudgetFilter filter;
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+    private FilterChain chain;
+    private Connection connessione;
+
+    @BeforeEach
+    void setup() throws Exception {
+        filter = new QueryBudgetFilter();
+        request = mock(HttpServletRequest.class);
+        response = mock(HttpServletResponse.class);
+        chain = mock(FilterChain.class);
+        when(request.getServletPath()).thenReturn("/Carrello");
+        Connection mockConnection = mock(Connection.class);
+        when(mockConnection.prepareStatement(anyString())).thenReturn(mock(PreparedStatement.class));
+        connessione = StrumentazioneDao.avvolgi(mockConnection, 0);
+    }
+
+    @Test
+    @DisplayName("N+1 durante la richiesta -> contato nel budget e segnalato nelle metriche")
+    void nPiuUno_SegnalatoEBudgetChiuso() throws Exception {
+        long prima = Metriche.valore(QueryBudgetFilter.SUPERATI);
+        doAnswer(inv -> {
+            assertEquals("/Carrello", BudgetQuery.corrente().getEndpoint());
+            connessione.prepareStatement("SELECT * FROM carrello WHERE email_utente = ?").executeQuery();
+            for (int i = 0; i < 8; i++) {
+                connessione.prepareStatement("SELECT * FROM prodotto WHERE id_prodotto = ?").executeQuery();
+            }
+            return null;
+        }).when(chain).doFilter(request, response);
+
+        filter.doFilter(request, response, chain);
+
+        assertEquals(prima + 1, Metriche.valore(QueryBudgetFilter.SUPERATI));
+        assertNull(BudgetQuery.corrente());
+    }
+
+    @Test
+    @DisplayName("Modalità rigida -> il superamento fa fallire la richiesta; sotto budget nessuna segnalazione")
+    void controlla_RigidoLanciaEccezione() throws Exception {
+        try (BudgetQuery budget = BudgetQuery.apri("/Carrello", 1, 5)) {
+            connessione.prepareStatement("SELECT 1").executeQuery();
+            assertDoesNotThrow(() -> QueryBudgetFilter.controlla(budget, true));
+            connessione.prepareStatement("SELECT 2").executeQuery();
+            ServletException e = assertThrows(ServletException.class, () -> QueryBudgetFilter.controlla(budget, true));
+            assertTrue(e.getMessage().contains("/Carrello: 2 query (budget 1)"));
+        }
+    }
+
+    @Test
+    @DisplayName("QUERY_BUDGET_ENDPOINT -> budget per servlet, voci non valide ignorate")
+    void perEndpoint_ParsesOverrides() {
+        assertEquals(Map.of("/Carrello", 10, "/AreaPersonale", 4),
+                QueryBudgetFilter.perEndpoint("/Carrello=10, /AreaPersonale=4,/Rotto=x,/Meno=-1"));
+        assertTrue(QueryBudgetFilter.perEndpoint(null).isEmpty());
+    }
+}
@@ -0,0 +1,72 @@
+package controller.Http;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import model.ConPool;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Classe di test per ReadYourWritesFilter.
+ * Verifica che dopo una scrittura le letture della sessione restino sul primario per la finestra configurata.
+ */
+public class ReadYourWritesFilterTest {
+
+    private ReadYourWritesFilter filter;
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+    private HttpSession session;
+    private FilterChain chain;
+
+    @BeforeEach
+    void setup() {
+        filter = new ReadYourWritesFilter();
+        request = mock(HttpServletRequest.class);
+        response = mock(HttpServletResponse.class);
+        session = mock(HttpSession.class);
+        chain = mock(FilterChain.class);
+        when(request.getSession(false)).thenReturn(session);
+    }
+
+    @Test
+    @DisplayName("POST con sessione -> la sessione legge dal primario per la finestra configurata")
+    void post_MarksSessionAndCurrentThread() throws Exception {
+        when(request.getMethod()).thenReturn("POST");
+        try (MockedStatic<ConPool> mockedConPool = mockStatic(ConPool.class)) {
+            mockedConPool.when(ConPool::getLetturaDopoScritturaMillis).thenReturn(5_000);
+
+            long prima = System.currentTimeMillis();
+            filter.doFilter(request, response, chain);
+
+            verify(chain).doFilter(request, response);
+            verify(session).setAttribute(eq(ReadYourWritesFilter.PRIMARIO_FINO_A), longThat(t -> t >= prima + 5_000));
+            mockedConPool.verify(() -> ConPool.leggiDalPrimarioFinoA(longThat(t -> t >= prima + 5_000)));
+            //a fine richiesta il thread torna alle repliche
+            mockedConPool.verify(() -> ConPool.leggiDalPrimarioFinoA(0));
+        }
+    }
+
+    @Test
+    @DisplayName("GET entro la finestra -> primario; finestra scaduta -> attributo rimosso")
+    void get_UsesPrimaryOnlyInsideWindow() throws Exception {
+        when(request.getMethod()).thenReturn("GET");
+        long finoA = System.currentTimeMillis() + 60_000;
+        when(session.getAttribute(ReadYourWritesFilter.PRIMARIO_FINO_A)).thenReturn(finoA, 1L);
+        try (MockedStatic<ConPool> mockedConPool = mockStatic(ConPool.class)) {
+            filter.doFilter(request, response, chain);
+            mockedConPool.verify(() -> ConPool.leggiDalPrimarioFinoA(finoA));
+
+            filter.doFilter(request, response, chain);
+            verify(session).removeAttribute(ReadYourWritesFilter.PRIMARIO_FINO_A);
+            mockedConPool.verify(() -> ConPool.leggiDalPrimarioFinoA(0), times(2));
+            mockedConPool.verify(ConPool::getLetturaDopoScritturaMillis, never());
+        }
+    }
+}
@@ -3,6 +3,7 @@ package controller;
 import jakarta.servlet.ServletConfig;
 import jakarta.servlet.ServletContext;
 import jakarta.servlet.ServletException;
+import model.CatalogoCache;
 import model.Prodotto;
 import model.ProdottoDAO;
 import org.junit.jupiter.api.Test;
@@ -12,6 +13,9 @@ import org.mockito.Mockito;
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 class LoadOnStartupTest {
@@ -51,6 +55,27 @@ class LoadOnStartupTest {
 
             // Verifichiamo che la lista sia stata salvata nel Context con la chiave giusta
             verify(mockContext).setAttribute("Products", fakeList);
+            assertEquals(fakeList, CatalogoCache.get().getProdotti());
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void pubblicaCatalogo_NewVersionOnlyAfterContextUpdate() {
+        ServletContext mockContext = mock(ServletContext.class);
+        long versione = CatalogoCache.getVersione();
+        // durante la sostituzione dell'attributo la versione pubblicata è ancora quella precedente
+        doAnswer(invocation -> {
+            assertEquals(versione, CatalogoCache.getVersione());
+            return null;
+        }).when(mockContext).setAttribute(eq("Products"), any());
+
+        try (MockedConstruction<ProdottoDAO> mockedDao = Mockito.mockConstruction(ProdottoDAO.class,
+                (mock, context) -> when(mock.doRetrieveAll()).thenReturn(new ArrayList<>()))) {
+            CatalogoCache.Istantanea catalogo = LoadOnStartup.pubblicaCatalogo(mockContext);
+
+            assertEquals(versione + 1, catalogo.getVersione());
+            assertEquals(versione + 1, CatalogoCache.getVersione());
+            assertThrows(UnsupportedOperationException.class, () -> catalogo.getProdotti().add(new Prodotto()));
+        }
+    }
+}
@@ -178,6 +178,14 @@ public class AccessControlFilterTest {
             filter.doFilter(request, response, chain);
             assertRedirectedTo("/index.jsp");
         }
+
+        @Test
+        @DisplayName("Vede /bulkOrderStatus -> Redirect a Index")
+        void guest_bulkOrderStatus_redirectsToIndex() throws IOException, ServletException {
+            when(request.getServletPath()).thenReturn("/bulkOrderStatus");
+            filter.doFilter(request, response, chain);
+            assertRedirectedTo("/index.jsp");
+        }
     }
 
     /**
@@ -1,6 +1,8 @@
 package controller.homepage;
 
 import jakarta.servlet.RequestDispatcher;
+import jakarta.servlet.ServletConfig;
+import jakarta.servlet.ServletContext;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -11,6 +13,7 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.MockedConstruction;
+import org.mockito.MockedStatic;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -18,6 +21,7 @@ import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -156,8 +160,18 @@ public class OrdineServletTest {
         Utente utente = new Utente();
         utente.setEmail("user@example.com");
 
-        // Carrello con 2 items
-        List<Carrello> cart = List.of(new Carrello(), new Carrello());
+        // Carrello con 2 items (il prezzo è già il totale della riga)
+        Carrello item1 = new Carrello();
+        item1.setIdProdotto("P1");
+        item1.setIdVariante(1);
+        item1.setQuantita(2);
+        item1.setPrezzo(40.0f);
+        Carrello item2 = new Carrello();
+        item2.setIdProdotto("P2");
+        item2.setIdVariante(2);
+        item2.setQuantita(1);
+        item2.setPrezzo(12.5f);
+        List<Carrello> cart = List.of(item1, item2);
 
         when(request.getSession(false)).thenReturn(session);
         when(session.getAttribute("cart")).thenReturn(cart);
@@ -170,7 +184,7 @@ public class OrdineServletTest {
 
         try (MockedConstruction<OrdineDao> mockedOrd = mockConstruction(OrdineDao.class, (mock, ctx) -> {
             // Stub per i DAO
-            when(mock.getLastInsertedId()).thenReturn(123);
+            when(mock.doSaveOrdine(any(Ordine.class), anyList())).thenReturn(123);
             when(mock.doRetrieveById(123)).thenReturn(mockOrdine);
         });
              MockedConstruction<CarrelloDAO> mockedCart = mockConstruction(CarrelloDAO.class);
@@ -186,11 +200,21 @@ public class OrdineServletTest {
             CarrelloDAO carrelloDAO = mockedCart.constructed().get(0);
             DettaglioOrdineDAO dettaglioDAO = mockedDet.constructed().get(0);
 
-            // Creazione ordine
-            verify(ordineDao).doSave(any(Ordine.class));
-            verify(ordineDao, times(2)).getLastInsertedId();
-            // Creazione dettagli (2 items nel carrello -> 2 chiamate a doSave)
-            verify(dettaglioDAO, times(2)).doSave(any(DettaglioOrdine.class));
+            // Creazione ordine e dettagli in un'unica chiamata, con i prezzi presi dal carrello
+            ArgumentCaptor<Ordine> ordineCaptor = ArgumentCaptor.forClass(Ordine.class);
+            ArgumentCaptor<List> dettagliCaptor = ArgumentCaptor.forClass(List.class);
+            verify(ordineDao).doSaveOrdine(ordineCaptor.capture(), dettagliCaptor.capture());
+            assertEquals("user@example.com", ordineCaptor.getValue().getEmailUtente());
+            assertEquals(52.5f, ordineCaptor.getValue().getTotale());
+            List<DettaglioOrdine> dettagliSalvati = dettagliCaptor.getValue();
+            assertEquals(2, dettagliSalvati.size());
+            assertEquals(40.0f, dettagliSalvati.get(0).getPrezzo());
+            assertEquals(2, dettagliSalvati.get(0).getQuantita());
+            assertEquals(12.5f, dettagliSalvati.get(1).getPrezzo());
+            // Nessun salvataggio riga per riga né lettura dell'ultimo id
+            verify(ordineDao, never()).doSave(any(Ordine.class));
+            verify(ordineDao, never()).getLastInsertedId();
+            verify(dettaglioDAO, never()).doSave(any(DettaglioOrdine.class));
 
             // Pulizia carrello
             verify(session).removeAttribute("cart");
@@ -198,10 +222,125 @@ public class OrdineServletTest {
 
             // Resoconto e Forward
             verify(ordineDao).doRetrieveById(123);
-            verify(dettaglioDAO).doRetrieveById(anyInt());
+            verify(dettaglioDAO).doRetrieveById(123);
             verify(request).setAttribute("order", mockOrdine);
             verify(request).setAttribute("orderDetails", mockDettagli);
             verify(dispatcher).forward(request, response);
         }
     }
-}
\ No newline at end of file
+
+    // --- Test 7: Errore nel salvataggio ---
+
+    @Test
+    @DisplayName("Checkout con errore nel salvataggio -> il carrello non viene svuotato")
+    void checkoutConErrore_mantieneCarrello() throws ServletException, IOException {
+        // Il servlet deve essere inizializzato per poter fare il log dell'errore
+        ServletConfig servletConfig = mock(ServletConfig.class);
+        when(servletConfig.getServletContext()).thenReturn(mock(ServletContext.class));
+        servlet.init(servletConfig);
+
+        Utente utente = new Utente();
+        utente.setEmail("user@example.com");
+
+        when(request.getSession(false)).thenReturn(session);
+        when(session.getAttribute("cart")).thenReturn(List.of(new Carrello()));
+        when(session.getAttribute("Utente")).thenReturn(utente);
+
+        try (MockedConstruction<OrdineDao> mockedOrd = mockConstruction(OrdineDao.class, (mock, ctx) -> {
+            when(mock.doSaveOrdine(any(Ordine.class), anyList())).thenThrow(new RuntimeException("DB Error"));
+        });
+             MockedConstruction<CarrelloDAO> mockedCart = mockConstruction(CarrelloDAO.class)) {
+
+            servlet.doPost(request, response);
+
+            // La transazione è fallita: il carrello resta in sessione e nel DB
+            verify(session, never()).removeAttribute("cart");
+            assertEquals(0, mockedCart.constructed().size());
+            verify(response).sendError(eq(HttpServletResponse.SC_INTERNAL_SERVER_ERROR), anyString());
+            verify(dispatcher, never()).forward(request, response);
+        }
+    }
+
+    // --- Test 8: Journal degli ordini abilitato ---
+
+    @Test
+    @DisplayName("Checkout con journal -> registra l'ordine su disco senza usare il DB")
+    void checkoutConJournal_registraNelJournal() throws ServletException, IOException {
+        Utente utente = new Utente();
+        utente.setEmail("user@example.com");
+        Carrello item = new Carrello();
+        item.setIdProdotto("P1");
+        item.setIdVariante(1);
+        item.setQuantita(2);
+        item.setPrezzo(40.0f);
+        item.setNomeProdotto("Whey");
+
+        when(request.getSession(false)).thenReturn(session);
+        when(session.getAttribute("cart")).thenReturn(List.of(item));
+        when(session.getAttribute("Utente")).thenReturn(utente);
+
+        OrdineJournal journal = mock(OrdineJournal.class);
+
+        try (MockedStatic<OrdineJournal> mockedJournal = mockStatic(OrdineJournal.class);
+             MockedConstruction<OrdineDao> mockedOrd = mockConstruction(OrdineDao.class);
+             MockedConstruction<CarrelloDAO> mockedCart = mockConstruction(CarrelloDAO.class)) {
+            mockedJournal.when(OrdineJournal::getInstance).thenReturn(journal);
+
+            servlet.doPost(request, response);
+
+            ArgumentCaptor<Ordine> ordineCaptor = ArgumentCaptor.forClass(Ordine.class);
+            ArgumentCaptor<List> dettagliCaptor = ArgumentCaptor.forClass(List.class);
+            verify(journal).append(ordineCaptor.capture(), dettagliCaptor.capture());
+            Ordine ordine = ordineCaptor.getValue();
+            assertNotNull(ordine.getToken());
+            assertNotNull(ordine.getDataOrdine());
+            assertEquals(40.0f, ordine.getTotale());
+
+            // L'ordine e lo svuotamento del carrello salvato passano dal drainer: nessun DAO sul thread della richiesta
+            assertEquals(0, mockedOrd.constructed().size());
+            assertEquals(0, mockedCart.constructed().size());
+
+            // Il resoconto viene mostrato dai dati del carrello
+            verify(session).removeAttribute("cart");
+            verify(request).setAttribute("order", ordine);
+            verify(request).setAttribute("orderDetails", dettagliCaptor.getValue());
+            verify(request).setAttribute("orderPending", true);
+            assertEquals("Whey", ((DettaglioOrdine) dettagliCaptor.getValue().get(0)).getNomeProdotto());
+            verify(dispatcher).forward(request, response);
+        }
+    }
+
+    @Test
+    @DisplayName("Checkout con journal non scrivibile -> salvataggio diretto nel DB")
+    void checkoutConJournalNonDisponibile_usaIlDB() throws ServletException, IOException {
+        ServletConfig servletConfig = mock(ServletConfig.class);
+        when(servletConfig.getServletContext()).thenReturn(mock(ServletContext.class));
+        servlet.init(servletConfig);
+
+        Utente utente = new Utente();
+        utente.setEmail("user@example.com");
+
+        when(request.getSession(false)).thenReturn(session);
+        when(session.getAttribute("cart")).thenReturn(List.of(new Carrello()));
+        when(session.getAttribute("Utente")).thenReturn(utente);
+
+        OrdineJournal journal = mock(OrdineJournal.class);
+        when(journal.append(any(Ordine.class), anyList())).thenThrow(new IOException("No space left on device"));
+
+        try (MockedStatic<OrdineJournal> mockedJournal = mockStatic(OrdineJournal.class);
+             MockedConstruction<OrdineDao> mockedOrd = mockConstruction(OrdineDao.class, (mock, ctx) -> {
+                 when(mock.doSaveOrdine(any(Ordine.class), anyList())).thenReturn(5);
+             });
+             MockedConstruction<CarrelloDAO> mockedCart = mockConstruction(CarrelloDAO.class);
+             MockedConstruction<DettaglioOrdineDAO> mockedDet = mockConstruction(DettaglioOrdineDAO.class)) {
+            mockedJournal.when(OrdineJournal::getInstance).thenReturn(journal);
+
+            servlet.doPost(request, response);
+
+            verify(mockedOrd.constructed().get(0)).doSaveOrdine(any(Ordine.class), anyList());
+            verify(mockedCart.constructed().get(0)).doRemoveCartByUser("user@example.com");
+            verify(request, never()).setAttribute(eq("orderPending"), any());
+            verify(dispatcher).forward(request, response);
+        }
+    }
+}
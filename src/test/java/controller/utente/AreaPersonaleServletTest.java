@@ -86,17 +86,17 @@ public class AreaPersonaleServletTest {
 
         // Mock dei DAO
         try (MockedConstruction<OrdineDao> mockedOrdineDao = mockConstruction(OrdineDao.class, (mock, ctx) -> {
-            // Stub: doRetrieveByEmail restituisce una lista vuota
-            when(mock.doRetrieveByEmail("user@example.com")).thenReturn(emptyOrders);
+            // Stub: doRetrieveStoricoByEmail restituisce una lista vuota
+            when(mock.doRetrieveStoricoByEmail("user@example.com", null, 0, 11)).thenReturn(emptyOrders);
         });
              MockedConstruction<DettaglioOrdineDAO> mockedDettaglioDao = mockConstruction(DettaglioOrdineDAO.class)) {
 
             servlet.doPost(request, response);
 
-            // Verifica che il DAO degli ordini sia stato chiamato
-            verify(mockedOrdineDao.constructed().get(0)).doRetrieveByEmail("user@example.com");
-            // Verifica che il DAO dei dettagli NON sia stato chiamato (perché il loop era vuoto)
-            verify(mockedDettaglioDao.constructed().get(0), never()).doRetrieveById(anyInt());
+            // Verifica che il DAO degli ordini sia stato chiamato per la prima pagina (un ordine in più per il cursore)
+            verify(mockedOrdineDao.constructed().get(0)).doRetrieveStoricoByEmail("user@example.com", null, 0, 11);
+            // Il DAO dei dettagli non viene più usato: le righe arrivano con la stessa query degli ordini
+            assertTrue(mockedDettaglioDao.constructed().isEmpty());
 
             // Cattura gli attributi impostati sulla request
             ArgumentCaptor<List> listCaptor = ArgumentCaptor.forClass(List.class);
@@ -136,14 +136,14 @@ public class AreaPersonaleServletTest {
         List<Ordine> ordini = List.of(ordine1);
 
         try (MockedConstruction<OrdineDao> mockedOrdineDao = mockConstruction(OrdineDao.class, (mock, ctx) -> {
-            when(mock.doRetrieveByEmail("user@example.com")).thenReturn(ordini);
+            when(mock.doRetrieveStoricoByEmail("user@example.com", null, 0, 11)).thenReturn(ordini);
         });
              MockedConstruction<DettaglioOrdineDAO> mockedDettaglioDao = mockConstruction(DettaglioOrdineDAO.class)) {
 
             servlet.doPost(request, response);
 
-            // VERIFICA CHIAVE: Il DAO dei dettagli NON deve essere chiamato
-            verify(mockedDettaglioDao.constructed().get(0), never()).doRetrieveById(anyInt());
+            // VERIFICA CHIAVE: Il DAO dei dettagli NON deve essere usato
+            assertTrue(mockedDettaglioDao.constructed().isEmpty());
 
             // Cattura la mappa "dettaglioOrdini"
             ArgumentCaptor<HashMap> mapCaptor = ArgumentCaptor.forClass(HashMap.class);
@@ -167,51 +167,49 @@ public class AreaPersonaleServletTest {
         }
     }
 
-    // --- Test Ramo Chiamata DAO ---
+    // --- Test Ramo Righe caricate con la query degli ordini ---
 
     @Test
-    @DisplayName("doPost usa il DAO se la descrizione è null")
-    void doPost_userWithOrder_usesDAO_whenDescrizioneIsNull() throws ServletException, IOException {
-        testChiamataDAO(null); // Chiama il metodo helper con descrizione null
+    @DisplayName("doPost usa le righe caricate con l'ordine se la descrizione è null")
+    void doPost_userWithOrder_usesDettagliJoin_whenDescrizioneIsNull() throws ServletException, IOException {
+        testDettagliJoin(null); // Chiama il metodo helper con descrizione null
     }
 
     @Test
-    @DisplayName("doPost usa il DAO se la descrizione è vuota")
-    void doPost_userWithOrder_usesDAO_whenDescrizioneIsEmpty() throws ServletException, IOException {
-        testChiamataDAO(""); // Chiama il metodo helper con descrizione vuota
+    @DisplayName("doPost usa le righe caricate con l'ordine se la descrizione è vuota")
+    void doPost_userWithOrder_usesDettagliJoin_whenDescrizioneIsEmpty() throws ServletException, IOException {
+        testDettagliJoin(""); // Chiama il metodo helper con descrizione vuota
     }
 
-    // Metodo helper per raggruppare i test 5 e 6
-    private void testChiamataDAO(String descrizione) throws ServletException, IOException {
+    // Metodo helper per raggruppare i due test precedenti
+    private void testDettagliJoin(String descrizione) throws ServletException, IOException {
         Utente utente = new Utente();
         utente.setEmail("user@example.com");
         when(session.getAttribute("Utente")).thenReturn(utente);
 
+        // Prepara i dettagli che la query degli ordini "restituirà" insieme all'ordine
+        DettaglioOrdine dettaglioDalDB = new DettaglioOrdine();
+        dettaglioDalDB.setNomeProdotto("Prodotto da DB");
+        List<DettaglioOrdine> dettagliFromDB = new ArrayList<>(List.of(dettaglioDalDB));
+
         // Prepara ordine (descrizione null o vuota)
         Ordine ordine1 = new Ordine();
         ordine1.setIdOrdine(102);
         ordine1.setDescrizione(descrizione);
+        ordine1.setDettagli(dettagliFromDB);
         List<Ordine> ordini = List.of(ordine1);
 
-        // Prepara i dettagli che il DAO "restituirà"
-        DettaglioOrdine dettaglioDalDB = new DettaglioOrdine();
-        dettaglioDalDB.setNomeProdotto("Prodotto da DB");
-        List<DettaglioOrdine> dettagliFromDB = List.of(dettaglioDalDB);
-
         try (MockedConstruction<OrdineDao> mockedOrdineDao = mockConstruction(OrdineDao.class, (mock, ctx) -> {
-            when(mock.doRetrieveByEmail("user@example.com")).thenReturn(ordini);
+            when(mock.doRetrieveStoricoByEmail("user@example.com", null, 0, 11)).thenReturn(ordini);
         });
-             MockedConstruction<DettaglioOrdineDAO> mockedDettaglioDao = mockConstruction(DettaglioOrdineDAO.class, (mock, ctx) -> {
-                 // Stub: Il DAO restituisce i dettagli preimpostati
-                 when(mock.doRetrieveById(102)).thenReturn(dettagliFromDB);
-             })) {
+             MockedConstruction<DettaglioOrdineDAO> mockedDettaglioDao = mockConstruction(DettaglioOrdineDAO.class)) {
 
             servlet.doPost(request, response);
 
-            // VERIFICA CHIAVE: Il DAO dei dettagli DEVE essere chiamato con l'ID corretto
-            verify(mockedDettaglioDao.constructed().get(0)).doRetrieveById(102);
+            // VERIFICA CHIAVE: nessuna query aggiuntiva per le righe dell'ordine
+            assertTrue(mockedDettaglioDao.constructed().isEmpty());
 
-            // Verifica che la mappa contenga i dati restituiti dal DAO
+            // Verifica che la mappa contenga le righe caricate con l'ordine
             ArgumentCaptor<HashMap> mapCaptor = ArgumentCaptor.forClass(HashMap.class);
             verify(request).setAttribute(eq("dettaglioOrdini"), mapCaptor.capture());
             HashMap<Integer, List<DettaglioOrdine>> capturedMap = mapCaptor.getValue();
@@ -223,6 +221,90 @@ public class AreaPersonaleServletTest {
         }
     }
 
+    // --- Test Paginazione ---
+
+    @Test
+    @DisplayName("doPost mostra 10 ordini e imposta il cursore se ne esistono altri")
+    void doPost_moreOrdersThanPage_trimsAndSetsCursor() throws ServletException, IOException {
+        Utente utente = new Utente();
+        utente.setEmail("user@example.com");
+        when(session.getAttribute("Utente")).thenReturn(utente);
+
+        // 11 ordini: il DAO ne restituisce uno in più della pagina
+        List<Ordine> ordini = new ArrayList<>();
+        for (int i = 0; i < 11; i++) {
+            Ordine ordine = new Ordine();
+            ordine.setIdOrdine(200 - i);
+            ordine.setDataOrdine(java.sql.Date.valueOf("2024-05-20"));
+            ordini.add(ordine);
+        }
+
+        try (MockedConstruction<OrdineDao> mockedOrdineDao = mockConstruction(OrdineDao.class, (mock, ctx) -> {
+            when(mock.doRetrieveStoricoByEmail("user@example.com", null, 0, 11)).thenReturn(ordini);
+        })) {
+
+            servlet.doPost(request, response);
+
+            ArgumentCaptor<List> listCaptor = ArgumentCaptor.forClass(List.class);
+            verify(request).setAttribute(eq("ordini"), listCaptor.capture());
+            assertEquals(10, listCaptor.getValue().size());
+
+            // Il cursore punta all'ultimo ordine mostrato
+            verify(request).setAttribute("nextCursorData", "2024-05-20");
+            verify(request).setAttribute("nextCursorId", 191);
+            verify(request).setAttribute("paginaOrdini", false);
+
+            verify(dispatcher).forward(request, response);
+        }
+    }
+
+    @Test
+    @DisplayName("doPost usa il cursore ricevuto per caricare la pagina successiva")
+    void doPost_withCursor_requestsNextPage() throws ServletException, IOException {
+        Utente utente = new Utente();
+        utente.setEmail("user@example.com");
+        when(session.getAttribute("Utente")).thenReturn(utente);
+        when(request.getParameter("cursorData")).thenReturn("2024-05-20");
+        when(request.getParameter("cursorId")).thenReturn("191");
+
+        java.sql.Date cursorData = java.sql.Date.valueOf("2024-05-20");
+
+        try (MockedConstruction<OrdineDao> mockedOrdineDao = mockConstruction(OrdineDao.class, (mock, ctx) -> {
+            when(mock.doRetrieveStoricoByEmail("user@example.com", cursorData, 191, 11)).thenReturn(new ArrayList<>());
+        })) {
+
+            servlet.doPost(request, response);
+
+            verify(mockedOrdineDao.constructed().get(0)).doRetrieveStoricoByEmail("user@example.com", cursorData, 191, 11);
+            verify(request).setAttribute("paginaOrdini", true);
+            // Ultima pagina: nessun cursore successivo
+            verify(request, never()).setAttribute(eq("nextCursorId"), any());
+
+            verify(dispatcher).forward(request, response);
+        }
+    }
+
+    @Test
+    @DisplayName("doPost con cursore non valido mostra la prima pagina")
+    void doPost_withInvalidCursor_fallsBackToFirstPage() throws ServletException, IOException {
+        Utente utente = new Utente();
+        utente.setEmail("user@example.com");
+        when(session.getAttribute("Utente")).thenReturn(utente);
+        when(request.getParameter("cursorData")).thenReturn("non-una-data");
+        when(request.getParameter("cursorId")).thenReturn("abc");
+
+        try (MockedConstruction<OrdineDao> mockedOrdineDao = mockConstruction(OrdineDao.class, (mock, ctx) -> {
+            when(mock.doRetrieveStoricoByEmail("user@example.com", null, 0, 11)).thenReturn(new ArrayList<>());
+        })) {
+
+            servlet.doPost(request, response);
+
+            verify(mockedOrdineDao.constructed().get(0)).doRetrieveStoricoByEmail("user@example.com", null, 0, 11);
+            verify(request).setAttribute("paginaOrdini", false);
+            verify(dispatcher).forward(request, response);
+        }
+    }
+
     // --- Test Fallimento Parsing (Dependability) ---
 
     @Test
@@ -252,7 +334,7 @@ public class AreaPersonaleServletTest {
         List<Ordine> ordini = List.of(ordine1);
 
         try (MockedConstruction<OrdineDao> mockedOrdineDao = mockConstruction(OrdineDao.class, (mock, ctx) -> {
-            when(mock.doRetrieveByEmail("user@example.com")).thenReturn(ordini);
+            when(mock.doRetrieveStoricoByEmail("user@example.com", null, 0, 11)).thenReturn(ordini);
         });
              MockedConstruction<DettaglioOrdineDAO> mockedDettaglioDao = mockConstruction(DettaglioOrdineDAO.class)) {
 
@@ -279,8 +361,8 @@ public class AreaPersonaleServletTest {
 
             // L'inoltro deve avvenire normalmente
             verify(dispatcher).forward(request, response);
-            // Il DAO dei dettagli non deve essere chiamato (usiamo la descrizione)
-            verify(mockedDettaglioDao.constructed().get(0), never()).doRetrieveById(anyInt());
+            // Il DAO dei dettagli non deve essere usato (usiamo la descrizione)
+            assertTrue(mockedDettaglioDao.constructed().isEmpty());
         }
     }
 }
\ No newline at end of file
@@ -5,16 +5,22 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
+import model.BudgetQuery;
 import model.Carrello;
 import model.CarrelloDAO;
+import model.ConPool;
+import model.StrumentazioneDao;
 import model.Utente;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.MockedConstruction;
+import org.mockito.MockedStatic;
 
 import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -145,6 +151,38 @@ public class LogoutServletTest {
         }
     }
 
+    @Test
+    @DisplayName("Budget di query: una DELETE e una INSERT per riga del carrello (N+1 segnalato oltre K righe)")
+    void userWithCart_QueryBudget() throws Exception {
+        Utente user = new Utente();
+        user.setEmail("user@example.com");
+        when(session.getAttribute("Utente")).thenReturn(user);
+        List<Carrello> sessionCart = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            sessionCart.add(new Carrello());
+        }
+        when(session.getAttribute("cart")).thenReturn(sessionCart);
+
+        Connection mockConnection = mock(Connection.class);
+        PreparedStatement mockPreparedStatement = mock(PreparedStatement.class);
+        when(mockConnection.prepareStatement(anyString())).thenReturn(mockPreparedStatement);
+        when(mockConnection.prepareStatement(anyString(), anyInt())).thenReturn(mockPreparedStatement);
+
+        try (MockedStatic<ConPool> mockedConPool = mockStatic(ConPool.class);
+             BudgetQuery budget = BudgetQuery.apri("/logOut", 4, 2)) {
+            mockedConPool.when(ConPool::getConnection).thenAnswer(i -> StrumentazioneDao.avvolgi(mockConnection, 0));
+
+            servlet.doGet(request, response);
+
+            assertEquals(4, budget.getQuery());
+            //la stessa INSERT per ognuna delle 3 righe supera le 2 ripetizioni ammesse
+            assertEquals(1, budget.formeRipetute().size());
+            assertTrue(budget.formeRipetute().keySet().iterator().next().startsWith("INSERT INTO carrello"));
+            assertThrows(IllegalStateException.class, budget::verifica);
+        }
+        assertNull(BudgetQuery.corrente());
+    }
+
     @Test
     @DisplayName("doPost deve chiamare doGet")
     void doPost_callsDoGet() throws ServletException, IOException {
@@ -0,0 +1,237 @@
+package model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class AdminGridDAOTest {
+    private AdminGridDAO adminGridDAO;
+    private Connection mockConnection;
+    private PreparedStatement mockPagina;
+    private PreparedStatement mockCount;
+    private ResultSet mockResultSet;
+    private ResultSet mockCountResultSet;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        adminGridDAO = new AdminGridDAO();
+        mockConnection = mock(Connection.class);
+        mockPagina = mock(PreparedStatement.class);
+        mockCount = mock(PreparedStatement.class);
+        mockResultSet = mock(ResultSet.class);
+        mockCountResultSet = mock(ResultSet.class);
+
+        when(mockConnection.prepareStatement(startsWith("SELECT id_ordine"))).thenReturn(mockPagina);
+        when(mockConnection.prepareStatement(startsWith("SELECT COUNT(*)"))).thenReturn(mockCount);
+        when(mockPagina.executeQuery()).thenReturn(mockResultSet);
+        when(mockCount.executeQuery()).thenReturn(mockCountResultSet);
+        when(mockCountResultSet.next()).thenReturn(true);
+        when(mockCountResultSet.getLong(1)).thenReturn(200000L);
+    }
+
+    @Test
+    void doRetrievePagina_FirstPage_ReturnsRowsCursorAndTotal() throws SQLException {
+        try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
+            mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
+
+            // limit 2: la terza riga indica solo che esiste una pagina successiva
+            when(mockResultSet.next()).thenReturn(true, true, true);
+            when(mockResultSet.getInt("idOrdine")).thenReturn(1, 2);
+            when(mockResultSet.getString("stato")).thenReturn("in esecuzione");
+            when(mockResultSet.getDate("data")).thenReturn(Date.valueOf("2024-07-18"));
+            when(mockResultSet.getString("cursore_0")).thenReturn("1", "2");
+
+            AdminGridDAO.Pagina pagina = adminGridDAO.doRetrievePagina("ordine", null, false, null, null, 2);
+
+            assertEquals(2, pagina.getRighe().size());
+            assertEquals(2, pagina.getRighe().get(1).get("idOrdine"));
+            assertEquals("2024-07-18", pagina.getRighe().get(0).get("data"));
+            assertEquals(List.of("2"), pagina.getCursor());
+            assertEquals(200000L, pagina.getTotale());
+
+            ArgumentCaptor<String> sqlCaptor = ArgumentCaptor.forClass(String.class);
+            verify(mockConnection, times(2)).prepareStatement(sqlCaptor.capture());
+            assertTrue(sqlCaptor.getAllValues().get(0).endsWith("FROM ordine WHERE 1 = 1 ORDER BY id_ordine ASC LIMIT ?"));
+            verify(mockPagina).setInt(1, 3);
+        }
+    }
+
+    @Test
+    void doRetrievePagina_WithCursorSortAndFilters_UsesKeysetWithoutCount() throws SQLException {
+        try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
+            mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
+            when(mockResultSet.next()).thenReturn(false);
+
+            Map<String, String> filtri = new LinkedHashMap<>();
+            filtri.put("stato", "sped_");
+            filtri.put("emailUtente", "");
+
+            AdminGridDAO.Pagina pagina = adminGridDAO.doRetrievePagina("ordine", "totale", true, filtri, List.of("52.50", "120"), 50);
+
+            assertTrue(pagina.getRighe().isEmpty());
+            assertNull(pagina.getCursor());
+            assertEquals(-1, pagina.getTotale());
+
+            ArgumentCaptor<String> sqlCaptor = ArgumentCaptor.forClass(String.class);
+            verify(mockConnection).prepareStatement(sqlCaptor.capture());
+            String sql = sqlCaptor.getValue();
+            assertTrue(sql.contains("WHERE 1 = 1 AND stato LIKE ? ESCAPE '!' AND (CAST(COALESCE(totale, 0) AS DECIMAL(12, 2)), id_ordine) < (?, ?)"));
+            assertTrue(sql.endsWith("ORDER BY CAST(COALESCE(totale, 0) AS DECIMAL(12, 2)) DESC, id_ordine DESC LIMIT ?"));
+
+            // i caratteri speciali di LIKE vengono neutralizzati, il filtro vuoto ignorato
+            verify(mockPagina).setString(1, "sped!_%");
+            verify(mockPagina).setBigDecimal(2, new BigDecimal("52.50"));
+            verify(mockPagina).setInt(3, 120);
+            verify(mockPagina).setInt(4, 51);
+        }
+    }
+
+    @Test
+    void doRetrievePagina_CompositeKey_CursorCoversWholeKey() throws SQLException {
+        PreparedStatement mockDettagli = mock(PreparedStatement.class);
+        try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
+            mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
+            when(mockConnection.prepareStatement(contains("FROM dettaglio_ordine"))).thenReturn(mockDettagli);
+            when(mockDettagli.executeQuery()).thenReturn(mockResultSet);
+            when(mockResultSet.next()).thenReturn(false);
+
+            adminGridDAO.doRetrievePagina("dettaglioOrdine", "idOrdine", false, null, List.of("7", "P1", "3"), 50);
+
+            verify(mockConnection).prepareStatement(contains("AND (id_ordine, id_prodotto, id_variante) > (?, ?, ?)"));
+            verify(mockDettagli).setInt(1, 7);
+            verify(mockDettagli).setString(2, "P1");
+            verify(mockDettagli).setInt(3, 3);
+        }
+    }
+
+    @Test
+    void doRetrievePagina_InvalidInput_Throws() {
+        assertThrows(IllegalArgumentException.class, () -> adminGridDAO.doRetrievePagina("carrello", null, false, null, null, 50));
+        // la descrizione non è ordinabile, la password non è esposta
+        assertThrows(IllegalArgumentException.class, () -> adminGridDAO.doRetrievePagina("ordine", "descrizione", false, null, null, 50));
+        assertThrows(IllegalArgumentException.class, () -> adminGridDAO.doRetrievePagina("utente", null, false, Map.of("password", "x"), null, 50));
+        assertThrows(IllegalArgumentException.class, () -> adminGridDAO.doRetrievePagina("ordine", null, false, null, List.of("1", "2"), 50));
+    }
+
+    @Test
+    void doRetrievePagina_SQLException() throws SQLException {
+        try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
+            mockedConPool.when(ConPool::getConnection).thenThrow(new SQLException("DB Error"));
+            mockedConPool.when(ConPool::getReadConnection).thenThrow(new SQLException("DB Error"));
+
+            assertThrows(RuntimeException.class, () -> adminGridDAO.doRetrievePagina("ordine", null, false, null, null, 50));
+        }
+    }
+
+    @Test
+    void doStreamTabella_ForwardOnlyStreaming_PassesRowsInKeyOrder() throws Exception {
+        PreparedStatement mockStream = mock(PreparedStatement.class);
+        when(mockConnection.prepareStatement(anyString(), eq(ResultSet.TYPE_FORWARD_ONLY), eq(ResultSet.CONCUR_READ_ONLY))).thenReturn(mockStream);
+        when(mockStream.executeQuery()).thenReturn(mockResultSet);
+        when(mockResultSet.next()).thenReturn(true, true, false);
+        when(mockResultSet.getInt("idGusto")).thenReturn(1, 2);
+        when(mockResultSet.getString("nomeGusto")).thenReturn("Vaniglia", "Cioccolato");
+
+        List<String> righe = new java.util.ArrayList<>();
+        adminGridDAO.doStreamTabella(mockConnection, "gusto", Map.of("nomeGusto", "C"), valori -> righe.add(valori[0] + ":" + valori[1]));
+
+        assertEquals(List.of("1:Vaniglia", "2:Cioccolato"), righe);
+        verify(mockConnection).prepareStatement(eq("SELECT id_gusto AS idGusto, nomeGusto AS nomeGusto FROM gusto WHERE 1 = 1 AND nomeGusto LIKE ? ESCAPE '!' ORDER BY id_gusto"),
+                eq(ResultSet.TYPE_FORWARD_ONLY), eq(ResultSet.CONCUR_READ_ONLY));
+        // fetch size MIN_VALUE: il driver MySQL non carica il risultato in memoria
+        verify(mockStream).setFetchSize(Integer.MIN_VALUE);
+        verify(mockStream).setString(1, "C%");
+        verify(mockResultSet).close();
+        verify(mockStream).close();
+    }
+
+    @Test
+    void doDeleteByChiavi_CompositeKey_OneStatementInOneTransaction() throws SQLException {
+        PreparedStatement mockDelete = mock(PreparedStatement.class);
+        try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
+            mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            when(mockConnection.prepareStatement(startsWith("DELETE"))).thenReturn(mockDelete);
+            when(mockDelete.executeUpdate()).thenReturn(2);
+
+            int eliminate = adminGridDAO.doDeleteByChiavi("dettaglioOrdine", List.of(List.of("1", "P1", "3"), List.of("2", "P1", "4")));
+
+            assertEquals(2, eliminate);
+            verify(mockConnection).prepareStatement("DELETE FROM dettaglio_ordine WHERE (id_ordine, id_prodotto, id_variante) IN ((?, ?, ?), (?, ?, ?))");
+            verify(mockDelete).setInt(1, 1);
+            verify(mockDelete).setString(2, "P1");
+            verify(mockDelete).setInt(6, 4);
+            // gli ordini 1 e 2 escono dai riepiloghi delle vendite prima della DELETE e ci rientrano con le righe rimaste
+            verify(mockConnection, times(2)).prepareStatement("SELECT id_ordine FROM ordine WHERE id_ordine IN (?, ?) AND stato <> ? FOR UPDATE");
+            verify(mockConnection).setAutoCommit(false);
+            verify(mockConnection).commit();
+            verify(mockConnection).setAutoCommit(true);
+        }
+    }
+
+    @Test
+    void doDeleteByChiavi_Ordini_EsconoDaiRiepiloghiPrimaDellaDelete() throws SQLException {
+        PreparedStatement mockDelete = mock(PreparedStatement.class);
+        PreparedStatement mockSelect = mock(PreparedStatement.class);
+        PreparedStatement mockRiepilogo = mock(PreparedStatement.class);
+        ResultSet mockConteggiati = mock(ResultSet.class);
+        try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
+            mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            when(mockConnection.prepareStatement(startsWith("DELETE"))).thenReturn(mockDelete);
+            when(mockConnection.prepareStatement(startsWith("SELECT id_ordine FROM ordine"))).thenReturn(mockSelect);
+            when(mockConnection.prepareStatement(startsWith("INSERT INTO vendite_"))).thenReturn(mockRiepilogo);
+            when(mockSelect.executeQuery()).thenReturn(mockConteggiati);
+            // l'ordine 8 è annullato: è già uscito dai riepiloghi
+            when(mockConteggiati.next()).thenReturn(true, false);
+            when(mockConteggiati.getInt(1)).thenReturn(7);
+            when(mockDelete.executeUpdate()).thenReturn(2);
+
+            assertEquals(2, adminGridDAO.doDeleteByChiavi("ordine", List.of(List.of("7"), List.of("8"))));
+
+            verify(mockConnection).prepareStatement("SELECT id_ordine FROM ordine WHERE id_ordine IN (?, ?) AND stato <> ? FOR UPDATE");
+            verify(mockSelect).setString(3, StatoOrdine.ANNULLATO);
+            var ordine = inOrder(mockRiepilogo, mockDelete, mockConnection);
+            ordine.verify(mockRiepilogo, times(3)).executeUpdate();
+            ordine.verify(mockDelete).executeUpdate();
+            ordine.verify(mockConnection).commit();
+            verify(mockRiepilogo, atLeastOnce()).setInt(1, -1);
+            verify(mockRiepilogo, never()).setInt(anyInt(), eq(8));
+        }
+    }
+
+    @Test
+    void doDeleteByChiavi_ManyKeys_SplitsStatementsAndRollsBackOnError() throws SQLException {
+        PreparedStatement mockDelete = mock(PreparedStatement.class);
+        List<List<String>> chiavi = new java.util.ArrayList<>();
+        for (int i = 0; i < 1500; i++) {
+            chiavi.add(List.of(String.valueOf(i)));
+        }
+        try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
+            mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            when(mockConnection.prepareStatement(startsWith("DELETE FROM gusto WHERE id_gusto IN (?"))).thenReturn(mockDelete);
+            when(mockDelete.executeUpdate()).thenReturn(1000).thenThrow(new SQLException("Lock wait timeout"));
+
+            assertThrows(RuntimeException.class, () -> adminGridDAO.doDeleteByChiavi("gusto", chiavi));
+
+            verify(mockDelete, times(2)).executeUpdate();
+            verify(mockConnection).rollback();
+            verify(mockConnection, never()).commit();
+            verify(mockConnection).setAutoCommit(true);
+        }
+        assertThrows(IllegalArgumentException.class, () -> adminGridDAO.doDeleteByChiavi("dettaglioOrdine", List.of(List.of("1"))));
+    }
+}
@@ -55,6 +55,31 @@ class CarrelloDAOTest {
         }
     }
 
+    @Test
+    void doRemoveRigheOrdinate_EliminaSoloLeVariantiOrdinate() throws SQLException {
+        DettaglioOrdine prima = new DettaglioOrdine();
+        prima.setIdProdotto("P1");
+        prima.setIdVariante(10);
+        DettaglioOrdine seconda = new DettaglioOrdine();
+        seconda.setIdProdotto("P2");
+        seconda.setIdVariante(20);
+
+        try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
+            mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            when(mockConnection.prepareStatement(anyString())).thenReturn(mockPreparedStatement);
+
+            carrelloDAO.doRemoveRigheOrdinate("user@test.com", List.of(prima, seconda));
+
+            verify(mockConnection).prepareStatement("DELETE FROM carrello WHERE email_utente = ? AND id_prodotto = ? AND id_variante = ?");
+            verify(mockPreparedStatement, times(2)).setString(1, "user@test.com");
+            verify(mockPreparedStatement).setString(2, "P1");
+            verify(mockPreparedStatement).setInt(3, 20);
+            verify(mockPreparedStatement, times(2)).addBatch();
+            verify(mockPreparedStatement).executeBatch();
+            verify(mockConnection).commit();
+        }
+    }
+
     @Test
     void doRemoveCartByUser_Success() throws SQLException {
         String email = "delete@test.com";
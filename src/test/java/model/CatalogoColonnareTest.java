@@ -0,0 +1,113 @@
+package model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe di test per CatalogoColonnare
+ */
+class CatalogoColonnareTest {
+
+    private CatalogoColonnare catalogo;
+
+    @BeforeEach
+    void setUp() {
+        Gusto fragola = new Gusto();
+        fragola.setIdGusto(1);
+        fragola.setNome("Fragola");
+        Gusto vaniglia = new Gusto();
+        vaniglia.setIdGusto(2);
+        vaniglia.setNome("Vaniglia");
+        Confezione piccola = new Confezione();
+        piccola.setIdConfezione(10);
+        piccola.setPeso(500);
+        Confezione grande = new Confezione();
+        grande.setIdConfezione(11);
+        grande.setPeso(1000);
+        DimensioniCatalogo.carica(List.of(fragola, vaniglia), List.of(piccola, grande));
+
+        List<Prodotto> prodotti = List.of(
+                prodotto("P1", "Whey Protein", "proteine", 400),
+                prodotto("P2", "Barretta Proteica", "snack", 200),
+                prodotto("P3", "Creatina", "integratori", 10));
+        //varianti volutamente non raggruppate per prodotto, e una di un prodotto sconosciuto
+        List<Variante> varianti = new ArrayList<>();
+        varianti.add(variante(1, "P1", 1, 10, 30.00f, 0, false));
+        varianti.add(variante(2, "P2", 2, 10, 12.00f, 0, true));
+        varianti.add(variante(3, "P1", 2, 11, 50.00f, 50, true));
+        varianti.add(variante(4, "P3", 1, 11, 20.00f, 10, false));
+        varianti.add(variante(5, "P9", 1, 10, 1.00f, 0, true));
+        catalogo = CatalogoColonnare.da(prodotti, varianti);
+    }
+
+    private static Prodotto prodotto(String id, String nome, String categoria, int calorie) {
+        Prodotto prodotto = new Prodotto();
+        prodotto.setIdProdotto(id);
+        prodotto.setNome(nome);
+        prodotto.setCategoria(categoria);
+        prodotto.setCalorie(calorie);
+        return prodotto;
+    }
+
+    private static Variante variante(int id, String idProdotto, int idGusto, int idConfezione, float prezzo, int sconto, boolean evidenza) {
+        Variante variante = new Variante();
+        variante.setIdVariante(id);
+        variante.setIdProdotto(idProdotto);
+        variante.setIdGusto(idGusto);
+        variante.setIdConfezione(idConfezione);
+        variante.setPrezzo(prezzo);
+        variante.setSconto(sconto);
+        variante.setEvidenza(evidenza);
+        return variante;
+    }
+
+    private static List<String> ids(List<Prodotto> prodotti) {
+        return prodotti.stream().map(p -> p.getIdProdotto() + ":" + p.getVarianti().get(0).getIdVariante()).toList();
+    }
+
+    @Test
+    void cerca_VarianteScontataPiuEconomicaEOrdinamentoPerPrezzo() {
+        assertEquals(3, catalogo.getNumeroProdotti());
+        assertEquals(4, catalogo.getNumeroVarianti());
+
+        //P1: 30.00 contro 50.00 scontata del 50% = 25.00 -> variante 3
+        assertEquals(List.of("P2:2", "P3:4", "P1:3"), ids(catalogo.cerca("tutto", "PriceAsc", null, null, "")));
+        assertEquals(List.of("P1:3", "P3:4", "P2:2"), ids(catalogo.cerca("", "PriceDesc", null, null, null)));
+        assertEquals(List.of("P3:4", "P2:2", "P1:3"), ids(catalogo.cerca(null, "CaloriesAsc", null, null, null)));
+
+        Prodotto whey = catalogo.cerca("Proteine", "default", null, null, null).get(0);
+        Variante variante = whey.getVarianti().get(0);
+        assertEquals("Whey Protein", whey.getNome());
+        assertEquals("P1", variante.getIdProdotto());
+        assertEquals(50.00f, variante.getPrezzo());
+        assertEquals(50, variante.getSconto());
+        assertEquals("Vaniglia", variante.getGusto());
+        assertEquals(1000, variante.getPesoConfezione());
+        assertTrue(variante.isEvidenza());
+    }
+
+    @Test
+    void filtra_PerNomePesoGustoEdEvidenza() {
+        assertEquals(List.of("P1:3", "P2:2"), ids(catalogo.cerca(null, "default", null, null, "PROTE")));
+        //solo le confezioni da 500: per P1 resta la variante 1
+        assertEquals(List.of("P1:1", "P2:2"), ids(catalogo.cerca(null, "default", "500 g", null, null)));
+        assertEquals(List.of("P1:1", "P3:4"), ids(catalogo.cerca(null, "default", null, "fragola (2)", null)));
+        assertEquals(List.of("P1:3", "P2:2"), ids(catalogo.cerca(null, "evidence", null, null, null)));
+        assertTrue(catalogo.cerca("categoria inesistente", "default", null, null, null).isEmpty());
+        assertTrue(catalogo.cerca(null, "default", null, "Cioccolato", null).isEmpty());
+    }
+
+    @Test
+    void pagina_MaterializzaSoloIProdottiRichiesti() {
+        CatalogoColonnare.Selezione selezione = catalogo.ordina(catalogo.filtra(null, null, null, null, false), "PriceAsc");
+        assertEquals(3, selezione.dimensione());
+        assertEquals(List.of("P3:4"), ids(catalogo.pagina(selezione, 1, 1)));
+        assertEquals(List.of("P1:3"), ids(catalogo.pagina(selezione, 2, 10)));
+        assertTrue(catalogo.pagina(selezione, 5, 10).isEmpty());
+    }
+}
@@ -0,0 +1,230 @@
+package model;
+
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Classe di test per ConPool e ConfigurazionePool.
+ * Non serve un database: il pool di Tomcat JDBC apre le connessioni solo al primo getConnection.
+ */
+public class ConPoolTest {
+
+    @AfterEach
+    void chiudi() {
+        ConPool.chiudi();
+    }
+
+    @Test
+    @DisplayName("Molte richieste insieme all'avvio -> un solo DataSource, registrato via JMX")
+    void dataSource_ConcurrentFirstCalls_CreatesSinglePool() throws Exception {
+        int thread = 16;
+        ExecutorService esecutore = Executors.newFixedThreadPool(thread);
+        CountDownLatch via = new CountDownLatch(1);
+        Set<DataSource> creati = ConcurrentHashMap.newKeySet();
+        try {
+            List<Future<?>> risultati = new ArrayList<>();
+            for (int i = 0; i < thread; i++) {
+                risultati.add(esecutore.submit(() -> {
+                    via.await();
+                    creati.add(ConPool.dataSource());
+                    return null;
+                }));
+            }
+            via.countDown();
+            for (Future<?> risultato : risultati) {
+                risultato.get();
+            }
+        } finally {
+            esecutore.shutdownNow();
+        }
+
+        assertEquals(1, creati.size());
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName nome = new ObjectName(ConPool.NOME_JMX);
+        assertTrue(server.isRegistered(nome));
+        assertEquals(creati.iterator().next().getMaxActive(), server.getAttribute(nome, "MaxActive"));
+        assertEquals(0, server.getAttribute(nome, "Attive"));
+        assertEquals(0L, ConPool.statistiche().get("prestiti"));
+
+        ConPool.chiudi();
+        assertFalse(server.isRegistered(nome));
+        assertTrue(ConPool.statistiche().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Ambiente > file > default, profili di connessione e validazione")
+    void configurazione_PrecedenceAndValidation() {
+        Properties file = new Properties();
+        file.setProperty("pool.maxActive", "40");
+        file.setProperty("pool.minIdle", "5");
+        file.setProperty("db.host", "db-da-file");
+
+        ConfigurazionePool configurazione = ConfigurazionePool.carica(Map.of("DB_HOST", "db", "DB_POOL_MAX_ACTIVE", "25"), file);
+
+        var p = configurazione.toPoolProperties();
+        assertEquals(25, p.getMaxActive());
+        assertEquals(5, p.getMinIdle());
+        assertEquals(10, p.getInitialSize());
+        assertTrue(p.getUrl().startsWith("jdbc:mysql://db:3306/Progetto_TSW_Dependability?"));
+        assertTrue(p.getUrl().contains("rewriteBatchedStatements=true"));
+        assertTrue(p.getJdbcInterceptors().contains("ResetAbandonedTimer"));
+        //profilo "prestazioni" di default: cache degli statement nel driver e nel pool
+        assertTrue(p.getUrl().contains("useServerPrepStmts=true&cachePrepStmts=true&prepStmtCacheSize=100"));
+        assertTrue(p.getJdbcInterceptors().contains("StatementCache(prepared=true,callable=false,max=2000)"));
+        //gli statement lasciati aperti dai DAO vengono chiusi (e tornano nella cache) al rilascio della connessione
+        assertTrue(p.getJdbcInterceptors().indexOf("StatementFinalizer") < p.getJdbcInterceptors().indexOf("StatementCache"));
+
+        var base = ConfigurazionePool.carica(Map.of("DB_PROFILO", "base"), new Properties()).toPoolProperties();
+        assertFalse(base.getUrl().contains("useServerPrepStmts"));
+        assertTrue(base.getUrl().contains("rewriteBatchedStatements=true"));
+        assertEquals("org.apache.tomcat.jdbc.pool.interceptor.ResetAbandonedTimer;org.apache.tomcat.jdbc.pool.interceptor.StatementFinalizer",
+                base.getJdbcInterceptors());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> ConfigurazionePool.carica(Map.of("DB_POOL_MAX_ACTIVE", "5", "DB_POOL_INITIAL_SIZE", "10"), new Properties()));
+        assertThrows(IllegalArgumentException.class,
+                () -> ConfigurazionePool.carica(Map.of("DB_POOL_MAX_WAIT_MS", "tanto"), new Properties()));
+        assertThrows(IllegalArgumentException.class,
+                () -> ConfigurazionePool.carica(Map.of("DB_PROFILO", "turbo"), new Properties()));
+    }
+
+    @Test
+    @DisplayName("Repliche: host e porta, connessioni in sola lettura, formato validato")
+    void configurazione_Repliche() {
+        ConfigurazionePool configurazione = ConfigurazionePool.carica(
+                Map.of("DB_REPLICHE", "replica1:3307, replica2", "DB_PORT", "3310"), new Properties());
+
+        assertEquals(List.of("replica1:3307", "replica2"), configurazione.getRepliche());
+        var replica1 = configurazione.toPoolPropertiesReplica("replica1:3307");
+        assertTrue(replica1.getUrl().startsWith("jdbc:mysql://replica1:3307/Progetto_TSW_Dependability?"));
+        assertEquals(Boolean.TRUE, replica1.isDefaultReadOnly());
+        assertTrue(configurazione.toPoolPropertiesReplica("replica2").getUrl().startsWith("jdbc:mysql://replica2:3310/"));
+        assertNull(configurazione.toPoolProperties().isDefaultReadOnly());
+        assertTrue(ConfigurazionePool.carica(Map.of(), new Properties()).getRepliche().isEmpty());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> ConfigurazionePool.carica(Map.of("DB_REPLICHE", "replica1:porta"), new Properties()));
+    }
+
+    @Test
+    @DisplayName("Letture: a turno sulle repliche allineate, primario se tutte in ritardo o irraggiungibili")
+    void instradamento_SkipsLaggingAndBrokenReplicas() {
+        javax.sql.DataSource ds1 = mock(javax.sql.DataSource.class);
+        javax.sql.DataSource ds2 = mock(javax.sql.DataSource.class);
+        Map<javax.sql.DataSource, Long> ritardi = new ConcurrentHashMap<>(Map.of(ds1, 0L, ds2, 1L));
+        Set<javax.sql.DataSource> irraggiungibili = ConcurrentHashMap.newKeySet();
+        AtomicInteger sondaggi = new AtomicInteger();
+        AtomicLong adesso = new AtomicLong(1_000);
+        InstradamentoLetture.Replica r1 = new InstradamentoLetture.Replica("r1", ds1);
+        InstradamentoLetture.Replica r2 = new InstradamentoLetture.Replica("r2", ds2);
+        InstradamentoLetture instradamento = new InstradamentoLetture(List.of(r1, r2), 5, 1_000, ds -> {
+            sondaggi.incrementAndGet();
+            if (irraggiungibili.contains(ds)) {
+                throw new SQLException("Connessione rifiutata");
+            }
+            return ritardi.get(ds);
+        }, adesso::get);
+
+        assertSame(r1, instradamento.scegli());
+        assertSame(r2, instradamento.scegli());
+        assertSame(r1, instradamento.scegli());
+        //il ritardo si rilegge al più una volta per intervallo
+        assertEquals(2, sondaggi.get());
+
+        //r2 resta indietro e r1 non risponde: dopo l'intervallo si torna al primario
+        ritardi.put(ds2, 30L);
+        irraggiungibili.add(ds1);
+        instradamento.segnaGuasta(r1);
+        adesso.addAndGet(500);
+        assertSame(r2, instradamento.scegli());
+        adesso.addAndGet(600);
+        assertNull(instradamento.scegli());
+        assertEquals(false, instradamento.toList().get(1).get("sana"));
+        assertEquals(30L, instradamento.toList().get(1).get("ritardoSecondi"));
+
+        //r2 recupera il ritardo: al controllo successivo torna a ricevere letture
+        ritardi.put(ds2, 0L);
+        adesso.addAndGet(1_100);
+        assertSame(r2, instradamento.scegli());
+    }
+
+    @Test
+    @DisplayName("dalPrimario: le letture dei caricamenti delle cache non vanno mai alle repliche")
+    void dalPrimario_IgnoraLeRepliche() {
+        ConPool.leggiDalPrimarioFinoA(0);
+        assertEquals(Long.MAX_VALUE, (long) ConPool.dalPrimario(ConPool::getPrimarioFinoA));
+        assertEquals(0, ConPool.getPrimarioFinoA());
+
+        //dopo il caricamento resta la finestra di lettura dopo scrittura della richiesta
+        ConPool.leggiDalPrimarioFinoA(12_345);
+        ConPool.dalPrimario(() -> null);
+        assertEquals(12_345, ConPool.getPrimarioFinoA());
+        ConPool.leggiDalPrimarioFinoA(0);
+    }
+
+    @Test
+    @DisplayName("Istogramma delle attese: conteggio, media e percentili per intervallo")
+    void istogramma_PercentilesUseBucketUpperBounds() {
+        Istogramma istogramma = new Istogramma();
+        for (int i = 0; i < 98; i++) {
+            istogramma.registra(30);
+        }
+        istogramma.registra(700);
+        istogramma.registra(40_000);
+
+        assertEquals(100, istogramma.getConteggio());
+        assertEquals(30, istogramma.percentile(0.50));
+        // 700 cade nell'intervallo [688, 703]
+        assertEquals(703, istogramma.percentile(0.99));
+        assertEquals(40_000, istogramma.percentile(1.0));
+        assertEquals(40_000, istogramma.getMassimo());
+        // i bucket fissi per Prometheus restano esatti
+        assertEquals(98, istogramma.conteggiCumulati()[0]);
+        assertEquals(100, istogramma.conteggiCumulati()[Istogramma.LIMITI.length - 1]);
+    }
+
+    @Test
+    @DisplayName("Istogramma log-lineare: errore relativo dei percentili al più 1/32 su tutta la scala")
+    void istogramma_ErroreRelativoLimitato() {
+        for (long valore = 1; valore < Istogramma.MASSIMO_TRACCIATO; valore = valore * 3 / 2 + 1) {
+            for (long v : new long[]{valore, valore + 1, valore * 2 - 1}) {
+                int i = Istogramma.indice(v);
+                long superiore = Istogramma.limiteSuperiore(i);
+                assertTrue(superiore >= v && superiore - v <= v / Istogramma.SOTTO_INTERVALLI, v + " -> " + superiore);
+                assertTrue(i == 0 || Istogramma.limiteSuperiore(i - 1) < v, "intervalli contigui per " + v);
+            }
+        }
+
+        Istogramma istogramma = new Istogramma();
+        for (int i = 1; i <= 1000; i++) {
+            istogramma.registra(i * 1_000L);
+        }
+        assertEquals(950_000, istogramma.percentile(0.95), 950_000 / 32.0);
+        assertEquals(990_000, istogramma.percentile(0.99), 990_000 / 32.0);
+        // oltre il massimo tracciato il percentile è comunque il massimo vero
+        istogramma.registra(Long.MAX_VALUE / 2);
+        assertEquals(Long.MAX_VALUE / 2, istogramma.percentile(1.0));
+    }
+}
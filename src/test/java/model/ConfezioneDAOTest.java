@@ -104,6 +104,7 @@ class ConfezioneDAOTest {
     void doRetrieveAll_Success() throws SQLException {
         try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
             when(mockConnection.prepareStatement(anyString())).thenReturn(mockPreparedStatement);
             when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
 
@@ -217,6 +218,7 @@ class ConfezioneDAOTest {
     void doRetrieveAll_SQLException() throws SQLException {
         try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
             when(mockConnection.prepareStatement(anyString())).thenThrow(new SQLException("DB Error"));
 
             assertThrows(RuntimeException.class, () -> dao.doRetrieveAll());
@@ -0,0 +1,172 @@
+package model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Classe di test per DaoAsincroni.
+ * Verifica il contesto passato ai virtual thread, il limite di letture concorrenti e la scadenza.
+ */
+class DaoAsincroniTest {
+
+    @Test
+    @DisplayName("La lettura gira su un virtual thread e conta nel budget della richiesta")
+    void esegui_VirtualThreadEBudgetDellaRichiesta() throws Exception {
+        Connection mockConnection = mock(Connection.class);
+        when(mockConnection.prepareStatement(anyString())).thenReturn(mock(PreparedStatement.class));
+        Connection connessione = StrumentazioneDao.avvolgi(mockConnection, 0);
+
+        try (BudgetQuery budget = BudgetQuery.apri("/ProductInfo", 10, 5)) {
+            CompletableFuture<Boolean> virtuale = DaoAsincroni.esegui(() -> {
+                try {
+                    connessione.prepareStatement("SELECT * FROM variante WHERE id_prodotto_variante = ?").executeQuery();
+                    connessione.prepareStatement("SELECT * FROM prodotto WHERE categoria = ?").executeQuery();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+                return Thread.currentThread().isVirtual() && BudgetQuery.corrente() == budget;
+            });
+
+            assertTrue(DaoAsincroni.attendi(virtuale, DaoAsincroni.scadenza()));
+            assertEquals(2, budget.getQuery());
+        }
+    }
+
+    @Test
+    @DisplayName("Mai più di DAO_ASYNC_MAX letture insieme, e gli errori del DAO arrivano al chiamante")
+    void esegui_LimiteDiConcorrenzaEdErrori() throws Exception {
+        int letture = DaoAsincroni.getMaxConcorrenti() * 3;
+        AtomicInteger inCorso = new AtomicInteger();
+        AtomicInteger massimo = new AtomicInteger();
+        List<CompletableFuture<Integer>> futuri = new ArrayList<>();
+        for (int i = 0; i < letture; i++) {
+            int n = i;
+            futuri.add(DaoAsincroni.esegui(() -> {
+                massimo.accumulateAndGet(inCorso.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                inCorso.decrementAndGet();
+                return n;
+            }));
+        }
+        long scadenza = DaoAsincroni.scadenza();
+        for (int i = 0; i < letture; i++) {
+            assertEquals(i, DaoAsincroni.attendi(futuri.get(i), scadenza));
+        }
+        assertTrue(massimo.get() <= DaoAsincroni.getMaxConcorrenti());
+
+        CompletableFuture<Object> errore = DaoAsincroni.esegui(() -> {
+            throw new RuntimeException("errore del DAO");
+        });
+        RuntimeException e = assertThrows(RuntimeException.class, () -> DaoAsincroni.attendi(errore, DaoAsincroni.scadenza()));
+        assertEquals("errore del DAO", e.getMessage());
+    }
+
+    @Test
+    @DisplayName("Lettura oltre la scadenza -> TimeoutException e future cancellato")
+    void attendi_OltreLaScadenza() throws Exception {
+        CountDownLatch sblocca = new CountDownLatch(1);
+        CompletableFuture<String> lenta = DaoAsincroni.esegui(() -> {
+            try {
+                sblocca.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "tardi";
+        });
+        long prima = Metriche.valore(DaoAsincroni.SCADUTE);
+
+        assertThrows(TimeoutException.class, () -> DaoAsincroni.attendi(lenta, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(20)));
+        assertTrue(lenta.isCancelled());
+        assertEquals(prima + 1, Metriche.valore(DaoAsincroni.SCADUTE));
+        sblocca.countDown();
+    }
+
+    @Test
+    @DisplayName("Lettura scaduta -> le sue query successive non contano più nel budget della richiesta")
+    void attendi_OltreLaScadenza_SganciaIlBudget() throws Exception {
+        Connection mockConnection = mock(Connection.class);
+        when(mockConnection.prepareStatement(anyString())).thenReturn(mock(PreparedStatement.class));
+        Connection connessione = StrumentazioneDao.avvolgi(mockConnection, 0);
+        CountDownLatch sblocca = new CountDownLatch(1);
+        CountDownLatch finita = new CountDownLatch(1);
+
+        try (BudgetQuery budget = BudgetQuery.apri("/ProductInfo", 10, 5)) {
+            CompletableFuture<Boolean> lenta = DaoAsincroni.esegui(() -> {
+                try {
+                    connessione.prepareStatement("SELECT * FROM variante WHERE id_prodotto_variante = ?").executeQuery();
+                    sblocca.await(5, TimeUnit.SECONDS);
+                    connessione.prepareStatement("SELECT * FROM prodotto WHERE categoria = ?").executeQuery();
+                    return true;
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                } finally {
+                    finita.countDown();
+                }
+            });
+
+            assertThrows(TimeoutException.class, () -> DaoAsincroni.attendi(lenta, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(50)));
+            int allaScadenza = budget.getQuery();
+            sblocca.countDown();
+            assertTrue(finita.await(5, TimeUnit.SECONDS));
+
+            assertTrue(allaScadenza <= 1);
+            assertEquals(allaScadenza, budget.getQuery());
+            assertFalse(budget.superato());
+        }
+    }
+
+    @Test
+    @DisplayName("Lettura scaduta mentre aspetta il permesso -> non parte e non prende una connessione")
+    void attendi_ScadutaInAttesaDelPermesso_NonParte() throws Exception {
+        CountDownLatch sblocca = new CountDownLatch(1);
+        CountDownLatch occupati = new CountDownLatch(DaoAsincroni.getMaxConcorrenti());
+        List<CompletableFuture<Boolean>> lente = new ArrayList<>();
+        for (int i = 0; i < DaoAsincroni.getMaxConcorrenti(); i++) {
+            lente.add(DaoAsincroni.esegui(() -> {
+                occupati.countDown();
+                try {
+                    return sblocca.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }));
+        }
+        assertTrue(occupati.await(5, TimeUnit.SECONDS));
+        long saltate = Metriche.valore(DaoAsincroni.SALTATE);
+
+        AtomicInteger eseguite = new AtomicInteger();
+        CompletableFuture<Integer> inAttesa = DaoAsincroni.esegui(eseguite::incrementAndGet);
+        assertThrows(TimeoutException.class, () -> DaoAsincroni.attendi(inAttesa, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(20)));
+
+        sblocca.countDown();
+        for (CompletableFuture<Boolean> lenta : lente) {
+            assertTrue(DaoAsincroni.attendi(lenta, DaoAsincroni.scadenza()));
+        }
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (Metriche.valore(DaoAsincroni.SALTATE) == saltate && System.nanoTime() < limite) {
+            Thread.sleep(5);
+        }
+        assertEquals(saltate + 1, Metriche.valore(DaoAsincroni.SALTATE));
+        assertEquals(0, eseguite.get());
+    }
+}
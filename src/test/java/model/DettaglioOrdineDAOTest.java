@@ -115,6 +115,8 @@ class DettaglioOrdineDAOTest {
             when(mockConnection.prepareStatement(anyString())).thenReturn(mockPreparedStatement);
             when(mockPreparedStatement.executeUpdate()).thenReturn(1);
 
+            when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
+
             dao.doUpdateDettaglioOrdine(d, oldIdOrdine, oldIdProdotto, oldIdVariante);
 
             // Verifica parametri SET
@@ -127,6 +129,9 @@ class DettaglioOrdineDAOTest {
             verify(mockPreparedStatement).setInt(8, oldIdVariante);
 
             verify(mockPreparedStatement).executeUpdate();
+            // l'ordine esce dai riepiloghi delle vendite prima della modifica e ci rientra dopo, nella stessa transazione
+            verify(mockConnection, times(2)).prepareStatement("SELECT id_ordine FROM ordine WHERE id_ordine IN (?) AND stato <> ? FOR UPDATE");
+            verify(mockConnection).commit();
         }
     }
 
@@ -136,11 +141,15 @@ class DettaglioOrdineDAOTest {
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
             when(mockConnection.prepareStatement(anyString())).thenReturn(mockPreparedStatement);
 
+            when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
+
             dao.doRemoveDettaglioOrdine(10, 5);
 
             verify(mockPreparedStatement).setInt(1, 10);
             verify(mockPreparedStatement).setInt(2, 5);
             verify(mockPreparedStatement).executeUpdate();
+            verify(mockConnection, times(2)).prepareStatement("SELECT id_ordine FROM ordine WHERE id_ordine IN (?) AND stato <> ? FOR UPDATE");
+            verify(mockConnection).commit();
         }
     }
 
@@ -160,6 +169,9 @@ class DettaglioOrdineDAOTest {
             ArgumentCaptor<String> sqlCaptor = ArgumentCaptor.forClass(String.class);
             when(mockConnection.prepareStatement(sqlCaptor.capture(), eq(Statement.RETURN_GENERATED_KEYS)))
                     .thenReturn(mockPreparedStatement);
+            PreparedStatement mockAltri = mock(PreparedStatement.class);
+            when(mockConnection.prepareStatement(anyString())).thenReturn(mockAltri);
+            when(mockAltri.executeQuery()).thenReturn(mockResultSet);
             when(mockPreparedStatement.executeUpdate()).thenReturn(1);
 
             dao.doSave(d);
@@ -174,6 +186,13 @@ class DettaglioOrdineDAOTest {
             verify(mockPreparedStatement).setObject(eq(1), eq(1));
             verify(mockPreparedStatement).setObject(eq(4), eq(10)); // Quantità è il 4° aggiunto
             verify(mockPreparedStatement).setObject(eq(5), eq(9.99f)); // Prezzo è il 5°
+
+            // Giacenza della variante e totale dell'ordine aggiornati nella stessa transazione della riga
+            verify(mockConnection).prepareStatement(startsWith("UPDATE variante v JOIN dettaglio_ordine d"));
+            verify(mockConnection).prepareStatement(startsWith("UPDATE ordine SET totale = (SELECT SUM(prezzo)"));
+            verify(mockConnection, times(2)).prepareStatement(startsWith("SELECT id_ordine FROM ordine WHERE id_ordine IN (?)"));
+            verify(mockConnection).setAutoCommit(false);
+            verify(mockConnection).commit();
         }
     }
 
@@ -193,6 +212,9 @@ class DettaglioOrdineDAOTest {
             ArgumentCaptor<String> sqlCaptor = ArgumentCaptor.forClass(String.class);
             when(mockConnection.prepareStatement(sqlCaptor.capture(), eq(Statement.RETURN_GENERATED_KEYS)))
                     .thenReturn(mockPreparedStatement);
+            PreparedStatement mockAltri = mock(PreparedStatement.class);
+            when(mockConnection.prepareStatement(anyString())).thenReturn(mockAltri);
+            when(mockAltri.executeQuery()).thenReturn(mockResultSet);
             when(mockPreparedStatement.executeUpdate()).thenReturn(1);
 
             dao.doSave(d);
@@ -218,6 +240,7 @@ class DettaglioOrdineDAOTest {
     void doRetrieveAll_Success() throws SQLException {
         try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
             when(mockConnection.prepareStatement(anyString())).thenReturn(mockPreparedStatement);
             when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
 
@@ -257,6 +280,7 @@ class DettaglioOrdineDAOTest {
     void doRetrieveAll_SQLException() throws SQLException {
         try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
             when(mockConnection.prepareStatement(anyString())).thenThrow(new SQLException("DB Error"));
 
             assertThrows(RuntimeException.class, () -> dao.doRetrieveAll());
@@ -306,10 +330,113 @@ class DettaglioOrdineDAOTest {
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
             when(mockConnection.prepareStatement(anyString(), eq(Statement.RETURN_GENERATED_KEYS)))
                     .thenReturn(mockPreparedStatement);
+            PreparedStatement mockAltri = mock(PreparedStatement.class);
+            when(mockConnection.prepareStatement(anyString())).thenReturn(mockAltri);
+            when(mockAltri.executeQuery()).thenReturn(mockResultSet);
             when(mockPreparedStatement.executeUpdate()).thenReturn(0); // Simulate failure
 
             RuntimeException e = assertThrows(RuntimeException.class, () -> dao.doSave(d));
             assertEquals("INSERT error.", e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void doSaveAll_GeneratesMultiRowInsert() throws SQLException {
+        DettaglioOrdine d1 = new DettaglioOrdine();
+        d1.setIdOrdine(7);
+        d1.setIdProdotto("P1");
+        d1.setIdVariante(2);
+        d1.setQuantita(3);
+        d1.setPrezzo(29.97f);
+        DettaglioOrdine d2 = new DettaglioOrdine();
+        d2.setIdOrdine(7);
+        d2.setIdProdotto("P2");
+        d2.setIdVariante(5);
+        d2.setQuantita(1);
+        d2.setPrezzo(12.5f);
+
+        try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
+            mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+
+            when(mockConnection.prepareStatement(startsWith("INSERT INTO dettaglio_ordine"))).thenReturn(mockPreparedStatement);
+            PreparedStatement giacenze = mock(PreparedStatement.class);
+            when(mockConnection.prepareStatement(startsWith("UPDATE variante"))).thenReturn(giacenze);
+            when(mockPreparedStatement.executeUpdate()).thenReturn(2);
+
+            dao.doSaveAll(List.of(d1, d2));
+
+            // Un'unica INSERT con due gruppi di valori
+            verify(mockConnection).prepareStatement(endsWith("VALUES (?, ?, ?, ?, ?), (?, ?, ?, ?, ?)"));
+            verify(mockConnection, times(2)).prepareStatement(anyString());
+
+            verify(mockPreparedStatement).setInt(1, 7);
+            verify(mockPreparedStatement).setString(2, "P1");
+            verify(mockPreparedStatement).setFloat(5, 29.97f);
+            verify(mockPreparedStatement).setString(7, "P2");
+            verify(mockPreparedStatement).setInt(8, 5);
+            verify(mockPreparedStatement).setFloat(10, 12.5f);
+            verify(mockPreparedStatement, times(1)).executeUpdate();
+
+            // Le giacenze scalano con un'unica UPDATE per tutte le varianti dell'ordine
+            verify(mockConnection).prepareStatement("UPDATE variante SET `quantità` = `quantità` - CASE id_variante "
+                    + "WHEN ? THEN ? WHEN ? THEN ? END WHERE id_variante IN (?, ?)");
+            verify(giacenze).setInt(1, 2);
+            verify(giacenze).setInt(2, 3);
+            verify(giacenze).setInt(3, 5);
+            verify(giacenze).setInt(4, 1);
+            verify(giacenze).setInt(5, 2);
+            verify(giacenze).setInt(6, 5);
+            verify(giacenze, times(1)).executeUpdate();
+        }
+    }
+
+    @Test
+    void scalaGiacenze_RigheDellaStessaVarianteSommate() throws SQLException {
+        DettaglioOrdine d1 = new DettaglioOrdine();
+        d1.setIdVariante(4);
+        d1.setQuantita(2);
+        DettaglioOrdine d2 = new DettaglioOrdine();
+        d2.setIdVariante(4);
+        d2.setQuantita(3);
+        when(mockConnection.prepareStatement(anyString())).thenReturn(mockPreparedStatement);
+
+        dao.scalaGiacenze(mockConnection, List.of(d1, d2));
+
+        verify(mockConnection).prepareStatement("UPDATE variante SET `quantità` = `quantità` - CASE id_variante WHEN ? THEN ? END WHERE id_variante IN (?)");
+        verify(mockPreparedStatement).setInt(2, 5);
+        verify(mockPreparedStatement).executeUpdate();
+    }
+
+    @Test
+    void doSaveAll_EmptyList_DoesNothing() throws SQLException {
+        dao.doSaveAll(mockConnection, List.of());
+
+        verify(mockConnection, never()).prepareStatement(anyString());
+    }
+
+    @Test
+    void doSaveAll_InsertError() throws SQLException {
+        DettaglioOrdine d = new DettaglioOrdine();
+        d.setIdProdotto("P1");
+        d.setQuantita(1);
+
+        try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
+            mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            when(mockConnection.prepareStatement(anyString())).thenReturn(mockPreparedStatement);
+            when(mockPreparedStatement.executeUpdate()).thenReturn(0);
+
+            RuntimeException e = assertThrows(RuntimeException.class, () -> dao.doSaveAll(List.of(d)));
+            assertEquals("INSERT error.", e.getMessage());
+        }
+    }
+
+    @Test
+    void doSaveAll_SQLException() throws SQLException {
+        try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
+            mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            when(mockConnection.prepareStatement(anyString())).thenThrow(new SQLException("DB Error"));
+
+            assertThrows(RuntimeException.class, () -> dao.doSaveAll(List.of(new DettaglioOrdine())));
+        }
+    }
+}
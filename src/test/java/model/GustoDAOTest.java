@@ -77,18 +77,13 @@ class GustoDAOTest {
 
             when(mockResultSet.next()).thenReturn(true);
             when(mockResultSet.getInt("id_gusto")).thenReturn(10);
-            // ATTENZIONE: Il tuo codice chiama rs.getString("nome") anche se la query
-            // seleziona "nomeGusto"
-            // Simulo il comportamento del codice Java:
-            when(mockResultSet.getString("nome")).thenReturn("Vaniglia");
+            // la query seleziona gusto.nomeGusto: il DAO ora legge quella colonna
+            when(mockResultSet.getString("nomeGusto")).thenReturn("Vaniglia");
 
             Gusto result = gustoDAO.doRetrieveByIdVariante(idVariante);
 
             assertNotNull(result);
-            assertEquals("Vaniglia", result.getNomeGusto()); // Nota: il getter è getNome ma nel DAO setti
-                                                             // setNome(rs.getString("nome"))? Verifica i getter/setter
-                                                             // del bean Gusto
-            // Assumendo che il bean abbia getNome() o getNomeGusto()
+            assertEquals("Vaniglia", result.getNomeGusto());
         }
     }
 
@@ -113,6 +108,7 @@ class GustoDAOTest {
     void doRetrieveAll_Success() throws SQLException {
         try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
             when(mockConnection.prepareStatement(anyString())).thenReturn(mockPreparedStatement);
             when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
 
@@ -240,6 +236,7 @@ class GustoDAOTest {
     void doRetrieveAll_SQLException() throws SQLException {
         try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
             when(mockConnection.prepareStatement(anyString())).thenThrow(new SQLException("DB Error"));
 
             assertThrows(RuntimeException.class, () -> gustoDAO.doRetrieveAll());
@@ -0,0 +1,82 @@
+package model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImmaginiProdottoTest {
+
+    @TempDir
+    Path webapp;
+
+    @BeforeEach
+    void setUp() {
+        ImmaginiProdotto.init(webapp);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ImmaginiProdotto.shutdown();
+    }
+
+    private static byte[] png(int larghezza, int altezza) throws IOException {
+        BufferedImage immagine = new BufferedImage(larghezza, altezza, BufferedImage.TYPE_INT_ARGB);
+        for (int x = 0; x < larghezza; x++) {
+            immagine.setRGB(x, x * altezza / larghezza, 0xFFFF4500);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(immagine, "png", out);
+        return out.toByteArray();
+    }
+
+    @Test
+    void salvaOriginale_SameContent_SameHashedName() throws IOException {
+        byte[] contenuto = png(50, 40);
+
+        String primo = ImmaginiProdotto.salvaOriginale(new ByteArrayInputStream(contenuto), "PNG");
+        String secondo = ImmaginiProdotto.salvaOriginale(new ByteArrayInputStream(contenuto), "png");
+
+        assertEquals(primo, secondo);
+        assertTrue(primo.matches("Immagini/[0-9a-f]{32}\\.png"));
+        assertArrayEquals(contenuto, Files.readAllBytes(webapp.resolve(primo)));
+        // nessun file temporaneo rimasto nella cartella
+        try (var files = Files.list(webapp.resolve("Immagini"))) {
+            assertEquals(1, files.count());
+        }
+        assertThrows(IllegalArgumentException.class, () -> ImmaginiProdotto.salvaOriginale(new ByteArrayInputStream(contenuto), "jsp"));
+    }
+
+    @Test
+    void generaDerivateAsync_WritesResizedJpegsUsedOnceReady() throws Exception {
+        String originale = ImmaginiProdotto.salvaOriginale(new ByteArrayInputStream(png(1200, 900)), "png");
+        // finché le derivate non esistono si usa l'originale
+        assertEquals(originale, ImmaginiProdotto.derivata(originale, ImmaginiProdotto.Formato.CARD));
+
+        ImmaginiProdotto.generaDerivateAsync(List.of(originale));
+        assertTrue(ImmaginiProdotto.attendiGenerazioni(30, TimeUnit.SECONDS));
+
+        String card = ImmaginiProdotto.derivata(originale, ImmaginiProdotto.Formato.CARD);
+        assertEquals(ImmaginiProdotto.percorsoDerivata(originale, ImmaginiProdotto.Formato.CARD), card);
+        assertTrue(card.endsWith("-card.jpg"));
+        BufferedImage letta = ImageIO.read(webapp.resolve(card).toFile());
+        assertEquals(400, letta.getWidth());
+        assertEquals(300, letta.getHeight());
+        // il dettaglio viene ridotto a 1000 px, la miniatura pesa meno dell'originale
+        BufferedImage dettaglio = ImageIO.read(webapp.resolve(ImmaginiProdotto.derivata(originale, ImmaginiProdotto.Formato.DETTAGLIO)).toFile());
+        assertEquals(1000, dettaglio.getWidth());
+        assertTrue(Files.size(webapp.resolve(ImmaginiProdotto.derivata(originale, ImmaginiProdotto.Formato.MINIATURA))) < Files.size(webapp.resolve(originale)));
+    }
+}
@@ -0,0 +1,147 @@
+package model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.MockedConstruction;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ImportatoreCatalogoTest {
+    private Connection mockConnection;
+    private MockedStatic<ConPool> mockedConPool;
+    private MockedConstruction<ImportCatalogoDAO> mockedDao;
+
+    @BeforeEach
+    void setUp() {
+        mockConnection = mock(Connection.class);
+        mockedConPool = Mockito.mockStatic(ConPool.class);
+        mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+
+        Map<String, Integer> gusti = new HashMap<>(Map.of("vaniglia", 1));
+        Map<Integer, Integer> confezioni = new HashMap<>(Map.of(1000, 4));
+        Set<String> prodotti = new HashSet<>(Set.of("P1"));
+        mockedDao = mockConstruction(ImportCatalogoDAO.class, (mock, ctx) -> {
+            when(mock.doRetrieveIdGusti(any())).thenReturn(gusti);
+            when(mock.doRetrieveIdConfezioni(any())).thenReturn(confezioni);
+            when(mock.doRetrieveIdProdotti(any())).thenReturn(prodotti);
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        mockedDao.close();
+        mockedConPool.close();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void importa_Varianti_ResolvesNamesAndReportsInvalidRows() throws Exception {
+        String csv = "idProdotto,gusto,peso,prezzo,quantita,sconto,evidenza\n"
+                + "P1, Vaniglia ,1000,29.90,10,5,1\n"
+                + "P9,Vaniglia,1000,29.90,10,5,0\n"
+                + "P1,Fragola,1000,29.90,10,5,0\n"
+                + "P1,Vaniglia,1000,-1,10,5,0\n";
+
+        try (ImportatoreCatalogo importatore = new ImportatoreCatalogo()) {
+            importatore.importa("variante", "variante.csv", new StringReader(csv));
+
+            ArgumentCaptor<List<Variante>> captor = ArgumentCaptor.forClass(List.class);
+            verify(mockedDao.constructed().get(0)).doUpsertVarianti(eq(mockConnection), captor.capture());
+            assertEquals(1, importatore.getImportate().get("variante"));
+            assertEquals(3, importatore.getErroriTotali());
+            assertEquals(3, importatore.getErrori().get(0).getRiga());
+            assertEquals("Gusto inesistente: Fragola", importatore.getErrori().get(1).getMessaggio());
+        }
+
+        verify(mockConnection).setAutoCommit(false);
+        verify(mockConnection, times(2)).commit();
+        verify(mockConnection).setAutoCommit(true);
+        verify(mockConnection).close();
+    }
+
+    @Test
+    void importa_ManyRows_SavesInBlocksWithOneCommitEach() throws Exception {
+        StringBuilder csv = new StringBuilder("nomeGusto\n");
+        for (int i = 0; i < ImportatoreCatalogo.DIMENSIONE_BLOCCO + 10; i++) {
+            csv.append("Gusto ").append(i).append('\n');
+        }
+        // gusti già presenti o ripetuti nel file non vengono reinseriti
+        csv.append("vaniglia\nGusto 3\n");
+
+        try (ImportatoreCatalogo importatore = new ImportatoreCatalogo()) {
+            importatore.importa("gusto", "gusto.csv", new StringReader(csv.toString()));
+
+            verify(mockedDao.constructed().get(0), times(2)).doSaveGusti(eq(mockConnection), anyList());
+            assertEquals(ImportatoreCatalogo.DIMENSIONE_BLOCCO + 10, importatore.getImportate().get("gusto"));
+            assertEquals(0, importatore.getErroriTotali());
+        }
+        verify(mockConnection, times(3)).commit();
+    }
+
+    @Test
+    void importa_FailedBlock_RolledBackAndReported() throws Exception {
+        try (ImportatoreCatalogo importatore = new ImportatoreCatalogo()) {
+            doThrow(new SQLException("Data too long")).when(mockedDao.constructed().get(0)).doUpsertProdotti(any(), anyList(), anySet());
+
+            importatore.importa("prodotto", "prodotto.csv", new StringReader(
+                    "idProdotto,nome,descrizione,categoria,immagine,calorie,carboidrati,proteine,grassi\n"
+                            + "P2,Whey,Proteine del siero,proteine,Immagini/whey.png,380,5,80,6\n"));
+
+            verify(mockConnection).rollback();
+            assertNull(importatore.getImportate().get("prodotto"));
+            assertEquals("Blocco non salvato: Data too long", importatore.getErrori().get(0).getMessaggio());
+        }
+    }
+
+    @Test
+    void importa_Prodotti_EmptyNullableColumnsAreImported() throws Exception {
+        try (ImportatoreCatalogo importatore = new ImportatoreCatalogo()) {
+            // il blocco viene svuotato dopo il salvataggio: si copia quello che arriva al DAO
+            List<Prodotto> salvati = new ArrayList<>();
+            Set<String> salvatiSenzaCalorie = new HashSet<>();
+            doAnswer(inv -> {
+                salvati.addAll(inv.getArgument(1));
+                salvatiSenzaCalorie.addAll(inv.getArgument(2));
+                return null;
+            }).when(mockedDao.constructed().get(0)).doUpsertProdotti(eq(mockConnection), anyList(), anySet());
+
+            importatore.importa("prodotto", "prodotto.csv", new StringReader(
+                    "idProdotto,nome,descrizione,categoria,immagine,calorie,carboidrati,proteine,grassi\n"
+                            + "P2,Whey,,proteine,Immagini/whey.png,,5,80,6\n"
+                            + "P3,Caseine,Proteine lente,proteine,Immagini/caseine.png,360,4,78,2\n"));
+
+            assertEquals(0, importatore.getErroriTotali());
+            assertEquals(2, importatore.getImportate().get("prodotto"));
+            assertNull(salvati.get(0).getDescrizione());
+            assertEquals(Set.of("P2"), salvatiSenzaCalorie);
+            assertEquals(360, salvati.get(1).getCalorie());
+        }
+    }
+
+    @Test
+    void importa_MissingColumn_ReportsHeaderError() throws Exception {
+        try (ImportatoreCatalogo importatore = new ImportatoreCatalogo()) {
+            importatore.importa("confezione", "confezione.csv", new StringReader("pesoConfezione\n500\n"));
+
+            assertEquals(1, importatore.getErrori().get(0).getRiga());
+            assertEquals("Colonna mancante: peso", importatore.getErrori().get(0).getMessaggio());
+            verify(mockedDao.constructed().get(0), never()).doSaveConfezioni(any(), anyList());
+        }
+    }
+}
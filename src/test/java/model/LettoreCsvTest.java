@@ -0,0 +1,40 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LettoreCsvTest {
+
+    @Test
+    void leggiRiga_QuotedFieldsAndLineEndings() throws IOException {
+        LettoreCsv lettore = new LettoreCsv(new StringReader("\uFEFFidProdotto,descrizione\r\nP1,\"Whey, \"\"isolate\"\"\nda 1kg\"\nP2,\n"));
+
+        assertEquals(List.of("idProdotto", "descrizione"), lettore.leggiRiga());
+        assertEquals(List.of("P1", "Whey, \"isolate\"\nda 1kg"), lettore.leggiRiga());
+        assertEquals(List.of("P2", ""), lettore.leggiRiga());
+        assertEquals(3, lettore.getNumeroRiga());
+        assertNull(lettore.leggiRiga());
+    }
+
+    @Test
+    void leggiRiga_LastRecordWithoutNewline() throws IOException {
+        LettoreCsv lettore = new LettoreCsv(new StringReader("a,b\n1,2"));
+
+        lettore.leggiRiga();
+        assertEquals(List.of("1", "2"), lettore.leggiRiga());
+        assertNull(lettore.leggiRiga());
+    }
+
+    @Test
+    void leggiRiga_UnclosedQuote_Throws() throws IOException {
+        LettoreCsv lettore = new LettoreCsv(new StringReader("a\n\"aperto"));
+
+        lettore.leggiRiga();
+        assertThrows(IOException.class, lettore::leggiRiga);
+    }
+}
@@ -73,6 +73,7 @@ class OrdineDAOTest {
         String email = "user@test.com";
         try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
             when(mockConnection.prepareStatement(contains("email_utente = ?"))).thenReturn(mockPreparedStatement);
             when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
 
@@ -87,6 +88,73 @@ class OrdineDAOTest {
         }
     }
 
+    @Test
+    void doRetrieveStoricoByEmail_GroupsRowsByOrder() throws SQLException {
+        String email = "user@test.com";
+        try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
+            mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
+            when(mockConnection.prepareStatement(anyString())).thenReturn(mockPreparedStatement);
+            when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
+
+            // Ordine 5 con due righe, ordine 4 senza righe (left join a null)
+            when(mockResultSet.next()).thenReturn(true, true, true, false);
+            when(mockResultSet.getInt("id_ordine")).thenReturn(5, 5, 4);
+            when(mockResultSet.getInt("id_variante")).thenReturn(11, 12, 0);
+            when(mockResultSet.getString("nome")).thenReturn("Whey", "Creatina");
+
+            List<Ordine> result = ordineDao.doRetrieveStoricoByEmail(email, null, 0, 11);
+
+            assertEquals(2, result.size());
+            assertEquals(5, result.get(0).getIdOrdine());
+            assertEquals(2, result.get(0).getDettagli().size());
+            assertEquals("Creatina", result.get(0).getDettagli().get(1).getNomeProdotto());
+            assertEquals(4, result.get(1).getIdOrdine());
+            assertTrue(result.get(1).getDettagli().isEmpty());
+
+            // Prima pagina: solo email e limite
+            verify(mockPreparedStatement).setString(1, email);
+            verify(mockPreparedStatement).setInt(2, 11);
+        }
+    }
+
+    @Test
+    void doRetrieveStoricoByEmail_WithCursor_BindsKeyset() throws SQLException {
+        String email = "user@test.com";
+        java.sql.Date cursorData = java.sql.Date.valueOf("2024-05-20");
+        try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
+            mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
+            when(mockConnection.prepareStatement(anyString())).thenReturn(mockPreparedStatement);
+            when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
+            when(mockResultSet.next()).thenReturn(false);
+
+            List<Ordine> result = ordineDao.doRetrieveStoricoByEmail(email, cursorData, 191, 11);
+
+            assertTrue(result.isEmpty());
+            ArgumentCaptor<String> sqlCaptor = ArgumentCaptor.forClass(String.class);
+            verify(mockConnection).prepareStatement(sqlCaptor.capture());
+            assertTrue(sqlCaptor.getValue().contains("(data < ? OR (data = ? AND id_ordine < ?))"));
+
+            verify(mockPreparedStatement).setString(1, email);
+            verify(mockPreparedStatement).setDate(2, cursorData);
+            verify(mockPreparedStatement).setDate(3, cursorData);
+            verify(mockPreparedStatement).setInt(4, 191);
+            verify(mockPreparedStatement).setInt(5, 11);
+        }
+    }
+
+    @Test
+    void doRetrieveStoricoByEmail_SQLException() throws SQLException {
+        try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
+            mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
+            when(mockConnection.prepareStatement(anyString())).thenThrow(new SQLException("DB Error"));
+
+            assertThrows(RuntimeException.class, () -> ordineDao.doRetrieveStoricoByEmail("a@b.c", null, 0, 11));
+        }
+    }
+
     @Test
     void doSave_FullObject_ConstructsCorrectQuery() throws SQLException {
         // Testiamo la generazione dinamica della query quando TUTTI i campi sono
@@ -182,6 +250,7 @@ class OrdineDAOTest {
     void doRetrieveAll_Success() throws SQLException {
         try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
             when(mockConnection.createStatement()).thenReturn(mockStatement);
             when(mockStatement.executeQuery(anyString())).thenReturn(mockResultSet);
 
@@ -210,26 +279,43 @@ class OrdineDAOTest {
             when(mockConnection.prepareStatement(anyString())).thenReturn(mockPreparedStatement);
             when(mockPreparedStatement.executeUpdate()).thenReturn(1);
 
+            when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
+
             ordineDao.doUpdateOrder(o, 1);
 
             verify(mockPreparedStatement).setString(2, "updated@test.com");
             // Verifica importante: conversione data
             verify(mockPreparedStatement).setDate(eq(4), any(java.sql.Date.class));
             verify(mockPreparedStatement).executeUpdate();
+            // stato e data cambiano i riepiloghi: l'ordine ne esce prima della UPDATE e ci rientra dopo
+            verify(mockConnection, times(2)).prepareStatement("SELECT id_ordine FROM ordine WHERE id_ordine IN (?) AND stato <> ? FOR UPDATE");
+            verify(mockConnection).commit();
         }
     }
 
     @Test
     void doDeleteOrder_Success() throws SQLException {
+        PreparedStatement mockSelect = mock(PreparedStatement.class);
+        PreparedStatement mockRiepilogo = mock(PreparedStatement.class);
         try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
             when(mockConnection.prepareStatement(anyString())).thenReturn(mockPreparedStatement);
+            when(mockConnection.prepareStatement(startsWith("SELECT id_ordine FROM ordine"))).thenReturn(mockSelect);
+            when(mockConnection.prepareStatement(startsWith("INSERT INTO vendite_"))).thenReturn(mockRiepilogo);
+            when(mockSelect.executeQuery()).thenReturn(mockResultSet);
+            when(mockResultSet.next()).thenReturn(true, false);
+            when(mockResultSet.getInt(1)).thenReturn(5);
             when(mockPreparedStatement.executeUpdate()).thenReturn(1);
 
             ordineDao.doDeleteOrder(5);
 
             verify(mockPreparedStatement).setInt(1, 5);
             verify(mockPreparedStatement).executeUpdate();
+            // prima della DELETE l'ordine esce dai riepiloghi delle vendite, nella stessa transazione
+            verify(mockRiepilogo, times(3)).executeUpdate();
+            verify(mockRiepilogo, atLeastOnce()).setInt(1, -1);
+            verify(mockConnection).commit();
+            verify(mockConnection).setAutoCommit(true);
         }
     }
 
@@ -249,6 +335,7 @@ class OrdineDAOTest {
     void doRetrieveByEmail_SQLException() throws SQLException {
         try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
             when(mockConnection.prepareStatement(anyString())).thenThrow(new SQLException("DB Error"));
 
             assertThrows(RuntimeException.class, () -> ordineDao.doRetrieveByEmail("email"));
@@ -307,6 +394,7 @@ class OrdineDAOTest {
     void doRetrieveAll_SQLException() throws SQLException {
         try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
             when(mockConnection.createStatement()).thenThrow(new SQLException("DB Error"));
 
             assertThrows(RuntimeException.class, () -> ordineDao.doRetrieveAll());
@@ -334,4 +422,218 @@ class OrdineDAOTest {
             assertThrows(RuntimeException.class, () -> ordineDao.doDeleteOrder(1));
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void doSaveOrdine_SavesOrderAndLinesInOneTransaction() throws SQLException {
+        Ordine ordine = new Ordine();
+        ordine.setEmailUtente("test@test.com");
+        ordine.setTotale(52.5f);
+
+        DettaglioOrdine d1 = new DettaglioOrdine();
+        d1.setIdProdotto("P1");
+        d1.setQuantita(2);
+        d1.setPrezzo(40.0f);
+        DettaglioOrdine d2 = new DettaglioOrdine();
+        d2.setIdProdotto("P2");
+        d2.setQuantita(1);
+        d2.setPrezzo(12.5f);
+
+        PreparedStatement mockLinesStatement = mock(PreparedStatement.class);
+        ResultSet mockKeys = mock(ResultSet.class);
+
+        try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
+            mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            when(mockConnection.prepareStatement(anyString(), eq(Statement.RETURN_GENERATED_KEYS))).thenReturn(mockPreparedStatement);
+            when(mockConnection.prepareStatement(startsWith("INSERT INTO dettaglio_ordine"))).thenReturn(mockLinesStatement);
+            when(mockConnection.prepareStatement(startsWith("UPDATE variante"))).thenReturn(mock(PreparedStatement.class));
+            when(mockPreparedStatement.executeUpdate()).thenReturn(1);
+            when(mockPreparedStatement.getGeneratedKeys()).thenReturn(mockKeys);
+            when(mockKeys.next()).thenReturn(true);
+            when(mockKeys.getInt(1)).thenReturn(77);
+            when(mockLinesStatement.executeUpdate()).thenReturn(2);
+            PreparedStatement mockRiepilogo = mock(PreparedStatement.class);
+            when(mockConnection.prepareStatement(startsWith("INSERT INTO vendite_"))).thenReturn(mockRiepilogo);
+
+            int id = ordineDao.doSaveOrdine(ordine, List.of(d1, d2));
+
+            assertEquals(77, id);
+            assertEquals(77, ordine.getIdOrdine());
+            // Le righe ricevono l'id generato e sono inserite con un'unica istruzione
+            assertEquals(77, d1.getIdOrdine());
+            assertEquals(77, d2.getIdOrdine());
+            verify(mockLinesStatement, times(1)).executeUpdate();
+            verify(mockLinesStatement).setFloat(5, 40.0f);
+            verify(mockLinesStatement).setFloat(10, 12.5f);
+            // le giacenze scalano con un'unica UPDATE, senza trigger per riga
+            verify(mockConnection).prepareStatement(startsWith("UPDATE variante SET `quantità` = `quantità` - CASE"));
+            // i riepiloghi delle vendite sono aggiornati nella stessa transazione
+            verify(mockConnection).prepareStatement(startsWith("INSERT INTO vendite_giorno"));
+            verify(mockRiepilogo, times(3)).executeUpdate();
+
+            verify(mockConnection).setAutoCommit(false);
+            verify(mockConnection).commit();
+            verify(mockConnection, never()).rollback();
+            verify(mockConnection).setAutoCommit(true);
+        }
+    }
+
+    @Test
+    void doSaveOrdine_LinesFail_RollsBack() throws SQLException {
+        Ordine ordine = new Ordine();
+        ordine.setEmailUtente("test@test.com");
+        DettaglioOrdine d1 = new DettaglioOrdine();
+        d1.setIdProdotto("P1");
+        d1.setQuantita(1);
+
+        ResultSet mockKeys = mock(ResultSet.class);
+
+        try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
+            mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            when(mockConnection.prepareStatement(anyString(), eq(Statement.RETURN_GENERATED_KEYS))).thenReturn(mockPreparedStatement);
+            when(mockConnection.prepareStatement(startsWith("INSERT INTO dettaglio_ordine"))).thenThrow(new SQLException("DB Error"));
+            when(mockPreparedStatement.executeUpdate()).thenReturn(1);
+            when(mockPreparedStatement.getGeneratedKeys()).thenReturn(mockKeys);
+            when(mockKeys.next()).thenReturn(true);
+            when(mockKeys.getInt(1)).thenReturn(78);
+
+            assertThrows(RuntimeException.class, () -> ordineDao.doSaveOrdine(ordine, List.of(d1)));
+
+            verify(mockConnection).rollback();
+            verify(mockConnection, never()).commit();
+            verify(mockConnection).setAutoCommit(true);
+        }
+    }
+
+    @Test
+    void doSaveOrdine_DuplicateToken_ReturnsExistingId() throws SQLException {
+        Ordine ordine = new Ordine();
+        ordine.setEmailUtente("test@test.com");
+        ordine.setToken("token-1");
+        DettaglioOrdine d1 = new DettaglioOrdine();
+        d1.setIdProdotto("P1");
+        d1.setQuantita(1);
+
+        PreparedStatement mockTokenStatement = mock(PreparedStatement.class);
+
+        try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
+            mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            ArgumentCaptor<String> sqlCaptor = ArgumentCaptor.forClass(String.class);
+            when(mockConnection.prepareStatement(sqlCaptor.capture(), eq(Statement.RETURN_GENERATED_KEYS))).thenReturn(mockPreparedStatement);
+            when(mockConnection.prepareStatement(contains("WHERE token = ?"))).thenReturn(mockTokenStatement);
+            // L'ordine con questo token è già stato salvato (es. record del journal rielaborato)
+            when(mockPreparedStatement.executeUpdate()).thenThrow(new SQLIntegrityConstraintViolationException("Duplicate entry", "23000", 1062));
+            when(mockTokenStatement.executeQuery()).thenReturn(mockResultSet);
+            when(mockResultSet.next()).thenReturn(true);
+            when(mockResultSet.getInt(1)).thenReturn(42);
+
+            int id = ordineDao.doSaveOrdine(ordine, List.of(d1));
+
+            assertEquals(42, id);
+            assertTrue(sqlCaptor.getValue().contains("token"));
+            verify(mockTokenStatement).setString(1, "token-1");
+            verify(mockConnection).rollback();
+            verify(mockConnection, never()).commit();
+        }
+    }
+
+    @Test
+    void doUpdateStatoByIds_UpdatesOnlyAllowedRowsInOneStatement() throws SQLException {
+        PreparedStatement mockSelect = mock(PreparedStatement.class);
+        PreparedStatement mockUpdate = mock(PreparedStatement.class);
+        try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
+            mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            when(mockConnection.prepareStatement(startsWith("SELECT"))).thenReturn(mockSelect);
+            when(mockConnection.prepareStatement(startsWith("UPDATE"))).thenReturn(mockUpdate);
+            when(mockSelect.executeQuery()).thenReturn(mockResultSet);
+
+            // dei tre ordini selezionati solo 1 e 3 sono "in esecuzione"
+            when(mockResultSet.next()).thenReturn(true, true, false);
+            when(mockResultSet.getInt("id_ordine")).thenReturn(1, 3);
+            when(mockResultSet.getString("stato")).thenReturn("in esecuzione");
+            when(mockUpdate.executeUpdate()).thenReturn(2);
+
+            List<Ordine> aggiornati = ordineDao.doUpdateStatoByIds(List.of(1, 2, 3), StatoOrdine.SPEDITO);
+
+            assertEquals(2, aggiornati.size());
+            assertEquals(3, aggiornati.get(1).getIdOrdine());
+            assertEquals("spedito", aggiornati.get(0).getStato());
+
+            ArgumentCaptor<String> sqlCaptor = ArgumentCaptor.forClass(String.class);
+            verify(mockConnection, times(2)).prepareStatement(sqlCaptor.capture());
+            assertTrue(sqlCaptor.getAllValues().get(0).contains("id_ordine IN (?, ?, ?) AND stato IN (?)"));
+            assertTrue(sqlCaptor.getAllValues().get(0).endsWith("FOR UPDATE"));
+            assertEquals("UPDATE ordine SET stato = ? WHERE id_ordine IN (?, ?)", sqlCaptor.getAllValues().get(1));
+
+            verify(mockSelect).setString(4, "in esecuzione");
+            verify(mockUpdate).setString(1, "spedito");
+            verify(mockUpdate).setInt(2, 1);
+            verify(mockUpdate).setInt(3, 3);
+            verify(mockConnection).commit();
+        }
+    }
+
+    @Test
+    void doUpdateStatoByIds_Annullato_RemovesOrdersFromSalesRollups() throws SQLException {
+        PreparedStatement mockSelect = mock(PreparedStatement.class);
+        PreparedStatement mockUpdate = mock(PreparedStatement.class);
+        PreparedStatement mockRiepilogo = mock(PreparedStatement.class);
+        try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
+            mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            when(mockConnection.prepareStatement(startsWith("SELECT"))).thenReturn(mockSelect);
+            when(mockConnection.prepareStatement(startsWith("UPDATE"))).thenReturn(mockUpdate);
+            when(mockConnection.prepareStatement(startsWith("INSERT INTO vendite_"))).thenReturn(mockRiepilogo);
+            when(mockSelect.executeQuery()).thenReturn(mockResultSet);
+            when(mockResultSet.next()).thenReturn(true, false);
+            when(mockResultSet.getInt("id_ordine")).thenReturn(8);
+            when(mockUpdate.executeUpdate()).thenReturn(1);
+
+            ordineDao.doUpdateStatoByIds(List.of(8), StatoOrdine.ANNULLATO);
+
+            // le vendite dell'ordine vengono sottratte dai tre riepiloghi prima del commit
+            verify(mockRiepilogo, times(3)).executeUpdate();
+            verify(mockRiepilogo, atLeastOnce()).setInt(1, -1);
+            verify(mockRiepilogo).setInt(4, 8);
+            verify(mockConnection).commit();
+        }
+    }
+
+    @Test
+    void doUpdateStatoByData_NoMatchingOrders_SkipsUpdate() throws SQLException {
+        try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
+            mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            when(mockConnection.prepareStatement(anyString())).thenReturn(mockPreparedStatement);
+            when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
+            when(mockResultSet.next()).thenReturn(false);
+
+            java.sql.Date dataFino = java.sql.Date.valueOf("2024-07-18");
+            List<Ordine> aggiornati = ordineDao.doUpdateStatoByData(dataFino, StatoOrdine.CONSEGNATO);
+
+            assertTrue(aggiornati.isEmpty());
+            verify(mockConnection).prepareStatement(contains("data <= ? AND stato IN (?)"));
+            verify(mockPreparedStatement).setObject(1, dataFino);
+            verify(mockPreparedStatement).setString(2, "spedito");
+            verify(mockPreparedStatement, never()).executeUpdate();
+            verify(mockConnection).commit();
+        }
+    }
+
+    @Test
+    void doUpdateStatoByIds_UpdateMismatch_RollsBack() throws SQLException {
+        try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
+            mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            when(mockConnection.prepareStatement(anyString())).thenReturn(mockPreparedStatement);
+            when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
+            when(mockResultSet.next()).thenReturn(true, false);
+            when(mockPreparedStatement.executeUpdate()).thenReturn(0);
+
+            assertThrows(RuntimeException.class, () -> ordineDao.doUpdateStatoByIds(List.of(5), StatoOrdine.ANNULLATO));
+            verify(mockConnection).rollback();
+            verify(mockConnection, never()).commit();
+        }
+    }
+
+    @Test
+    void doUpdateStatoByIds_InvalidState_Throws() {
+        assertThrows(IllegalArgumentException.class, () -> ordineDao.doUpdateStatoByIds(List.of(1), "in esecuzione"));
+    }
+}
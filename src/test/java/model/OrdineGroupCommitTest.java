@@ -0,0 +1,137 @@
+package model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OrdineGroupCommitTest {
+
+    private Connection mockConnection;
+    private PreparedStatement mockLinesStatement;
+    private PreparedStatement mockRiepilogo;
+    private ExecutorService executor;
+    private OrdineGroupCommit groupCommit;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        mockConnection = mock(Connection.class);
+        mockLinesStatement = mock(PreparedStatement.class);
+        executor = Executors.newFixedThreadPool(4);
+
+        // Ogni INSERT su ordine restituisce un nuovo id generato
+        AtomicInteger ids = new AtomicInteger(100);
+        when(mockConnection.prepareStatement(anyString(), eq(Statement.RETURN_GENERATED_KEYS))).thenAnswer(invocation -> {
+            PreparedStatement ps = mock(PreparedStatement.class);
+            ResultSet keys = mock(ResultSet.class);
+            int id = ids.incrementAndGet();
+            when(ps.executeUpdate()).thenReturn(1);
+            when(ps.getGeneratedKeys()).thenReturn(keys);
+            when(keys.next()).thenReturn(true);
+            when(keys.getInt(1)).thenReturn(id);
+            return ps;
+        });
+        when(mockConnection.prepareStatement(startsWith("INSERT INTO dettaglio_ordine"))).thenReturn(mockLinesStatement);
+        when(mockConnection.prepareStatement(startsWith("UPDATE variante"))).thenReturn(mock(PreparedStatement.class));
+        when(mockConnection.setSavepoint()).thenReturn(mock(Savepoint.class));
+        mockRiepilogo = mock(PreparedStatement.class);
+        when(mockConnection.prepareStatement(startsWith("INSERT INTO vendite_"))).thenReturn(mockRiepilogo);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        if (groupCommit != null) {
+            groupCommit.stop();
+        }
+    }
+
+    private List<Future<Integer>> salvaInParallelo(int ordini) {
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < ordini; i++) {
+            Ordine ordine = new Ordine();
+            ordine.setEmailUtente("user" + i + "@test.com");
+            DettaglioOrdine dettaglio = new DettaglioOrdine();
+            dettaglio.setIdProdotto("P" + i);
+            dettaglio.setQuantita(1);
+            futures.add(executor.submit(() -> groupCommit.salva(ordine, List.of(dettaglio))));
+        }
+        return futures;
+    }
+
+    @Test
+    void salva_ConcurrentOrders_CommittedTogether() throws Exception {
+        when(mockLinesStatement.executeUpdate()).thenReturn(1);
+        // finestra ampia: il gruppo si chiude quando arriva al massimo di 4 ordini
+        groupCommit = new OrdineGroupCommit(() -> mockConnection, 5000, 4);
+
+        Set<Integer> ids = new HashSet<>();
+        for (Future<Integer> future : salvaInParallelo(4)) {
+            ids.add(future.get());
+        }
+
+        // ogni chiamante riceve il proprio id, con un solo commit per tutto il gruppo
+        assertEquals(Set.of(101, 102, 103, 104), ids);
+        verify(mockConnection, times(1)).commit();
+        // un solo aggiornamento dei riepiloghi delle vendite per tutto il gruppo
+        verify(mockConnection, times(1)).prepareStatement(startsWith("INSERT INTO vendite_giorno"));
+        verify(mockRiepilogo).setInt(4, 101);
+        verify(mockRiepilogo, atLeastOnce()).setInt(7, 104);
+        verify(mockConnection, never()).rollback();
+        verify(mockConnection).setAutoCommit(true);
+    }
+
+    @Test
+    void salva_OneOrderFails_OthersCommitted() throws Exception {
+        // le righe del secondo ordine elaborato violano un vincolo
+        when(mockLinesStatement.executeUpdate())
+                .thenReturn(1)
+                .thenThrow(new SQLIntegrityConstraintViolationException("Cannot add or update a child row", "23000"))
+                .thenReturn(1);
+        groupCommit = new OrdineGroupCommit(() -> mockConnection, 5000, 4);
+
+        int riusciti = 0;
+        int falliti = 0;
+        for (Future<Integer> future : salvaInParallelo(4)) {
+            try {
+                future.get();
+                riusciti++;
+            } catch (java.util.concurrent.ExecutionException e) {
+                assertInstanceOf(RuntimeException.class, e.getCause());
+                falliti++;
+            }
+        }
+
+        assertEquals(3, riusciti);
+        assertEquals(1, falliti);
+        // annullato solo l'ordine fallito, il gruppo viene comunque confermato
+        verify(mockConnection, times(1)).rollback(any(Savepoint.class));
+        verify(mockConnection, times(1)).commit();
+    }
+
+    @Test
+    void salva_CommitFails_AllCallersFail() throws Exception {
+        when(mockLinesStatement.executeUpdate()).thenReturn(1);
+        doThrow(new SQLException("Lock wait timeout exceeded")).when(mockConnection).commit();
+        groupCommit = new OrdineGroupCommit(() -> mockConnection, 5000, 2);
+
+        for (Future<Integer> future : salvaInParallelo(2)) {
+            java.util.concurrent.ExecutionException e = assertThrows(java.util.concurrent.ExecutionException.class, future::get);
+            assertInstanceOf(RuntimeException.class, e.getCause());
+        }
+        verify(mockConnection).rollback();
+    }
+}
@@ -0,0 +1,259 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.MockedConstruction;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OrdineJournalTest {
+
+    @TempDir
+    Path dir;
+
+    private static Ordine creaOrdine(String token) {
+        Ordine ordine = new Ordine();
+        ordine.setToken(token);
+        ordine.setEmailUtente("user@test.com");
+        ordine.setDataOrdine(java.sql.Date.valueOf("2024-07-18"));
+        ordine.setTotale(52.5f);
+        return ordine;
+    }
+
+    private static List<DettaglioOrdine> creaDettagli() {
+        DettaglioOrdine d1 = new DettaglioOrdine();
+        d1.setIdProdotto("P1");
+        d1.setIdVariante(3);
+        d1.setQuantita(2);
+        d1.setPrezzo(40.0f);
+        DettaglioOrdine d2 = new DettaglioOrdine();
+        d2.setIdProdotto("P2");
+        d2.setIdVariante(7);
+        d2.setQuantita(1);
+        d2.setPrezzo(12.5f);
+        return List.of(d1, d2);
+    }
+
+    private static List<OrdineJournal.Record> leggiTutti(OrdineJournal journal, long da) {
+        List<OrdineJournal.Record> records = new ArrayList<>();
+        for (OrdineJournal.Record r = journal.leggi(da); r != null; r = journal.leggi(r.getFine())) {
+            records.add(r);
+        }
+        return records;
+    }
+
+    @Test
+    void append_ThenRead_RoundTripsOrder() throws IOException {
+        try (OrdineJournal journal = new OrdineJournal(dir, 4096)) {
+            long posizione = journal.append(creaOrdine("t-1"), creaDettagli());
+
+            OrdineJournal.Record record = journal.leggi(0);
+            assertNotNull(record);
+            assertEquals(posizione, record.getInizio());
+            assertNull(journal.leggi(record.getFine()));
+
+            Ordine ordine = OrdineJournal.fromJson(record.getJson());
+            assertEquals("t-1", ordine.getToken());
+            assertEquals("user@test.com", ordine.getEmailUtente());
+            assertEquals(java.sql.Date.valueOf("2024-07-18"), ordine.getDataOrdine());
+            assertEquals(52.5f, ordine.getTotale());
+            assertEquals(2, ordine.getDettagli().size());
+            assertEquals("P2", ordine.getDettagli().get(1).getIdProdotto());
+            assertEquals(7, ordine.getDettagli().get(1).getIdVariante());
+            assertEquals(12.5f, ordine.getDettagli().get(1).getPrezzo());
+        }
+    }
+
+    @Test
+    void reopen_ReplaysRecordsAfterCheckpoint() throws IOException {
+        long dopoPrimo;
+        try (OrdineJournal journal = new OrdineJournal(dir, 4096)) {
+            journal.append(creaOrdine("t-1"), creaDettagli());
+            journal.append(creaOrdine("t-2"), creaDettagli());
+            dopoPrimo = journal.leggi(0).getFine();
+            journal.checkpoint(dopoPrimo);
+        }
+
+        try (OrdineJournal journal = new OrdineJournal(dir, 4096)) {
+            assertEquals(dopoPrimo, journal.getCheckpoint());
+            List<OrdineJournal.Record> daRielaborare = leggiTutti(journal, journal.getCheckpoint());
+            assertEquals(1, daRielaborare.size());
+            assertEquals("t-2", OrdineJournal.fromJson(daRielaborare.get(0).getJson()).getToken());
+
+            // le nuove scritture proseguono dopo l'ultimo record
+            journal.append(creaOrdine("t-3"), creaDettagli());
+            assertEquals(2, leggiTutti(journal, journal.getCheckpoint()).size());
+        }
+    }
+
+    @Test
+    void reopen_DiscardsTornRecord() throws IOException {
+        long inizioSecondo;
+        try (OrdineJournal journal = new OrdineJournal(dir, 4096)) {
+            journal.append(creaOrdine("t-1"), creaDettagli());
+            inizioSecondo = journal.append(creaOrdine("t-2"), creaDettagli());
+        }
+
+        // simuliamo un crash a metà scrittura: il payload del secondo record non corrisponde al crc
+        try (RandomAccessFile file = new RandomAccessFile(dir.resolve("ordini-000000.journal").toFile(), "rw")) {
+            file.seek(inizioSecondo + 12);
+            file.write("xxxx".getBytes(StandardCharsets.UTF_8));
+        }
+
+        try (OrdineJournal journal = new OrdineJournal(dir, 4096)) {
+            List<OrdineJournal.Record> records = leggiTutti(journal, 0);
+            assertEquals(1, records.size());
+            assertEquals("t-1", OrdineJournal.fromJson(records.get(0).getJson()).getToken());
+
+            // il record incompleto viene sovrascritto dal successivo
+            assertEquals(inizioSecondo, journal.append(creaOrdine("t-3"), creaDettagli()));
+            assertEquals(2, leggiTutti(journal, 0).size());
+        }
+    }
+
+    @Test
+    void append_RollsSegments_AndCheckpointDeletesDrainedOnes() throws IOException {
+        try (OrdineJournal journal = new OrdineJournal(dir, 512)) {
+            for (int i = 0; i < 10; i++) {
+                journal.append(creaOrdine("t-" + i), creaDettagli());
+            }
+
+            List<OrdineJournal.Record> records = leggiTutti(journal, 0);
+            assertEquals(10, records.size());
+            assertTrue(Files.exists(dir.resolve("ordini-000001.journal")));
+
+            journal.checkpoint(records.get(9).getInizio());
+            assertFalse(Files.exists(dir.resolve("ordini-000000.journal")));
+            assertEquals("t-9", OrdineJournal.fromJson(journal.leggi(journal.getCheckpoint()).getJson()).getToken());
+        }
+    }
+
+    @Test
+    void append_TooLargeForSegment_Throws() throws IOException {
+        try (OrdineJournal journal = new OrdineJournal(dir, 64)) {
+            assertThrows(IOException.class, () -> journal.append(creaOrdine("t-1"), creaDettagli()));
+        }
+    }
+
+    @Test
+    void append_Concurrent_AllRecordsDurable() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try (OrdineJournal journal = new OrdineJournal(dir, 8192)) {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                String token = "t-" + i;
+                futures.add(executor.submit(() -> journal.append(creaOrdine(token), creaDettagli())));
+            }
+            for (Future<Long> future : futures) {
+                future.get();
+            }
+
+            assertEquals(200, leggiTutti(journal, 0).size());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        try (OrdineJournal journal = new OrdineJournal(dir, 8192)) {
+            assertEquals(200, leggiTutti(journal, 0).size());
+        }
+    }
+
+    @Test
+    void drainer_SavesOrderAndAdvances() throws Exception {
+        try (OrdineJournal journal = new OrdineJournal(dir, 4096);
+             MockedConstruction<OrdineDao> mockedOrd = mockConstruction(OrdineDao.class);
+             MockedConstruction<CarrelloDAO> mockedCart = mockConstruction(CarrelloDAO.class)) {
+            journal.append(creaOrdine("t-1"), creaDettagli());
+            OrdineJournalDrainer drainer = new OrdineJournalDrainer(journal);
+
+            assertTrue(drainer.elaboraProssimo());
+
+            verify(mockedOrd.constructed().get(0)).doSaveOrdine(argThat(o -> "t-1".equals(o.getToken())), argThat(l -> l.size() == 2));
+            verify(mockedCart.constructed().get(0)).doRemoveRigheOrdinate(eq("user@test.com"), argThat(l -> l.size() == 2));
+            verify(mockedCart.constructed().get(0), never()).doRemoveCartByUser(any());
+            assertEquals(journal.leggi(0).getFine(), drainer.getPosizione());
+
+            // nessun altro record: il checkpoint viene aggiornato
+            assertTrue(drainer.elaboraProssimo());
+            assertEquals(drainer.getPosizione(), journal.getCheckpoint());
+        }
+    }
+
+    @Test
+    void drainer_CarrelloGiaSvuotatoAlCheckout_NonLoTocca() throws Exception {
+        try (OrdineJournal journal = new OrdineJournal(dir, 4096);
+             MockedConstruction<OrdineDao> mockedOrd = mockConstruction(OrdineDao.class);
+             MockedConstruction<CarrelloDAO> mockedCart = mockConstruction(CarrelloDAO.class)) {
+            journal.append(creaOrdine("t-1"), creaDettagli(), true);
+            OrdineJournalDrainer drainer = new OrdineJournalDrainer(journal);
+
+            assertTrue(drainer.elaboraProssimo());
+
+            verify(mockedOrd.constructed().get(0)).doSaveOrdine(any(), anyList());
+            assertEquals(0, mockedCart.constructed().size());
+        }
+    }
+
+    @Test
+    void drainer_DatabaseDown_RetriesSameRecord() throws Exception {
+        try (OrdineJournal journal = new OrdineJournal(dir, 4096);
+             MockedConstruction<OrdineDao> mockedOrd = mockConstruction(OrdineDao.class, (mock, ctx) ->
+                     when(mock.doSaveOrdine(any(), anyList())).thenThrow(new RuntimeException(new SQLException("Communications link failure", "08S01"))))) {
+            journal.append(creaOrdine("t-1"), creaDettagli());
+            OrdineJournalDrainer drainer = new OrdineJournalDrainer(journal);
+
+            assertFalse(drainer.elaboraProssimo());
+            assertEquals(0, drainer.getPosizione());
+            assertFalse(Files.exists(dir.resolve("scartati.jsonl")));
+        }
+    }
+
+    @Test
+    void drainer_RejectedOrder_IsSetAside() throws Exception {
+        try (OrdineJournal journal = new OrdineJournal(dir, 4096);
+             MockedConstruction<OrdineDao> mockedOrd = mockConstruction(OrdineDao.class, (mock, ctx) ->
+                     when(mock.doSaveOrdine(any(), anyList())).thenThrow(new RuntimeException(new SQLException("Cannot add or update a child row", "23000"))))) {
+            journal.append(creaOrdine("t-1"), creaDettagli());
+            OrdineJournalDrainer drainer = new OrdineJournalDrainer(journal);
+
+            assertTrue(drainer.elaboraProssimo());
+            assertEquals(journal.leggi(0).getFine(), drainer.getPosizione());
+            assertTrue(Files.readString(dir.resolve("scartati.jsonl")).contains("t-1"));
+        }
+    }
+
+    @Test
+    void drainer_VincoloCheckViolato_IsSetAsideAndCounted() throws Exception {
+        // quantità >= 0 violato da scalaGiacenze: MySQL risponde 3819 con SQLState HY000
+        try (OrdineJournal journal = new OrdineJournal(dir, 4096);
+             MockedConstruction<OrdineDao> mockedOrd = mockConstruction(OrdineDao.class, (mock, ctx) ->
+                     when(mock.doSaveOrdine(any(), anyList())).thenThrow(new RuntimeException(
+                             new SQLException("Check constraint 'variante_chk_1' is violated.", "HY000", 3819))))) {
+            journal.append(creaOrdine("t-1"), creaDettagli());
+            journal.append(creaOrdine("t-2"), creaDettagli());
+            OrdineJournalDrainer drainer = new OrdineJournalDrainer(journal);
+            long prima = Metriche.valore(OrdineJournalDrainer.SCARTATI);
+
+            assertTrue(drainer.elaboraProssimo());
+
+            // il record non blocca il successivo
+            assertEquals(journal.leggi(0).getFine(), drainer.getPosizione());
+            assertTrue(Files.readString(dir.resolve("scartati.jsonl")).contains("t-1"));
+            assertEquals(prima + 1, Metriche.valore(OrdineJournalDrainer.SCARTATI));
+        }
+    }
+}
@@ -30,6 +30,8 @@ class ProdottoDAOTest {
         mockPreparedStatement = mock(PreparedStatement.class);
         mockStatement = mock(Statement.class);
         mockResultSet = mock(ResultSet.class);
+        //le varianti prendono gusti e confezioni da DimensioniCatalogo: qui non servono
+        DimensioniCatalogo.carica(List.of(), List.of());
     }
 
     @Test
@@ -109,6 +111,8 @@ class ProdottoDAOTest {
                         })) {
 
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
             when(mockConnection.prepareStatement(anyString())).thenReturn(mockPreparedStatement);
             when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
 
@@ -152,6 +156,8 @@ class ProdottoDAOTest {
                         })) {
 
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
             when(mockConnection.prepareStatement(contains("WHERE categoria = ?"))).thenReturn(mockPreparedStatement); // Nota
                                                                                                                       // il
                                                                                                                       // contains
@@ -225,6 +231,8 @@ class ProdottoDAOTest {
                         })) {
 
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
             when(mockConnection.createStatement()).thenReturn(mockStatement);
             when(mockStatement.executeQuery(anyString())).thenReturn(mockResultSet);
 
@@ -275,6 +283,8 @@ class ProdottoDAOTest {
                         })) {
 
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
             ArgumentCaptor<String> sqlCaptor = ArgumentCaptor.forClass(String.class);
             when(mockConnection.prepareStatement(sqlCaptor.capture())).thenReturn(mockPreparedStatement);
             when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
@@ -331,6 +341,8 @@ class ProdottoDAOTest {
                         })) {
 
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
             when(mockConnection.prepareStatement(anyString())).thenReturn(mockPreparedStatement);
             when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
 
@@ -355,6 +367,8 @@ class ProdottoDAOTest {
                                 .thenReturn(new Variante()))) {
 
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
             when(mockConnection.prepareStatement(anyString())).thenReturn(mockPreparedStatement);
             when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
 
@@ -382,6 +396,8 @@ class ProdottoDAOTest {
                         })) {
 
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
             when(mockConnection.prepareStatement(anyString())).thenReturn(mockPreparedStatement);
             when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
 
@@ -398,6 +414,7 @@ class ProdottoDAOTest {
     void filterProducts_SQLException() throws SQLException {
         try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
             when(mockConnection.prepareStatement(anyString())).thenThrow(new SQLException("DB Error"));
 
             assertThrows(RuntimeException.class, () -> prodottoDAO.filterProducts(null, null, null, null, null));
@@ -445,6 +462,7 @@ class ProdottoDAOTest {
     void doRetrieveByCriteria_SQLException() throws SQLException {
         try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
             when(mockConnection.prepareStatement(anyString())).thenThrow(new SQLException("DB Error"));
 
             assertThrows(RuntimeException.class, () -> prodottoDAO.doRetrieveByCriteria("cat", "val"));
@@ -455,6 +473,7 @@ class ProdottoDAOTest {
     void doRetrieveAll_SQLException() throws SQLException {
         try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
             when(mockConnection.createStatement()).thenThrow(new SQLException("DB Error"));
 
             assertThrows(RuntimeException.class, () -> prodottoDAO.doRetrieveAll());
@@ -491,6 +510,8 @@ class ProdottoDAOTest {
                                 .thenReturn(new Variante()))) {
 
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
             ArgumentCaptor<String> sqlCaptor = ArgumentCaptor.forClass(String.class);
             when(mockConnection.prepareStatement(sqlCaptor.capture())).thenReturn(mockPreparedStatement);
             when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
@@ -514,6 +535,8 @@ class ProdottoDAOTest {
                                 .thenReturn(new Variante()))) {
 
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
             ArgumentCaptor<String> sqlCaptor = ArgumentCaptor.forClass(String.class);
             when(mockConnection.prepareStatement(sqlCaptor.capture())).thenReturn(mockPreparedStatement);
             when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
@@ -537,6 +560,8 @@ class ProdottoDAOTest {
                                 .thenReturn(new Variante()))) {
 
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
             ArgumentCaptor<String> sqlCaptor = ArgumentCaptor.forClass(String.class);
             when(mockConnection.prepareStatement(sqlCaptor.capture())).thenReturn(mockPreparedStatement);
             when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
@@ -569,6 +594,8 @@ class ProdottoDAOTest {
                         })) {
 
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
             when(mockConnection.prepareStatement(anyString())).thenReturn(mockPreparedStatement);
             when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
 
@@ -593,6 +620,8 @@ class ProdottoDAOTest {
                                 .thenReturn(new Variante()))) {
 
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
             when(mockConnection.prepareStatement(anyString())).thenReturn(mockPreparedStatement);
             when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
 
@@ -616,6 +645,8 @@ class ProdottoDAOTest {
                                 .thenThrow(new SQLException("Variant DB Error")))) {
 
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
             when(mockConnection.prepareStatement(anyString())).thenReturn(mockPreparedStatement);
             when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
 
@@ -0,0 +1,147 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RicostruzioneVenditeTest {
+
+    @Test
+    void ricostruisci_ScansHistoryInBlocksWithOneCommitEach() throws SQLException {
+        Connection mockConnection = mock(Connection.class);
+        PreparedStatement mockMax = mock(PreparedStatement.class);
+        PreparedStatement mockBlocco = mock(PreparedStatement.class);
+        ResultSet mockMaxResultSet = mock(ResultSet.class);
+        ResultSet mockBloccoResultSet = mock(ResultSet.class);
+
+        try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
+            mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            when(mockConnection.prepareStatement(anyString())).thenReturn(mock(PreparedStatement.class));
+            when(mockConnection.prepareStatement(startsWith("SELECT COALESCE(MAX(id_ordine)"))).thenReturn(mockMax);
+            when(mockConnection.prepareStatement(startsWith("SELECT id_ordine FROM ordine"))).thenReturn(mockBlocco);
+            when(mockMax.executeQuery()).thenReturn(mockMaxResultSet);
+            when(mockMaxResultSet.next()).thenReturn(true);
+            when(mockMaxResultSet.getInt(1)).thenReturn(2500);
+
+            // due blocchi pieni (ultimo id 1000 e 2000), poi uno con il solo ultimo ordine
+            when(mockBlocco.executeQuery()).thenReturn(mockBloccoResultSet);
+            int blocco = RicostruzioneVendite.DIMENSIONE_BLOCCO;
+            java.util.List<Boolean> righe = new java.util.ArrayList<>();
+            java.util.List<Integer> ids = new java.util.ArrayList<>();
+            for (int i = 1; i <= blocco * 2; i++) {
+                righe.add(true);
+                ids.add(i);
+                if (i % blocco == 0) {
+                    righe.add(false);
+                }
+            }
+            righe.add(true);
+            righe.add(false);
+            ids.add(2500);
+            when(mockBloccoResultSet.next()).thenReturn(righe.get(0), righe.subList(1, righe.size()).toArray(new Boolean[0]));
+            when(mockBloccoResultSet.getInt(1)).thenReturn(ids.get(0), ids.subList(1, ids.size()).toArray(new Integer[0]));
+
+            int conteggiati = RicostruzioneVendite.ricostruisci();
+
+            assertEquals(RicostruzioneVendite.DIMENSIONE_BLOCCO * 2 + 1, conteggiati);
+            // si conta in copie vuote delle tabelle, che alla fine prendono il posto di quelle in uso
+            verify(mockConnection).prepareStatement("CREATE TABLE vendite_giorno_ricostruzione LIKE vendite_giorno");
+            verify(mockConnection, never()).prepareStatement(startsWith("DELETE FROM vendite_"));
+            verify(mockConnection, times(3)).prepareStatement(startsWith("INSERT INTO vendite_giorno_ricostruzione"));
+            verify(mockConnection, never()).prepareStatement(startsWith("INSERT INTO vendite_giorno "));
+            verify(mockConnection).prepareStatement("RENAME TABLE vendite_giorno TO vendite_giorno_sostituite, "
+                    + "vendite_giorno_ricostruzione TO vendite_giorno, "
+                    + "vendite_variante_giorno TO vendite_variante_giorno_sostituite, "
+                    + "vendite_variante_giorno_ricostruzione TO vendite_variante_giorno, "
+                    + "vendite_categoria_giorno TO vendite_categoria_giorno_sostituite, "
+                    + "vendite_categoria_giorno_ricostruzione TO vendite_categoria_giorno");
+            // il keyset riparte dall'ultimo id di ogni blocco e si ferma all'ultimo ordine esistente all'avvio
+            verify(mockBlocco).setInt(1, 0);
+            verify(mockBlocco).setInt(1, RicostruzioneVendite.DIMENSIONE_BLOCCO);
+            verify(mockBlocco, atLeastOnce()).setInt(2, 2500);
+            verify(mockBlocco, atLeastOnce()).setString(3, StatoOrdine.ANNULLATO);
+            // un commit per ogni blocco
+            verify(mockConnection, times(3)).commit();
+            verify(mockConnection).setAutoCommit(true);
+        }
+    }
+
+    @Test
+    void ricostruisci_BloccaGliAggiornamentiMentreContaEIgnoraGliOrdiniNonAncoraContati() throws Exception {
+        Connection mockConnection = mock(Connection.class);
+        PreparedStatement mockMax = mock(PreparedStatement.class);
+        PreparedStatement mockBlocco = mock(PreparedStatement.class);
+        ResultSet mockMaxResultSet = mock(ResultSet.class);
+        ResultSet mockBloccoResultSet = mock(ResultSet.class);
+        java.util.List<String> osservazioni = new java.util.ArrayList<>();
+
+        try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
+            mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            when(mockConnection.prepareStatement(anyString())).thenReturn(mock(PreparedStatement.class));
+            when(mockConnection.prepareStatement(startsWith("SELECT COALESCE(MAX(id_ordine)"))).thenReturn(mockMax);
+            when(mockConnection.prepareStatement(startsWith("SELECT id_ordine FROM ordine"))).thenReturn(mockBlocco);
+            when(mockMax.executeQuery()).thenReturn(mockMaxResultSet);
+            when(mockMaxResultSet.next()).thenReturn(true);
+            when(mockMaxResultSet.getInt(1)).thenReturn(30);
+
+            // primo blocco: ordini 10 e 20; il secondo (dopo il 20) è vuoto perché il 30 è stato annullato
+            when(mockBlocco.executeQuery()).thenAnswer(inv -> {
+                // mentre si conta un blocco, salvataggi, annullamenti ed eliminazioni aspettano
+                Thread altro = new Thread(() -> osservazioni.add("lock libero: " + RicostruzioneVendite.lockAggiornamenti().tryLock()));
+                altro.start();
+                altro.join();
+                osservazioni.add("10:" + RicostruzioneVendite.isConteggiato(10) + " 25:" + RicostruzioneVendite.isConteggiato(25)
+                        + " 31:" + RicostruzioneVendite.isConteggiato(31));
+                return mockBloccoResultSet;
+            });
+            when(mockBloccoResultSet.next()).thenReturn(true, true, false, false);
+            when(mockBloccoResultSet.getInt(1)).thenReturn(10, 20);
+
+            assertEquals(2, RicostruzioneVendite.ricostruisci());
+        }
+
+        // nel primo blocco non è stato contato niente; nel secondo gli ordini fino al 20 sì
+        assertEquals(java.util.List.of("lock libero: false", "10:false 25:false 31:true",
+                "lock libero: false", "10:true 25:false 31:true"), osservazioni);
+        // finita la ricostruzione ogni variazione torna nei riepiloghi
+        assertTrue(RicostruzioneVendite.isConteggiato(25));
+    }
+
+    @Test
+    void ricostruisci_Errore_LasciaIRiepiloghiInUsoEdEliminaLeCopie() throws SQLException {
+        Connection mockConnection = mock(Connection.class);
+        PreparedStatement mockMax = mock(PreparedStatement.class);
+        PreparedStatement mockBlocco = mock(PreparedStatement.class);
+        ResultSet mockMaxResultSet = mock(ResultSet.class);
+
+        try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
+            mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            when(mockConnection.prepareStatement(anyString())).thenReturn(mock(PreparedStatement.class));
+            when(mockConnection.prepareStatement(startsWith("SELECT COALESCE(MAX(id_ordine)"))).thenReturn(mockMax);
+            when(mockConnection.prepareStatement(startsWith("SELECT id_ordine FROM ordine"))).thenReturn(mockBlocco);
+            when(mockMax.executeQuery()).thenReturn(mockMaxResultSet);
+            when(mockMaxResultSet.next()).thenReturn(true);
+            when(mockMaxResultSet.getInt(1)).thenReturn(30);
+            when(mockBlocco.executeQuery()).thenThrow(new SQLException("Lock wait timeout exceeded", "HY000"));
+
+            assertThrows(RuntimeException.class, RicostruzioneVendite::ricostruisci);
+
+            verify(mockConnection, never()).prepareStatement(startsWith("RENAME TABLE"));
+            // una volta prima di crearle, una dopo l'errore
+            verify(mockConnection, times(2)).prepareStatement(
+                    "DROP TABLE IF EXISTS vendite_giorno_ricostruzione, vendite_variante_giorno_ricostruzione, vendite_categoria_giorno_ricostruzione");
+            verify(mockConnection).rollback();
+        }
+        // gli aggiornamenti incrementali non vanno più nelle copie eliminate
+        assertFalse(RicostruzioneVendite.isScansioneInCorso());
+    }
+}
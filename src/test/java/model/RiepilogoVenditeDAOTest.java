@@ -0,0 +1,166 @@
+package model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RiepilogoVenditeDAOTest {
+    private RiepilogoVenditeDAO riepilogoDao;
+    private Connection mockConnection;
+    private PreparedStatement mockPreparedStatement;
+    private ResultSet mockResultSet;
+
+    @BeforeEach
+    void setUp() {
+        riepilogoDao = new RiepilogoVenditeDAO();
+        mockConnection = mock(Connection.class);
+        mockPreparedStatement = mock(PreparedStatement.class);
+        mockResultSet = mock(ResultSet.class);
+    }
+
+    @Test
+    void doRimuoviOrdini_SottraeSoloGliOrdiniNonAnnullati() throws SQLException {
+        PreparedStatement mockSelect = mock(PreparedStatement.class);
+        when(mockConnection.prepareStatement(anyString())).thenReturn(mockPreparedStatement);
+        when(mockConnection.prepareStatement(startsWith("SELECT id_ordine FROM ordine"))).thenReturn(mockSelect);
+        when(mockSelect.executeQuery()).thenReturn(mockResultSet);
+        when(mockResultSet.next()).thenReturn(true, false);
+        when(mockResultSet.getInt(1)).thenReturn(4);
+
+        riepilogoDao.doRimuoviOrdini(mockConnection, List.of(4, 6));
+
+        verify(mockSelect).setObject(1, 4);
+        verify(mockSelect).setObject(2, 6);
+        verify(mockSelect).setString(3, StatoOrdine.ANNULLATO);
+        // le tre tabelle dei riepiloghi, con segno -1 e il solo ordine 4
+        verify(mockPreparedStatement, times(3)).executeUpdate();
+        verify(mockPreparedStatement, atLeastOnce()).setInt(1, -1);
+        verify(mockPreparedStatement, never()).setInt(anyInt(), eq(6));
+    }
+
+    @Test
+    void doAggiungiOrdini_RimetteGliOrdiniModificati() throws SQLException {
+        PreparedStatement mockSelect = mock(PreparedStatement.class);
+        when(mockConnection.prepareStatement(anyString())).thenReturn(mockPreparedStatement);
+        when(mockConnection.prepareStatement(startsWith("SELECT id_ordine FROM ordine"))).thenReturn(mockSelect);
+        when(mockSelect.executeQuery()).thenReturn(mockResultSet);
+        when(mockResultSet.next()).thenReturn(true, false);
+        when(mockResultSet.getInt(1)).thenReturn(4);
+
+        riepilogoDao.doAggiungiOrdini(mockConnection, List.of(4));
+
+        verify(mockPreparedStatement, times(3)).executeUpdate();
+        verify(mockPreparedStatement, atLeastOnce()).setInt(1, 1);
+        verify(mockPreparedStatement, never()).setInt(1, -1);
+        // nessuna ricostruzione in corso: solo le tabelle in uso
+        verify(mockConnection, never()).prepareStatement(contains(RiepilogoVenditeDAO.SUFFISSO_RICOSTRUZIONE));
+    }
+
+    @Test
+    void doAggiorna_UpdatesTheThreeRollupsFromTheSavedOrders() throws SQLException {
+        when(mockConnection.prepareStatement(anyString())).thenReturn(mockPreparedStatement);
+
+        riepilogoDao.doAggiorna(mockConnection, List.of(5, 9), 1);
+
+        ArgumentCaptor<String> sqlCaptor = ArgumentCaptor.forClass(String.class);
+        verify(mockConnection, times(3)).prepareStatement(sqlCaptor.capture());
+        assertTrue(sqlCaptor.getAllValues().get(0).startsWith("INSERT INTO vendite_giorno"));
+        assertTrue(sqlCaptor.getAllValues().get(1).startsWith("INSERT INTO vendite_variante_giorno"));
+        assertTrue(sqlCaptor.getAllValues().get(2).contains("JOIN prodotto p ON p.id_prodotto = d.id_prodotto"));
+        for (String sql : sqlCaptor.getAllValues()) {
+            assertTrue(sql.contains("WHERE o.id_ordine IN (?, ?)"));
+            assertTrue(sql.contains("ON DUPLICATE KEY UPDATE"));
+        }
+        // nessun commit: la transazione è quella del salvataggio dell'ordine
+        verify(mockConnection, never()).commit();
+        verify(mockPreparedStatement, times(3)).executeUpdate();
+        verify(mockPreparedStatement).setInt(4, 5);
+        verify(mockPreparedStatement).setInt(5, 9);
+    }
+
+    @Test
+    void doAggiorna_NoOrders_DoesNothing() throws SQLException {
+        riepilogoDao.doAggiorna(mockConnection, List.of(), 1);
+
+        verifyNoInteractions(mockConnection);
+    }
+
+    @Test
+    void doRetrievePerGiorno_ReadsOnlyTheDailyRollup() throws SQLException {
+        try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
+            when(mockConnection.prepareStatement(anyString())).thenReturn(mockPreparedStatement);
+            when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
+            when(mockResultSet.next()).thenReturn(true, false);
+            when(mockResultSet.getDate("giorno")).thenReturn(java.sql.Date.valueOf("2024-07-18"));
+            when(mockResultSet.getInt("ordini")).thenReturn(12);
+            when(mockResultSet.getInt("articoli")).thenReturn(30);
+            when(mockResultSet.getBigDecimal("incasso")).thenReturn(new BigDecimal("845.50"));
+
+            List<Map<String, Object>> giorni = riepilogoDao.doRetrievePerGiorno(java.sql.Date.valueOf("2024-07-01"), java.sql.Date.valueOf("2024-07-31"));
+
+            verify(mockConnection).prepareStatement(startsWith("SELECT giorno, ordini, articoli, incasso FROM vendite_giorno"));
+            assertEquals(1, giorni.size());
+            assertEquals("2024-07-18", giorni.get(0).get("giorno"));
+            assertEquals(12, giorni.get(0).get("ordini"));
+            assertEquals(new BigDecimal("845.50"), giorni.get(0).get("incasso"));
+            mockedConPool.verify(ConPool::getConnection, never());
+        }
+    }
+
+    @Test
+    void doRetrievePerCategoria_ReadsFromTheReplica() throws SQLException {
+        try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
+            when(mockConnection.prepareStatement(anyString())).thenReturn(mockPreparedStatement);
+            when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
+            when(mockResultSet.next()).thenReturn(true, false);
+            when(mockResultSet.getString("categoria")).thenReturn("proteine");
+            when(mockResultSet.getInt("articoli")).thenReturn(30);
+            when(mockResultSet.getBigDecimal("incasso")).thenReturn(new BigDecimal("845.50"));
+
+            List<Map<String, Object>> categorie = riepilogoDao.doRetrievePerCategoria(java.sql.Date.valueOf("2024-07-01"), java.sql.Date.valueOf("2024-07-31"));
+
+            verify(mockConnection).prepareStatement(startsWith("SELECT categoria, SUM(articoli) AS articoli, SUM(incasso) AS incasso FROM vendite_categoria_giorno"));
+            assertEquals(1, categorie.size());
+            assertEquals("proteine", categorie.get(0).get("categoria"));
+            mockedConPool.verify(ConPool::getConnection, never());
+        }
+    }
+
+    @Test
+    void doRetrievePerVariante_ReadsFromTheReplica() throws SQLException {
+        try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
+            when(mockConnection.prepareStatement(anyString())).thenReturn(mockPreparedStatement);
+            when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
+            when(mockResultSet.next()).thenReturn(true, false);
+            when(mockResultSet.getInt("id_variante")).thenReturn(7);
+            when(mockResultSet.getString("id_prodotto")).thenReturn("P1");
+            when(mockResultSet.getInt("articoli")).thenReturn(30);
+            when(mockResultSet.getBigDecimal("incasso")).thenReturn(new BigDecimal("845.50"));
+
+            List<Map<String, Object>> varianti = riepilogoDao.doRetrievePerVariante(java.sql.Date.valueOf("2024-07-01"), java.sql.Date.valueOf("2024-07-31"), 10);
+
+            verify(mockConnection).prepareStatement(startsWith("SELECT id_variante, id_prodotto, SUM(articoli) AS articoli, SUM(incasso) AS incasso FROM vendite_variante_giorno"));
+            verify(mockPreparedStatement).setInt(3, 10);
+            assertEquals(1, varianti.size());
+            assertEquals(7, varianti.get(0).get("idVariante"));
+            mockedConPool.verify(ConPool::getConnection, never());
+        }
+    }
+}
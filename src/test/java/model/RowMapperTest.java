@@ -0,0 +1,106 @@
+package model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Classe di test per RowMapper e MapperEntita
+ */
+class RowMapperTest {
+
+    private ResultSet mockResultSet;
+    private ResultSetMetaData mockMetaData;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        mockResultSet = mock(ResultSet.class);
+        mockMetaData = mock(ResultSetMetaData.class);
+        when(mockResultSet.getMetaData()).thenReturn(mockMetaData);
+    }
+
+    private void colonne(String... etichette) throws SQLException {
+        when(mockMetaData.getColumnCount()).thenReturn(etichette.length);
+        for (int i = 0; i < etichette.length; i++) {
+            when(mockMetaData.getColumnLabel(i + 1)).thenReturn(etichette[i]);
+        }
+    }
+
+    @Test
+    void perOgni_LeggePerPosizioneERisolveLeColonneUnaVolta() throws SQLException {
+        //select * con le join: id_gusto compare due volte, vale la prima come per getInt("id_gusto")
+        colonne("id_variante", "id_prodotto_variante", "id_gusto", "id_confezione", "prezzo", "quantità", "sconto",
+                "evidenza", "id_gusto", "nomeGusto", "id_confezione", "peso");
+        when(mockResultSet.next()).thenReturn(true, true, false);
+        when(mockResultSet.getInt(1)).thenReturn(1, 2);
+        when(mockResultSet.getString(2)).thenReturn("P1");
+        when(mockResultSet.getInt(3)).thenReturn(7);
+        when(mockResultSet.getFloat(5)).thenReturn(19.9f);
+
+        Gusto vaniglia = new Gusto();
+        vaniglia.setIdGusto(7);
+        vaniglia.setNome("Vaniglia");
+        Confezione confezione = new Confezione();
+        confezione.setIdConfezione(0);
+        confezione.setPeso(500);
+        DimensioniCatalogo dimensioni = DimensioniCatalogo.carica(List.of(vaniglia), List.of(confezione));
+
+        List<Variante> varianti = new ArrayList<>();
+        MapperEntita.VARIANTE.perOgni(mockResultSet, v -> varianti.add(dimensioni.collega(v)));
+
+        assertEquals(2, varianti.size());
+        assertEquals(1, varianti.get(0).getIdVariante());
+        assertEquals(2, varianti.get(1).getIdVariante());
+        assertEquals("P1", varianti.get(0).getIdProdotto());
+        assertEquals(7, varianti.get(0).getIdGusto());
+        assertEquals(19.9f, varianti.get(0).getPrezzo());
+        //gusto e confezione sono le istanze condivise, non copie per riga
+        assertSame(vaniglia, varianti.get(0).getGustoCatalogo());
+        assertSame(vaniglia, varianti.get(1).getGustoCatalogo());
+        assertEquals(500, varianti.get(1).getPesoConfezione());
+
+        verify(mockResultSet, times(1)).getMetaData();
+        verify(mockResultSet, never()).getInt(anyString());
+        verify(mockResultSet, never()).getString(anyString());
+    }
+
+    @Test
+    void colonneOpzionaliAssenti_VengonoSaltate_ObbligatorieAssenti_Errore() throws SQLException {
+        colonne("id_variante", "id_prodotto_variante", "id_gusto", "id_confezione", "prezzo", "quantità", "sconto", "evidenza");
+        when(mockResultSet.next()).thenReturn(true);
+        when(mockResultSet.getInt(1)).thenReturn(3);
+
+        Variante variante = MapperEntita.VARIANTE.primo(mockResultSet);
+
+        assertEquals(3, variante.getIdVariante());
+        assertNull(variante.getGusto());
+        assertEquals(0, variante.getPesoConfezione());
+
+        //alla riga del carrello servono anche nome e immagine del prodotto
+        colonne("email_utente", "id_prodotto", "id_variante", "quantità", "prezzo");
+        assertThrows(SQLException.class, () -> MapperEntita.CARRELLO.primo(mockResultSet));
+    }
+
+    @Test
+    void senzaMetadati_LeggePerNome() throws SQLException {
+        when(mockResultSet.getMetaData()).thenReturn(null);
+        when(mockResultSet.next()).thenReturn(true, false);
+        when(mockResultSet.getInt("id_ordine")).thenReturn(42);
+        when(mockResultSet.getString("stato")).thenReturn(StatoOrdine.CONSEGNATO);
+
+        List<Ordine> ordini = MapperEntita.ORDINE.tutte(mockResultSet);
+
+        assertEquals(1, ordini.size());
+        assertEquals(42, ordini.get(0).getIdOrdine());
+        assertEquals(StatoOrdine.CONSEGNATO, ordini.get(0).getStato());
+    }
+}
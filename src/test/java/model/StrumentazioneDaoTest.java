@@ -0,0 +1,115 @@
+package model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Classe di test per StrumentazioneDao
+ */
+class StrumentazioneDaoTest {
+
+    private Connection mockConnection;
+    private PreparedStatement mockPreparedStatement;
+    private ResultSet mockResultSet;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        StrumentazioneDao.azzera();
+        mockConnection = mock(Connection.class);
+        mockPreparedStatement = mock(PreparedStatement.class);
+        mockResultSet = mock(ResultSet.class);
+        when(mockConnection.prepareStatement(anyString())).thenReturn(mockPreparedStatement);
+        when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
+    }
+
+    @AfterEach
+    void tearDown() {
+        StrumentazioneDao.setSogliaLentaMillis(200);
+        StrumentazioneDao.azzera();
+    }
+
+    @Test
+    void query_AttribuiteAlMetodoChiamante_ConRigheEAttesa() throws SQLException {
+        when(mockResultSet.next()).thenReturn(true, true, true, false);
+        when(mockPreparedStatement.executeUpdate()).thenReturn(2);
+
+        try (Connection con = StrumentazioneDao.avvolgi(mockConnection, 1_500)) {
+            PreparedStatement ps = con.prepareStatement("SELECT * FROM prodotto");
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                rs.getString("id_prodotto");
+            }
+            rs.close();
+            con.prepareStatement("UPDATE prodotto SET nome = ?").executeUpdate();
+        }
+
+        StrumentazioneDao.MetodoDao metodo =
+                StrumentazioneDao.metodi().get("StrumentazioneDaoTest.query_AttribuiteAlMetodoChiamante_ConRigheEAttesa");
+        assertNotNull(metodo);
+        assertEquals(1, metodo.getChiamate());
+        assertEquals(2, metodo.getQuery());
+        assertEquals(3, metodo.getRighe());
+        assertEquals(2, metodo.getRigheModificate());
+        assertEquals(1, metodo.getAttesa().getConteggio());
+        assertEquals(1_500, metodo.getAttesa().getMassimo());
+        assertEquals(2, metodo.getEsecuzione().getConteggio());
+        verify(mockResultSet, times(3)).getString("id_prodotto");
+        verify(mockConnection).close();
+    }
+
+    @Test
+    void queryLenta_NelLogConImprontaSenzaValori() throws SQLException {
+        StrumentazioneDao.setSogliaLentaMillis(0);
+        when(mockPreparedStatement.executeQuery()).thenThrow(new SQLException("timeout"));
+
+        Connection con = StrumentazioneDao.avvolgi(mockConnection, 0);
+        PreparedStatement ps = con.prepareStatement("SELECT *\n  FROM utente WHERE email = ? AND id IN (?, ?,?)");
+        ps.setString(1, "mario@example.com");
+        ps.setInt(2, 1);
+        assertThrows(SQLException.class, ps::executeQuery);
+
+        List<Map<String, Object>> lente = StrumentazioneDao.ultimeLente();
+        assertEquals(1, lente.size());
+        Map<String, Object> lenta = lente.get(0);
+        assertEquals("SELECT * FROM utente WHERE email = ? AND id IN (?+)", lenta.get("sql"));
+        String parametri = (String) lenta.get("parametri");
+        assertTrue(parametri.startsWith("[String, Integer] #"), parametri);
+        assertFalse(lenta.toString().contains("mario@example.com"));
+
+        StrumentazioneDao.MetodoDao metodo = StrumentazioneDao.metodi().values().iterator().next();
+        assertEquals(1, metodo.getErrori());
+        assertEquals(1, metodo.getLente());
+    }
+
+    @Test
+    void improntaParametri_StessiValoriStessaImpronta() {
+        String a = StrumentazioneDao.improntaParametri(new Object[]{"x", 1, null});
+        String b = StrumentazioneDao.improntaParametri(new Object[]{"x", 1});
+        String c = StrumentazioneDao.improntaParametri(new Object[]{"y", 1});
+        assertEquals(a, b);
+        assertNotEquals(a, c);
+        assertEquals("[]", StrumentazioneDao.improntaParametri(new Object[4]));
+    }
+
+    @Test
+    void improntaParametri_NonRicalcolabileDaiValori() throws Exception {
+        // senza la chiave del processo l'impronta non coincide con l'hash in chiaro dei valori (es. una password)
+        String impronta = StrumentazioneDao.improntaParametri(new Object[]{"password123"});
+        byte[] sha = java.security.MessageDigest.getInstance("SHA-256")
+                .digest("password123\u0000".getBytes(java.nio.charset.StandardCharsets.UTF_8));
+        assertTrue(impronta.startsWith("[String] #"));
+        assertNotEquals("[String] #" + java.util.HexFormat.of().formatHex(sha, 0, 4), impronta);
+    }
+}
@@ -150,6 +150,7 @@ class UtenteDAOTest {
     void doRetrieveAll_Success() throws SQLException {
         try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
             when(mockConnection.createStatement()).thenReturn(mockStatement);
             when(mockStatement.executeQuery(anyString())).thenReturn(mockResultSet);
 
@@ -236,10 +237,15 @@ class UtenteDAOTest {
             when(mockConnection.prepareStatement(anyString())).thenReturn(mockPreparedStatement);
             when(mockPreparedStatement.executeUpdate()).thenReturn(1);
 
+            when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
+
             utenteDAO.doRemoveUserByEmail("delete@me.com");
 
             verify(mockPreparedStatement).setString(1, "delete@me.com");
             verify(mockPreparedStatement).executeUpdate();
+            // gli ordini eliminati a cascata escono prima dai riepiloghi delle vendite
+            verify(mockConnection).prepareStatement("SELECT id_ordine FROM ordine WHERE email_utente IN (?) AND stato <> ? FOR UPDATE");
+            verify(mockConnection).commit();
         }
     }
 
@@ -247,6 +253,7 @@ class UtenteDAOTest {
     void exceptionHandling_WrapsSQLException() throws SQLException {
         try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
             mockedConPool.when(ConPool::getConnection).thenThrow(new SQLException("DB Error"));
+            mockedConPool.when(ConPool::getReadConnection).thenThrow(new SQLException("DB Error"));
 
             assertThrows(RuntimeException.class, () -> {
                 utenteDAO.doRetrieveAll();
@@ -374,6 +381,8 @@ class UtenteDAOTest {
             when(mockConnection.prepareStatement(anyString())).thenReturn(mockPreparedStatement);
             when(mockPreparedStatement.executeUpdate()).thenReturn(0);
 
+            when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
+
             // Should not throw exception, just print to stdout
             utenteDAO.doRemoveUserByEmail("nodelete@me.com");
 
@@ -27,6 +27,25 @@ class VarianteDAOTest {
         mockConnection = mock(Connection.class);
         mockPreparedStatement = mock(PreparedStatement.class);
         mockResultSet = mock(ResultSet.class);
+        //gusti e confezioni noti: i filtri per nome e per peso diventano filtri per id
+        DimensioniCatalogo.carica(
+                List.of(gusto(1, "Cioccolato"), gusto(2, "Vanilla"), gusto(3, "Fragola"), gusto(4, "Vaniglia"),
+                        gusto(5, "Choco"), gusto(6, "SimpleTaste")),
+                List.of(confezione(10, 500), confezione(11, 1000), confezione(12, 250), confezione(13, 100)));
+    }
+
+    private static Gusto gusto(int id, String nome) {
+        Gusto gusto = new Gusto();
+        gusto.setIdGusto(id);
+        gusto.setNome(nome);
+        return gusto;
+    }
+
+    private static Confezione confezione(int id, int peso) {
+        Confezione confezione = new Confezione();
+        confezione.setIdConfezione(id);
+        confezione.setPeso(peso);
+        return confezione;
     }
 
     // --- TEST Query Dinamica con Filtri Stringa (Parsing) ---
@@ -40,6 +59,7 @@ class VarianteDAOTest {
 
         try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
 
             ArgumentCaptor<String> sqlCaptor = ArgumentCaptor.forClass(String.class);
             when(mockConnection.prepareStatement(sqlCaptor.capture())).thenReturn(mockPreparedStatement);
@@ -50,15 +70,16 @@ class VarianteDAOTest {
             String sql = sqlCaptor.getValue();
 
             // Verifica SQL
-            assertTrue(sql.contains("AND c.peso = ?"), "Deve filtrare per peso");
-            assertTrue(sql.contains("AND g.nomeGusto = ?"), "Deve filtrare per gusto");
+            assertTrue(sql.contains("AND v.id_confezione IN (?)"), "Deve filtrare per peso");
+            assertTrue(sql.contains("AND v.id_gusto IN (?)"), "Deve filtrare per gusto");
+            assertFalse(sql.contains("JOIN"), "Non deve fare join con gusto e confezione");
 
             // Verifica Parametri e Parsing
             verify(mockPreparedStatement).setString(1, idProd);
-            // Il DAO fa split(" ")[0] su "500 g" -> "500" -> parseInt
-            verify(mockPreparedStatement).setInt(2, 500);
-            // Il DAO fa split(" \\(")[0] su "Cioccolato (Best)" -> "Cioccolato"
-            verify(mockPreparedStatement).setString(3, "Cioccolato");
+            // Il DAO fa split(" ")[0] su "500 g" -> "500" -> parseInt -> confezione 10
+            verify(mockPreparedStatement).setInt(2, 10);
+            // Il DAO fa split(" \\(")[0] su "Cioccolato (Best)" -> "Cioccolato" -> gusto 1
+            verify(mockPreparedStatement).setInt(3, 1);
         }
     }
 
@@ -66,6 +87,7 @@ class VarianteDAOTest {
     void doRetrieveFilteredVarianti_NoFilters() throws SQLException {
         try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
 
             ArgumentCaptor<String> sqlCaptor = ArgumentCaptor.forClass(String.class);
             when(mockConnection.prepareStatement(sqlCaptor.capture())).thenReturn(mockPreparedStatement);
@@ -75,8 +97,8 @@ class VarianteDAOTest {
 
             String sql = sqlCaptor.getValue();
 
-            assertFalse(sql.contains("AND c.peso"), "Non deve filtrare per peso");
-            assertFalse(sql.contains("AND g.nomeGusto"), "Non deve filtrare per gusto");
+            assertFalse(sql.contains("AND v.id_confezione"), "Non deve filtrare per peso");
+            assertFalse(sql.contains("AND v.id_gusto"), "Non deve filtrare per gusto");
 
             verify(mockPreparedStatement).setString(1, "P1");
             // Nessun altro parametro deve essere settato
@@ -98,6 +120,7 @@ class VarianteDAOTest {
 
         try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
 
             ArgumentCaptor<String> sqlCaptor = ArgumentCaptor.forClass(String.class);
             when(mockConnection.prepareStatement(sqlCaptor.capture())).thenReturn(mockPreparedStatement);
@@ -132,14 +155,14 @@ class VarianteDAOTest {
     void doRetrieveVariantByCriteria_Weight() throws SQLException {
         try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
-            when(mockConnection.prepareStatement(contains("peso = ?"))).thenReturn(mockPreparedStatement);
+            when(mockConnection.prepareStatement(contains("v.id_confezione in (?)"))).thenReturn(mockPreparedStatement);
             when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
 
             dao.doRetrieveVariantByCriteria("P1", "weight", "1000");
 
             verify(mockPreparedStatement).setString(1, "P1");
-            // Verifica che per "weight" faccia il parseInt
-            verify(mockPreparedStatement).setInt(2, 1000);
+            // Verifica che per "weight" faccia il parseInt e usi l'id della confezione da 1000
+            verify(mockPreparedStatement).setInt(2, 11);
         }
     }
 
@@ -147,14 +170,14 @@ class VarianteDAOTest {
     void doRetrieveVariantByCriteria_Flavour() throws SQLException {
         try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
-            when(mockConnection.prepareStatement(contains("nomeGusto = ?"))).thenReturn(mockPreparedStatement);
+            when(mockConnection.prepareStatement(contains("v.id_gusto in (?)"))).thenReturn(mockPreparedStatement);
             when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
 
             dao.doRetrieveVariantByCriteria("P1", "flavour", "Vanilla");
 
             verify(mockPreparedStatement).setString(1, "P1");
-            // Verifica che per "flavour" usi setString
-            verify(mockPreparedStatement).setString(2, "Vanilla");
+            // Verifica che per "flavour" usi l'id del gusto
+            verify(mockPreparedStatement).setInt(2, 2);
         }
     }
 
@@ -164,6 +187,7 @@ class VarianteDAOTest {
     void doRetrieveCheapestFiltered_WithEvidenceTrue() throws SQLException {
         try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
 
             ArgumentCaptor<String> sqlCaptor = ArgumentCaptor.forClass(String.class);
             when(mockConnection.prepareStatement(sqlCaptor.capture())).thenReturn(mockPreparedStatement);
@@ -190,13 +214,16 @@ class VarianteDAOTest {
             when(mockResultSet.next()).thenReturn(true, false);
             when(mockResultSet.getInt("id_variante")).thenReturn(1);
             when(mockResultSet.getInt("sconto")).thenReturn(10);
-            // Testiamo un campo JOIN
-            when(mockResultSet.getString("nomeGusto")).thenReturn("Fragola");
+            // Il nome del gusto arriva da DimensioniCatalogo, senza join
+            when(mockResultSet.getInt("id_gusto")).thenReturn(3);
+            when(mockResultSet.getInt("id_confezione")).thenReturn(10);
 
             List<Variante> result = dao.doRetrieveVariantiByIdProdotto("P1");
 
             assertEquals(1, result.size());
             assertEquals("Fragola", result.get(0).getGusto());
+            assertEquals(500, result.get(0).getPesoConfezione());
+            assertSame(DimensioniCatalogo.get().getGusto(3), result.get(0).getGustoCatalogo());
             assertEquals(10, result.get(0).getSconto());
         }
     }
@@ -247,6 +274,7 @@ class VarianteDAOTest {
     void doRetrieveAll_Success() throws SQLException {
         try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
             when(mockConnection.prepareStatement("select * from variante")).thenReturn(mockPreparedStatement);
             when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
 
@@ -269,7 +297,7 @@ class VarianteDAOTest {
             when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
 
             when(mockResultSet.next()).thenReturn(true, false);
-            when(mockResultSet.getString("nomeGusto")).thenReturn("Fragola");
+            when(mockResultSet.getInt("id_gusto")).thenReturn(3);
 
             List<Variante> result = dao.doRetrieveVariantByFlavourAndWeight("P1", "Fragola", 500);
 
@@ -277,8 +305,8 @@ class VarianteDAOTest {
             assertEquals("Fragola", result.get(0).getGusto());
 
             verify(mockPreparedStatement).setString(1, "P1");
-            verify(mockPreparedStatement).setString(2, "Fragola");
-            verify(mockPreparedStatement).setInt(3, 500);
+            verify(mockPreparedStatement).setInt(2, 3);
+            verify(mockPreparedStatement).setInt(3, 10);
         }
     }
 
@@ -358,6 +386,7 @@ class VarianteDAOTest {
     void doRetrieveCheapestFilteredVarianteByIdProdotto_FiltersParsing() throws SQLException {
         try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
 
             ArgumentCaptor<String> sqlCaptor = ArgumentCaptor.forClass(String.class);
             when(mockConnection.prepareStatement(sqlCaptor.capture())).thenReturn(mockPreparedStatement);
@@ -367,13 +396,13 @@ class VarianteDAOTest {
             dao.doRetrieveCheapestFilteredVarianteByIdProdotto("P1", "250 g", "Vaniglia (New)", false);
 
             String sql = sqlCaptor.getValue();
-            assertTrue(sql.contains("AND c.peso = ?"));
-            assertTrue(sql.contains("AND g.nomeGusto = ?"));
+            assertTrue(sql.contains("AND v.id_confezione IN (?)"));
+            assertTrue(sql.contains("AND v.id_gusto IN (?)"));
             assertFalse(sql.contains("AND v.evidenza = 1"));
 
             verify(mockPreparedStatement).setString(1, "P1");
-            verify(mockPreparedStatement).setInt(2, 250);
-            verify(mockPreparedStatement).setString(3, "Vaniglia");
+            verify(mockPreparedStatement).setInt(2, 12);
+            verify(mockPreparedStatement).setInt(3, 4);
         }
     }
 
@@ -381,6 +410,7 @@ class VarianteDAOTest {
     void doRetrieveAll_SQLException() throws SQLException {
         try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
             when(mockConnection.prepareStatement(anyString())).thenThrow(new SQLException("DB Error"));
 
             assertThrows(RuntimeException.class, () -> dao.doRetrieveAll());
@@ -403,7 +433,7 @@ class VarianteDAOTest {
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
             when(mockConnection.prepareStatement(anyString())).thenThrow(new SQLException("DB Error"));
 
-            assertThrows(RuntimeException.class, () -> dao.doRetrieveVariantByFlavourAndWeight("P1", "Gusto", 100));
+            assertThrows(RuntimeException.class, () -> dao.doRetrieveVariantByFlavourAndWeight("P1", "Fragola", 500));
         }
     }
 
@@ -433,6 +463,7 @@ class VarianteDAOTest {
         prodotti.add(new Prodotto());
         try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
             when(mockConnection.prepareStatement(anyString())).thenThrow(new SQLException("DB Error"));
 
             assertThrows(RuntimeException.class, () -> dao.doRetrieveVariantiByProdotti(prodotti));
@@ -443,6 +474,7 @@ class VarianteDAOTest {
     void doRetrieveFilteredVariantiByIdProdotto_SQLException() throws SQLException {
         try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
             when(mockConnection.prepareStatement(anyString())).thenThrow(new SQLException("DB Error"));
 
             assertThrows(RuntimeException.class, () -> dao.doRetrieveFilteredVariantiByIdProdotto("P1", null, null));
@@ -453,6 +485,7 @@ class VarianteDAOTest {
     void doRetrieveCheapestFilteredVarianteByIdProdotto_SQLException() throws SQLException {
         try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
             when(mockConnection.prepareStatement(anyString())).thenThrow(new SQLException("DB Error"));
 
             assertThrows(RuntimeException.class,
@@ -498,7 +531,7 @@ class VarianteDAOTest {
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
             when(mockConnection.prepareStatement(anyString())).thenThrow(new SQLException("DB Error"));
 
-            assertThrows(RuntimeException.class, () -> dao.doRetrieveVariantByCriteria("P1", "flavour", "val"));
+            assertThrows(RuntimeException.class, () -> dao.doRetrieveVariantByCriteria("P1", "flavour", "Vanilla"));
         }
     }
 
@@ -514,8 +547,8 @@ class VarianteDAOTest {
 
             String sql = sqlCaptor.getValue();
             // Should not append any extra condition
-            assertFalse(sql.contains("and g.nomeGusto"));
-            assertFalse(sql.contains("and c.peso"));
+            assertFalse(sql.contains("and v.id_gusto"));
+            assertFalse(sql.contains("and v.id_confezione"));
 
             // Should only set 1 parameter (idProdotto)
             verify(mockPreparedStatement).setString(1, "P1");
@@ -527,6 +560,7 @@ class VarianteDAOTest {
     void doRetrieveFilteredVariantiByIdProdotto_PartialFilters() throws SQLException {
         try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
             ArgumentCaptor<String> sqlCaptor = ArgumentCaptor.forClass(String.class);
             when(mockConnection.prepareStatement(sqlCaptor.capture())).thenReturn(mockPreparedStatement);
             when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
@@ -534,9 +568,9 @@ class VarianteDAOTest {
             // Case 1: Only Weight
             dao.doRetrieveFilteredVariantiByIdProdotto("P1", "100 g", null);
             String sql1 = sqlCaptor.getValue();
-            assertTrue(sql1.contains("AND c.peso = ?"));
-            assertFalse(sql1.contains("AND g.nomeGusto = ?"));
-            verify(mockPreparedStatement).setInt(2, 100);
+            assertTrue(sql1.contains("AND v.id_confezione IN (?)"));
+            assertFalse(sql1.contains("AND v.id_gusto"));
+            verify(mockPreparedStatement).setInt(2, 13);
 
             // Reset mocks for Case 2
             reset(mockPreparedStatement);
@@ -546,9 +580,9 @@ class VarianteDAOTest {
             // Case 2: Only Taste
             dao.doRetrieveFilteredVariantiByIdProdotto("P1", null, "Choco (Info)");
             String sql2 = sqlCaptor.getValue();
-            assertFalse(sql2.contains("AND c.peso = ?"));
-            assertTrue(sql2.contains("AND g.nomeGusto = ?"));
-            verify(mockPreparedStatement).setString(2, "Choco");
+            assertFalse(sql2.contains("AND v.id_confezione"));
+            assertTrue(sql2.contains("AND v.id_gusto IN (?)"));
+            verify(mockPreparedStatement).setInt(2, 5);
         }
     }
 
@@ -556,6 +590,7 @@ class VarianteDAOTest {
     void doRetrieveCheapestFiltered_EvidenceFalse() throws SQLException {
         try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
 
             ArgumentCaptor<String> sqlCaptor = ArgumentCaptor.forClass(String.class);
             when(mockConnection.prepareStatement(sqlCaptor.capture())).thenReturn(mockPreparedStatement);
@@ -573,6 +608,7 @@ class VarianteDAOTest {
     void doRetrieveCheapestFiltered_NotFound() throws SQLException {
         try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
             when(mockConnection.prepareStatement(anyString())).thenReturn(mockPreparedStatement);
             when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
 
@@ -588,6 +624,7 @@ class VarianteDAOTest {
     void doRetrieveCheapestFiltered_EmptyFilters() throws SQLException {
         try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
             ArgumentCaptor<String> sqlCaptor = ArgumentCaptor.forClass(String.class);
             when(mockConnection.prepareStatement(sqlCaptor.capture())).thenReturn(mockPreparedStatement);
             when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
@@ -597,8 +634,8 @@ class VarianteDAOTest {
             dao.doRetrieveCheapestFilteredVarianteByIdProdotto("P1", "   ", "", false);
 
             String sql = sqlCaptor.getValue();
-            assertFalse(sql.contains("AND c.peso = ?"));
-            assertFalse(sql.contains("AND g.nomeGusto = ?"));
+            assertFalse(sql.contains("AND v.id_confezione"));
+            assertFalse(sql.contains("AND v.id_gusto"));
 
             // Only 1 param set (idProdotto)
             verify(mockPreparedStatement).setString(1, "P1");
@@ -610,6 +647,7 @@ class VarianteDAOTest {
     void doRetrieveFilteredVarianti_EmptyFilters() throws SQLException {
         try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
             ArgumentCaptor<String> sqlCaptor = ArgumentCaptor.forClass(String.class);
             when(mockConnection.prepareStatement(sqlCaptor.capture())).thenReturn(mockPreparedStatement);
             when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
@@ -617,8 +655,8 @@ class VarianteDAOTest {
             dao.doRetrieveFilteredVariantiByIdProdotto("P1", "", "   ");
 
             String sql = sqlCaptor.getValue();
-            assertFalse(sql.contains("AND c.peso = ?"));
-            assertFalse(sql.contains("AND g.nomeGusto = ?"));
+            assertFalse(sql.contains("AND v.id_confezione"));
+            assertFalse(sql.contains("AND v.id_gusto"));
         }
     }
 
@@ -631,6 +669,7 @@ class VarianteDAOTest {
 
         try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
             ArgumentCaptor<String> sqlCaptor = ArgumentCaptor.forClass(String.class);
             when(mockConnection.prepareStatement(sqlCaptor.capture())).thenReturn(mockPreparedStatement);
             when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
@@ -677,6 +716,7 @@ class VarianteDAOTest {
     void doRetrieveFilteredVarianti_InvalidWeight() throws SQLException {
         try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
             when(mockConnection.prepareStatement(anyString())).thenReturn(mockPreparedStatement);
 
             assertThrows(NumberFormatException.class,
@@ -684,10 +724,22 @@ class VarianteDAOTest {
         }
     }
 
+    @Test
+    void doRetrieveFilteredVarianti_UnknownTaste_NoQuery() throws SQLException {
+        try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
+
+            assertTrue(dao.doRetrieveFilteredVariantiByIdProdotto("P1", null, "Inesistente").isEmpty());
+            assertNull(dao.doRetrieveCheapestFilteredVarianteByIdProdotto("P1", "999 g", null, false));
+            verify(mockConnection, never()).prepareStatement(anyString());
+        }
+    }
+
     @Test
     void doRetrieveFilteredVarianti_TasteNoParenthesis() throws SQLException {
         try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
             mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            mockedConPool.when(ConPool::getReadConnection).thenReturn(mockConnection);
             ArgumentCaptor<String> sqlCaptor = ArgumentCaptor.forClass(String.class);
             when(mockConnection.prepareStatement(sqlCaptor.capture())).thenReturn(mockPreparedStatement);
             when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
@@ -695,8 +747,41 @@ class VarianteDAOTest {
             dao.doRetrieveFilteredVariantiByIdProdotto("P1", null, "SimpleTaste");
 
             String sql = sqlCaptor.getValue();
-            assertTrue(sql.contains("AND g.nomeGusto = ?"));
-            verify(mockPreparedStatement).setString(2, "SimpleTaste");
+            assertTrue(sql.contains("AND v.id_gusto IN (?)"));
+            verify(mockPreparedStatement).setInt(2, 6);
+        }
+    }
+
+    // --- TEST Aggiornamento massivo dei prezzi ---
+
+    @Test
+    void doUpdatePrezzi_Categoria_OneUpdateInOneTransaction() throws SQLException {
+        try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
+            mockedConPool.when(ConPool::getConnection).thenReturn(mockConnection);
+            when(mockConnection.prepareStatement(anyString())).thenReturn(mockPreparedStatement);
+            when(mockPreparedStatement.executeUpdate()).thenReturn(42);
+
+            int aggiornate = dao.doUpdatePrezzi("categoria", List.of("proteine"), 20, -5f, null);
+
+            assertEquals(42, aggiornate);
+            verify(mockConnection).prepareStatement("UPDATE variante v JOIN prodotto p ON p.id_prodotto = v.id_prodotto_variante "
+                    + "SET v.sconto = ?, v.prezzo = ROUND(v.prezzo * (100 + ?) / 100, 2) WHERE p.categoria IN (?)");
+            verify(mockPreparedStatement).setInt(1, 20);
+            verify(mockPreparedStatement).setFloat(2, -5f);
+            verify(mockPreparedStatement).setString(3, "proteine");
+            verify(mockConnection).commit();
+            verify(mockConnection).setAutoCommit(true);
+        }
+    }
+
+    @Test
+    void doUpdatePrezzi_InvalidInput_ThrowsWithoutTouchingTheDb() {
+        try (MockedStatic<ConPool> mockedConPool = Mockito.mockStatic(ConPool.class)) {
+            assertThrows(IllegalArgumentException.class, () -> dao.doUpdatePrezzi("prodotto", List.of("P1"), 10, null, null));
+            assertThrows(IllegalArgumentException.class, () -> dao.doUpdatePrezzi("gusto", List.of("1"), null, null, null));
+            assertThrows(IllegalArgumentException.class, () -> dao.doUpdatePrezzi("gusto", List.of("1"), 150, null, null));
+            assertThrows(IllegalArgumentException.class, () -> dao.doUpdatePrezzi("ids", List.of("1"), null, -100f, null));
+            mockedConPool.verifyNoInteractions();
         }
     }
-}
\ No newline at end of file
+}